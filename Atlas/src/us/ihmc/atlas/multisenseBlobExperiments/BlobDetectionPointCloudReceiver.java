@@ -5,6 +5,7 @@ import us.ihmc.ihmcPerception.depthData.PointCloudSource;
 import us.ihmc.robotics.referenceFrames.ReferenceFrame;
 
 import javax.vecmath.Point3d;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 
 public class BlobDetectionPointCloudReceiver implements PointCloudDataReceiverInterface
@@ -15,4 +16,11 @@ public class BlobDetectionPointCloudReceiver implements PointCloudDataReceiverIn
    {
       System.out.println(getClass().getSimpleName() + " - receiving point cloud");
    }
+
+   @Override
+   public void receivedPointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long timestamp, FloatBuffer points,
+         PointCloudSource... sources)
+   {
+      System.out.println(getClass().getSimpleName() + " - receiving point cloud");
+   }
 }
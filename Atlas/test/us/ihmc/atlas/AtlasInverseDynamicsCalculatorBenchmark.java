@@ -0,0 +1,18 @@
+package us.ihmc.atlas;
+
+import us.ihmc.darpaRoboticsChallenge.drcRobot.DRCRobotModel;
+import us.ihmc.darpaRoboticsChallenge.obstacleCourseTests.DRCInverseDynamicsCalculatorBenchmark;
+
+public class AtlasInverseDynamicsCalculatorBenchmark extends DRCInverseDynamicsCalculatorBenchmark
+{
+   @Override
+   public DRCRobotModel getRobotModel()
+   {
+      return new AtlasRobotModel(AtlasRobotVersion.ATLAS_UNPLUGGED_V5_NO_HANDS, DRCRobotModel.RobotTarget.SCS, false);
+   }
+
+   public static void main(String[] args)
+   {
+      new AtlasInverseDynamicsCalculatorBenchmark().run();
+   }
+}
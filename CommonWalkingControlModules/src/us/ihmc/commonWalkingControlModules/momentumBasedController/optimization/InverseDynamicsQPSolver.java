@@ -3,6 +3,7 @@ package us.ihmc.commonWalkingControlModules.momentumBasedController.optimization
 import org.ejml.data.DenseMatrix64F;
 import org.ejml.ops.CommonOps;
 
+import gnu.trove.list.array.TIntArrayList;
 import us.ihmc.convexOptimization.quadraticProgram.SimpleEfficientActiveSetQPSolver;
 import us.ihmc.robotics.dataStructures.registry.YoVariableRegistry;
 import us.ihmc.robotics.dataStructures.variable.BooleanYoVariable;
@@ -26,6 +27,7 @@ public class InverseDynamicsQPSolver
    private final YoFrameVector wrenchEquilibriumTorqueError;
 
    private final BooleanYoVariable firstCall = new BooleanYoVariable("firstCall", registry);
+   private final BooleanYoVariable useWarmStart = new BooleanYoVariable("useWarmStart", registry);
    private final SimpleEfficientActiveSetQPSolver qpSolver = new SimpleEfficientActiveSetQPSolver();
 
    private final DenseMatrix64F solverInput_H;
@@ -52,6 +54,8 @@ public class InverseDynamicsQPSolver
    private final DenseMatrix64F regularizationMatrix;
 
    private final DenseMatrix64F tempJtW;
+   private final TIntArrayList tempTaskColumnIndices = new TIntArrayList();
+   private final DenseMatrix64F tempCompactTaskJacobian;
    private final DenseMatrix64F tempMotionTask_H;
    private final DenseMatrix64F tempMotionTask_f;
    private final DenseMatrix64F tempRhoTask_H;
@@ -87,12 +91,17 @@ public class InverseDynamicsQPSolver
       solverOutput_rhos = new DenseMatrix64F(rhoSize, 1);
 
       tempJtW = new DenseMatrix64F(problemSize, problemSize);
+      tempCompactTaskJacobian = new DenseMatrix64F(problemSize, numberOfDoFs);
       tempMotionTask_H = new DenseMatrix64F(numberOfDoFs, numberOfDoFs);
       tempMotionTask_f = new DenseMatrix64F(numberOfDoFs, 1);
 
       tempRhoTask_H = new DenseMatrix64F(rhoSize, rhoSize);
       tempRhoTask_f = new DenseMatrix64F(rhoSize, 1);
 
+      // The controller does not use warm start yet. It has not been measured on a walking test, and H is rebuilt every tick so
+      // only the seeded active set could help. Set useWarmStart to compare qpSolverTimer and numberOfIterations.
+      useWarmStart.set(false);
+
       jointAccelerationRegularization.set(0.005);
       jointJerkRegularization.set(0.1);
       regularizationMatrix = new DenseMatrix64F(problemSize, problemSize);
@@ -165,35 +174,97 @@ public class InverseDynamicsQPSolver
 
    public void addMotionTask(DenseMatrix64F taskJ, DenseMatrix64F taskObjective, double taskWeight)
    {
+      if (!extractNonZeroColumns(taskJ, tempTaskColumnIndices, tempCompactTaskJacobian))
+         return;
+
       int taskSize = taskJ.getNumRows();
 
       // J^T W
-      tempJtW.reshape(numberOfDoFs, taskSize);
-      MatrixTools.scaleTranspose(taskWeight, taskJ, tempJtW);
+      tempJtW.reshape(tempTaskColumnIndices.size(), taskSize);
+      MatrixTools.scaleTranspose(taskWeight, tempCompactTaskJacobian, tempJtW);
 
-      addMotionTaskInternal(tempJtW, taskJ, taskObjective);
+      addMotionTaskInternal(tempJtW, tempCompactTaskJacobian, taskObjective);
    }
 
    public void addMotionTask(DenseMatrix64F taskJacobian, DenseMatrix64F taskObjective, DenseMatrix64F taskWeight)
    {
+      if (!extractNonZeroColumns(taskJacobian, tempTaskColumnIndices, tempCompactTaskJacobian))
+         return;
+
       int taskSize = taskJacobian.getNumRows();
 
       // J^T W
-      tempJtW.reshape(numberOfDoFs, taskSize);
-      CommonOps.multTransA(taskJacobian, taskWeight, tempJtW);
+      tempJtW.reshape(tempTaskColumnIndices.size(), taskSize);
+      CommonOps.multTransA(tempCompactTaskJacobian, taskWeight, tempJtW);
 
-      addMotionTaskInternal(tempJtW, taskJacobian, taskObjective);
+      addMotionTaskInternal(tempJtW, tempCompactTaskJacobian, taskObjective);
    }
 
-   private void addMotionTaskInternal(DenseMatrix64F taskJtW, DenseMatrix64F taskJacobian, DenseMatrix64F taskObjective)
+   /**
+    * The task Jacobian and J^T W given here only have the columns of the task Jacobian that are not zero, which are in {@link #tempTaskColumnIndices}.
+    * A task usually only involves the floating joint and one limb, so this only computes the blocks of H and f that the task actually changes.
+    */
+   private void addMotionTaskInternal(DenseMatrix64F taskJtW, DenseMatrix64F compactTaskJacobian, DenseMatrix64F taskObjective)
    {
+      int numberOfTaskColumns = tempTaskColumnIndices.size();
+
       // Compute: H += J^T W J
-      CommonOps.mult(taskJtW, taskJacobian, tempMotionTask_H);
-      MatrixTools.addMatrixBlock(solverInput_H, 0, 0, tempMotionTask_H, 0, 0, numberOfDoFs, numberOfDoFs, 1.0);
+      tempMotionTask_H.reshape(numberOfTaskColumns, numberOfTaskColumns);
+      CommonOps.mult(taskJtW, compactTaskJacobian, tempMotionTask_H);
 
       // Compute: f += - J^T W Objective
+      tempMotionTask_f.reshape(numberOfTaskColumns, 1);
       CommonOps.mult(taskJtW, taskObjective, tempMotionTask_f);
-      MatrixTools.addMatrixBlock(solverInput_f, 0, 0, tempMotionTask_f, 0, 0, numberOfDoFs, 1, -1.0);
+
+      for (int i = 0; i < numberOfTaskColumns; i++)
+      {
+         int row = tempTaskColumnIndices.get(i);
+
+         for (int j = 0; j < numberOfTaskColumns; j++)
+         {
+            int column = tempTaskColumnIndices.get(j);
+            solverInput_H.unsafe_set(row, column, solverInput_H.unsafe_get(row, column) + tempMotionTask_H.unsafe_get(i, j));
+         }
+
+         solverInput_f.unsafe_set(row, 0, solverInput_f.unsafe_get(row, 0) - tempMotionTask_f.unsafe_get(i, 0));
+      }
+   }
+
+   /**
+    * Packs the indices of the columns of the given task Jacobian that are not zero, and these columns in compactTaskJacobianToPack.
+    * @return false if the task Jacobian is zero.
+    */
+   private boolean extractNonZeroColumns(DenseMatrix64F taskJacobian, TIntArrayList columnIndicesToPack, DenseMatrix64F compactTaskJacobianToPack)
+   {
+      int taskSize = taskJacobian.getNumRows();
+      columnIndicesToPack.reset();
+
+      for (int column = 0; column < numberOfDoFs; column++)
+      {
+         for (int row = 0; row < taskSize; row++)
+         {
+            if (taskJacobian.unsafe_get(row, column) != 0.0)
+            {
+               columnIndicesToPack.add(column);
+               break;
+            }
+         }
+      }
+
+      int numberOfTaskColumns = columnIndicesToPack.size();
+      if (numberOfTaskColumns == 0)
+         return false;
+
+      compactTaskJacobianToPack.reshape(taskSize, numberOfTaskColumns);
+      for (int row = 0; row < taskSize; row++)
+      {
+         for (int i = 0; i < numberOfTaskColumns; i++)
+         {
+            compactTaskJacobianToPack.unsafe_set(row, i, taskJacobian.unsafe_get(row, columnIndicesToPack.get(i)));
+         }
+      }
+
+      return true;
    }
 
    public void addMotionConstraint(DenseMatrix64F taskJacobian, DenseMatrix64F taskObjective)
@@ -321,6 +392,7 @@ public class InverseDynamicsQPSolver
       qpSolverTimer.startMeasurement();
 
       qpSolver.clear();
+      qpSolver.setUseWarmStart(useWarmStart.getBooleanValue());
 
       qpSolver.setQuadraticCostFunction(solverInput_H, solverInput_f, 0.0);
       qpSolver.setVariableBounds(solverInput_lb, solverInput_ub);
@@ -4,6 +4,7 @@ import org.ejml.data.DenseMatrix64F;
 import org.ejml.factory.LinearSolverFactory;
 import org.ejml.interfaces.linsol.LinearSolver;
 import org.ejml.ops.CommonOps;
+import org.ejml.ops.MatrixFeatures;
 
 import gnu.trove.list.array.TIntArrayList;
 import us.ihmc.robotics.linearAlgebra.MatrixTools;
@@ -20,6 +21,11 @@ import us.ihmc.robotics.linearAlgebra.MatrixTools;
  * "An efficiently solvable quadratic program for stabilizing dynamic locomotion"
  * by Scott Kuindersma, Frank Permenter, and Russ Tedrake.
  * 
+ * When solving a sequence of similar problems, as a controller does every tick, 
+ * see {@link #setUseWarmStart(boolean)}.
+ * 
+ * When the quadratic cost matrix is block diagonal, see {@link #setUseBlockDiagonalInverse(boolean)}.
+ * 
  * @author JerryPratt
  *
  */
@@ -101,6 +107,67 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
 
    private final LinearSolver<DenseMatrix64F> solver = LinearSolverFactory.linear(0);
 
+   private boolean useWarmStart = false;
+   private int previousNumberOfVariables = -1;
+   private int previousNumberOfInequalityConstraints = -1;
+   private int previousNumberOfLowerBoundConstraints = -1;
+   private int previousNumberOfUpperBoundConstraints = -1;
+
+   private boolean isQInverseAndAQInverseValid = false;
+   private final DenseMatrix64F previousQuadraticCostQMatrix = new DenseMatrix64F(0, 0);
+   private final DenseMatrix64F previousLinearEqualityConstraintsAMatrix = new DenseMatrix64F(0, 0);
+
+   private boolean useBlockDiagonalInverse = false;
+   private final TIntArrayList costBlockSizes = new TIntArrayList();
+   private BlockDiagSquareMatrix blockDiagonalQ = null;
+   private BlockDiagSquareMatrix blockDiagonalQInverse = null;
+
+   /**
+    * When warm start is enabled, each solve starts from the active set found by the previous solve
+    * instead of an empty active set, and reuses the inverse of the quadratic cost matrix if neither the
+    * cost matrix nor the equality constraints matrix changed since the previous solve.
+    * Falls back to a cold start when the number of variables, inequality constraints, or bounds changes.
+    * 
+    * @param useWarmStart whether to warm start the next solves. Disabled by default.
+    */
+   public void setUseWarmStart(boolean useWarmStart)
+   {
+      this.useWarmStart = useWarmStart;
+   }
+
+   public boolean getUseWarmStart()
+   {
+      return useWarmStart;
+   }
+
+   /**
+    * When enabled, each inversion of the quadratic cost matrix first looks for its diagonal blocks, and inverts it
+    * block by block if there is more than one. Finding the blocks scans the upper triangle of the matrix, so this
+    * only pays off for costs that are known to be block diagonal.
+    * 
+    * @param useBlockDiagonalInverse whether to invert the cost matrix block by block. Disabled by default.
+    */
+   public void setUseBlockDiagonalInverse(boolean useBlockDiagonalInverse)
+   {
+      this.useBlockDiagonalInverse = useBlockDiagonalInverse;
+   }
+
+   public boolean getUseBlockDiagonalInverse()
+   {
+      return useBlockDiagonalInverse;
+   }
+
+   /**
+    * Forgets the active set and the factorization of the previous solve, so the next solve is a cold start.
+    */
+   public void resetActiveSet()
+   {
+      activeInequalityIndices.reset();
+      activeUpperBoundIndices.reset();
+      activeLowerBoundIndices.reset();
+      isQInverseAndAQInverseValid = false;
+   }
+
    @Override
    public void setMaxNumberOfIterations(int maxNumberOfIterations)
    {
@@ -325,15 +392,6 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
    public int solve(DenseMatrix64F solutionToPack, DenseMatrix64F lagrangeEqualityConstraintMultipliersToPack, DenseMatrix64F lagrangeInequalityConstraintMultipliersToPack,
          DenseMatrix64F lagrangeLowerBoundConstraintMultipliersToPack, DenseMatrix64F lagrangeUpperBoundConstraintMultipliersToPack)
    {
-      CBar.reshape(0, 0);
-      CHat.reshape(0, 0);
-      DBar.reshape(0, 0);
-      DHat.reshape(0, 0);
-
-      activeInequalityIndices.reset();
-      activeUpperBoundIndices.reset();
-      activeLowerBoundIndices.reset();
-
       int numberOfIterations = 0;
 
       int numberOfVariables = quadraticCostQMatrix.getNumRows();
@@ -342,6 +400,19 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
       int numberOfLowerBoundConstraints = variableLowerBounds.getNumRows();
       int numberOfUpperBoundConstraints = variableUpperBounds.getNumRows();
 
+      boolean warmStart = useWarmStart && numberOfVariables == previousNumberOfVariables && numberOfInequalityConstraints == previousNumberOfInequalityConstraints
+            && numberOfLowerBoundConstraints == previousNumberOfLowerBoundConstraints && numberOfUpperBoundConstraints == previousNumberOfUpperBoundConstraints;
+
+      previousNumberOfVariables = numberOfVariables;
+      previousNumberOfInequalityConstraints = numberOfInequalityConstraints;
+      previousNumberOfLowerBoundConstraints = numberOfLowerBoundConstraints;
+      previousNumberOfUpperBoundConstraints = numberOfUpperBoundConstraints;
+
+      if (warmStart)
+         removeInfiniteBoundsFromActiveSet();
+      else
+         resetActiveSet();
+
       solutionToPack.reshape(numberOfVariables, 1);
       lagrangeEqualityConstraintMultipliersToPack.reshape(numberOfEqualityConstraints, 1);
       lagrangeEqualityConstraintMultipliersToPack.zero();
@@ -352,11 +423,28 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
       lagrangeUpperBoundConstraintMultipliersToPack.reshape(numberOfUpperBoundConstraints, 1);
       lagrangeUpperBoundConstraintMultipliersToPack.zero();
 
-      computeQInverseAndAQInverse();
+      if (!warmStart || !isQInverseAndAQInverseValid || !MatrixFeatures.isEquals(quadraticCostQMatrix, previousQuadraticCostQMatrix)
+            || !MatrixFeatures.isEquals(linearEqualityConstraintsAMatrix, previousLinearEqualityConstraintsAMatrix))
+      {
+         computeQInverseAndAQInverse();
+      }
 
+      updateActiveSetConstraints();
       solveEqualityConstrainedSubproblemEfficiently(solutionToPack, lagrangeEqualityConstraintMultipliersToPack, lagrangeInequalityConstraintMultipliersToPack, lagrangeLowerBoundConstraintMultipliersToPack,
             lagrangeUpperBoundConstraintMultipliersToPack);
-      
+
+      if (warmStart && containsNaN(solutionToPack))
+      {
+         // The previous active set does not work for this problem, start over from an empty one.
+         activeInequalityIndices.reset();
+         activeUpperBoundIndices.reset();
+         activeLowerBoundIndices.reset();
+
+         updateActiveSetConstraints();
+         solveEqualityConstrainedSubproblemEfficiently(solutionToPack, lagrangeEqualityConstraintMultipliersToPack, lagrangeInequalityConstraintMultipliersToPack, lagrangeLowerBoundConstraintMultipliersToPack,
+               lagrangeUpperBoundConstraintMultipliersToPack);
+      }
+
 //      System.out.println(numberOfInequalityConstraints + ", " + numberOfLowerBoundConstraints + ", " + numberOfUpperBoundConstraints);
       if ((numberOfInequalityConstraints == 0) && (numberOfLowerBoundConstraints == 0) && (numberOfUpperBoundConstraints == 0))
          return numberOfIterations;
@@ -376,9 +464,29 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
       for (int i=0; i<numberOfVariables; i++)
          solutionToPack.set(i, 0, Double.NaN);
 
+      // Do not warm start the next solve from an active set that did not converge.
+      activeInequalityIndices.reset();
+      activeUpperBoundIndices.reset();
+      activeLowerBoundIndices.reset();
+
       return numberOfIterations;
    }
 
+   private void removeInfiniteBoundsFromActiveSet()
+   {
+      for (int i = activeLowerBoundIndices.size() - 1; i >= 0; i--)
+      {
+         if (Double.isInfinite(variableLowerBounds.get(activeLowerBoundIndices.get(i), 0)))
+            activeLowerBoundIndices.removeAt(i);
+      }
+
+      for (int i = activeUpperBoundIndices.size() - 1; i >= 0; i--)
+      {
+         if (Double.isInfinite(variableUpperBounds.get(activeUpperBoundIndices.get(i), 0)))
+            activeUpperBoundIndices.removeAt(i);
+      }
+   }
+
    private void computeQInverseAndAQInverse()
    {
       int numberOfVariables = quadraticCostQMatrix.getNumRows();
@@ -388,20 +496,104 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
       CommonOps.transpose(linearEqualityConstraintsAMatrix, ATranspose);
       QInverse.reshape(numberOfVariables, numberOfVariables);
 
-      solver.setA(quadraticCostQMatrix);
-      solver.invert(QInverse);
-
       AQInverse.reshape(numberOfEqualityConstraints, numberOfVariables);
       QInverseATranspose.reshape(numberOfVariables, numberOfEqualityConstraints);
       AQInverseATranspose.reshape(numberOfEqualityConstraints, numberOfEqualityConstraints);
 
+      boolean isQBlockDiagonal = false;
+      if (useBlockDiagonalInverse)
+      {
+         findDiagonalBlocks(quadraticCostQMatrix, costBlockSizes);
+         isQBlockDiagonal = costBlockSizes.size() > 1;
+      }
+
+      if (isQBlockDiagonal)
+      {
+         updateBlockDiagonalMatrices();
+         blockDiagonalQ.set(quadraticCostQMatrix);
+         blockDiagonalQ.packInverse(solver, blockDiagonalQInverse);
+         QInverse.set(blockDiagonalQInverse);
+      }
+      else
+      {
+         solver.setA(quadraticCostQMatrix);
+         solver.invert(QInverse);
+      }
+
       if (numberOfEqualityConstraints > 0)
       {
-         CommonOps.mult(linearEqualityConstraintsAMatrix, QInverse, AQInverse);
-         CommonOps.mult(QInverse, ATranspose, QInverseATranspose);
+         if (isQBlockDiagonal)
+         {
+            // QInverse is symmetric, so A * QInverse is the transpose of QInverse * A^T
+            blockDiagonalQInverse.multTransB(linearEqualityConstraintsAMatrix, QInverseATranspose);
+            CommonOps.transpose(QInverseATranspose, AQInverse);
+         }
+         else
+         {
+            CommonOps.mult(linearEqualityConstraintsAMatrix, QInverse, AQInverse);
+            CommonOps.mult(QInverse, ATranspose, QInverseATranspose);
+         }
          CommonOps.mult(AQInverse, ATranspose, AQInverseATranspose);
       }
 
+      previousQuadraticCostQMatrix.set(quadraticCostQMatrix);
+      previousLinearEqualityConstraintsAMatrix.set(linearEqualityConstraintsAMatrix);
+      isQInverseAndAQInverseValid = true;
+   }
+
+   /**
+    * Finds the sizes of the diagonal blocks of a symmetric matrix, such that all the entries outside of these blocks are zero.
+    * Only the upper triangle is looked at.
+    */
+   static void findDiagonalBlocks(DenseMatrix64F symmetricMatrix, TIntArrayList blockSizesToPack)
+   {
+      blockSizesToPack.reset();
+
+      int size = symmetricMatrix.getNumRows();
+      int blockStart = 0;
+      int blockEnd = 0;
+
+      for (int row = 0; row < size; row++)
+      {
+         for (int column = size - 1; column > blockEnd; column--)
+         {
+            if (symmetricMatrix.unsafe_get(row, column) != 0.0)
+            {
+               blockEnd = column;
+               break;
+            }
+         }
+
+         if (row == blockEnd)
+         {
+            blockSizesToPack.add(blockEnd - blockStart + 1);
+            blockStart = row + 1;
+            blockEnd = row + 1;
+         }
+      }
+   }
+
+   private void updateBlockDiagonalMatrices()
+   {
+      if (blockDiagonalQ != null && costBlockSizes.size() == blockDiagonalQ.getNumBlocks())
+      {
+         boolean sameBlocks = true;
+         for (int i = 0; i < costBlockSizes.size(); i++)
+         {
+            if (costBlockSizes.get(i) != blockDiagonalQ.blockSizes[i])
+            {
+               sameBlocks = false;
+               break;
+            }
+         }
+
+         if (sameBlocks)
+            return;
+      }
+
+      // Only allocates when the structure of the problem changes
+      blockDiagonalQ = new BlockDiagSquareMatrix(costBlockSizes.toArray());
+      blockDiagonalQInverse = new BlockDiagSquareMatrix(costBlockSizes.toArray());
    }
 
    private void computeCBarTempMatrices()
@@ -489,7 +681,6 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
 
       boolean activeSetWasModified = false;
 
-      int numberOfVariables = quadraticCostQMatrix.getNumRows();
       //      int numberOfEqualityConstraints = linearEqualityConstraintsAMatrix.getNumRows();
       int numberOfInequalityConstraints = linearInequalityConstraintsCMatrixO.getNumRows();
       int numberOfLowerBoundConstraints = variableLowerBounds.getNumRows();
@@ -598,6 +789,18 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
       activeUpperBoundIndices.addAll(upperBoundIndicesToAddToActiveSet);
       activeUpperBoundIndices.removeAll(upperBoundIndicesToRemoveFromActiveSet);
 
+      updateActiveSetConstraints();
+
+      solveEqualityConstrainedSubproblemEfficiently(solutionToPack, lagrangeEqualityConstraintMultipliersToPack, lagrangeInequalityConstraintMultipliersToPack, lagrangeLowerBoundConstraintMultipliersToPack,
+            lagrangeUpperBoundConstraintMultipliersToPack);
+
+      return true;
+   }
+
+   private void updateActiveSetConstraints()
+   {
+      int numberOfVariables = quadraticCostQMatrix.getNumRows();
+
       // Add active set constraints as equality constraints:
       int sizeOfActiveSet = activeInequalityIndices.size();
 
@@ -642,11 +845,6 @@ public class SimpleEfficientActiveSetQPSolver implements SimpleActiveSetQPSolver
          DHat.set(row, 0, variableUpperBounds.get(upperBoundsConstraintIndex));
          row++;
       }
-
-      solveEqualityConstrainedSubproblemEfficiently(solutionToPack, lagrangeEqualityConstraintMultipliersToPack, lagrangeInequalityConstraintMultipliersToPack, lagrangeLowerBoundConstraintMultipliersToPack,
-            lagrangeUpperBoundConstraintMultipliersToPack);
-
-      return true;
    }
 
    private boolean containsNaN(DenseMatrix64F solution)
@@ -1,5 +1,20 @@
 package us.ihmc.convexOptimization.quadraticProgram;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.ejml.data.DenseMatrix64F;
+import org.ejml.ops.CommonOps;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import us.ihmc.robotics.random.RandomTools;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+
 public class SimpleEfficientActiveSetQPSolverTest extends AbstractSimpleActiveSetQPSolverTest
 {
    @Override
@@ -7,4 +22,247 @@ public class SimpleEfficientActiveSetQPSolverTest extends AbstractSimpleActiveSe
    {
       return new SimpleEfficientActiveSetQPSolver();
    }
+
+   @DeployableTestMethod(estimatedDuration = 0.3)
+   @Test(timeout = 30000)
+   public void testWarmStartOnSlowlyChangingProblem()
+   {
+      Random random = new Random(1776L);
+
+      SimpleEfficientActiveSetQPSolver coldSolver = new SimpleEfficientActiveSetQPSolver();
+      SimpleEfficientActiveSetQPSolver warmSolver = new SimpleEfficientActiveSetQPSolver();
+      warmSolver.setUseWarmStart(true);
+      assertFalse(coldSolver.getUseWarmStart());
+      assertTrue(warmSolver.getUseWarmStart());
+
+      int numberOfVariables = 40;
+      int numberOfEqualityConstraints = 5;
+      int numberOfInequalityConstraints = 20;
+      int numberOfTicks = 200;
+
+      DenseMatrix64F costQuadraticMatrix = RandomTools.generateRandomMatrix(random, numberOfVariables, numberOfVariables);
+      DenseMatrix64F identity = CommonOps.identity(numberOfVariables, numberOfVariables); // Add n*I to make sure it is positive definite...
+      CommonOps.scale(numberOfVariables, identity);
+      CommonOps.addEquals(costQuadraticMatrix, identity);
+      DenseMatrix64F costLinearVector = RandomTools.generateRandomMatrix(random, numberOfVariables, 1, -50.0, 50.0);
+
+      DenseMatrix64F linearEqualityConstraintsAMatrix = RandomTools.generateRandomMatrix(random, numberOfEqualityConstraints, numberOfVariables);
+      DenseMatrix64F linearEqualityConstraintsBVector = RandomTools.generateRandomMatrix(random, numberOfEqualityConstraints, 1);
+      DenseMatrix64F linearInequalityConstraintsCMatrix = RandomTools.generateRandomMatrix(random, numberOfInequalityConstraints, numberOfVariables);
+      DenseMatrix64F linearInequalityConstraintsDVector = RandomTools.generateRandomMatrix(random, numberOfInequalityConstraints, 1);
+
+      DenseMatrix64F variableLowerBounds = RandomTools.generateRandomMatrix(random, numberOfVariables, 1, -1.0, -0.01);
+      DenseMatrix64F variableUpperBounds = RandomTools.generateRandomMatrix(random, numberOfVariables, 1, 0.01, 1.0);
+      // Some unbounded variables, as for the joint accelerations of the floating joint
+      for (int i = 0; i < 4; i++)
+      {
+         variableLowerBounds.set(i, 0, Double.NEGATIVE_INFINITY);
+         variableUpperBounds.set(i, 0, Double.POSITIVE_INFINITY);
+      }
+
+      DenseMatrix64F coldSolution = new DenseMatrix64F(0, 0);
+      DenseMatrix64F warmSolution = new DenseMatrix64F(0, 0);
+
+      int totalColdIterations = 0;
+      int totalWarmIterations = 0;
+      int numberOfSolvedTicks = 0;
+
+      for (int tick = 0; tick < numberOfTicks; tick++)
+      {
+         // Only the linear part of the cost changes on most ticks, the quadratic part changes now and then
+         for (int i = 0; i < numberOfVariables; i++)
+            costLinearVector.add(i, 0, RandomTools.generateRandomDouble(random, 0.5));
+         if (tick % 10 == 0)
+            costQuadraticMatrix.add(0, 0, 0.1);
+
+         for (SimpleEfficientActiveSetQPSolver solver : new SimpleEfficientActiveSetQPSolver[] {coldSolver, warmSolver})
+         {
+            solver.clear();
+            solver.setQuadraticCostFunction(costQuadraticMatrix, costLinearVector, 0.0);
+            solver.setLinearEqualityConstraints(linearEqualityConstraintsAMatrix, linearEqualityConstraintsBVector);
+            solver.setLinearInequalityConstraints(linearInequalityConstraintsCMatrix, linearInequalityConstraintsDVector);
+            solver.setVariableBounds(variableLowerBounds, variableUpperBounds);
+         }
+
+         int coldIterations = coldSolver.solve(coldSolution);
+         int warmIterations = warmSolver.solve(warmSolution);
+
+         if (Double.isNaN(coldSolution.get(0, 0)))
+            continue;
+
+         numberOfSolvedTicks++;
+         totalColdIterations += coldIterations;
+         totalWarmIterations += warmIterations;
+
+         assertFalse(Double.isNaN(warmSolution.get(0, 0)));
+         for (int i = 0; i < numberOfVariables; i++)
+            assertEquals(coldSolution.get(i, 0), warmSolution.get(i, 0), 1e-7);
+      }
+
+      assertTrue(numberOfSolvedTicks > numberOfTicks / 2);
+      assertTrue("cold iterations: " + totalColdIterations + ", warm iterations: " + totalWarmIterations, totalWarmIterations < totalColdIterations);
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.0)
+   @Test(timeout = 30000)
+   public void testWarmStartWhenProblemSizeChanges()
+   {
+      SimpleEfficientActiveSetQPSolver solver = new SimpleEfficientActiveSetQPSolver();
+      solver.setUseWarmStart(true);
+      DenseMatrix64F solution = new DenseMatrix64F(0, 0);
+
+      // Minimize (x-5)^2 + (y-3)^2 subject to x <= 1, y <= 1
+      solver.setQuadraticCostFunction(new double[][] {{2.0, 0.0}, {0.0, 2.0}}, new double[] {-10.0, -6.0}, 34.0);
+      solver.setVariableBounds(new double[] {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY}, new double[] {1.0, 1.0});
+      solver.solve(solution);
+      assertEquals(1.0, solution.get(0, 0), 1e-7);
+      assertEquals(1.0, solution.get(1, 0), 1e-7);
+
+      // Same problem warm started, the active set is already right and only has to be checked once
+      assertEquals(1, solver.solve(solution));
+      assertEquals(1.0, solution.get(0, 0), 1e-7);
+      assertEquals(1.0, solution.get(1, 0), 1e-7);
+
+      // One more variable, has to start from an empty active set: minimize (x-5)^2 + (y-3)^2 + (z+2)^2 subject to x <= 1, y <= 4, z >= -1
+      solver.clear();
+      solver.setQuadraticCostFunction(new double[][] {{2.0, 0.0, 0.0}, {0.0, 2.0, 0.0}, {0.0, 0.0, 2.0}}, new double[] {-10.0, -6.0, 4.0}, 38.0);
+      solver.setVariableBounds(new double[] {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, -1.0}, new double[] {1.0, 4.0, Double.POSITIVE_INFINITY});
+      solver.solve(solution);
+      assertEquals(1.0, solution.get(0, 0), 1e-7);
+      assertEquals(3.0, solution.get(1, 0), 1e-7);
+      assertEquals(-1.0, solution.get(2, 0), 1e-7);
+
+      // The bound on x is removed, it has to leave the active set
+      solver.clear();
+      solver.setQuadraticCostFunction(new double[][] {{2.0, 0.0, 0.0}, {0.0, 2.0, 0.0}, {0.0, 0.0, 2.0}}, new double[] {-10.0, -6.0, 4.0}, 38.0);
+      solver.setVariableBounds(new double[] {Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, -1.0}, new double[] {Double.POSITIVE_INFINITY, 4.0, Double.POSITIVE_INFINITY});
+      solver.solve(solution);
+      assertEquals(5.0, solution.get(0, 0), 1e-7);
+      assertEquals(3.0, solution.get(1, 0), 1e-7);
+      assertEquals(-1.0, solution.get(2, 0), 1e-7);
+
+      // After a reset, the same problem is cold started
+      solver.resetActiveSet();
+      assertEquals(2, solver.solve(solution));
+      assertEquals(5.0, solution.get(0, 0), 1e-7);
+      assertEquals(-1.0, solution.get(2, 0), 1e-7);
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.0)
+   @Test(timeout = 30000)
+   public void testFindDiagonalBlocks()
+   {
+      TIntArrayList blockSizes = new TIntArrayList();
+
+      DenseMatrix64F matrix = new DenseMatrix64F(6, 6);
+      SimpleEfficientActiveSetQPSolver.findDiagonalBlocks(matrix, blockSizes);
+      assertArrayEquals(new int[] {1, 1, 1, 1, 1, 1}, blockSizes.toArray());
+
+      // Blocks {0}, {1, 2, 3}, {4, 5}, with the coupling of 1 and 3 only through the corner of the block
+      matrix.set(0, 0, 1.0);
+      matrix.set(1, 3, 1.0);
+      matrix.set(3, 1, 1.0);
+      matrix.set(2, 2, 1.0);
+      matrix.set(4, 5, 1.0);
+      matrix.set(5, 4, 1.0);
+      SimpleEfficientActiveSetQPSolver.findDiagonalBlocks(matrix, blockSizes);
+      assertArrayEquals(new int[] {1, 3, 2}, blockSizes.toArray());
+
+      matrix.set(0, 5, 1.0);
+      matrix.set(5, 0, 1.0);
+      SimpleEfficientActiveSetQPSolver.findDiagonalBlocks(matrix, blockSizes);
+      assertArrayEquals(new int[] {6}, blockSizes.toArray());
+
+      SimpleEfficientActiveSetQPSolver.findDiagonalBlocks(new DenseMatrix64F(0, 0), blockSizes);
+      assertEquals(0, blockSizes.size());
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.3)
+   @Test(timeout = 30000)
+   public void testBlockDiagonalCostAgainstDenseCost()
+   {
+      Random random = new Random(1984L);
+
+      int[] blockSizes = new int[] {6, 10, 4, 4, 8};
+      int numberOfVariables = 32;
+      int numberOfEqualityConstraints = 6;
+      int numberOfInequalityConstraints = 10;
+
+      // Interleaving the variables of the blocks makes the cost matrix a single dense block for the solver
+      int[] permutation = new int[numberOfVariables];
+      for (int i = 0; i < numberOfVariables; i++)
+         permutation[i] = (7 * i) % numberOfVariables;
+
+      DenseMatrix64F solution = new DenseMatrix64F(0, 0);
+      DenseMatrix64F permutedSolution = new DenseMatrix64F(0, 0);
+
+      for (int test = 0; test < 50; test++)
+      {
+         DenseMatrix64F costQuadraticMatrix = new DenseMatrix64F(numberOfVariables, numberOfVariables);
+         int blockStart = 0;
+         for (int blockSize : blockSizes)
+         {
+            DenseMatrix64F block = RandomTools.generateRandomMatrix(random, blockSize, blockSize);
+            DenseMatrix64F blockTranspose = new DenseMatrix64F(blockSize, blockSize);
+            CommonOps.transpose(block, blockTranspose);
+            DenseMatrix64F positiveDefiniteBlock = new DenseMatrix64F(blockSize, blockSize);
+            CommonOps.mult(block, blockTranspose, positiveDefiniteBlock);
+            for (int i = 0; i < blockSize; i++)
+               positiveDefiniteBlock.add(i, i, 1.0);
+            CommonOps.insert(positiveDefiniteBlock, costQuadraticMatrix, blockStart, blockStart);
+            blockStart += blockSize;
+         }
+
+         DenseMatrix64F costLinearVector = RandomTools.generateRandomMatrix(random, numberOfVariables, 1, -10.0, 10.0);
+         DenseMatrix64F linearEqualityConstraintsAMatrix = RandomTools.generateRandomMatrix(random, numberOfEqualityConstraints, numberOfVariables);
+         DenseMatrix64F linearEqualityConstraintsBVector = RandomTools.generateRandomMatrix(random, numberOfEqualityConstraints, 1);
+         DenseMatrix64F linearInequalityConstraintsCMatrix = RandomTools.generateRandomMatrix(random, numberOfInequalityConstraints, numberOfVariables);
+         DenseMatrix64F linearInequalityConstraintsDVector = RandomTools.generateRandomMatrix(random, numberOfInequalityConstraints, 1);
+         DenseMatrix64F variableLowerBounds = RandomTools.generateRandomMatrix(random, numberOfVariables, 1, -5.0, -0.1);
+         DenseMatrix64F variableUpperBounds = RandomTools.generateRandomMatrix(random, numberOfVariables, 1, 0.1, 5.0);
+
+         SimpleEfficientActiveSetQPSolver solver = new SimpleEfficientActiveSetQPSolver();
+         solver.setUseBlockDiagonalInverse(true);
+         solver.setQuadraticCostFunction(costQuadraticMatrix, costLinearVector, 0.0);
+         solver.setLinearEqualityConstraints(linearEqualityConstraintsAMatrix, linearEqualityConstraintsBVector);
+         solver.setLinearInequalityConstraints(linearInequalityConstraintsCMatrix, linearInequalityConstraintsDVector);
+         solver.setVariableBounds(variableLowerBounds, variableUpperBounds);
+         int numberOfIterations = solver.solve(solution);
+
+         SimpleEfficientActiveSetQPSolver permutedSolver = new SimpleEfficientActiveSetQPSolver();
+         permutedSolver.setQuadraticCostFunction(permute(costQuadraticMatrix, permutation, permutation), permute(costLinearVector, permutation, null), 0.0);
+         permutedSolver.setLinearEqualityConstraints(permute(linearEqualityConstraintsAMatrix, null, permutation), linearEqualityConstraintsBVector);
+         permutedSolver.setLinearInequalityConstraints(permute(linearInequalityConstraintsCMatrix, null, permutation), linearInequalityConstraintsDVector);
+         permutedSolver.setVariableBounds(permute(variableLowerBounds, permutation, null), permute(variableUpperBounds, permutation, null));
+         int permutedNumberOfIterations = permutedSolver.solve(permutedSolution);
+
+         assertEquals(permutedNumberOfIterations, numberOfIterations);
+         for (int i = 0; i < numberOfVariables; i++)
+         {
+            if (Double.isNaN(permutedSolution.get(i, 0)))
+               assertTrue(Double.isNaN(solution.get(permutation[i], 0)));
+            else
+               assertEquals(permutedSolution.get(i, 0), solution.get(permutation[i], 0), 1e-8);
+         }
+      }
+   }
+
+   /**
+    * Returns the matrix which row i is the row rowPermutation[i] of the given matrix, and same for the columns.
+    */
+   private static DenseMatrix64F permute(DenseMatrix64F matrix, int[] rowPermutation, int[] columnPermutation)
+   {
+      DenseMatrix64F permutedMatrix = new DenseMatrix64F(matrix.getNumRows(), matrix.getNumCols());
+      for (int row = 0; row < matrix.getNumRows(); row++)
+      {
+         for (int column = 0; column < matrix.getNumCols(); column++)
+         {
+            int originalRow = rowPermutation == null ? row : rowPermutation[row];
+            int originalColumn = columnPermutation == null ? column : columnPermutation[column];
+            permutedMatrix.set(row, column, matrix.get(originalRow, originalColumn));
+         }
+      }
+
+      return permutedMatrix;
+   }
 }
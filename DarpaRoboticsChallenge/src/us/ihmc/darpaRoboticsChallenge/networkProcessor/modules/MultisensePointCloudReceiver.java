@@ -29,6 +29,8 @@ public class MultisensePointCloudReceiver extends RosPointCloudSubscriber
    private ReferenceFrame pointCloudReferenceFrame;
    private final ReferenceFrame headRootReferenceFrame;
    private final HumanoidRobotDataReceiver robotDataReceiver;
+   private final PackedPointCloud packedPointCloud = new PackedPointCloud();
+   private final Point3d point = new Point3d();
    
    public MultisensePointCloudReceiver(PacketCommunicator packetCommunicator, MultisenseTest testInfo, DRCRobotModel robotModel)
    {
@@ -58,21 +60,25 @@ public class MultisensePointCloudReceiver extends RosPointCloudSubscriber
    {
       robotDataReceiver.updateRobotModel();
       pointCloudReferenceFrame.update();
-      UnpackedPointCloud pointCloudData = unpackPointsAndIntensities(pointCloud);
-      Point3d[] points = pointCloudData.getPoints();
+      unpackPoints(pointCloud, packedPointCloud);
       
       RigidBodyTransform pointTransform = new RigidBodyTransform(headInMocapFrame.get());
       RigidBodyTransform transformFromPointCloudOriginToHeadRoot = pointCloudReferenceFrame.getTransformToDesiredFrame(headRootReferenceFrame);
       pointTransform.multiply(transformFromPointCloudOriginToHeadRoot);
       
-      for(int i = 0; i < points.length; i++)
+      float[] xyz = packedPointCloud.getXYZ();
+      for(int i = 0; i < packedPointCloud.getNumberOfPoints(); i++)
       {
-    	  pointTransform.transform(points[i]);
+         point.set(xyz[3 * i], xyz[3 * i + 1], xyz[3 * i + 2]);
+         pointTransform.transform(point);
+         xyz[3 * i] = (float) point.getX();
+         xyz[3 * i + 1] = (float) point.getY();
+         xyz[3 * i + 2] = (float) point.getZ();
       }
       
       MultisenseMocapExperimentPacket pointCloudPacket = new MultisenseMocapExperimentPacket();
       pointCloudPacket.setDestination(PacketDestination.UI);
-      pointCloudPacket.setPointCloud(points, testInfo);
+      pointCloudPacket.setPointCloud(packedPointCloud.getXYZBuffer(), testInfo);
       packetCommunicator.send(pointCloudPacket);
    }
    
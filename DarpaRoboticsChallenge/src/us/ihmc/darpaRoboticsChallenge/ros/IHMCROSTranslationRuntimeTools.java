@@ -19,15 +19,23 @@ import javax.vecmath.Point2d;
 import javax.vecmath.Point3d;
 import javax.vecmath.Quat4d;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class IHMCROSTranslationRuntimeTools
 {
    private static final MessageFactory messageFactory = GenericROSTranslationTools.getMessageFactory();
 
+   private static final MethodHandle NO_CUSTOM_CONVERSION = MethodHandles.constant(Object.class, null);
+   private static final ConcurrentHashMap<Class<?>, MethodHandle> customToRosConversions = new ConcurrentHashMap<>();
+   private static final ConcurrentHashMap<String, MethodHandle> customToIHMCConversions = new ConcurrentHashMap<>();
+
    public static Message convertToRosMessage(Packet<?> ihmcMessage)
          throws InvocationTargetException, IllegalAccessException, NoSuchMethodException, ClassNotFoundException
    {
@@ -36,16 +44,19 @@ public class IHMCROSTranslationRuntimeTools
          return null;
       }
       Class<? extends Packet> aClass = ihmcMessage.getClass();
-      try
+      MethodHandle customConversion = customToRosConversions.get(aClass);
+      if (customConversion == null)
       {
-         Method convertToRosMessageMethod = IHMCROSTranslationRuntimeTools.class.getDeclaredMethod("customConvertToRosMessage", aClass);
-         convertToRosMessageMethod.setAccessible(true);
-         return (Message) convertToRosMessageMethod.invoke(null, ihmcMessage);
+         customConversion = findCustomConversion("customConvertToRosMessage", aClass);
+         customToRosConversions.put(aClass, customConversion);
       }
-      catch (NoSuchMethodException exception)
+
+      if (customConversion == NO_CUSTOM_CONVERSION)
       {
          return GenericROSTranslationTools.convertIHMCMessageToRosMessage(ihmcMessage);
       }
+
+      return (Message) invokeCustomConversion(customConversion, ihmcMessage);
    }
 
    public static Packet<?> convertToIHMCMessage(Message rosMessage)
@@ -56,17 +67,49 @@ public class IHMCROSTranslationRuntimeTools
       {
          return null;
       }
-      Class<?> aClass = Class.forName(rosMessage.toRawMessage().getType().replace("/", "."));
+      String rosMessageType = rosMessage.toRawMessage().getType();
+      MethodHandle customConversion = customToIHMCConversions.get(rosMessageType);
+      if (customConversion == null)
+      {
+         customConversion = findCustomConversion("customConvertToIHMCMessage", Class.forName(rosMessageType.replace("/", ".")));
+         customToIHMCConversions.put(rosMessageType, customConversion);
+      }
+
+      if (customConversion == NO_CUSTOM_CONVERSION)
+      {
+         return GenericROSTranslationTools.convertRosMessageToIHMCMessage(rosMessage);
+      }
 
+      return (Packet<?>) invokeCustomConversion(customConversion, rosMessage);
+   }
+
+   /**
+    * The custom conversions are looked up once per message type, most types have none and would otherwise throw a
+    * NoSuchMethodException for every message.
+    */
+   private static MethodHandle findCustomConversion(String methodName, Class<?> messageClass) throws IllegalAccessException
+   {
       try
       {
-         Method convertToIHMCMessageMethod = IHMCROSTranslationRuntimeTools.class.getDeclaredMethod("customConvertToIHMCMessage", aClass);
-         convertToIHMCMessageMethod.setAccessible(true);
-         return (Packet<?>) convertToIHMCMessageMethod.invoke(null, rosMessage);
+         Method conversionMethod = IHMCROSTranslationRuntimeTools.class.getDeclaredMethod(methodName, messageClass);
+         conversionMethod.setAccessible(true);
+         return MethodHandles.lookup().unreflect(conversionMethod).asType(MethodType.methodType(Object.class, Object.class));
       }
       catch (NoSuchMethodException exception)
       {
-         return GenericROSTranslationTools.convertRosMessageToIHMCMessage(rosMessage);
+         return NO_CUSTOM_CONVERSION;
+      }
+   }
+
+   private static Object invokeCustomConversion(MethodHandle customConversion, Object message) throws InvocationTargetException
+   {
+      try
+      {
+         return customConversion.invokeExact(message);
+      }
+      catch (Throwable e)
+      {
+         throw new InvocationTargetException(e);
       }
    }
 
@@ -26,6 +26,11 @@ public class DRCOctree extends Octree implements QuadTreeForGroundListener
       //ignore
    }
 
+   public void rawPointsAdded(float[] points, int numberOfPoints)
+   {
+      //ignore
+   }
+
    public void PopToOctree(Point3f location)
    {
       double[] locationArray = new double[3];
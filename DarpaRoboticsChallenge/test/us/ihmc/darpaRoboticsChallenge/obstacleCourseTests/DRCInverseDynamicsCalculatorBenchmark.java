@@ -0,0 +1,111 @@
+package us.ihmc.darpaRoboticsChallenge.obstacleCourseTests;
+
+import java.util.Random;
+
+import us.ihmc.SdfLoader.SDFFullHumanoidRobotModel;
+import us.ihmc.darpaRoboticsChallenge.drcRobot.DRCRobotModel;
+import us.ihmc.robotics.referenceFrames.ReferenceFrame;
+import us.ihmc.robotics.screwTheory.CompiledInverseDynamicsCalculator;
+import us.ihmc.robotics.screwTheory.InverseDynamicsCalculator;
+import us.ihmc.robotics.screwTheory.OneDoFJoint;
+import us.ihmc.robotics.screwTheory.ScrewTestTools;
+import us.ihmc.robotics.screwTheory.TwistCalculator;
+
+/**
+ * Compares the time per compute() of the {@link InverseDynamicsCalculator} and the {@link CompiledInverseDynamicsCalculator}
+ * on the full robot model of a robot. Both calculators work on the same robot state, and the computed torques are checked
+ * to match before timing.
+ *
+ * Run the robot specific subclasses from their main method.
+ */
+public abstract class DRCInverseDynamicsCalculatorBenchmark
+{
+   private static final double GRAVITY = -9.81;
+   private static final int NUMBER_OF_STATES = 100;
+   private static final int WARMUP_ITERATIONS = 20000;
+   private static final int MEASURED_ITERATIONS = 100000;
+   private static final int NUMBER_OF_ROUNDS = 5;
+
+   public abstract DRCRobotModel getRobotModel();
+
+   public void run()
+   {
+      DRCRobotModel robotModel = getRobotModel();
+      SDFFullHumanoidRobotModel fullRobotModel = robotModel.createFullRobotModel();
+      OneDoFJoint[] oneDoFJoints = fullRobotModel.getOneDoFJoints();
+
+      final TwistCalculator twistCalculator = new TwistCalculator(ReferenceFrame.getWorldFrame(), fullRobotModel.getElevator());
+      final InverseDynamicsCalculator inverseDynamicsCalculator = new InverseDynamicsCalculator(twistCalculator, GRAVITY);
+      final CompiledInverseDynamicsCalculator compiledInverseDynamicsCalculator = new CompiledInverseDynamicsCalculator(fullRobotModel.getElevator(),
+            GRAVITY);
+
+      Random random = new Random(1776L);
+      ScrewTestTools.setRandomPositionAndOrientation(fullRobotModel.getRootJoint(), random);
+      ScrewTestTools.setRandomVelocity(fullRobotModel.getRootJoint(), random);
+      ScrewTestTools.setRandomPositionsWithinJointLimits(oneDoFJoints, random);
+      ScrewTestTools.setRandomVelocities(oneDoFJoints, random);
+      ScrewTestTools.setRandomDesiredAccelerations(oneDoFJoints, random);
+      fullRobotModel.updateFrames();
+
+      double maximumTorqueDifference = 0.0;
+      double[] taus = new double[oneDoFJoints.length];
+      for (int i = 0; i < NUMBER_OF_STATES; i++)
+      {
+         ScrewTestTools.setRandomDesiredAccelerations(oneDoFJoints, random);
+         twistCalculator.compute();
+         inverseDynamicsCalculator.compute();
+         for (int j = 0; j < oneDoFJoints.length; j++)
+            taus[j] = oneDoFJoints[j].getTau();
+
+         compiledInverseDynamicsCalculator.compute();
+         for (int j = 0; j < oneDoFJoints.length; j++)
+            maximumTorqueDifference = Math.max(maximumTorqueDifference, Math.abs(taus[j] - oneDoFJoints[j].getTau()));
+      }
+
+      Runnable original = new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            twistCalculator.compute();
+            inverseDynamicsCalculator.compute();
+         }
+      };
+
+      Runnable compiled = new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            compiledInverseDynamicsCalculator.compute();
+         }
+      };
+
+      System.out.println(getClass().getSimpleName() + ": " + compiledInverseDynamicsCalculator.getNumberOfBodies() + " bodies, " + oneDoFJoints.length
+            + " one DoF joints, maximum torque difference " + maximumTorqueDifference);
+
+      time(original, WARMUP_ITERATIONS);
+      time(compiled, WARMUP_ITERATIONS);
+
+      for (int round = 0; round < NUMBER_OF_ROUNDS; round++)
+      {
+         double originalTime = time(original, MEASURED_ITERATIONS);
+         double compiledTime = time(compiled, MEASURED_ITERATIONS);
+         System.out.println("Round " + round + ": InverseDynamicsCalculator " + originalTime + " ns/compute, CompiledInverseDynamicsCalculator "
+               + compiledTime + " ns/compute, speedup " + originalTime / compiledTime);
+      }
+   }
+
+   /**
+    * @return average time of a single run in nanoseconds
+    */
+   private static double time(Runnable runnable, int iterations)
+   {
+      long startTime = System.nanoTime();
+      for (int i = 0; i < iterations; i++)
+      {
+         runnable.run();
+      }
+      return (double) (System.nanoTime() - startTime) / iterations;
+   }
+}
@@ -0,0 +1,92 @@
+package us.ihmc.darpaRoboticsChallenge.ros;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Random;
+
+import org.ros.internal.message.Message;
+
+import us.ihmc.communication.packets.Packet;
+import us.ihmc.utilities.ros.msgToPacket.converter.GenericROSTranslationTools;
+
+/**
+ * Round trips per second, IHMC message to ROS message and back, for every message of us.ihmc.humanoidRobotics.communication.packets
+ * that has a random constructor. The messages are created before timing, so only the translation is measured.
+ */
+public class BenchmarkROSMessageTranslation
+{
+   private static final int NUMBER_OF_MESSAGES_PER_TYPE = 200;
+   private static final int NUMBER_OF_ROUND_TRIPS = 20000;
+
+   public static void main(String[] args) throws Exception
+   {
+      ArrayList<Class<?>> messageTypes = new ArrayList<>();
+      for (Class<?> messageType : GenericROSTranslationTools.getAllRosMessagePacketAnnotatedClasses())
+      {
+         if (!Modifier.isAbstract(messageType.getModifiers()))
+            messageTypes.add(messageType);
+      }
+
+      Collections.sort(messageTypes, new Comparator<Class<?>>()
+      {
+         @Override
+         public int compare(Class<?> class1, Class<?> class2)
+         {
+            return class1.getSimpleName().compareTo(class2.getSimpleName());
+         }
+      });
+
+      Random random = new Random(1976L);
+      double totalSeconds = 0.0;
+      int totalRoundTrips = 0;
+
+      System.out.println("message\tround trips per second");
+
+      for (Class<?> messageType : messageTypes)
+      {
+         Packet<?>[] messages = new Packet<?>[NUMBER_OF_MESSAGES_PER_TYPE];
+         try
+         {
+            Constructor<?> randomConstructor = messageType.getConstructor(Random.class);
+            for (int i = 0; i < messages.length; i++)
+            {
+               messages[i] = (Packet<?>) randomConstructor.newInstance(random);
+            }
+
+            // Warm up, this also builds the translators
+            roundTrip(messages, NUMBER_OF_ROUND_TRIPS / 10);
+
+            long startTime = System.nanoTime();
+            roundTrip(messages, NUMBER_OF_ROUND_TRIPS);
+            double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+            totalSeconds += elapsedSeconds;
+            totalRoundTrips += NUMBER_OF_ROUND_TRIPS;
+            System.out.println(messageType.getSimpleName() + "\t" + NUMBER_OF_ROUND_TRIPS / elapsedSeconds);
+         }
+         catch (NoSuchMethodException e)
+         {
+            System.out.println(messageType.getSimpleName() + "\tno random constructor");
+         }
+         catch (Exception e)
+         {
+            System.out.println(messageType.getSimpleName() + "\tfailed: " + e);
+         }
+      }
+
+      System.out.println("all\t" + totalRoundTrips / totalSeconds);
+   }
+
+   private static void roundTrip(Packet<?>[] messages, int numberOfRoundTrips) throws Exception
+   {
+      for (int i = 0; i < numberOfRoundTrips; i++)
+      {
+         Message rosMessage = IHMCROSTranslationRuntimeTools.convertToRosMessage(messages[i % messages.length]);
+         if (IHMCROSTranslationRuntimeTools.convertToIHMCMessage(rosMessage) == null)
+            throw new RuntimeException("Round trip returned nothing");
+      }
+   }
+}
@@ -0,0 +1,298 @@
+package us.ihmc.graphics3DAdapter.jme.lidar;
+
+/**
+ * Binary tree of axis aligned bounding boxes over a set of primitives, stored in flat arrays so that it can be traversed
+ * without allocating. Node 0 is the root, the first child of an interior node directly follows it and the index of the second
+ * child is stored in the node. The leaves index into {@link #getPrimitiveIndex(int)}.
+ *
+ * Primitive bounds are passed as six floats per primitive: min x, min y, min z, max x, max y, max z.
+ */
+public class BoundingVolumeHierarchy
+{
+   private static final int MAX_PRIMITIVES_PER_LEAF = 4;
+
+   private final int numberOfPrimitives;
+   private final int[] primitiveOrder;
+
+   private final float[] nodeBounds;
+   private final int[] nodeOffsets;
+   private final int[] nodeCounts;
+   private int numberOfNodes = 0;
+   private int maximumDepth = 0;
+
+   public BoundingVolumeHierarchy(float[] primitiveBounds, int numberOfPrimitives)
+   {
+      this.numberOfPrimitives = numberOfPrimitives;
+      this.primitiveOrder = new int[numberOfPrimitives];
+      for (int i = 0; i < numberOfPrimitives; i++)
+      {
+         primitiveOrder[i] = i;
+      }
+
+      int maximumNumberOfNodes = Math.max(1, 2 * numberOfPrimitives);
+      this.nodeBounds = new float[6 * maximumNumberOfNodes];
+      this.nodeOffsets = new int[maximumNumberOfNodes];
+      this.nodeCounts = new int[maximumNumberOfNodes];
+
+      float[] centroids = new float[3 * numberOfPrimitives];
+      for (int i = 0; i < numberOfPrimitives; i++)
+      {
+         for (int axis = 0; axis < 3; axis++)
+         {
+            centroids[3 * i + axis] = 0.5f * (primitiveBounds[6 * i + axis] + primitiveBounds[6 * i + 3 + axis]);
+         }
+      }
+
+      if (numberOfPrimitives == 0)
+      {
+         // Empty box that no ray can hit
+         setEmptyBounds(0);
+         nodeOffsets[0] = 0;
+         nodeCounts[0] = 0;
+         numberOfNodes = 1;
+         return;
+      }
+
+      build(primitiveBounds, centroids, 0, numberOfPrimitives, 0);
+   }
+
+   private int build(float[] primitiveBounds, float[] centroids, int start, int end, int depth)
+   {
+      int node = numberOfNodes++;
+      maximumDepth = Math.max(maximumDepth, depth);
+
+      setEmptyBounds(node);
+      float[] centroidBounds = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY,
+            Float.NEGATIVE_INFINITY};
+      for (int i = start; i < end; i++)
+      {
+         int primitive = primitiveOrder[i];
+         growBounds(node, primitiveBounds, 6 * primitive);
+
+         for (int axis = 0; axis < 3; axis++)
+         {
+            float centroid = centroids[3 * primitive + axis];
+            centroidBounds[axis] = Math.min(centroidBounds[axis], centroid);
+            centroidBounds[axis + 3] = Math.max(centroidBounds[axis + 3], centroid);
+         }
+      }
+
+      int count = end - start;
+      int splitAxis = 0;
+      for (int axis = 1; axis < 3; axis++)
+      {
+         if (centroidBounds[axis + 3] - centroidBounds[axis] > centroidBounds[splitAxis + 3] - centroidBounds[splitAxis])
+            splitAxis = axis;
+      }
+
+      if (count <= MAX_PRIMITIVES_PER_LEAF || centroidBounds[splitAxis + 3] - centroidBounds[splitAxis] <= 0.0f)
+      {
+         nodeOffsets[node] = start;
+         nodeCounts[node] = count;
+         return node;
+      }
+
+      // Median split along the longest axis of the centroids
+      int middle = (start + end) / 2;
+      selectNthElement(centroids, splitAxis, start, end - 1, middle);
+
+      build(primitiveBounds, centroids, start, middle, depth + 1);
+      nodeOffsets[node] = build(primitiveBounds, centroids, middle, end, depth + 1);
+      nodeCounts[node] = 0;
+
+      return node;
+   }
+
+   private void selectNthElement(float[] centroids, int axis, int left, int right, int n)
+   {
+      while (right > left)
+      {
+         float pivot = centroids[3 * primitiveOrder[(left + right) >>> 1] + axis];
+         int i = left;
+         int j = right;
+         while (i <= j)
+         {
+            while (centroids[3 * primitiveOrder[i] + axis] < pivot)
+               i++;
+            while (centroids[3 * primitiveOrder[j] + axis] > pivot)
+               j--;
+
+            if (i <= j)
+            {
+               int temp = primitiveOrder[i];
+               primitiveOrder[i] = primitiveOrder[j];
+               primitiveOrder[j] = temp;
+               i++;
+               j--;
+            }
+         }
+
+         if (n <= j)
+            right = j;
+         else if (n >= i)
+            left = i;
+         else
+            return;
+      }
+   }
+
+   /**
+    * Recomputes the boxes of the nodes for new primitive bounds, keeping the tree. This is much cheaper than building again,
+    * and the tree stays good as long as the primitives do not move too far from each other.
+    */
+   public void refit(float[] primitiveBounds)
+   {
+      if (numberOfPrimitives == 0)
+         return;
+
+      // Children always have a higher index than their parent
+      for (int node = numberOfNodes - 1; node >= 0; node--)
+      {
+         setEmptyBounds(node);
+
+         if (nodeCounts[node] > 0)
+         {
+            int end = nodeOffsets[node] + nodeCounts[node];
+            for (int i = nodeOffsets[node]; i < end; i++)
+            {
+               growBounds(node, primitiveBounds, 6 * primitiveOrder[i]);
+            }
+         }
+         else
+         {
+            growBounds(node, nodeBounds, 6 * (node + 1));
+            growBounds(node, nodeBounds, 6 * nodeOffsets[node]);
+         }
+      }
+   }
+
+   private void setEmptyBounds(int node)
+   {
+      for (int axis = 0; axis < 3; axis++)
+      {
+         nodeBounds[6 * node + axis] = Float.POSITIVE_INFINITY;
+         nodeBounds[6 * node + 3 + axis] = Float.NEGATIVE_INFINITY;
+      }
+   }
+
+   private void growBounds(int node, float[] bounds, int offset)
+   {
+      for (int axis = 0; axis < 3; axis++)
+      {
+         nodeBounds[6 * node + axis] = Math.min(nodeBounds[6 * node + axis], bounds[offset + axis]);
+         nodeBounds[6 * node + 3 + axis] = Math.max(nodeBounds[6 * node + 3 + axis], bounds[offset + 3 + axis]);
+      }
+   }
+
+   /**
+    * Slab test of a ray against the box of a node.
+    *
+    * @param inverseDirectionX 1 / direction x, infinite when the direction has no x component.
+    * @return whether the ray enters the box at a distance smaller than maximumDistance.
+    */
+   public boolean intersectsNode(int node, double originX, double originY, double originZ, double inverseDirectionX, double inverseDirectionY,
+         double inverseDirectionZ, double maximumDistance)
+   {
+      int offset = 6 * node;
+
+      // Empty box, the slab test alone would let it through
+      if (nodeBounds[offset] > nodeBounds[offset + 3])
+         return false;
+
+      double entry = 0.0;
+      double exit = maximumDistance;
+
+      if (Double.isInfinite(inverseDirectionX))
+      {
+         if (originX < nodeBounds[offset] || originX > nodeBounds[offset + 3])
+            return false;
+      }
+      else
+      {
+         double t0 = (nodeBounds[offset] - originX) * inverseDirectionX;
+         double t1 = (nodeBounds[offset + 3] - originX) * inverseDirectionX;
+         entry = Math.max(entry, Math.min(t0, t1));
+         exit = Math.min(exit, Math.max(t0, t1));
+      }
+
+      if (Double.isInfinite(inverseDirectionY))
+      {
+         if (originY < nodeBounds[offset + 1] || originY > nodeBounds[offset + 4])
+            return false;
+      }
+      else
+      {
+         double t0 = (nodeBounds[offset + 1] - originY) * inverseDirectionY;
+         double t1 = (nodeBounds[offset + 4] - originY) * inverseDirectionY;
+         entry = Math.max(entry, Math.min(t0, t1));
+         exit = Math.min(exit, Math.max(t0, t1));
+      }
+
+      if (Double.isInfinite(inverseDirectionZ))
+      {
+         if (originZ < nodeBounds[offset + 2] || originZ > nodeBounds[offset + 5])
+            return false;
+      }
+      else
+      {
+         double t0 = (nodeBounds[offset + 2] - originZ) * inverseDirectionZ;
+         double t1 = (nodeBounds[offset + 5] - originZ) * inverseDirectionZ;
+         entry = Math.max(entry, Math.min(t0, t1));
+         exit = Math.min(exit, Math.max(t0, t1));
+      }
+
+      return entry <= exit;
+   }
+
+   public boolean isLeaf(int node)
+   {
+      return nodeCounts[node] > 0 || numberOfPrimitives == 0;
+   }
+
+   public int getSecondChild(int node)
+   {
+      return nodeOffsets[node];
+   }
+
+   public int getFirstPrimitive(int node)
+   {
+      return nodeOffsets[node];
+   }
+
+   public int getNumberOfPrimitives(int node)
+   {
+      return nodeCounts[node];
+   }
+
+   /**
+    * @param index between the first primitive of a leaf and the first primitive plus the number of primitives of that leaf.
+    * @return index of the primitive in the bounds the hierarchy was built from.
+    */
+   public int getPrimitiveIndex(int index)
+   {
+      return primitiveOrder[index];
+   }
+
+   public int getNumberOfPrimitives()
+   {
+      return numberOfPrimitives;
+   }
+
+   public int getNumberOfNodes()
+   {
+      return numberOfNodes;
+   }
+
+   /**
+    * @return size of the stack needed to traverse the hierarchy pushing both children of each interior node.
+    */
+   public int getRequiredStackSize()
+   {
+      return maximumDepth + 2;
+   }
+
+   public void getRootBounds(float[] boundsToPack)
+   {
+      System.arraycopy(nodeBounds, 0, boundsToPack, 0, 6);
+   }
+}
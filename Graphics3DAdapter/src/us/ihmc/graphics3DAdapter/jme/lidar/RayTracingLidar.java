@@ -1,20 +1,35 @@
 package us.ihmc.graphics3DAdapter.jme.lidar;
 
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.vecmath.Matrix3d;
+import javax.vecmath.Vector3d;
 
 import us.ihmc.graphics3DAdapter.Graphics3DWorld;
 import us.ihmc.graphics3DAdapter.jme.JMEGraphics3DAdapter;
-import us.ihmc.graphics3DAdapter.jme.util.JMEDataTypeUtils;
 import us.ihmc.graphics3DAdapter.jme.util.JMEGeometryUtils;
 import us.ihmc.robotics.lidar.LidarScan;
 import us.ihmc.robotics.lidar.LidarScanParameters;
 import us.ihmc.robotics.geometry.RigidBodyTransform;
 
-import com.jme3.collision.CollisionResult;
-import com.jme3.collision.CollisionResults;
-import com.jme3.math.Ray;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.SceneGraphVisitor;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
 
+/**
+ * CPU lidar for simulations without a GPU. The meshes under the collision nodes are converted once into bounding volume
+ * hierarchies, each scan only reads the world transforms of the geometries and refits the hierarchy over the ones that moved.
+ * The rays are cast on several threads.
+ *
+ * Meshes are recognized by identity and by their position buffer, a mesh whose positions are changed in place is not rebuilt.
+ */
 public class RayTracingLidar
 {
    private Graphics3DWorld world;
@@ -26,7 +41,38 @@ public class RayTracingLidar
 
    private ArrayList<String> collisionNodeNames = new ArrayList<String>();
 
+   private final RayTracingScene scene = new RayTracingScene();
+   private final RayTracingSweep sweep;
+   private final Map<Mesh, CachedMesh> cachedMeshes = new WeakHashMap<Mesh, CachedMesh>();
+
+   private final ArrayList<Geometry> geometries = new ArrayList<Geometry>();
+   private final SceneGraphVisitor geometryCollector = new SceneGraphVisitor()
+   {
+      @Override
+      public void visit(Spatial spatial)
+      {
+         if (spatial instanceof Geometry)
+            geometries.add((Geometry) spatial);
+      }
+   };
+
+   private final float[] instanceTransform = new float[12];
+   private final Vector3f firstVertex = new Vector3f();
+   private final Vector3f secondVertex = new Vector3f();
+   private final Vector3f thirdVertex = new Vector3f();
+
+   private final Matrix3d lidarRotation = new Matrix3d();
+   private final Vector3d lidarTranslation = new Vector3d();
+   private final Vector3f jmeVector = new Vector3f();
+   private final double[] sensorOrigin = new double[3];
+   private final double[] sensorRotation = new double[9];
+
    public RayTracingLidar(Graphics3DWorld world, int scansPerSweep, double fieldOfView, double minRange, double maxRange, int sensorId)
+   {
+      this(world, scansPerSweep, fieldOfView, minRange, maxRange, sensorId, Runtime.getRuntime().availableProcessors());
+   }
+
+   public RayTracingLidar(Graphics3DWorld world, int scansPerSweep, double fieldOfView, double minRange, double maxRange, int sensorId, int numberOfThreads)
    {
       this.world = world;
       this.scansPerSweep = scansPerSweep;
@@ -34,6 +80,7 @@ public class RayTracingLidar
       this.minRange = minRange;
       this.maxRange = maxRange;
       this.sensorId = sensorId;
+      this.sweep = new RayTracingSweep(numberOfThreads);
    }
 
    public void addCollisionNodes(String... collisionNodeNames)
@@ -44,45 +91,139 @@ public class RayTracingLidar
       }
    }
 
-   public LidarScan scan(RigidBodyTransform lidarTransform)
+   public synchronized LidarScan scan(RigidBodyTransform lidarTransform)
    {
-      float[] unitRanges = new float[scansPerSweep];
-      Arrays.fill(unitRanges, 1.0f);
-      LidarScan unitScan = new LidarScan(new LidarScanParameters(scansPerSweep, (float) -fieldOfView / 2, (float) fieldOfView / 2, 0, (float) minRange,
-                              (float) maxRange, 0), new RigidBodyTransform(lidarTransform), new RigidBodyTransform(lidarTransform), new float[scansPerSweep], sensorId);
+      LidarScanParameters scanParameters = new LidarScanParameters(scansPerSweep, (float) -fieldOfView / 2, (float) fieldOfView / 2, 0, (float) minRange,
+            (float) maxRange, 0);
+
+      updateScene();
+      computeSensorPoseInJMECoordinates(lidarTransform);
 
-      Ray ray;
       float[] ranges = new float[scansPerSweep];
-      CollisionResults masterResults;
-      CollisionResults results;
-      for (int i = 0; i < scansPerSweep; i++)
+      sweep.cast(scene, sensorOrigin, sensorRotation, scansPerSweep, scanParameters.getSweepYawMin(), scanParameters.getSweepYawMax(),
+            Double.POSITIVE_INFINITY, ranges);
+
+      return new LidarScan(scanParameters, new RigidBodyTransform(lidarTransform), new RigidBodyTransform(lidarTransform), ranges, sensorId);
+   }
+
+   public void close()
+   {
+      sweep.shutdown();
+   }
+
+   private void updateScene()
+   {
+      Node zUpNode = ((JMEGraphics3DAdapter) world.getGraphics3DAdapter()).getRenderer().getZUpNode();
+
+      geometries.clear();
+      for (int i = 0; i < collisionNodeNames.size(); i++)
       {
-         ray = JMEGeometryUtils.transformRayFromZupToJMECoordinate(JMEDataTypeUtils.ray3dToJMERay(unitScan.getRay(i)));
-
-         masterResults = new CollisionResults();
-         for (String collisionNodeName : collisionNodeNames)
-         {
-            results = new CollisionResults();
-            ((JMEGraphics3DAdapter) world.getGraphics3DAdapter()).getRenderer().getZUpNode().getChild(collisionNodeName).collideWith(ray, results);
-
-            for (CollisionResult result : results)
-            {
-               masterResults.addCollision(result);
-            }
-         }
-
-         CollisionResult closestCollision = masterResults.getClosestCollision();
-         if (closestCollision != null)
-         {
-            ranges[i] = closestCollision.getDistance();
-         }
-         else
-         {
-            ranges[i] = 0.0f;
-         }
+         Spatial collisionNode = zUpNode.getChild(collisionNodeNames.get(i));
+         if (collisionNode != null)
+            collisionNode.depthFirstTraversal(geometryCollector);
       }
 
-      return new LidarScan(new LidarScanParameters(scansPerSweep, (float) -fieldOfView / 2, (float) fieldOfView / 2, 0, (float) minRange, (float) maxRange, 0),
-                           new RigidBodyTransform(lidarTransform), new RigidBodyTransform(lidarTransform), ranges, sensorId);
+      scene.beginUpdate();
+      for (int i = 0; i < geometries.size(); i++)
+      {
+         Geometry geometry = geometries.get(i);
+         RayTracingMesh rayTracingMesh = getOrCreateRayTracingMesh(geometry.getMesh());
+         if (rayTracingMesh == null)
+            continue;
+
+         Matrix4f worldMatrix = geometry.getWorldMatrix();
+         instanceTransform[0] = worldMatrix.m00;
+         instanceTransform[1] = worldMatrix.m01;
+         instanceTransform[2] = worldMatrix.m02;
+         instanceTransform[3] = worldMatrix.m03;
+         instanceTransform[4] = worldMatrix.m10;
+         instanceTransform[5] = worldMatrix.m11;
+         instanceTransform[6] = worldMatrix.m12;
+         instanceTransform[7] = worldMatrix.m13;
+         instanceTransform[8] = worldMatrix.m20;
+         instanceTransform[9] = worldMatrix.m21;
+         instanceTransform[10] = worldMatrix.m22;
+         instanceTransform[11] = worldMatrix.m23;
+
+         // Geometry scaled to zero has no surface to hit
+         if (!RayTracingScene.isInvertible(instanceTransform))
+            continue;
+
+         scene.addInstance(rayTracingMesh, instanceTransform);
+      }
+      scene.endUpdate();
+   }
+
+   private RayTracingMesh getOrCreateRayTracingMesh(Mesh mesh)
+   {
+      if (mesh == null)
+         return null;
+
+      Mesh.Mode mode = mesh.getMode();
+      if (mode != Mesh.Mode.Triangles && mode != Mesh.Mode.TriangleStrip && mode != Mesh.Mode.TriangleFan)
+         return null;
+
+      VertexBuffer positions = mesh.getBuffer(VertexBuffer.Type.Position);
+      CachedMesh cachedMesh = cachedMeshes.get(mesh);
+      if (cachedMesh != null && cachedMesh.positions == positions && cachedMesh.rayTracingMesh.getNumberOfTriangles() == mesh.getTriangleCount())
+         return cachedMesh.rayTracingMesh;
+
+      int numberOfTriangles = mesh.getTriangleCount();
+      float[] triangleVertices = new float[9 * numberOfTriangles];
+      for (int i = 0; i < numberOfTriangles; i++)
+      {
+         mesh.getTriangle(i, firstVertex, secondVertex, thirdVertex);
+         packVertex(firstVertex, triangleVertices, 9 * i);
+         packVertex(secondVertex, triangleVertices, 9 * i + 3);
+         packVertex(thirdVertex, triangleVertices, 9 * i + 6);
+      }
+
+      RayTracingMesh rayTracingMesh = new RayTracingMesh(triangleVertices, numberOfTriangles);
+      cachedMeshes.put(mesh, new CachedMesh(positions, rayTracingMesh));
+
+      return rayTracingMesh;
+   }
+
+   private static void packVertex(Vector3f vertex, float[] triangleVertices, int offset)
+   {
+      triangleVertices[offset] = vertex.getX();
+      triangleVertices[offset + 1] = vertex.getY();
+      triangleVertices[offset + 2] = vertex.getZ();
+   }
+
+   /**
+    * The meshes are in jME world coordinates, so the sensor is moved there instead of moving every mesh to z up.
+    */
+   private void computeSensorPoseInJMECoordinates(RigidBodyTransform lidarTransform)
+   {
+      lidarTransform.getRotation(lidarRotation);
+      lidarTransform.getTranslation(lidarTranslation);
+
+      jmeVector.set((float) lidarTranslation.getX(), (float) lidarTranslation.getY(), (float) lidarTranslation.getZ());
+      JMEGeometryUtils.transformFromZupToJMECoordinates(jmeVector);
+      sensorOrigin[0] = jmeVector.getX();
+      sensorOrigin[1] = jmeVector.getY();
+      sensorOrigin[2] = jmeVector.getZ();
+
+      for (int column = 0; column < 3; column++)
+      {
+         jmeVector.set((float) lidarRotation.getElement(0, column), (float) lidarRotation.getElement(1, column), (float) lidarRotation.getElement(2, column));
+         JMEGeometryUtils.transformFromZupToJMECoordinates(jmeVector);
+         sensorRotation[column] = jmeVector.getX();
+         sensorRotation[3 + column] = jmeVector.getY();
+         sensorRotation[6 + column] = jmeVector.getZ();
+      }
+   }
+
+   private static class CachedMesh
+   {
+      private final VertexBuffer positions;
+      private final RayTracingMesh rayTracingMesh;
+
+      public CachedMesh(VertexBuffer positions, RayTracingMesh rayTracingMesh)
+      {
+         this.positions = positions;
+         this.rayTracingMesh = rayTracingMesh;
+      }
    }
 }
@@ -0,0 +1,148 @@
+package us.ihmc.graphics3DAdapter.jme.lidar;
+
+/**
+ * Triangle mesh with its bounding volume hierarchy, in the coordinates of the mesh. Built once and shared by all the
+ * instances of the mesh in a {@link RayTracingScene}. Triangles are hit from both sides.
+ */
+public class RayTracingMesh
+{
+   private static final double EPSILON = 1e-12;
+
+   private final BoundingVolumeHierarchy hierarchy;
+
+   /** Nine floats per triangle, in the order of the leaves of the hierarchy */
+   private final float[] triangles;
+
+   /**
+    * @param triangleVertices nine floats per triangle: x, y, z of the three vertices.
+    */
+   public RayTracingMesh(float[] triangleVertices, int numberOfTriangles)
+   {
+      float[] triangleBounds = new float[6 * numberOfTriangles];
+      for (int i = 0; i < numberOfTriangles; i++)
+      {
+         for (int axis = 0; axis < 3; axis++)
+         {
+            float a = triangleVertices[9 * i + axis];
+            float b = triangleVertices[9 * i + 3 + axis];
+            float c = triangleVertices[9 * i + 6 + axis];
+            triangleBounds[6 * i + axis] = Math.min(a, Math.min(b, c));
+            triangleBounds[6 * i + 3 + axis] = Math.max(a, Math.max(b, c));
+         }
+      }
+
+      hierarchy = new BoundingVolumeHierarchy(triangleBounds, numberOfTriangles);
+
+      // Reordered so that the triangles of a leaf are next to each other in memory
+      triangles = new float[9 * numberOfTriangles];
+      for (int i = 0; i < numberOfTriangles; i++)
+      {
+         System.arraycopy(triangleVertices, 9 * hierarchy.getPrimitiveIndex(i), triangles, 9 * i, 9);
+      }
+   }
+
+   public int getNumberOfTriangles()
+   {
+      return hierarchy.getNumberOfPrimitives();
+   }
+
+   public void getBounds(float[] boundsToPack)
+   {
+      hierarchy.getRootBounds(boundsToPack);
+   }
+
+   public int getRequiredStackSize()
+   {
+      return hierarchy.getRequiredStackSize();
+   }
+
+   /**
+    * @param stack traversal stack, used from stackStart on. Needs {@link #getRequiredStackSize()} free entries.
+    * @return distance along the ray, in units of the direction, to the closest triangle, or maximumDistance if none is closer.
+    */
+   public double intersect(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maximumDistance,
+         int[] stack, int stackStart)
+   {
+      double inverseDirectionX = 1.0 / directionX;
+      double inverseDirectionY = 1.0 / directionY;
+      double inverseDirectionZ = 1.0 / directionZ;
+
+      double closestDistance = maximumDistance;
+      int stackSize = stackStart;
+      stack[stackSize++] = 0;
+
+      while (stackSize > stackStart)
+      {
+         int node = stack[--stackSize];
+
+         if (!hierarchy.intersectsNode(node, originX, originY, originZ, inverseDirectionX, inverseDirectionY, inverseDirectionZ, closestDistance))
+            continue;
+
+         if (!hierarchy.isLeaf(node))
+         {
+            stack[stackSize++] = hierarchy.getSecondChild(node);
+            stack[stackSize++] = node + 1;
+            continue;
+         }
+
+         int end = hierarchy.getFirstPrimitive(node) + hierarchy.getNumberOfPrimitives(node);
+         for (int i = hierarchy.getFirstPrimitive(node); i < end; i++)
+         {
+            double distance = intersectTriangle(9 * i, originX, originY, originZ, directionX, directionY, directionZ);
+            if (distance < closestDistance)
+               closestDistance = distance;
+         }
+      }
+
+      return closestDistance;
+   }
+
+   /**
+    * Moller-Trumbore ray triangle intersection.
+    */
+   private double intersectTriangle(int offset, double originX, double originY, double originZ, double directionX, double directionY, double directionZ)
+   {
+      double ax = triangles[offset];
+      double ay = triangles[offset + 1];
+      double az = triangles[offset + 2];
+
+      double edge1X = triangles[offset + 3] - ax;
+      double edge1Y = triangles[offset + 4] - ay;
+      double edge1Z = triangles[offset + 5] - az;
+      double edge2X = triangles[offset + 6] - ax;
+      double edge2Y = triangles[offset + 7] - ay;
+      double edge2Z = triangles[offset + 8] - az;
+
+      double pX = directionY * edge2Z - directionZ * edge2Y;
+      double pY = directionZ * edge2X - directionX * edge2Z;
+      double pZ = directionX * edge2Y - directionY * edge2X;
+
+      double determinant = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+      if (Math.abs(determinant) < EPSILON)
+         return Double.POSITIVE_INFINITY;
+
+      double inverseDeterminant = 1.0 / determinant;
+
+      double tX = originX - ax;
+      double tY = originY - ay;
+      double tZ = originZ - az;
+
+      double u = (tX * pX + tY * pY + tZ * pZ) * inverseDeterminant;
+      if (u < 0.0 || u > 1.0)
+         return Double.POSITIVE_INFINITY;
+
+      double qX = tY * edge1Z - tZ * edge1Y;
+      double qY = tZ * edge1X - tX * edge1Z;
+      double qZ = tX * edge1Y - tY * edge1X;
+
+      double v = (directionX * qX + directionY * qY + directionZ * qZ) * inverseDeterminant;
+      if (v < 0.0 || u + v > 1.0)
+         return Double.POSITIVE_INFINITY;
+
+      double distance = (edge2X * qX + edge2Y * qY + edge2Z * qZ) * inverseDeterminant;
+      if (distance < 0.0)
+         return Double.POSITIVE_INFINITY;
+
+      return distance;
+   }
+}
@@ -0,0 +1,285 @@
+package us.ihmc.graphics3DAdapter.jme.lidar;
+
+import java.util.ArrayList;
+
+/**
+ * Instances of {@link RayTracingMesh}es placed in the world, with a bounding volume hierarchy over the instances.
+ * Rays are transformed into the coordinates of each instance, so moving an instance only changes its transform
+ * and refits the top level hierarchy. The meshes themselves are never rebuilt.
+ *
+ * The scene is described again before each set of rays, between {@link #beginUpdate()} and {@link #endUpdate()}.
+ * Casting rays is thread safe, updating the scene while rays are cast is not.
+ */
+public class RayTracingScene
+{
+   private final ArrayList<RayTracingMesh> meshes = new ArrayList<RayTracingMesh>();
+   private float[] localToWorldTransforms = new float[0];
+   private double[] worldToLocalTransforms = new double[0];
+   private float[] instanceBounds = new float[0];
+   private int numberOfInstances = 0;
+
+   private BoundingVolumeHierarchy instanceHierarchy = new BoundingVolumeHierarchy(new float[0], 0);
+   private int maximumMeshStackSize = 0;
+
+   private int numberOfInstancesAdded = 0;
+   private boolean instancesChanged = false;
+   private boolean instancesMoved = false;
+
+   private final float[] meshBounds = new float[6];
+
+   public void beginUpdate()
+   {
+      numberOfInstancesAdded = 0;
+      instancesChanged = false;
+      instancesMoved = false;
+   }
+
+   /**
+    * Adds the next instance of the scene. Adding the same meshes in the same order as in the previous update keeps the
+    * hierarchy, which is then only refit for the instances that moved.
+    *
+    * @param localToWorld first three rows of the homogeneous transform from the mesh to the world, row by row. Has to be
+    *        invertible, see {@link #isInvertible(float[])}.
+    */
+   public void addInstance(RayTracingMesh mesh, float[] localToWorld)
+   {
+      int index = numberOfInstancesAdded++;
+
+      if (index >= meshes.size())
+      {
+         meshes.add(mesh);
+         ensureCapacity(meshes.size());
+         instancesChanged = true;
+      }
+      else if (meshes.get(index) != mesh)
+      {
+         meshes.set(index, mesh);
+         instancesChanged = true;
+      }
+      else if (index < numberOfInstances && hasSameTransform(index, localToWorld))
+      {
+         return;
+      }
+
+      System.arraycopy(localToWorld, 0, localToWorldTransforms, 12 * index, 12);
+      invertTransform(localToWorld, worldToLocalTransforms, 12 * index);
+      computeInstanceBounds(index);
+      instancesMoved = true;
+   }
+
+   public void endUpdate()
+   {
+      if (numberOfInstancesAdded != numberOfInstances)
+      {
+         instancesChanged = true;
+
+         while (meshes.size() > numberOfInstancesAdded)
+         {
+            meshes.remove(meshes.size() - 1);
+         }
+      }
+
+      numberOfInstances = numberOfInstancesAdded;
+
+      if (instancesChanged)
+      {
+         instanceHierarchy = new BoundingVolumeHierarchy(instanceBounds, numberOfInstances);
+
+         maximumMeshStackSize = 0;
+         for (int i = 0; i < numberOfInstances; i++)
+         {
+            maximumMeshStackSize = Math.max(maximumMeshStackSize, meshes.get(i).getRequiredStackSize());
+         }
+      }
+      else if (instancesMoved)
+      {
+         instanceHierarchy.refit(instanceBounds);
+      }
+   }
+
+   public int getNumberOfInstances()
+   {
+      return numberOfInstances;
+   }
+
+   /**
+    * @return size of the stack to pass to {@link #castRay}, it changes when instances are added or removed.
+    */
+   public int getRequiredStackSize()
+   {
+      return instanceHierarchy.getRequiredStackSize() + maximumMeshStackSize;
+   }
+
+   /**
+    * @param stack traversal stack of at least {@link #getRequiredStackSize()} entries, one per thread.
+    * @return distance along the ray, in units of the direction, to the closest triangle, or maximumDistance if none is closer.
+    */
+   public double castRay(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, double maximumDistance,
+         int[] stack)
+   {
+      double inverseDirectionX = 1.0 / directionX;
+      double inverseDirectionY = 1.0 / directionY;
+      double inverseDirectionZ = 1.0 / directionZ;
+
+      double closestDistance = maximumDistance;
+      int stackSize = 0;
+      stack[stackSize++] = 0;
+
+      while (stackSize > 0)
+      {
+         int node = stack[--stackSize];
+
+         if (!instanceHierarchy.intersectsNode(node, originX, originY, originZ, inverseDirectionX, inverseDirectionY, inverseDirectionZ, closestDistance))
+            continue;
+
+         if (!instanceHierarchy.isLeaf(node))
+         {
+            stack[stackSize++] = instanceHierarchy.getSecondChild(node);
+            stack[stackSize++] = node + 1;
+            continue;
+         }
+
+         int end = instanceHierarchy.getFirstPrimitive(node) + instanceHierarchy.getNumberOfPrimitives(node);
+         for (int i = instanceHierarchy.getFirstPrimitive(node); i < end; i++)
+         {
+            int instance = instanceHierarchy.getPrimitiveIndex(i);
+            int offset = 12 * instance;
+            double[] worldToLocal = worldToLocalTransforms;
+
+            // The transform is affine, so the distance along the untouched direction is the same in both coordinates
+            double localOriginX = worldToLocal[offset] * originX + worldToLocal[offset + 1] * originY + worldToLocal[offset + 2] * originZ + worldToLocal[offset + 3];
+            double localOriginY = worldToLocal[offset + 4] * originX + worldToLocal[offset + 5] * originY + worldToLocal[offset + 6] * originZ + worldToLocal[offset + 7];
+            double localOriginZ = worldToLocal[offset + 8] * originX + worldToLocal[offset + 9] * originY + worldToLocal[offset + 10] * originZ + worldToLocal[offset + 11];
+            double localDirectionX = worldToLocal[offset] * directionX + worldToLocal[offset + 1] * directionY + worldToLocal[offset + 2] * directionZ;
+            double localDirectionY = worldToLocal[offset + 4] * directionX + worldToLocal[offset + 5] * directionY + worldToLocal[offset + 6] * directionZ;
+            double localDirectionZ = worldToLocal[offset + 8] * directionX + worldToLocal[offset + 9] * directionY + worldToLocal[offset + 10] * directionZ;
+
+            closestDistance = meshes.get(instance).intersect(localOriginX, localOriginY, localOriginZ, localDirectionX, localDirectionY, localDirectionZ,
+                  closestDistance, stack, stackSize);
+         }
+      }
+
+      return closestDistance;
+   }
+
+   private void ensureCapacity(int size)
+   {
+      if (instanceBounds.length >= 6 * size)
+         return;
+
+      int capacity = Math.max(size, 2 * instanceBounds.length / 6);
+
+      float[] newLocalToWorldTransforms = new float[12 * capacity];
+      System.arraycopy(localToWorldTransforms, 0, newLocalToWorldTransforms, 0, localToWorldTransforms.length);
+      localToWorldTransforms = newLocalToWorldTransforms;
+
+      double[] newWorldToLocalTransforms = new double[12 * capacity];
+      System.arraycopy(worldToLocalTransforms, 0, newWorldToLocalTransforms, 0, worldToLocalTransforms.length);
+      worldToLocalTransforms = newWorldToLocalTransforms;
+
+      float[] newInstanceBounds = new float[6 * capacity];
+      System.arraycopy(instanceBounds, 0, newInstanceBounds, 0, instanceBounds.length);
+      instanceBounds = newInstanceBounds;
+   }
+
+   private boolean hasSameTransform(int index, float[] localToWorld)
+   {
+      for (int i = 0; i < 12; i++)
+      {
+         if (localToWorldTransforms[12 * index + i] != localToWorld[i])
+            return false;
+      }
+
+      return true;
+   }
+
+   private void computeInstanceBounds(int index)
+   {
+      meshes.get(index).getBounds(meshBounds);
+
+      int boundsOffset = 6 * index;
+      for (int axis = 0; axis < 3; axis++)
+      {
+         instanceBounds[boundsOffset + axis] = Float.POSITIVE_INFINITY;
+         instanceBounds[boundsOffset + 3 + axis] = Float.NEGATIVE_INFINITY;
+      }
+
+      if (meshes.get(index).getNumberOfTriangles() == 0)
+         return;
+
+      // Box around the eight transformed corners of the box of the mesh
+      int transformOffset = 12 * index;
+      for (int corner = 0; corner < 8; corner++)
+      {
+         float x = meshBounds[(corner & 1) == 0 ? 0 : 3];
+         float y = meshBounds[(corner & 2) == 0 ? 1 : 4];
+         float z = meshBounds[(corner & 4) == 0 ? 2 : 5];
+
+         for (int axis = 0; axis < 3; axis++)
+         {
+            int row = transformOffset + 4 * axis;
+            float value = localToWorldTransforms[row] * x + localToWorldTransforms[row + 1] * y + localToWorldTransforms[row + 2] * z
+                  + localToWorldTransforms[row + 3];
+            instanceBounds[boundsOffset + axis] = Math.min(instanceBounds[boundsOffset + axis], value);
+            instanceBounds[boundsOffset + 3 + axis] = Math.max(instanceBounds[boundsOffset + 3 + axis], value);
+         }
+      }
+   }
+
+   /**
+    * @return false for transforms that cannot be added to the scene, for example geometry scaled to zero
+    */
+   public static boolean isInvertible(float[] localToWorld)
+   {
+      return computeDeterminant(localToWorld) != 0.0;
+   }
+
+   private static double computeDeterminant(float[] transform)
+   {
+      double m00 = transform[0], m01 = transform[1], m02 = transform[2];
+      double m10 = transform[4], m11 = transform[5], m12 = transform[6];
+      double m20 = transform[8], m21 = transform[9], m22 = transform[10];
+
+      return m00 * (m11 * m22 - m12 * m21) + m01 * (m12 * m20 - m10 * m22) + m02 * (m10 * m21 - m11 * m20);
+   }
+
+   private static void invertTransform(float[] transform, double[] inverseToPack, int offset)
+   {
+      double m00 = transform[0], m01 = transform[1], m02 = transform[2], m03 = transform[3];
+      double m10 = transform[4], m11 = transform[5], m12 = transform[6], m13 = transform[7];
+      double m20 = transform[8], m21 = transform[9], m22 = transform[10], m23 = transform[11];
+
+      double c00 = m11 * m22 - m12 * m21;
+      double c01 = m02 * m21 - m01 * m22;
+      double c02 = m01 * m12 - m02 * m11;
+      double c10 = m12 * m20 - m10 * m22;
+      double c11 = m00 * m22 - m02 * m20;
+      double c12 = m02 * m10 - m00 * m12;
+      double c20 = m10 * m21 - m11 * m20;
+      double c21 = m01 * m20 - m00 * m21;
+      double c22 = m00 * m11 - m01 * m10;
+
+      double determinant = m00 * c00 + m01 * c10 + m02 * c20;
+      if (determinant == 0.0)
+         throw new RuntimeException("Instance transform is not invertible");
+
+      double inverseDeterminant = 1.0 / determinant;
+
+      double i00 = c00 * inverseDeterminant, i01 = c01 * inverseDeterminant, i02 = c02 * inverseDeterminant;
+      double i10 = c10 * inverseDeterminant, i11 = c11 * inverseDeterminant, i12 = c12 * inverseDeterminant;
+      double i20 = c20 * inverseDeterminant, i21 = c21 * inverseDeterminant, i22 = c22 * inverseDeterminant;
+
+      inverseToPack[offset] = i00;
+      inverseToPack[offset + 1] = i01;
+      inverseToPack[offset + 2] = i02;
+      inverseToPack[offset + 3] = -(i00 * m03 + i01 * m13 + i02 * m23);
+      inverseToPack[offset + 4] = i10;
+      inverseToPack[offset + 5] = i11;
+      inverseToPack[offset + 6] = i12;
+      inverseToPack[offset + 7] = -(i10 * m03 + i11 * m13 + i12 * m23);
+      inverseToPack[offset + 8] = i20;
+      inverseToPack[offset + 9] = i21;
+      inverseToPack[offset + 10] = i22;
+      inverseToPack[offset + 11] = -(i20 * m03 + i21 * m13 + i22 * m23);
+   }
+}
@@ -0,0 +1,165 @@
+package us.ihmc.graphics3DAdapter.jme.lidar;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Casts the rays of a planar lidar sweep into a {@link RayTracingScene} on several threads. The calling thread works along
+ * with the pool, and the rays are handed out in small blocks so that the threads finish together even when some directions
+ * are much more expensive than others. Nothing is allocated per ray.
+ */
+public class RayTracingSweep
+{
+   private static final int RAYS_PER_BLOCK = 32;
+
+   private final ExecutorService executor;
+   private final SweepWorker[] workers;
+   private final Future<?>[] futures;
+   private final AtomicInteger nextBlock = new AtomicInteger();
+
+   private RayTracingScene scene;
+   private final double[] origin = new double[3];
+   private final double[] rotation = new double[9];
+   private int numberOfRays;
+   private double yawMin;
+   private double yawPerRay;
+   private double maximumDistance;
+   private float[] ranges;
+
+   /**
+    * @param numberOfThreads number of threads casting rays, including the calling thread.
+    */
+   public RayTracingSweep(int numberOfThreads)
+   {
+      if (numberOfThreads < 1)
+         throw new RuntimeException("Need at least one thread, got " + numberOfThreads);
+
+      workers = new SweepWorker[numberOfThreads];
+      for (int i = 0; i < numberOfThreads; i++)
+      {
+         workers[i] = new SweepWorker();
+      }
+
+      futures = new Future<?>[numberOfThreads];
+
+      if (numberOfThreads > 1)
+      {
+         executor = Executors.newFixedThreadPool(numberOfThreads - 1, new ThreadFactory()
+         {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+               Thread thread = new Thread(runnable, "RayTracingSweep-thread-" + threadNumber.getAndIncrement());
+               thread.setDaemon(true);
+
+               return thread;
+            }
+         });
+      }
+      else
+      {
+         executor = null;
+      }
+   }
+
+   /**
+    * Casts numberOfRays rays in the x-y plane of the sensor, evenly spread from yawMin to yawMax about its z axis.
+    *
+    * @param sensorOrigin position of the sensor in the scene.
+    * @param sensorRotation rotation from the sensor to the scene, row by row.
+    * @param rangesToPack distance to the closest hit for each ray, 0 when nothing is hit within maximumDistance.
+    */
+   public synchronized void cast(RayTracingScene scene, double[] sensorOrigin, double[] sensorRotation, int numberOfRays, double yawMin, double yawMax,
+         double maximumDistance, float[] rangesToPack)
+   {
+      this.scene = scene;
+      System.arraycopy(sensorOrigin, 0, origin, 0, 3);
+      System.arraycopy(sensorRotation, 0, rotation, 0, 9);
+      this.numberOfRays = numberOfRays;
+      this.yawMin = yawMin;
+      this.yawPerRay = numberOfRays > 1 ? (yawMax - yawMin) / (numberOfRays - 1) : 0.0;
+      this.maximumDistance = maximumDistance;
+      this.ranges = rangesToPack;
+      nextBlock.set(0);
+
+      for (int i = 1; i < workers.length; i++)
+      {
+         futures[i] = executor.submit(workers[i]);
+      }
+
+      try
+      {
+         workers[0].call();
+
+         for (int i = 1; i < workers.length; i++)
+         {
+            futures[i].get();
+            futures[i] = null;
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new RuntimeException(e);
+      }
+      catch (ExecutionException e)
+      {
+         throw new RuntimeException(e.getCause());
+      }
+      finally
+      {
+         this.scene = null;
+         this.ranges = null;
+      }
+   }
+
+   public int getNumberOfThreads()
+   {
+      return workers.length;
+   }
+
+   public void shutdown()
+   {
+      if (executor != null)
+         executor.shutdown();
+   }
+
+   private class SweepWorker implements Callable<Object>
+   {
+      private int[] stack = new int[0];
+
+      @Override
+      public Object call()
+      {
+         if (stack.length < scene.getRequiredStackSize())
+            stack = new int[scene.getRequiredStackSize()];
+
+         int block;
+         while ((block = nextBlock.getAndIncrement()) * RAYS_PER_BLOCK < numberOfRays)
+         {
+            int end = Math.min(numberOfRays, (block + 1) * RAYS_PER_BLOCK);
+            for (int i = block * RAYS_PER_BLOCK; i < end; i++)
+            {
+               double yaw = yawMin + yawPerRay * i;
+               double cosYaw = Math.cos(yaw);
+               double sinYaw = Math.sin(yaw);
+
+               double directionX = rotation[0] * cosYaw + rotation[1] * sinYaw;
+               double directionY = rotation[3] * cosYaw + rotation[4] * sinYaw;
+               double directionZ = rotation[6] * cosYaw + rotation[7] * sinYaw;
+
+               double distance = scene.castRay(origin[0], origin[1], origin[2], directionX, directionY, directionZ, maximumDistance, stack);
+               ranges[i] = distance < maximumDistance ? (float) distance : 0.0f;
+            }
+         }
+
+         return null;
+      }
+   }
+}
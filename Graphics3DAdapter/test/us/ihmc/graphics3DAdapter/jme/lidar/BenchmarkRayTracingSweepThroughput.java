@@ -0,0 +1,71 @@
+package us.ihmc.graphics3DAdapter.jme.lidar;
+
+import java.util.Random;
+
+/**
+ * Lidar throughput in rays per second for an increasing number of threads, on a scene of randomly placed triangle soups
+ * that move a little before every sweep, so that every sweep also pays for the scene update.
+ */
+public class BenchmarkRayTracingSweepThroughput
+{
+   private static final int NUMBER_OF_INSTANCES = 50;
+   private static final int NUMBER_OF_TRIANGLES_PER_MESH = 20000;
+   private static final int NUMBER_OF_RAYS = 1081;
+   private static final int NUMBER_OF_SWEEPS = 500;
+
+   public static void main(String[] args)
+   {
+      Random random = new Random(1776L);
+      RayTracingMesh mesh = new RayTracingMesh(RayTracingSceneTest.createRandomTriangles(random, NUMBER_OF_TRIANGLES_PER_MESH), NUMBER_OF_TRIANGLES_PER_MESH);
+
+      double[][] instancePositions = new double[NUMBER_OF_INSTANCES][3];
+      for (double[] instancePosition : instancePositions)
+      {
+         for (int axis = 0; axis < 3; axis++)
+         {
+            instancePosition[axis] = 20.0 * (random.nextDouble() - 0.5);
+         }
+      }
+
+      double[] origin = {0.0, 0.0, 0.0};
+      double[] rotation = {1.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0, 0.0, 1.0};
+      float[] ranges = new float[NUMBER_OF_RAYS];
+      RayTracingScene scene = new RayTracingScene();
+
+      int maximumNumberOfThreads = Runtime.getRuntime().availableProcessors();
+      System.out.println(NUMBER_OF_INSTANCES + " instances of " + NUMBER_OF_TRIANGLES_PER_MESH + " triangles, " + NUMBER_OF_RAYS + " rays per sweep");
+      System.out.println("threads\trays per second");
+
+      for (int numberOfThreads = 1; numberOfThreads <= maximumNumberOfThreads; numberOfThreads *= 2)
+      {
+         RayTracingSweep sweep = new RayTracingSweep(numberOfThreads);
+
+         // Warm up
+         runSweeps(scene, sweep, instancePositions, mesh, origin, rotation, ranges, NUMBER_OF_SWEEPS / 10);
+
+         long startTime = System.nanoTime();
+         runSweeps(scene, sweep, instancePositions, mesh, origin, rotation, ranges, NUMBER_OF_SWEEPS);
+         double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+         System.out.println(numberOfThreads + "\t" + (double) NUMBER_OF_SWEEPS * NUMBER_OF_RAYS / elapsedSeconds);
+         sweep.shutdown();
+      }
+   }
+
+   private static void runSweeps(RayTracingScene scene, RayTracingSweep sweep, double[][] instancePositions, RayTracingMesh mesh, double[] origin,
+         double[] rotation, float[] ranges, int numberOfSweeps)
+   {
+      for (int i = 0; i < numberOfSweeps; i++)
+      {
+         scene.beginUpdate();
+         for (int j = 0; j < instancePositions.length; j++)
+         {
+            double[] position = instancePositions[j];
+            scene.addInstance(mesh, RayTracingSceneTest.createTransform(position[0], position[1], position[2] + 0.01 * Math.sin(0.1 * i + j), 0.01 * i, 1.0));
+         }
+         scene.endUpdate();
+
+         sweep.cast(scene, origin, rotation, NUMBER_OF_RAYS, -2.35, 2.35, 30.0, ranges);
+      }
+   }
+}
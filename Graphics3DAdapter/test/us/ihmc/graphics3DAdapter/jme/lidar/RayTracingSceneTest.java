@@ -0,0 +1,215 @@
+package us.ihmc.graphics3DAdapter.jme.lidar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+
+public class RayTracingSceneTest
+{
+   private static final double EPSILON = 1e-5;
+
+	@DeployableTestMethod(estimatedDuration = 0.3)
+	@Test(timeout = 30000)
+   public void testClosestHitMatchesBruteForce()
+   {
+      Random random = new Random(1984L);
+      int numberOfTriangles = 2000;
+      float[] triangleVertices = createRandomTriangles(random, numberOfTriangles);
+
+      RayTracingMesh mesh = new RayTracingMesh(triangleVertices, numberOfTriangles);
+      RayTracingScene scene = new RayTracingScene();
+      scene.beginUpdate();
+      scene.addInstance(mesh, createTransform(0.0, 0.0, 0.0, 0.0, 1.0));
+      scene.endUpdate();
+
+      RayTracingMesh[] singleTriangles = new RayTracingMesh[numberOfTriangles];
+      for (int i = 0; i < numberOfTriangles; i++)
+      {
+         singleTriangles[i] = new RayTracingMesh(Arrays.copyOfRange(triangleVertices, 9 * i, 9 * i + 9), 1);
+      }
+
+      int[] stack = new int[scene.getRequiredStackSize()];
+      double[] ray = new double[6];
+      int numberOfHits = 0;
+      for (int i = 0; i < 2000; i++)
+      {
+         createRandomRay(random, ray);
+
+         double expected = castRayBruteForce(singleTriangles, ray);
+         double actual = scene.castRay(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], Double.POSITIVE_INFINITY, stack);
+
+         assertEquals(expected, actual, EPSILON);
+         if (!Double.isInfinite(expected))
+            numberOfHits++;
+      }
+
+      // Make sure the test actually hits something
+      assertEquals(true, numberOfHits > 100);
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.1)
+	@Test(timeout = 30000)
+   public void testMovedAndRemovedInstances()
+   {
+      RayTracingMesh unitSquare = new RayTracingMesh(new float[] {-0.5f, -0.5f, 0.0f, 0.5f, -0.5f, 0.0f, 0.5f, 0.5f, 0.0f, -0.5f, -0.5f, 0.0f, 0.5f, 0.5f, 0.0f,
+            -0.5f, 0.5f, 0.0f}, 2);
+
+      RayTracingScene scene = new RayTracingScene();
+      scene.beginUpdate();
+      scene.addInstance(unitSquare, createTransform(0.0, 0.0, 1.0, 0.0, 1.0));
+      scene.addInstance(unitSquare, createTransform(3.0, 0.0, 2.0, 0.0, 1.0));
+      scene.endUpdate();
+
+      int[] stack = new int[scene.getRequiredStackSize()];
+      assertEquals(1.0, scene.castRay(0.0, 0.0, 0.0, 0.0, 0.0, 1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+      assertEquals(2.0, scene.castRay(3.0, 0.0, 0.0, 0.0, 0.0, 1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+      assertEquals(Double.POSITIVE_INFINITY, scene.castRay(0.0, 0.0, 0.0, 0.0, 0.0, -1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+      assertEquals(0.5, scene.castRay(0.0, 0.0, 0.0, 0.0, 0.0, 1.0, 0.5, stack), EPSILON);
+
+      // Second square moves over the first one and is scaled, tilted by 45 degrees about x
+      scene.beginUpdate();
+      scene.addInstance(unitSquare, createTransform(0.0, 0.0, 1.0, 0.0, 1.0));
+      scene.addInstance(unitSquare, createTransform(0.0, 0.0, 0.5, Math.PI / 4.0, 2.0));
+      scene.endUpdate();
+
+      stack = new int[scene.getRequiredStackSize()];
+      assertEquals(0.5, scene.castRay(0.0, 0.0, 0.0, 0.0, 0.0, 1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+      assertEquals(0.75, scene.castRay(0.0, 0.25, 0.0, 0.0, 0.0, 1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+      assertEquals(Double.POSITIVE_INFINITY, scene.castRay(3.0, 0.0, 0.0, 0.0, 0.0, 1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+
+      // Second square removed
+      scene.beginUpdate();
+      scene.addInstance(unitSquare, createTransform(0.0, 0.0, 1.0, 0.0, 1.0));
+      scene.endUpdate();
+
+      stack = new int[scene.getRequiredStackSize()];
+      assertEquals(1, scene.getNumberOfInstances());
+      assertEquals(1.0, scene.castRay(0.0, 0.0, 0.0, 0.0, 0.0, 1.0, Double.POSITIVE_INFINITY, stack), EPSILON);
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.3)
+	@Test(timeout = 30000)
+   public void testParallelSweepMatchesSingleThreadedSweep()
+   {
+      Random random = new Random(2016L);
+      int numberOfTriangles = 5000;
+      RayTracingMesh mesh = new RayTracingMesh(createRandomTriangles(random, numberOfTriangles), numberOfTriangles);
+
+      RayTracingScene scene = new RayTracingScene();
+      scene.beginUpdate();
+      for (int i = 0; i < 10; i++)
+      {
+         scene.addInstance(mesh, createTransform(random.nextGaussian(), random.nextGaussian(), random.nextGaussian(), random.nextDouble(), 1.0));
+      }
+      scene.endUpdate();
+
+      double[] origin = {0.1, -0.2, 0.05};
+      double[] rotation = {1.0, 0.0, 0.0, 0.0, Math.cos(0.3), -Math.sin(0.3), 0.0, Math.sin(0.3), Math.cos(0.3)};
+      int numberOfRays = 1081;
+
+      RayTracingSweep singleThreadedSweep = new RayTracingSweep(1);
+      RayTracingSweep parallelSweep = new RayTracingSweep(4);
+      float[] expectedRanges = new float[numberOfRays];
+      float[] ranges = new float[numberOfRays];
+
+      singleThreadedSweep.cast(scene, origin, rotation, numberOfRays, -2.35, 2.35, 30.0, expectedRanges);
+      parallelSweep.cast(scene, origin, rotation, numberOfRays, -2.35, 2.35, 30.0, ranges);
+      parallelSweep.shutdown();
+
+      int numberOfHits = 0;
+      int[] stack = new int[scene.getRequiredStackSize()];
+      for (int i = 0; i < numberOfRays; i++)
+      {
+         assertEquals(expectedRanges[i], ranges[i], 0.0);
+
+         double yaw = -2.35 + (2.35 - -2.35) / (numberOfRays - 1) * i;
+         double expected = scene.castRay(origin[0], origin[1], origin[2], Math.cos(yaw), Math.cos(0.3) * Math.sin(yaw), Math.sin(0.3) * Math.sin(yaw), 30.0,
+               stack);
+         assertEquals(expected < 30.0 ? expected : 0.0, ranges[i], EPSILON);
+
+         if (ranges[i] > 0.0f)
+            numberOfHits++;
+      }
+
+      assertEquals(true, numberOfHits > 100);
+   }
+
+   static float[] createRandomTriangles(Random random, int numberOfTriangles)
+   {
+      float[] triangleVertices = new float[9 * numberOfTriangles];
+      for (int i = 0; i < numberOfTriangles; i++)
+      {
+         float centerX = 4.0f * (random.nextFloat() - 0.5f);
+         float centerY = 4.0f * (random.nextFloat() - 0.5f);
+         float centerZ = 4.0f * (random.nextFloat() - 0.5f);
+
+         for (int j = 0; j < 3; j++)
+         {
+            triangleVertices[9 * i + 3 * j] = centerX + 0.2f * (random.nextFloat() - 0.5f);
+            triangleVertices[9 * i + 3 * j + 1] = centerY + 0.2f * (random.nextFloat() - 0.5f);
+            triangleVertices[9 * i + 3 * j + 2] = centerZ + 0.2f * (random.nextFloat() - 0.5f);
+         }
+      }
+
+      return triangleVertices;
+   }
+
+   /**
+    * Translation, rotation about x and uniform scale.
+    */
+	@DeployableTestMethod(estimatedDuration = 0.0)
+	@Test(timeout = 30000)
+   public void testZeroScaleIsNotInvertible()
+   {
+      assertTrue(RayTracingScene.isInvertible(createTransform(1.0, 2.0, 3.0, 0.3, 0.01)));
+      assertFalse(RayTracingScene.isInvertible(createTransform(1.0, 2.0, 3.0, 0.3, 0.0)));
+   }
+
+   static float[] createTransform(double x, double y, double z, double rotationAboutX, double scale)
+   {
+      double cos = Math.cos(rotationAboutX) * scale;
+      double sin = Math.sin(rotationAboutX) * scale;
+
+      return new float[] {(float) scale, 0.0f, 0.0f, (float) x, 0.0f, (float) cos, (float) -sin, (float) y, 0.0f, (float) sin, (float) cos, (float) z};
+   }
+
+   private static void createRandomRay(Random random, double[] rayToPack)
+   {
+      for (int i = 0; i < 3; i++)
+      {
+         rayToPack[i] = 6.0 * (random.nextDouble() - 0.5);
+      }
+
+      double norm = 0.0;
+      for (int i = 3; i < 6; i++)
+      {
+         rayToPack[i] = random.nextGaussian();
+         norm += rayToPack[i] * rayToPack[i];
+      }
+
+      for (int i = 3; i < 6; i++)
+      {
+         rayToPack[i] /= Math.sqrt(norm);
+      }
+   }
+
+   private static double castRayBruteForce(RayTracingMesh[] singleTriangles, double[] ray)
+   {
+      int[] stack = new int[8];
+      double closestDistance = Double.POSITIVE_INFINITY;
+      for (RayTracingMesh singleTriangle : singleTriangles)
+      {
+         double distance = singleTriangle.intersect(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5], Double.POSITIVE_INFINITY, stack, 0);
+         closestDistance = Math.min(closestDistance, distance);
+      }
+
+      return closestDistance;
+   }
+}
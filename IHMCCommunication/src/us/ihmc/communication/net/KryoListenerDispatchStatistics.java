@@ -0,0 +1,111 @@
+package us.ihmc.communication.net;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-class bookkeeping for the listener dispatcher of a {@link KryoObjectCommunicator}.
+ *
+ * The queue depth is the number of received objects of this class that are waiting to be handed to the listeners.
+ * The dispatch latency is the time between receiving an object from the network and starting to call the listeners.
+ */
+public class KryoListenerDispatchStatistics
+{
+   private final Class<?> clazz;
+
+   private final AtomicInteger queueDepth = new AtomicInteger();
+   private final AtomicInteger maximumQueueDepth = new AtomicInteger();
+   private final AtomicLong numberOfDispatchedObjects = new AtomicLong();
+   private final AtomicLong totalDispatchLatency = new AtomicLong();
+   private final AtomicLong maximumDispatchLatency = new AtomicLong();
+
+   public KryoListenerDispatchStatistics(Class<?> clazz)
+   {
+      this.clazz = clazz;
+   }
+
+   void queued()
+   {
+      int depth = queueDepth.incrementAndGet();
+
+      int maximum;
+      while (depth > (maximum = maximumQueueDepth.get()))
+      {
+         if (maximumQueueDepth.compareAndSet(maximum, depth))
+            break;
+      }
+   }
+
+   void dispatched(long latencyInNanoseconds)
+   {
+      queueDepth.decrementAndGet();
+      numberOfDispatchedObjects.incrementAndGet();
+      totalDispatchLatency.addAndGet(latencyInNanoseconds);
+
+      long maximum;
+      while (latencyInNanoseconds > (maximum = maximumDispatchLatency.get()))
+      {
+         if (maximumDispatchLatency.compareAndSet(maximum, latencyInNanoseconds))
+            break;
+      }
+   }
+
+   void rejected()
+   {
+      queueDepth.decrementAndGet();
+   }
+
+   public Class<?> getObjectClass()
+   {
+      return clazz;
+   }
+
+   public int getQueueDepth()
+   {
+      return queueDepth.get();
+   }
+
+   public int getMaximumQueueDepth()
+   {
+      return maximumQueueDepth.get();
+   }
+
+   public long getNumberOfDispatchedObjects()
+   {
+      return numberOfDispatchedObjects.get();
+   }
+
+   /**
+    * @return average time in nanoseconds an object waited in the queue before its listeners got called, 0 if nothing has been dispatched yet.
+    */
+   public long getAverageDispatchLatency()
+   {
+      long dispatched = numberOfDispatchedObjects.get();
+      if (dispatched == 0)
+         return 0;
+      return totalDispatchLatency.get() / dispatched;
+   }
+
+   /**
+    * @return maximum time in nanoseconds an object waited in the queue before its listeners got called.
+    */
+   public long getMaximumDispatchLatency()
+   {
+      return maximumDispatchLatency.get();
+   }
+
+   public void reset()
+   {
+      maximumQueueDepth.set(queueDepth.get());
+      numberOfDispatchedObjects.set(0);
+      totalDispatchLatency.set(0);
+      maximumDispatchLatency.set(0);
+   }
+
+   @Override
+   public String toString()
+   {
+      return clazz.getSimpleName() + ": queue depth = " + getQueueDepth() + " (max " + getMaximumQueueDepth() + "), dispatched = " + getNumberOfDispatchedObjects()
+            + ", average latency = " + getAverageDispatchLatency() / 1000 + "us, max latency = " + getMaximumDispatchLatency() / 1000 + "us";
+   }
+}
@@ -0,0 +1,213 @@
+package us.ihmc.communication.net;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import us.ihmc.tools.thread.ThreadTools;
+
+/**
+ * Hands received objects to the listener threads of a {@link KryoObjectCommunicator}.
+ *
+ * Every registered class is bound to exactly one single threaded stripe, so objects of the same class are always
+ * delivered in the order they were received. By default every class gets its own stripe, which results in one thread
+ * per registered class. When a maximum number of threads is set, the classes are spread round-robin over that many
+ * stripes instead.
+ *
+ * Stripes are started lazily on the first object they have to deliver.
+ */
+public class KryoListenerDispatcher
+{
+   public static final int THREAD_PER_CLASS = -1;
+
+   private final LinkedHashMap<Class<?>, Integer> stripeIndices = new LinkedHashMap<Class<?>, Integer>();
+   private final LinkedHashMap<Class<?>, KryoListenerDispatchStatistics> statistics = new LinkedHashMap<Class<?>, KryoListenerDispatchStatistics>();
+   private final ArrayList<String> stripeNames = new ArrayList<String>();
+   private final ArrayList<ExecutorService> stripes = new ArrayList<ExecutorService>();
+
+   private int maximumNumberOfThreads = THREAD_PER_CLASS;
+   private boolean started = false;
+   private boolean shutdown = false;
+
+   /**
+    * Limit the number of listener threads. Has to be called before the first object is dispatched.
+    *
+    * @param maximumNumberOfThreads number of threads shared by all registered classes, or {@link #THREAD_PER_CLASS}
+    */
+   public synchronized void setMaximumNumberOfThreads(int maximumNumberOfThreads)
+   {
+      if (started)
+      {
+         throw new RuntimeException("Cannot change the number of listener threads after objects have been dispatched");
+      }
+      if (maximumNumberOfThreads < 1 && maximumNumberOfThreads != THREAD_PER_CLASS)
+      {
+         throw new IllegalArgumentException("Maximum number of threads should be at least one, got " + maximumNumberOfThreads);
+      }
+
+      this.maximumNumberOfThreads = maximumNumberOfThreads;
+      assignStripes();
+   }
+
+   public synchronized int getMaximumNumberOfThreads()
+   {
+      return maximumNumberOfThreads;
+   }
+
+   public synchronized void registerClass(Class<?> clazz)
+   {
+      if (statistics.containsKey(clazz))
+      {
+         return;
+      }
+
+      if (started)
+      {
+         throw new RuntimeException("Cannot register " + clazz.getSimpleName() + " after objects have been dispatched");
+      }
+
+      statistics.put(clazz, new KryoListenerDispatchStatistics(clazz));
+      assignStripes();
+   }
+
+   public synchronized boolean isRegistered(Class<?> clazz)
+   {
+      return statistics.containsKey(clazz);
+   }
+
+   private void assignStripes()
+   {
+      stripeIndices.clear();
+      stripeNames.clear();
+
+      int classIndex = 0;
+      for (Class<?> clazz : statistics.keySet())
+      {
+         if (maximumNumberOfThreads == THREAD_PER_CLASS)
+         {
+            stripeIndices.put(clazz, classIndex);
+            stripeNames.add("Kryo" + clazz.getSimpleName() + "Listener");
+         }
+         else
+         {
+            int stripeIndex = classIndex % maximumNumberOfThreads;
+            stripeIndices.put(clazz, stripeIndex);
+            if (stripeIndex == stripeNames.size())
+            {
+               stripeNames.add("KryoListenerDispatcher" + stripeIndex);
+            }
+         }
+         classIndex++;
+      }
+   }
+
+   private synchronized ExecutorService getStripe(Class<?> clazz)
+   {
+      if (shutdown)
+      {
+         return null;
+      }
+
+      Integer stripeIndex = stripeIndices.get(clazz);
+      if (stripeIndex == null)
+      {
+         return null;
+      }
+
+      if (!started)
+      {
+         for (int i = 0; i < stripeNames.size(); i++)
+         {
+            stripes.add(null);
+         }
+         started = true;
+      }
+
+      ExecutorService stripe = stripes.get(stripeIndex);
+      if (stripe == null)
+      {
+         stripe = Executors.newSingleThreadExecutor(ThreadTools.getNamedThreadFactory(stripeNames.get(stripeIndex)));
+         stripes.set(stripeIndex, stripe);
+      }
+      return stripe;
+   }
+
+   /**
+    * Queue the runnable on the stripe of the given class.
+    *
+    * @return false if the class is not registered or the dispatcher has been shut down
+    */
+   public boolean dispatch(Class<?> clazz, final Runnable listenerCalls)
+   {
+      ExecutorService stripe = getStripe(clazz);
+      if (stripe == null)
+      {
+         return false;
+      }
+
+      final KryoListenerDispatchStatistics classStatistics = statistics.get(clazz);
+      final long queueTime = System.nanoTime();
+      classStatistics.queued();
+
+      try
+      {
+         stripe.execute(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               classStatistics.dispatched(System.nanoTime() - queueTime);
+               listenerCalls.run();
+            }
+         });
+      }
+      catch (RejectedExecutionException e)
+      {
+         classStatistics.rejected();
+         return false;
+      }
+
+      return true;
+   }
+
+   public synchronized KryoListenerDispatchStatistics getStatistics(Class<?> clazz)
+   {
+      return statistics.get(clazz);
+   }
+
+   public synchronized Collection<KryoListenerDispatchStatistics> getAllStatistics()
+   {
+      return Collections.unmodifiableCollection(new ArrayList<KryoListenerDispatchStatistics>(statistics.values()));
+   }
+
+   /**
+    * @return the number of threads that have been started so far
+    */
+   public synchronized int getNumberOfActiveThreads()
+   {
+      int activeThreads = 0;
+      for (int i = 0; i < stripes.size(); i++)
+      {
+         if (stripes.get(i) != null)
+            activeThreads++;
+      }
+      return activeThreads;
+   }
+
+   public synchronized void shutdownNow()
+   {
+      shutdown = true;
+      for (int i = 0; i < stripes.size(); i++)
+      {
+         ExecutorService stripe = stripes.get(i);
+         if (stripe != null)
+         {
+            stripe.shutdownNow();
+         }
+      }
+   }
+}
@@ -3,9 +3,8 @@ package us.ihmc.communication.net;
 import java.awt.Container;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import javax.swing.JFrame;
 import javax.swing.JScrollPane;
@@ -13,7 +12,6 @@ import javax.swing.JTable;
 import javax.swing.table.DefaultTableModel;
 
 import us.ihmc.tools.FormattingTools;
-import us.ihmc.tools.thread.ThreadTools;
 
 import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.EndPoint;
@@ -23,7 +21,7 @@ import com.esotericsoftware.kryonet.Listener;
 public abstract class KryoObjectCommunicator implements NetworkedObjectCommunicator
 {
 
-   private final LinkedHashMap<Class<?>, ExecutorService> listenerExecutors = new LinkedHashMap<Class<?>, ExecutorService>();
+   private final KryoListenerDispatcher listenerDispatcher = new KryoListenerDispatcher();
    private final LinkedHashMap<Class<?>, ArrayList<ObjectConsumer<?>>> listeners = new LinkedHashMap<Class<?>, ArrayList<ObjectConsumer<?>>>();
 
    private final ArrayList<TcpNetStateListener> tcpStateListeners = new ArrayList<TcpNetStateListener>();
@@ -77,9 +75,33 @@ public abstract class KryoObjectCommunicator implements NetworkedObjectCommunica
 	   for(Class<?> clazz : classList.getPacketClassList())
 	   {
 		   listeners.put(clazz, new ArrayList<ObjectConsumer<?>>());
-		   listenerExecutors.put(clazz, Executors.newFixedThreadPool(1, ThreadTools.getNamedThreadFactory("Kryo" + clazz.getSimpleName() + "Listener")));
+		   listenerDispatcher.registerClass(clazz);
 	   }
    }
+
+   /**
+    * By default every registered class gets its own listener thread. Use this to share a fixed number of threads between all
+    * registered classes instead. Objects of the same class are still delivered in order. Call before connecting.
+    *
+    * @param maximumNumberOfListenerThreads number of threads, or {@link KryoListenerDispatcher#THREAD_PER_CLASS}
+    */
+   public void setMaximumNumberOfListenerThreads(int maximumNumberOfListenerThreads)
+   {
+      listenerDispatcher.setMaximumNumberOfThreads(maximumNumberOfListenerThreads);
+   }
+
+   /**
+    * @return queue depth and dispatch latency of the listeners of the given class, or null if the class is not registered
+    */
+   public KryoListenerDispatchStatistics getListenerDispatchStatistics(Class<?> clazz)
+   {
+      return listenerDispatcher.getStatistics(clazz);
+   }
+
+   public Collection<KryoListenerDispatchStatistics> getAllListenerDispatchStatistics()
+   {
+      return listenerDispatcher.getAllStatistics();
+   }
    
    @Override
    public void attachStateListener(NetStateListener stateListener)
@@ -180,10 +202,9 @@ public abstract class KryoObjectCommunicator implements NetworkedObjectCommunica
          public void received(Connection connection, final Object object)
          {
             final Class<? extends Object> classType = object.getClass();
-            ExecutorService executorService = listenerExecutors.get(classType);
-            if(executorService != null)
+            if(listenerDispatcher.isRegistered(classType))
             {
-               executorService.execute(new Runnable()
+               listenerDispatcher.dispatch(classType, new Runnable()
                {
                   
                   @Override
@@ -257,10 +278,7 @@ public abstract class KryoObjectCommunicator implements NetworkedObjectCommunica
    public final void close()
    {
       closeConnection();
-      for(ExecutorService executor : listenerExecutors.values())
-      {
-         executor.shutdownNow();
-      }
+      listenerDispatcher.shutdownNow();
    }
    
    protected abstract void openConnection() throws IOException;
@@ -29,6 +29,7 @@ public class PacketCommunicator
    private final List<Class<?>> registeredClasses;
    
    private final String description;
+   private final PacketPool packetPool;
    
    public static PacketCommunicator createTCPPacketCommunicatorClient(String host, NetworkPorts port, NetClassList netClassList)
    {
@@ -42,6 +43,19 @@ public class PacketCommunicator
       return new PacketCommunicator("TCPClient[host=" + host + ",port=" + port + "]", objectCommunicator, netClassList.getPacketClassList());
    }
 
+   /**
+    * Creates a client that deserializes received packets into instances from the packet pool. A received packet is only
+    * reused once its consumer hands it back with {@link #recycle(Packet)}.
+    */
+   public static PacketCommunicator createTCPPacketCommunicatorClient(String host, NetworkPorts port, NetClassList netClassList, boolean reconnectAutomatically,
+         PacketPool packetPool)
+   {
+      KryoObjectClient objectCommunicator = new KryoObjectClient(KryoObjectClient.getByName(host), port.getPort(), netClassList, BUFFER_SIZE, BUFFER_SIZE,
+            packetPool.createSerialization(netClassList));
+      objectCommunicator.setReconnectAutomatically(reconnectAutomatically);
+      return new PacketCommunicator("TCPClient[host=" + host + ",port=" + port + ",pooled]", objectCommunicator, netClassList.getPacketClassList(), packetPool);
+   }
+
    public static PacketCommunicator createTCPPacketCommunicatorServer(NetworkPorts port, NetClassList netClassList)
    {
       return createTCPPacketCommunicatorServer(port, BUFFER_SIZE, BUFFER_SIZE, netClassList);
@@ -60,6 +74,17 @@ public class PacketCommunicator
       return new PacketCommunicator("TCPServer[port=" + port + "]", new KryoObjectServer(port.getPort(), netClassList, writeBufferSize, receiveBufferSize), netClassList.getPacketClassList());
    }
 
+   /**
+    * Creates a server that deserializes received packets into instances from the packet pool. A received packet is only
+    * reused once its consumer hands it back with {@link #recycle(Packet)}.
+    */
+   public static PacketCommunicator createTCPPacketCommunicatorServer(NetworkPorts port, int writeBufferSize, int receiveBufferSize, NetClassList netClassList,
+         PacketPool packetPool)
+   {
+      KryoObjectServer server = new KryoObjectServer(port.getPort(), netClassList, writeBufferSize, receiveBufferSize, packetPool.createSerialization(netClassList));
+      return new PacketCommunicator("TCPServer[port=" + port + ",pooled]", server, netClassList.getPacketClassList(), packetPool);
+   }
+
    public static PacketCommunicator createIntraprocessPacketCommunicator(NetworkPorts port, NetClassList netClassList)
    {
       return new PacketCommunicator("IntraProcess[port=" + port + "]", new IntraprocessObjectCommunicator(port.getPort(), netClassList), netClassList.getPacketClassList());
@@ -71,10 +96,27 @@ public class PacketCommunicator
    }
 
    private PacketCommunicator(String description, NetworkedObjectCommunicator communicator, List<Class<?>> registeredClasses)
+   {
+      this(description, communicator, registeredClasses, null);
+   }
+
+   private PacketCommunicator(String description, NetworkedObjectCommunicator communicator, List<Class<?>> registeredClasses, PacketPool packetPool)
    {
       this.description = description;
       this.communicator = communicator;
       this.registeredClasses = registeredClasses;
+      this.packetPool = packetPool;
+   }
+
+   /**
+    * Hands a received packet back to the packet pool, the next packet of the same class may be read into it. Only call this
+    * once, when no thread uses the packet anymore. Packets that are not recycled are garbage collected as usual, and this
+    * does nothing for a communicator without a packet pool.
+    */
+   public void recycle(Packet<?> packet)
+   {
+      if (packetPool != null)
+         packetPool.recycle(packet);
    }
 
    public void attachStateListener(NetStateListener stateListener)
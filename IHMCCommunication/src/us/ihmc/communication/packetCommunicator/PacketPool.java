@@ -0,0 +1,135 @@
+package us.ihmc.communication.packetCommunicator;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.Registration;
+import com.esotericsoftware.kryonet.KryoSerialization;
+
+import us.ihmc.communication.net.NetClassList;
+import us.ihmc.communication.packets.Packet;
+
+/**
+ * Per-class pool of received packets.
+ *
+ * When a {@link PacketCommunicator} is created with a packet pool, incoming packets are deserialized into instances taken
+ * from this pool. Nothing is recycled automatically, because consumers often hand packets to other threads. The consumer
+ * that is done with a packet gives it back with {@link PacketCommunicator#recycle(Packet)}, a packet that is never
+ * recycled is simply garbage collected.
+ *
+ * Only the packet itself is recycled, nested objects and arrays are still allocated by Kryo.
+ */
+public class PacketPool
+{
+   public static final int DEFAULT_CAPACITY_PER_CLASS = 16;
+
+   private final int capacityPerClass;
+   private final ConcurrentHashMap<Class<?>, ArrayBlockingQueue<Object>> pools = new ConcurrentHashMap<Class<?>, ArrayBlockingQueue<Object>>();
+
+   private final AtomicLong numberOfAllocatedPackets = new AtomicLong();
+   private final AtomicLong numberOfRecycledPackets = new AtomicLong();
+
+   public PacketPool()
+   {
+      this(DEFAULT_CAPACITY_PER_CLASS);
+   }
+
+   /**
+    * @param capacityPerClass maximum number of idle packets kept per class. Should be larger than the number of packets
+    * of a single class that are being processed at the same time.
+    */
+   public PacketPool(int capacityPerClass)
+   {
+      this.capacityPerClass = capacityPerClass;
+   }
+
+   public void registerPacketClass(Class<?> clazz)
+   {
+      if (!pools.containsKey(clazz))
+      {
+         pools.put(clazz, new ArrayBlockingQueue<Object>(capacityPerClass));
+      }
+   }
+
+   public boolean isRegistered(Class<?> clazz)
+   {
+      return pools.containsKey(clazz);
+   }
+
+   /**
+    * @return an idle packet of the given class, or null if the pool for this class is empty
+    */
+   public <T> T poll(Class<T> clazz)
+   {
+      ArrayBlockingQueue<Object> pool = pools.get(clazz);
+      if (pool == null)
+      {
+         return null;
+      }
+
+      Object packet = pool.poll();
+      if (packet == null)
+      {
+         numberOfAllocatedPackets.incrementAndGet();
+         return null;
+      }
+
+      numberOfRecycledPackets.incrementAndGet();
+      return clazz.cast(packet);
+   }
+
+   public void recycle(Object object)
+   {
+      ArrayBlockingQueue<Object> pool = pools.get(object.getClass());
+      if (pool != null)
+      {
+         pool.offer(object);
+      }
+   }
+
+   public long getNumberOfAllocatedPackets()
+   {
+      return numberOfAllocatedPackets.get();
+   }
+
+   public long getNumberOfRecycledPackets()
+   {
+      return numberOfRecycledPackets.get();
+   }
+
+   /**
+    * Registers all packet classes of the list with this pool and replaces their serializers with a
+    * {@link RecyclingPacketSerializer}. The registration ids are the same as the ones from {@link NetClassList#registerWithKryo(Kryo)},
+    * so the other side of the connection does not need to use a pool.
+    */
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   public void registerWithKryo(Kryo kryo, NetClassList netClassList)
+   {
+      netClassList.registerWithKryo(kryo);
+
+      for (Class<?> clazz : netClassList.getPacketClassList())
+      {
+         if (Packet.class.isAssignableFrom(clazz))
+         {
+            registerPacketClass(clazz);
+            Registration registration = kryo.getRegistration(clazz);
+            registration.setSerializer(new RecyclingPacketSerializer(kryo, clazz, this));
+         }
+      }
+   }
+
+   /**
+    * @return a kryonet serialization with the same settings as the default KryoSerialization that deserializes into packets from this pool
+    */
+   public KryoSerialization createSerialization(NetClassList netClassList)
+   {
+      Kryo kryo = new Kryo();
+      kryo.setReferences(false);
+      kryo.setRegistrationRequired(true);
+      KryoSerialization serialization = new KryoSerialization(kryo);
+      registerWithKryo(kryo, netClassList);
+      return serialization;
+   }
+}
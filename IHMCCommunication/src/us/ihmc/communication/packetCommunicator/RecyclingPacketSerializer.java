@@ -0,0 +1,32 @@
+package us.ihmc.communication.packetCommunicator;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.serializers.FieldSerializer;
+
+/**
+ * Field serializer that reads into a packet taken from a {@link PacketPool} instead of creating a new instance.
+ *
+ * All serialized fields are overwritten while reading, transient fields keep the value of the previous use of the packet.
+ */
+public class RecyclingPacketSerializer<T> extends FieldSerializer<T>
+{
+   private final PacketPool packetPool;
+
+   public RecyclingPacketSerializer(Kryo kryo, Class<T> type, PacketPool packetPool)
+   {
+      super(kryo, type);
+      this.packetPool = packetPool;
+   }
+
+   @Override
+   protected T create(Kryo kryo, Input input, Class<T> type)
+   {
+      T packet = packetPool.poll(type);
+      if (packet == null)
+      {
+         return super.create(kryo, input, type);
+      }
+      return packet;
+   }
+}
@@ -16,11 +16,17 @@ import us.ihmc.codecs.yuv.YUVPictureConverter;
 public class JPEGCompressedVideoDataServer implements CompressedVideoDataServer
 {
    private static final Object hackyLockBecauseJPEGEncoderIsNotThreadsafe = new Object();
-   
-   private final YUVPictureConverter converter = new YUVPictureConverter();
-   private final JPEGEncoder encoder = new JPEGEncoder();
+   private static final int JPEG_QUALITY = 75;
+
+   /**
+    * One converter and encoder per video source. The encoder keeps its native buffers from frame to frame, and different
+    * sources convert their images in parallel. The native encode itself is still serialized.
+    */
+   private final SourceEncoder[] sourceEncoders = new SourceEncoder[VideoSource.values.length];
    private final CompressedVideoHandler handler;
-   
+
+   private volatile boolean isClosed = false;
+
    public JPEGCompressedVideoDataServer(CompressedVideoHandler handler)
    {
       this.handler = handler;
@@ -29,29 +35,73 @@ public class JPEGCompressedVideoDataServer implements CompressedVideoDataServer
    @Override
    public void updateImage(VideoSource videoSource, BufferedImage bufferedImage, long timeStamp, Point3d cameraPosition, Quat4d cameraOrientation, IntrinsicParameters intrinsicParameters)
    {
-      YUVPicture picture = converter.fromBufferedImage(bufferedImage, YUVSubsamplingType.YUV420);
-      try
+      SourceEncoder sourceEncoder = getOrCreateSourceEncoder(videoSource);
+      if (sourceEncoder == null)
+         return;
+
+      byte[] data;
+      synchronized (sourceEncoder)
       {
-         ByteBuffer buffer;
-         synchronized (hackyLockBecauseJPEGEncoderIsNotThreadsafe)
+         if (isClosed)
+            return;
+
+         try
          {
-            buffer = encoder.encode(picture, 75);
+            data = sourceEncoder.encode(bufferedImage);
+         }
+         catch (IOException e)
+         {
+            e.printStackTrace();
+            return;
          }
-         byte[] data =  new byte[buffer.remaining()];
-         buffer.get(data);
-         handler.newVideoPacketAvailable(videoSource, timeStamp, data, cameraPosition, cameraOrientation, intrinsicParameters);
       }
-      catch (IOException e)
+
+      // The handlers keep the array in a packet that is sent asynchronously, so a new array is needed for every frame.
+      handler.newVideoPacketAvailable(videoSource, timeStamp, data, cameraPosition, cameraOrientation, intrinsicParameters);
+   }
+
+   /**
+    * @return the encoder of the source, or null once the server is closed
+    */
+   private SourceEncoder getOrCreateSourceEncoder(VideoSource videoSource)
+   {
+      synchronized (sourceEncoders)
       {
-         e.printStackTrace();
+         if (isClosed)
+            return null;
+
+         SourceEncoder sourceEncoder = sourceEncoders[videoSource.ordinal()];
+         if (sourceEncoder == null)
+         {
+            sourceEncoder = new SourceEncoder();
+            sourceEncoders[videoSource.ordinal()] = sourceEncoder;
+         }
+
+         return sourceEncoder;
       }
-      picture.delete();
    }
 
    @Override
    public void close()
    {
-      // TODO
+      isClosed = true;
+
+      synchronized (sourceEncoders)
+      {
+         for (int i = 0; i < sourceEncoders.length; i++)
+         {
+            SourceEncoder sourceEncoder = sourceEncoders[i];
+            if (sourceEncoder == null)
+               continue;
+
+            // Waits for a frame that is being encoded, later frames see isClosed
+            synchronized (sourceEncoder)
+            {
+               sourceEncoder.delete();
+            }
+            sourceEncoders[i] = null;
+         }
+      }
    }
 
    @Override
@@ -65,4 +115,46 @@ public class JPEGCompressedVideoDataServer implements CompressedVideoDataServer
    {
       // TODO
    }
+
+   /**
+    * Guarded by its own monitor. The converter returns a new native picture for every frame, there is no conversion into an
+    * existing picture, so the picture is deleted right after encoding.
+    */
+   private static class SourceEncoder
+   {
+      private YUVPictureConverter converter = new YUVPictureConverter();
+      private JPEGEncoder encoder = new JPEGEncoder();
+
+      public byte[] encode(BufferedImage bufferedImage) throws IOException
+      {
+         YUVPicture picture = converter.fromBufferedImage(bufferedImage, YUVSubsamplingType.YUV420);
+         try
+         {
+            // The returned buffer belongs to the encoder and is overwritten by the next frame.
+            ByteBuffer buffer;
+            synchronized (hackyLockBecauseJPEGEncoderIsNotThreadsafe)
+            {
+               buffer = encoder.encode(picture, JPEG_QUALITY);
+            }
+            byte[] data = new byte[buffer.remaining()];
+            buffer.get(data);
+
+            return data;
+         }
+         finally
+         {
+            picture.delete();
+         }
+      }
+
+      /**
+       * Deletes the native encoder and drops the converter with its buffers. encode cannot be called afterwards.
+       */
+      public void delete()
+      {
+         encoder.delete();
+         encoder = null;
+         converter = null;
+      }
+   }
 }
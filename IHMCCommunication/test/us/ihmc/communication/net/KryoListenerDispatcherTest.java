@@ -0,0 +1,119 @@
+package us.ihmc.communication.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class KryoListenerDispatcherTest
+{
+   private static final Class<?>[] classes = {Integer.class, Double.class, String.class, Long.class, Float.class, Short.class, Byte.class};
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testOrderingPerClassWithSharedThreads() throws InterruptedException
+   {
+      KryoListenerDispatcher dispatcher = new KryoListenerDispatcher();
+      for (Class<?> clazz : classes)
+      {
+         dispatcher.registerClass(clazz);
+      }
+      dispatcher.setMaximumNumberOfThreads(2);
+
+      int objectsPerClass = 1000;
+      final CountDownLatch latch = new CountDownLatch(objectsPerClass * classes.length);
+      final ArrayList<List<Integer>> received = new ArrayList<List<Integer>>();
+      for (int i = 0; i < classes.length; i++)
+      {
+         received.add(Collections.synchronizedList(new ArrayList<Integer>()));
+      }
+
+      for (int i = 0; i < objectsPerClass; i++)
+      {
+         for (int c = 0; c < classes.length; c++)
+         {
+            final List<Integer> classReceived = received.get(c);
+            final int sequenceNumber = i;
+            assertTrue(dispatcher.dispatch(classes[c], new Runnable()
+            {
+               @Override
+               public void run()
+               {
+                  classReceived.add(sequenceNumber);
+                  latch.countDown();
+               }
+            }));
+         }
+      }
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertEquals(2, dispatcher.getNumberOfActiveThreads());
+
+      for (int c = 0; c < classes.length; c++)
+      {
+         List<Integer> classReceived = received.get(c);
+         assertEquals(objectsPerClass, classReceived.size());
+         for (int i = 0; i < objectsPerClass; i++)
+         {
+            assertEquals(i, classReceived.get(i).intValue());
+         }
+
+         KryoListenerDispatchStatistics statistics = dispatcher.getStatistics(classes[c]);
+         assertEquals(objectsPerClass, statistics.getNumberOfDispatchedObjects());
+         assertEquals(0, statistics.getQueueDepth());
+         assertTrue(statistics.getMaximumQueueDepth() > 0);
+      }
+
+      dispatcher.shutdownNow();
+      assertFalse(dispatcher.dispatch(Integer.class, new Runnable()
+      {
+         @Override
+         public void run()
+         {
+         }
+      }));
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testThreadPerClassAndUnregisteredClass() throws InterruptedException
+   {
+      KryoListenerDispatcher dispatcher = new KryoListenerDispatcher();
+      for (Class<?> clazz : classes)
+      {
+         dispatcher.registerClass(clazz);
+      }
+
+      final CountDownLatch latch = new CountDownLatch(classes.length);
+      Runnable countDown = new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            latch.countDown();
+         }
+      };
+
+      for (Class<?> clazz : classes)
+      {
+         assertTrue(dispatcher.dispatch(clazz, countDown));
+      }
+      assertFalse(dispatcher.dispatch(Character.class, countDown));
+
+      assertTrue(latch.await(10, TimeUnit.SECONDS));
+      assertEquals(classes.length, dispatcher.getNumberOfActiveThreads());
+      dispatcher.shutdownNow();
+   }
+}
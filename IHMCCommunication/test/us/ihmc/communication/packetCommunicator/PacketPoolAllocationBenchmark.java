@@ -0,0 +1,84 @@
+package us.ihmc.communication.packetCommunicator;
+
+import java.lang.management.ManagementFactory;
+
+import javax.vecmath.Quat4f;
+import javax.vecmath.Vector3f;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import us.ihmc.communication.net.NetClassList;
+import us.ihmc.communication.packets.IMUPacket;
+
+/**
+ * Compares the bytes allocated per received message between the default Kryo deserialization and
+ * deserialization into packets from a {@link PacketPool}.
+ */
+public class PacketPoolAllocationBenchmark
+{
+   private static final int WARMUP_ITERATIONS = 1000000;
+   private static final int ITERATIONS = 10000000;
+
+   public static void main(String[] args)
+   {
+      NetClassList netClassList = new NetClassList(IMUPacket.class);
+      netClassList.registerPacketFields(Vector3f.class, Quat4f.class);
+
+      Kryo writer = createKryo();
+      netClassList.registerWithKryo(writer);
+      IMUPacket packet = new IMUPacket();
+      packet.set(new Vector3f(0.1f, 0.2f, 9.81f), new Quat4f(0.0f, 0.0f, 0.0f, 1.0f), new Vector3f(0.01f, 0.02f, 0.03f));
+      Output output = new Output(1024);
+      writer.writeClassAndObject(output, packet);
+      byte[] message = output.toBytes();
+
+      Kryo defaultReader = createKryo();
+      netClassList.registerWithKryo(defaultReader);
+
+      PacketPool packetPool = new PacketPool();
+      Kryo pooledReader = createKryo();
+      packetPool.registerWithKryo(pooledReader, netClassList);
+
+      benchmark("Default", defaultReader, null, message, WARMUP_ITERATIONS);
+      benchmark("Pooled", pooledReader, packetPool, message, WARMUP_ITERATIONS);
+
+      benchmark("Default", defaultReader, null, message, ITERATIONS);
+      benchmark("Pooled", pooledReader, packetPool, message, ITERATIONS);
+   }
+
+   private static Kryo createKryo()
+   {
+      Kryo kryo = new Kryo();
+      kryo.setReferences(false);
+      kryo.setRegistrationRequired(true);
+      return kryo;
+   }
+
+   private static void benchmark(String name, Kryo kryo, PacketPool packetPool, byte[] message, int iterations)
+   {
+      com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+      long threadId = Thread.currentThread().getId();
+      Input input = new Input();
+
+      long checksum = 0;
+      long startBytes = threadBean.getThreadAllocatedBytes(threadId);
+      long startTime = System.nanoTime();
+      for (int i = 0; i < iterations; i++)
+      {
+         input.setBuffer(message);
+         IMUPacket received = (IMUPacket) kryo.readClassAndObject(input);
+         checksum += received.destination;
+
+         if (packetPool != null)
+         {
+            packetPool.recycle(received);
+         }
+      }
+      long time = System.nanoTime() - startTime;
+      long bytes = threadBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+      System.out.println(name + ": " + ((double) bytes / iterations) + " bytes/message, " + ((double) time / iterations) + " ns/message (checksum " + checksum + ")");
+   }
+}
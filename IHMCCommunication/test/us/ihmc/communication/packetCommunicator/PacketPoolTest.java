@@ -0,0 +1,186 @@
+package us.ihmc.communication.packetCommunicator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.vecmath.Quat4f;
+import javax.vecmath.Vector3f;
+
+import org.junit.Test;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+import us.ihmc.communication.net.NetClassList;
+import us.ihmc.communication.packets.IMUPacket;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class PacketPoolTest
+{
+   @DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testRecycledPacketIsReusedAndOverwritten()
+   {
+      NetClassList netClassList = new NetClassList(IMUPacket.class);
+      netClassList.registerPacketFields(Vector3f.class, Quat4f.class);
+
+      Kryo writer = createKryo();
+      netClassList.registerWithKryo(writer);
+
+      PacketPool packetPool = new PacketPool();
+      Kryo reader = createKryo();
+      packetPool.registerWithKryo(reader, netClassList);
+      assertTrue(packetPool.isRegistered(IMUPacket.class));
+
+      IMUPacket first = createPacket(1.0f);
+      IMUPacket second = createPacket(2.0f);
+
+      IMUPacket firstReceived = read(reader, write(writer, first));
+      assertTrue(first.epsilonEquals(firstReceived, 0.0));
+      assertEquals(1, packetPool.getNumberOfAllocatedPackets());
+      assertEquals(0, packetPool.getNumberOfRecycledPackets());
+
+      // Not recycled yet, so the next packet is a new instance
+      IMUPacket secondReceived = read(reader, write(writer, second));
+      assertNotSame(firstReceived, secondReceived);
+      assertEquals(2, packetPool.getNumberOfAllocatedPackets());
+
+      packetPool.recycle(firstReceived);
+      IMUPacket thirdReceived = read(reader, write(writer, second));
+      assertSame(firstReceived, thirdReceived);
+      assertTrue(second.epsilonEquals(thirdReceived, 0.0));
+      assertEquals(2, packetPool.getNumberOfAllocatedPackets());
+      assertEquals(1, packetPool.getNumberOfRecycledPackets());
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.0)
+   @Test(timeout = 30000)
+   public void testCapacityAndUnregisteredClasses()
+   {
+      PacketPool packetPool = new PacketPool(2);
+      packetPool.registerPacketClass(IMUPacket.class);
+
+      IMUPacket[] packets = {new IMUPacket(), new IMUPacket(), new IMUPacket()};
+      for (IMUPacket packet : packets)
+      {
+         packetPool.recycle(packet);
+      }
+
+      // Only capacity packets are kept, in the order they were recycled
+      assertSame(packets[0], packetPool.poll(IMUPacket.class));
+      assertSame(packets[1], packetPool.poll(IMUPacket.class));
+      assertNull(packetPool.poll(IMUPacket.class));
+
+      packetPool.recycle("not a packet");
+      assertNull(packetPool.poll(String.class));
+      assertTrue(!packetPool.isRegistered(String.class));
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testPacketIsOwnedByOneThreadAtATime() throws InterruptedException
+   {
+      final PacketPool packetPool = new PacketPool(4);
+      packetPool.registerPacketClass(OwnedObject.class);
+
+      int numberOfThreads = 8;
+      final int iterations = 100000;
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicInteger numberOfCreatedObjects = new AtomicInteger();
+      final AtomicReference<String> failure = new AtomicReference<String>();
+
+      ArrayList<Thread> threads = new ArrayList<Thread>();
+      for (int t = 0; t < numberOfThreads; t++)
+      {
+         Thread thread = new Thread(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  start.await();
+               }
+               catch (InterruptedException e)
+               {
+                  return;
+               }
+
+               for (int i = 0; i < iterations; i++)
+               {
+                  OwnedObject object = packetPool.poll(OwnedObject.class);
+                  if (object == null)
+                  {
+                     object = new OwnedObject();
+                     numberOfCreatedObjects.incrementAndGet();
+                  }
+
+                  if (!object.owner.compareAndSet(null, Thread.currentThread()))
+                  {
+                     failure.compareAndSet(null, "Object handed out to " + Thread.currentThread().getName() + " while owned by " + object.owner.get().getName());
+                  }
+
+                  object.owner.set(null);
+                  packetPool.recycle(object);
+               }
+            }
+         });
+         threads.add(thread);
+         thread.start();
+      }
+
+      start.countDown();
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      assertNull(failure.get(), failure.get());
+      assertEquals(numberOfCreatedObjects.get(), packetPool.getNumberOfAllocatedPackets());
+      assertEquals((long) numberOfThreads * iterations, packetPool.getNumberOfAllocatedPackets() + packetPool.getNumberOfRecycledPackets());
+   }
+
+   private static class OwnedObject
+   {
+      private final AtomicReference<Thread> owner = new AtomicReference<Thread>();
+   }
+
+   private static IMUPacket createPacket(float value)
+   {
+      IMUPacket packet = new IMUPacket();
+      packet.set(new Vector3f(value, 2.0f * value, 9.81f), new Quat4f(0.0f, 0.0f, 0.0f, 1.0f), new Vector3f(0.1f * value, 0.0f, 0.0f));
+      return packet;
+   }
+
+   private static Kryo createKryo()
+   {
+      Kryo kryo = new Kryo();
+      kryo.setReferences(false);
+      kryo.setRegistrationRequired(true);
+      return kryo;
+   }
+
+   private static byte[] write(Kryo kryo, Object object)
+   {
+      Output output = new Output(1024);
+      kryo.writeClassAndObject(output, object);
+      return output.toBytes();
+   }
+
+   private static IMUPacket read(Kryo kryo, byte[] message)
+   {
+      return (IMUPacket) kryo.readClassAndObject(new Input(message));
+   }
+}
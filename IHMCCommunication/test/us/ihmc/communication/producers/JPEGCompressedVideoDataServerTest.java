@@ -0,0 +1,156 @@
+package us.ihmc.communication.producers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.vecmath.Point3d;
+import javax.vecmath.Quat4d;
+
+import org.junit.Test;
+
+import boofcv.struct.calib.IntrinsicParameters;
+import us.ihmc.communication.net.NetStateListener;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class JPEGCompressedVideoDataServerTest
+{
+   @DeployableTestMethod(estimatedDuration = 2.0)
+   @Test(timeout = 30000)
+   public void testConcurrentEncodesFromSeveralSourcesAndServers() throws InterruptedException
+   {
+      final RecordingHandler handler = new RecordingHandler();
+      // Two servers share the native encoder lock, two threads per source share a source encoder
+      final JPEGCompressedVideoDataServer[] servers = {new JPEGCompressedVideoDataServer(handler), new JPEGCompressedVideoDataServer(handler)};
+      final VideoSource[] sources = {VideoSource.MULTISENSE_LEFT_EYE, VideoSource.MULTISENSE_RIGHT_EYE, VideoSource.FISHEYE_LEFT};
+      int threadsPerSource = 2;
+      final int framesPerThread = 20;
+
+      final CountDownLatch start = new CountDownLatch(1);
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      ArrayList<Thread> threads = new ArrayList<Thread>();
+      for (int s = 0; s < sources.length; s++)
+      {
+         for (int t = 0; t < threadsPerSource; t++)
+         {
+            final VideoSource source = sources[s];
+            final JPEGCompressedVideoDataServer server = servers[t % servers.length];
+            final BufferedImage image = createImage(160 + 32 * s, 120 + 16 * t, s * threadsPerSource + t);
+            Thread thread = new Thread(new Runnable()
+            {
+               @Override
+               public void run()
+               {
+                  try
+                  {
+                     start.await();
+                     for (int i = 0; i < framesPerThread; i++)
+                     {
+                        server.updateImage(source, image, i, new Point3d(), new Quat4d(0.0, 0.0, 0.0, 1.0), new IntrinsicParameters());
+                     }
+                  }
+                  catch (Throwable e)
+                  {
+                     failure.compareAndSet(null, e);
+                  }
+               }
+            });
+            threads.add(thread);
+            thread.start();
+         }
+      }
+
+      start.countDown();
+      for (Thread thread : threads)
+      {
+         thread.join();
+      }
+
+      assertNull(String.valueOf(failure.get()), failure.get());
+      assertEquals(threads.size() * framesPerThread, handler.packets.size());
+      for (byte[] data : handler.packets)
+      {
+         assertIsJPEG(data);
+      }
+
+      for (JPEGCompressedVideoDataServer server : servers)
+      {
+         server.close();
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testNoPacketsAfterClose()
+   {
+      RecordingHandler handler = new RecordingHandler();
+      JPEGCompressedVideoDataServer server = new JPEGCompressedVideoDataServer(handler);
+      BufferedImage image = createImage(64, 48, 0);
+
+      server.updateImage(VideoSource.MULTISENSE_LEFT_EYE, image, 0, new Point3d(), new Quat4d(0.0, 0.0, 0.0, 1.0), new IntrinsicParameters());
+      assertEquals(1, handler.packets.size());
+
+      server.close();
+      server.close();
+
+      // Neither the source that had an encoder nor a new source encodes anything
+      server.updateImage(VideoSource.MULTISENSE_LEFT_EYE, image, 1, new Point3d(), new Quat4d(0.0, 0.0, 0.0, 1.0), new IntrinsicParameters());
+      server.updateImage(VideoSource.FISHEYE_RIGHT, image, 2, new Point3d(), new Quat4d(0.0, 0.0, 0.0, 1.0), new IntrinsicParameters());
+      assertEquals(1, handler.packets.size());
+   }
+
+   private static void assertIsJPEG(byte[] data)
+   {
+      assertTrue(data.length > 4);
+      // Start of image and end of image markers
+      assertEquals(0xFF, data[0] & 0xFF);
+      assertEquals(0xD8, data[1] & 0xFF);
+      assertEquals(0xFF, data[data.length - 2] & 0xFF);
+      assertEquals(0xD9, data[data.length - 1] & 0xFF);
+   }
+
+   private static BufferedImage createImage(int width, int height, int seed)
+   {
+      BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+      for (int y = 0; y < height; y++)
+      {
+         for (int x = 0; x < width; x++)
+         {
+            image.setRGB(x, y, ((x * 7 + seed) & 0xFF) << 16 | ((y * 5) & 0xFF) << 8 | ((x + y + 31 * seed) & 0xFF));
+         }
+      }
+      return image;
+   }
+
+   private static class RecordingHandler implements CompressedVideoHandler
+   {
+      private final ConcurrentLinkedQueue<byte[]> packets = new ConcurrentLinkedQueue<byte[]>();
+
+      @Override
+      public void newVideoPacketAvailable(VideoSource videoSource, long timeStamp, byte[] data, Point3d position, Quat4d orientation,
+            IntrinsicParameters intrinsicParameters)
+      {
+         packets.add(data);
+      }
+
+      @Override
+      public void addNetStateListener(NetStateListener compressedVideoDataServer)
+      {
+      }
+
+      @Override
+      public boolean isConnected()
+      {
+         return true;
+      }
+   }
+}
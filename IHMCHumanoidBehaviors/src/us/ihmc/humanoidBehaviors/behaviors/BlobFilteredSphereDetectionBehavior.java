@@ -41,7 +41,6 @@ public class BlobFilteredSphereDetectionBehavior extends SphereDetectionBehavior
       super(behaviorCommunicationBridge, referenceFrames);
 
       behaviorCommunicationBridge.attachGlobalListener(getNetworkProcessorGlobalObjectConsumer());
-      attachNetworkProcessorListeningQueue(pointCloudQueue, PointCloudWorldPacket.class);
 
       coloredCircularBlobDetectorBehaviorService = new ColoredCircularBlobDetectorBehaviorService(this);
 
@@ -61,9 +60,12 @@ public class BlobFilteredSphereDetectionBehavior extends SphereDetectionBehavior
    @Override
    public void doControl()
    {
-      if (pointCloudQueue.isNewPacketAvailable())
+      if (pointCloudWorldSubscriber.isNewPacketAvailable())
       {
-         PointCloudWorldPacket latestPointCloudWorldPacket = pointCloudQueue.getLatestPacket();
+         PointCloudWorldPacket latestPointCloudWorldPacket = pointCloudWorldSubscriber.getLatestPacket();
+         if (latestPointCloudWorldPacket == null)
+            return;
+
          Point3f[] fullPointCloud = latestPointCloudWorldPacket.getDecayingWorldScan();
 
          Point3f[] filteredPointCloud = filterPointsNearBall(fullPointCloud);
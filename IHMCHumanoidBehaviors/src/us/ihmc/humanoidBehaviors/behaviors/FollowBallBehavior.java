@@ -13,6 +13,7 @@ import georegression.struct.shapes.Sphere3D_F64;
 import us.ihmc.SdfLoader.SDFFullHumanoidRobotModel;
 import us.ihmc.humanoidBehaviors.behaviors.behaviorServices.ColoredCircularBlobDetectorBehaviorService;
 import us.ihmc.humanoidBehaviors.communication.BehaviorCommunicationBridge;
+import us.ihmc.humanoidBehaviors.communication.BehaviorPointCloudWorldSubscriber;
 import us.ihmc.humanoidBehaviors.communication.ConcurrentListeningQueue;
 import us.ihmc.humanoidRobotics.communication.packets.DetectedObjectPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
@@ -68,7 +69,7 @@ public class FollowBallBehavior extends BehaviorInterface
    private static final double MIN_BALL_RADIUS = 0.05;
    private static final double MAX_BALL_RADIUS = 0.15;
 
-   private final ConcurrentListeningQueue<PointCloudWorldPacket> pointCloudQueue = new ConcurrentListeningQueue<PointCloudWorldPacket>();
+   private final BehaviorPointCloudWorldSubscriber pointCloudWorldSubscriber;
 
    private final PointCloudShapeFinder pointCloudSphereFinder;
 
@@ -86,7 +87,7 @@ public class FollowBallBehavior extends BehaviorInterface
       coloredCircularBlobDetectorBehaviorService.addHSVRange(greenRange);
       
       behaviorCommunicationBridge.attachGlobalListener(getNetworkProcessorGlobalObjectConsumer());
-      attachNetworkProcessorListeningQueue(pointCloudQueue, PointCloudWorldPacket.class);
+      pointCloudWorldSubscriber = new BehaviorPointCloudWorldSubscriber(this);
 
       this.fullRobotModel = fullRobotModel;
       this.headFrame = fullRobotModel.getHead().getBodyFixedFrame();
@@ -133,8 +134,12 @@ public class FollowBallBehavior extends BehaviorInterface
    {
       Point3f[] fullPointCloud = null;
 
-      while (pointCloudQueue.isNewPacketAvailable())
-         fullPointCloud = pointCloudQueue.poll().getDecayingWorldScan();
+      if (pointCloudWorldSubscriber.isNewPacketAvailable())
+      {
+         PointCloudWorldPacket pointCloudWorldPacket = pointCloudWorldSubscriber.getLatestPacket();
+         if (pointCloudWorldPacket != null)
+            fullPointCloud = pointCloudWorldPacket.getDecayingWorldScan();
+      }
 
       if (fullPointCloud != null)
       {
@@ -13,6 +13,7 @@ import boofcv.struct.calib.IntrinsicParameters;
 import us.ihmc.communication.producers.CompressedVideoDataClient;
 import us.ihmc.communication.producers.CompressedVideoDataFactory;
 import us.ihmc.communication.producers.VideoStreamer;
+import us.ihmc.humanoidBehaviors.communication.BehaviorPointCloudWorldSubscriber;
 import us.ihmc.humanoidBehaviors.communication.ConcurrentListeningQueue;
 import us.ihmc.humanoidBehaviors.communication.OutgoingCommunicationBridgeInterface;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
@@ -30,7 +31,7 @@ public class LocalizeDrillBehavior extends BehaviorInterface implements VideoStr
    private final ConcurrentListeningQueue<VideoPacket> videoQueue = new ConcurrentListeningQueue<VideoPacket>();
    private CompressedVideoDataClient compressedVideoDataClient = CompressedVideoDataFactory.createCompressedVideoDataClient(this);
 
-   private final ConcurrentListeningQueue<PointCloudWorldPacket> pointCloudQueue = new ConcurrentListeningQueue<PointCloudWorldPacket>();
+   private final BehaviorPointCloudWorldSubscriber pointCloudWorldSubscriber;
 
    private final HumanoidReferenceFrames humanoidReferenceFrames;
 
@@ -38,7 +39,7 @@ public class LocalizeDrillBehavior extends BehaviorInterface implements VideoStr
    {
       super(outgoingCommunicationBridge);
       this.attachNetworkProcessorListeningQueue(videoQueue, VideoPacket.class);
-      this.attachNetworkProcessorListeningQueue(pointCloudQueue, PointCloudWorldPacket.class);
+      this.pointCloudWorldSubscriber = new BehaviorPointCloudWorldSubscriber(this);
       this.humanoidReferenceFrames = referenceFrames;
    }
 
@@ -61,11 +62,11 @@ public class LocalizeDrillBehavior extends BehaviorInterface implements VideoStr
          }
       }
 
-      PointCloudWorldPacket pointCloudPacket;
-      while ((pointCloudPacket = pointCloudQueue.poll()) != null)
+      if (pointCloudWorldSubscriber.isNewPacketAvailable())
       {
          //still empty the incoming queue
-         if (!isPaused())
+         PointCloudWorldPacket pointCloudPacket = pointCloudWorldSubscriber.getLatestPacket();
+         if (!isPaused() && pointCloudPacket != null)
          {
             Point3f[] points = pointCloudPacket.getDecayingWorldScan();
             findDrillAndSendResult(points);
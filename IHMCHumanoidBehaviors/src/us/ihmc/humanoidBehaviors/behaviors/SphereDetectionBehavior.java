@@ -16,7 +16,7 @@ import javax.vecmath.Point3f;
 import georegression.struct.point.Point3D_F64;
 import georegression.struct.shapes.Sphere3D_F64;
 import us.ihmc.communication.packets.PacketDestination;
-import us.ihmc.humanoidBehaviors.communication.ConcurrentListeningQueue;
+import us.ihmc.humanoidBehaviors.communication.BehaviorPointCloudWorldSubscriber;
 import us.ihmc.humanoidBehaviors.communication.OutgoingCommunicationBridgeInterface;
 import us.ihmc.humanoidRobotics.communication.packets.DetectedObjectPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
@@ -49,7 +49,7 @@ public class SphereDetectionBehavior extends BehaviorInterface
 
    private final float BALL_RADIUS = 0.0762f;
 
-   protected final ConcurrentListeningQueue<PointCloudWorldPacket> pointCloudQueue = new ConcurrentListeningQueue<PointCloudWorldPacket>();
+   protected final BehaviorPointCloudWorldSubscriber pointCloudWorldSubscriber;
 
    private final HumanoidReferenceFrames humanoidReferenceFrames;
 
@@ -59,7 +59,7 @@ public class SphereDetectionBehavior extends BehaviorInterface
    public SphereDetectionBehavior(OutgoingCommunicationBridgeInterface outgoingCommunicationBridge, HumanoidReferenceFrames referenceFrames)
    {
       super(outgoingCommunicationBridge);
-      this.attachNetworkProcessorListeningQueue(pointCloudQueue, PointCloudWorldPacket.class);
+      this.pointCloudWorldSubscriber = new BehaviorPointCloudWorldSubscriber(this);
       this.humanoidReferenceFrames = referenceFrames;
    }
 
@@ -86,9 +86,11 @@ public class SphereDetectionBehavior extends BehaviorInterface
    @Override
    public void doControl()
    {
-      if (pointCloudQueue.isNewPacketAvailable())
+      if (pointCloudWorldSubscriber.isNewPacketAvailable())
       {
-         findBallsAndSaveResult(pointCloudQueue.getLatestPacket().getDecayingWorldScan());
+         PointCloudWorldPacket pointCloudWorldPacket = pointCloudWorldSubscriber.getLatestPacket();
+         if (pointCloudWorldPacket != null)
+            findBallsAndSaveResult(pointCloudWorldPacket.getDecayingWorldScan());
       }
    }
 
@@ -0,0 +1,61 @@
+package us.ihmc.humanoidBehaviors.communication;
+
+import us.ihmc.communication.packets.PacketDestination;
+import us.ihmc.humanoidBehaviors.behaviors.BehaviorInterface;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
+import us.ihmc.humanoidRobotics.communication.subscribers.PointCloudWorldDeltaSubscriber;
+
+/**
+ * Point cloud world of a behavior. The whole point cloud world is used as long as it is sent to the behavior module. Once deltas come
+ * in, the point cloud world is rebuilt from them and they are acknowledged through the behavior, so the generator sends only the
+ * deltas.
+ */
+public class BehaviorPointCloudWorldSubscriber
+{
+   private final BehaviorInterface behavior;
+   private final ConcurrentListeningQueue<PointCloudWorldPacket> pointCloudWorldQueue = new ConcurrentListeningQueue<PointCloudWorldPacket>();
+   private final ConcurrentListeningQueue<PointCloudWorldDeltaPacket> pointCloudWorldDeltaQueue = new ConcurrentListeningQueue<PointCloudWorldDeltaPacket>();
+   private final PointCloudWorldDeltaSubscriber pointCloudWorldDeltaSubscriber = new PointCloudWorldDeltaSubscriber(PacketDestination.BEHAVIOR_MODULE,
+         null);
+
+   private PointCloudWorldPacket latestPacket = null;
+
+   public BehaviorPointCloudWorldSubscriber(BehaviorInterface behavior)
+   {
+      this.behavior = behavior;
+      behavior.attachNetworkProcessorListeningQueue(pointCloudWorldQueue, PointCloudWorldPacket.class);
+      behavior.attachNetworkProcessorListeningQueue(pointCloudWorldDeltaQueue, PointCloudWorldDeltaPacket.class);
+   }
+
+   public boolean isNewPacketAvailable()
+   {
+      return pointCloudWorldQueue.isNewPacketAvailable() || pointCloudWorldDeltaQueue.isNewPacketAvailable();
+   }
+
+   /**
+    * Applies the deltas received since the last call and acknowledges them.
+    * @return the newest point cloud world, or null if none has been received yet.
+    */
+   public PointCloudWorldPacket getLatestPacket()
+   {
+      if (pointCloudWorldQueue.isNewPacketAvailable())
+         latestPacket = pointCloudWorldQueue.getLatestPacket();
+
+      if (pointCloudWorldDeltaQueue.isNewPacketAvailable())
+      {
+         boolean applied = false;
+         while (pointCloudWorldDeltaQueue.isNewPacketAvailable())
+         {
+            applied |= pointCloudWorldDeltaSubscriber.applyDelta(pointCloudWorldDeltaQueue.poll());
+         }
+
+         behavior.sendPacketToNetworkProcessor(pointCloudWorldDeltaSubscriber.createAcknowledgement());
+
+         if (applied)
+            latestPacket = pointCloudWorldDeltaSubscriber.getPointCloudWorldPacket();
+      }
+
+      return latestPacket;
+   }
+}
@@ -80,6 +80,9 @@ public class DepthDataFilterParameters extends Packet<DepthDataFilterParameters>
    
    public static boolean LIDAR_ADJUSTMENT_ACTIVE = false;
 
+   // Also send the changes of the point cloud world to the subscribers that acknowledge them, the whole point cloud world is still sent
+   public static final boolean PUBLISH_POINT_CLOUD_WORLD_DELTAS = false;
+
    public DepthDataFilterParameters()
    {
    }
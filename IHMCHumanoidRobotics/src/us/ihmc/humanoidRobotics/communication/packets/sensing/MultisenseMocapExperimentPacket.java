@@ -1,5 +1,6 @@
 package us.ihmc.humanoidRobotics.communication.packets.sensing;
 
+import java.nio.FloatBuffer;
 import java.util.Random;
 
 import javax.vecmath.Point3d;
@@ -44,6 +45,16 @@ public class MultisenseMocapExperimentPacket extends Packet<MultisenseMocapExper
       }
    }
 
+   /**
+    * Copies the x, y, z values from the position to the limit of the buffer, the buffer itself is left unchanged.
+    */
+   public void setPointCloud(FloatBuffer flatPointCloud, MultisenseTest testInfo)
+   {
+      this.testInfo = testInfo;
+      flatPoints = new float[flatPointCloud.remaining()];
+      flatPointCloud.duplicate().get(flatPoints);
+   }
+
    public Point3f[] getPointCloud()
    {
       
@@ -0,0 +1,55 @@
+package us.ihmc.humanoidRobotics.communication.packets.sensing;
+
+import java.util.Random;
+
+import us.ihmc.communication.packets.Packet;
+import us.ihmc.communication.packets.PacketDestination;
+
+/**
+ * Sent by a subscriber of the point cloud world to tell the last version it has. The next delta for this subscriber is relative to that
+ * version. A version of {@link PointCloudWorldDeltaPacket#KEYFRAME} asks for a keyframe.
+ */
+public class PointCloudWorldAcknowledgementPacket extends Packet<PointCloudWorldAcknowledgementPacket>
+{
+   public byte subscriber;
+   public long version;
+
+   public PointCloudWorldAcknowledgementPacket()
+   {
+      setDestination(PacketDestination.SENSOR_MANAGER);
+   }
+
+   public PointCloudWorldAcknowledgementPacket(PacketDestination subscriber, long version)
+   {
+      this();
+      this.subscriber = (byte) subscriber.ordinal();
+      this.version = version;
+   }
+
+   public PointCloudWorldAcknowledgementPacket(Random random)
+   {
+      this(PacketDestination.values[random.nextInt(PacketDestination.values.length)], random.nextLong());
+   }
+
+   public PacketDestination getSubscriber()
+   {
+      return PacketDestination.fromOrdinal(subscriber);
+   }
+
+   public long getVersion()
+   {
+      return version;
+   }
+
+   @Override
+   public boolean epsilonEquals(PointCloudWorldAcknowledgementPacket other, double epsilon)
+   {
+      return subscriber == other.subscriber && version == other.version;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "PointCloudWorldAcknowledgementPacket [subscriber=" + getSubscriber() + ", version=" + version + "]";
+   }
+}
@@ -0,0 +1,167 @@
+package us.ihmc.humanoidRobotics.communication.packets.sensing;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import us.ihmc.communication.packets.HighBandwidthPacket;
+import us.ihmc.communication.packets.Packet;
+import us.ihmc.communication.packets.PacketDestination;
+
+/**
+ * Changes of the point cloud world from baseVersion to version. A keyframe has no base and contains the whole point cloud world.
+ *
+ * The ground quad tree support is a set of cells with an id. A cell in the arrays is added or replaces the cell with the same id, and
+ * the removed ids are dropped. A keyframe has no ids, its cells are sorted by id and each id is the smallest one that is at least
+ * {@link #getGroundCellId(float, float, double)} of its point and larger than the id of the previous cell.
+ *
+ * The decaying world scan is a queue where every point gets the next sequence number. The points before decayingWorldScanFirstSequence
+ * are dropped, and the points in the array are appended starting at decayingWorldScanAppendedSequence.
+ */
+@HighBandwidthPacket
+public class PointCloudWorldDeltaPacket extends Packet<PointCloudWorldDeltaPacket>
+{
+   public static final long KEYFRAME = -1;
+
+   private static final int bits = 21;
+   private static final long mask = (1L << bits) - 1;
+   private static final long offset = 1L << (bits - 1);
+
+   public long timestamp;
+   public long version;
+   public long baseVersion = KEYFRAME;
+
+   public double groundQuadTreeResolution;
+   public long[] groundQuadTreeCellIds;
+   public float[] groundQuadTreeSupport;
+   public long[] removedGroundQuadTreeCellIds;
+
+   public long decayingWorldScanFirstSequence;
+   public long decayingWorldScanAppendedSequence;
+   public float[] decayingWorldScan;
+
+   public float defaultGroundHeight;
+
+   public PointCloudWorldDeltaPacket(Random random)
+   {
+      timestamp = random.nextLong();
+      version = Math.abs(random.nextLong());
+      baseVersion = random.nextBoolean() ? KEYFRAME : Math.abs(random.nextLong());
+
+      int size = random.nextInt(10000);
+      groundQuadTreeResolution = random.nextDouble();
+      groundQuadTreeCellIds = isKeyframe() ? new long[0] : randomIds(random, size);
+      groundQuadTreeSupport = randomPoints(random, size);
+      removedGroundQuadTreeCellIds = isKeyframe() ? new long[0] : randomIds(random, random.nextInt(1000));
+
+      decayingWorldScanFirstSequence = Math.abs(random.nextLong());
+      decayingWorldScanAppendedSequence = decayingWorldScanFirstSequence + random.nextInt(1000);
+      decayingWorldScan = randomPoints(random, random.nextInt(10000));
+
+      defaultGroundHeight = random.nextFloat();
+   }
+
+   public PointCloudWorldDeltaPacket()
+   {
+      setDestination(PacketDestination.BROADCAST);
+   }
+
+   private static long[] randomIds(Random random, int size)
+   {
+      long[] ids = new long[size];
+      for (int i = 0; i < size; i++)
+      {
+         ids[i] = random.nextLong();
+      }
+      return ids;
+   }
+
+   private static float[] randomPoints(Random random, int size)
+   {
+      float[] points = new float[3 * size];
+      for (int i = 0; i < points.length; i++)
+      {
+         points[i] = random.nextFloat();
+      }
+      return points;
+   }
+
+   /**
+    * @return the id of the ground cell the point falls in, before it is made unique.
+    */
+   public static long getGroundCellId(float x, float y, double resolution)
+   {
+      long id = ((long) Math.floor(x / resolution) + offset) & mask;
+      return (id << bits) | (((long) Math.floor(y / resolution) + offset) & mask);
+   }
+
+   /**
+    * @return the ids of the ground cells of a keyframe, which are not sent.
+    */
+   public long[] getKeyframeGroundQuadTreeCellIds()
+   {
+      long[] ids = new long[groundQuadTreeSupport.length / 3];
+      for (int i = 0; i < ids.length; i++)
+      {
+         long id = getGroundCellId(groundQuadTreeSupport[3 * i], groundQuadTreeSupport[3 * i + 1], groundQuadTreeResolution);
+         ids[i] = i == 0 ? id : Math.max(id, ids[i - 1] + 1);
+      }
+      return ids;
+   }
+
+   public boolean isKeyframe()
+   {
+      return baseVersion == KEYFRAME;
+   }
+
+   public long getVersion()
+   {
+      return version;
+   }
+
+   public long getBaseVersion()
+   {
+      return baseVersion;
+   }
+
+   public long getTimestamp()
+   {
+      return timestamp;
+   }
+
+   @Override
+   public boolean epsilonEquals(PointCloudWorldDeltaPacket other, double epsilon)
+   {
+      boolean ret = timestamp == other.timestamp;
+      ret &= version == other.version;
+      ret &= baseVersion == other.baseVersion;
+      ret &= groundQuadTreeResolution == other.groundQuadTreeResolution;
+      ret &= Arrays.equals(groundQuadTreeCellIds, other.groundQuadTreeCellIds);
+      ret &= Arrays.equals(groundQuadTreeSupport, other.groundQuadTreeSupport);
+      ret &= Arrays.equals(removedGroundQuadTreeCellIds, other.removedGroundQuadTreeCellIds);
+      ret &= decayingWorldScanFirstSequence == other.decayingWorldScanFirstSequence;
+      ret &= decayingWorldScanAppendedSequence == other.decayingWorldScanAppendedSequence;
+      ret &= Arrays.equals(decayingWorldScan, other.decayingWorldScan);
+      ret &= defaultGroundHeight == other.defaultGroundHeight;
+
+      return ret;
+   }
+
+   @Override
+   public String toString()
+   {
+      String ret;
+
+      try
+      {
+         ret = "PointCloudWorldDeltaPacket [version=" + version + ", baseVersion=" + baseVersion + ", groundQuadTreeSupport="
+               + groundQuadTreeSupport.length / 3 + " cells, " + removedGroundQuadTreeCellIds.length + " removed, decayingWorldScan="
+               + decayingWorldScan.length / 3 + " appended, first=" + decayingWorldScanFirstSequence + "]";
+      }
+      catch (NullPointerException e)
+      {
+         ret = getClass().getSimpleName();
+      }
+
+      return ret;
+   }
+}
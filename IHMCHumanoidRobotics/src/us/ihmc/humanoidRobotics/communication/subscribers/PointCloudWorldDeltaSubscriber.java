@@ -0,0 +1,254 @@
+package us.ihmc.humanoidRobotics.communication.subscribers;
+
+import gnu.trove.map.hash.TLongIntHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import us.ihmc.communication.net.PacketConsumer;
+import us.ihmc.communication.packetCommunicator.PacketCommunicator;
+import us.ihmc.communication.packets.PacketDestination;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldAcknowledgementPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
+
+/**
+ * Rebuilds the point cloud world from the deltas and acknowledges every delta, so that the next one only contains what changed since.
+ * A delta that does not start from the version held here is dropped, the acknowledgement then asks for the changes since the version
+ * held here instead.
+ */
+public class PointCloudWorldDeltaSubscriber implements PacketConsumer<PointCloudWorldDeltaPacket>
+{
+   private final PacketDestination subscriber;
+   private final PacketCommunicator packetCommunicator;
+   private final ArrayList<PacketConsumer<PointCloudWorldPacket>> listeners = new ArrayList<>();
+
+   private final CellLayer groundQuadTree = new CellLayer();
+   private final PointQueue decayingWorldScan = new PointQueue();
+   private long version = PointCloudWorldDeltaPacket.KEYFRAME;
+   private long timestamp;
+   private float defaultGroundHeight;
+
+   /**
+    * @param subscriber destination the deltas for this subscriber are sent to.
+    * @param packetCommunicator used to send the acknowledgements, can be null to send them yourself.
+    */
+   public PointCloudWorldDeltaSubscriber(PacketDestination subscriber, PacketCommunicator packetCommunicator)
+   {
+      this.subscriber = subscriber;
+      this.packetCommunicator = packetCommunicator;
+   }
+
+   /**
+    * Called with the rebuilt point cloud world every time a delta is applied.
+    */
+   public void attachListener(PacketConsumer<PointCloudWorldPacket> listener)
+   {
+      listeners.add(listener);
+   }
+
+   @Override
+   public void receivedPacket(PointCloudWorldDeltaPacket delta)
+   {
+      PointCloudWorldPacket pointCloudWorld = null;
+
+      synchronized (this)
+      {
+         if (applyDelta(delta) && !listeners.isEmpty())
+            pointCloudWorld = getPointCloudWorldPacket();
+      }
+
+      sendAcknowledgement();
+
+      if (pointCloudWorld != null)
+      {
+         for (int i = 0; i < listeners.size(); i++)
+         {
+            listeners.get(i).receivedPacket(pointCloudWorld);
+         }
+      }
+   }
+
+   /**
+    * @return false if the delta does not start from the current version and was dropped.
+    */
+   public synchronized boolean applyDelta(PointCloudWorldDeltaPacket delta)
+   {
+      if (delta.isKeyframe())
+      {
+         groundQuadTree.clear();
+         decayingWorldScan.clear();
+      }
+      else if (delta.getBaseVersion() != version)
+      {
+         return false;
+      }
+
+      long[] groundQuadTreeCellIds = delta.isKeyframe() ? delta.getKeyframeGroundQuadTreeCellIds() : delta.groundQuadTreeCellIds;
+      groundQuadTree.apply(groundQuadTreeCellIds, delta.groundQuadTreeSupport, delta.removedGroundQuadTreeCellIds);
+      decayingWorldScan.apply(delta.decayingWorldScanFirstSequence, delta.decayingWorldScanAppendedSequence, delta.decayingWorldScan);
+      version = delta.getVersion();
+      timestamp = delta.getTimestamp();
+      defaultGroundHeight = delta.defaultGroundHeight;
+
+      return true;
+   }
+
+   /**
+    * Tells the generator which version this subscriber has. Also asks for a keyframe when nothing has been received yet, so it can be
+    * called once connected to get the point cloud world without waiting for the next periodic keyframe.
+    */
+   public void sendAcknowledgement()
+   {
+      if (packetCommunicator != null)
+         packetCommunicator.send(createAcknowledgement());
+   }
+
+   public synchronized PointCloudWorldAcknowledgementPacket createAcknowledgement()
+   {
+      return new PointCloudWorldAcknowledgementPacket(subscriber, version);
+   }
+
+   public synchronized long getVersion()
+   {
+      return version;
+   }
+
+   public synchronized float[] getGroundQuadTreeSupport()
+   {
+      return groundQuadTree.getPoints();
+   }
+
+   public synchronized float[] getDecayingWorldScan()
+   {
+      return decayingWorldScan.getPoints();
+   }
+
+   /**
+    * @return the current point cloud world as the packet the generator sends when not publishing deltas.
+    */
+   public synchronized PointCloudWorldPacket getPointCloudWorldPacket()
+   {
+      PointCloudWorldPacket packet = new PointCloudWorldPacket();
+      packet.timestamp = timestamp;
+      packet.groundQuadTreeSupport = groundQuadTree.getPoints();
+      packet.decayingWorldScan = decayingWorldScan.getPoints();
+      packet.defaultGroundHeight = defaultGroundHeight;
+      return packet;
+   }
+
+   /**
+    * Cells packed in arrays, a removed cell is replaced by the last one so the points stay contiguous.
+    */
+   private static class CellLayer
+   {
+      private final TLongIntHashMap slots = new TLongIntHashMap(16, 0.5f, Long.MIN_VALUE, -1);
+      private long[] ids = new long[16];
+      private float[] points = new float[48];
+      private int size = 0;
+
+      private void clear()
+      {
+         slots.clear();
+         size = 0;
+      }
+
+      private void apply(long[] cellIds, float[] cellPoints, long[] removedCellIds)
+      {
+         for (int i = 0; i < removedCellIds.length; i++)
+         {
+            int slot = slots.remove(removedCellIds[i]);
+            if (slot != -1)
+               removeSlot(slot);
+         }
+
+         for (int i = 0; i < cellIds.length; i++)
+         {
+            int slot = slots.get(cellIds[i]);
+            if (slot == -1)
+               slot = addSlot(cellIds[i]);
+            System.arraycopy(cellPoints, 3 * i, points, 3 * slot, 3);
+         }
+      }
+
+      private int addSlot(long id)
+      {
+         if (size == ids.length)
+         {
+            ids = Arrays.copyOf(ids, 2 * size);
+            points = Arrays.copyOf(points, 6 * size);
+         }
+
+         ids[size] = id;
+         slots.put(id, size);
+         return size++;
+      }
+
+      private void removeSlot(int slot)
+      {
+         size--;
+         if (slot != size)
+         {
+            ids[slot] = ids[size];
+            System.arraycopy(points, 3 * size, points, 3 * slot, 3);
+            slots.put(ids[slot], slot);
+         }
+      }
+
+      private float[] getPoints()
+      {
+         return Arrays.copyOf(points, 3 * size);
+      }
+   }
+
+   /**
+    * Points in the order they were appended, the oldest ones are dropped from the front.
+    */
+   private static class PointQueue
+   {
+      private float[] points = new float[48];
+      private int start = 0;
+      private int end = 0;
+      private long firstSequence = 0;
+
+      private void clear()
+      {
+         start = 0;
+         end = 0;
+      }
+
+      private void apply(long newFirstSequence, long appendedSequence, float[] appendedPoints)
+      {
+         long dropped = newFirstSequence - firstSequence;
+         if (dropped >= size())
+            clear();
+         else if (dropped > 0)
+            start += 3 * dropped;
+
+         if (end + appendedPoints.length > points.length)
+         {
+            float[] newPoints = points;
+            if (end - start + appendedPoints.length > points.length)
+               newPoints = new float[Math.max(2 * points.length, end - start + appendedPoints.length)];
+            System.arraycopy(points, start, newPoints, 0, end - start);
+            points = newPoints;
+            end -= start;
+            start = 0;
+         }
+
+         System.arraycopy(appendedPoints, 0, points, end, appendedPoints.length);
+         end += appendedPoints.length;
+         firstSequence = appendedSequence + appendedPoints.length / 3 - size();
+      }
+
+      private int size()
+      {
+         return (end - start) / 3;
+      }
+
+      private float[] getPoints()
+      {
+         return Arrays.copyOfRange(points, start, end);
+      }
+   }
+}
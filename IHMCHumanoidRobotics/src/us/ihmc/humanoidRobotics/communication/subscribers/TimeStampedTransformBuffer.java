@@ -29,6 +29,7 @@ public class TimeStampedTransformBuffer
 
    /**
     * Try to find the transform at the given timestamp (key). Interpolate between two registered timestamps if the one asked for hasn't been registered.
+    * The transforms are expected to be put in chronological order, the lookup is a binary search over the buffer.
     * @param timestamp
     * @param timeStampedTransform3DToPack
     * @return
@@ -38,33 +39,52 @@ public class TimeStampedTransformBuffer
       if (!isInRange(timestamp))
          return false;
 
-      for (int i = currentIndex - 1; i >= -size + currentIndex; i--)
+      int numberOfTransforms = filledBufferAtleastOnce ? size : currentIndex;
+      int oldestIndex = filledBufferAtleastOnce ? currentIndex : 0;
+
+      // Find the newest transform which timestamp is lower or equal to the given timestamp
+      int low = 0;
+      int high = numberOfTransforms - 1;
+      int floorIndex = -1;
+
+      while (low <= high)
       {
-         int index = (i < 0) ? size + i : i;
+         int middle = (low + high) >>> 1;
 
-         TimeStampedTransform3D floorData = buffer[index];
-         if (floorData.getTimeStamp() == timestamp)
+         if (buffer[toBufferIndex(oldestIndex, middle)].getTimeStamp() <= timestamp)
          {
-            timeStampedTransform3DToPack.set(floorData);
-            return true;
+            floorIndex = middle;
+            low = middle + 1;
          }
-         else if (floorData.getTimeStamp() < timestamp)
+         else
          {
-            index++;
+            high = middle - 1;
+         }
+      }
 
-            if (index >= size)
-            {
-               index = 0;
-            }
+      if (floorIndex == -1)
+         return false;
 
-            TimeStampedTransform3D ceilingData = buffer[index];
+      TimeStampedTransform3D floorData = buffer[toBufferIndex(oldestIndex, floorIndex)];
 
-            transformInterpolationCalculator.interpolate(floorData, ceilingData, timeStampedTransform3DToPack, timestamp);
-            return true;
-         }
+      if (floorData.getTimeStamp() == timestamp)
+      {
+         timeStampedTransform3DToPack.set(floorData);
+         return true;
       }
 
-      return false;
+      if (floorIndex == numberOfTransforms - 1)
+         return false;
+
+      TimeStampedTransform3D ceilingData = buffer[toBufferIndex(oldestIndex, floorIndex + 1)];
+      transformInterpolationCalculator.interpolate(floorData, ceilingData, timeStampedTransform3DToPack, timestamp);
+      return true;
+   }
+
+   private int toBufferIndex(int oldestIndex, int indexFromOldest)
+   {
+      int index = oldestIndex + indexFromOldest;
+      return index >= size ? index - size : index;
    }
 
    public void put(RigidBodyTransform newestTransform, long timeStamp)
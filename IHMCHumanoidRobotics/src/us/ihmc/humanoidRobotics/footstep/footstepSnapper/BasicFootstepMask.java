@@ -59,6 +59,15 @@ public class BasicFootstepMask implements InclusionFunction<Point3d>
       footShapeWithBufferPolygon.update();
    }
 
+   /**
+    * Copy with the same shape and buffer, so that several threads can each position their own mask.
+    */
+   public BasicFootstepMask(BasicFootstepMask other)
+   {
+      this.safetyBuffer = other.safetyBuffer;
+      footShapeWithBufferPolygon.setAndUpdate(other.footShapeWithBufferPolygon);
+   }
+
    private double inflate(double dimension)
    {
       return dimension + Math.signum(dimension) * safetyBuffer;
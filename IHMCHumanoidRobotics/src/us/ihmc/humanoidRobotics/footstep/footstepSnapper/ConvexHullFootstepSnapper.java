@@ -7,7 +7,16 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.vecmath.Matrix3d;
 import javax.vecmath.Point2d;
@@ -78,6 +87,9 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
 
 
    private static final boolean RECORD_BAD_FOOTSTEPS = false;
+   private static final int SNAPPED_FOOTSTEP_CACHE_SIZE = 256;
+
+   private static ExecutorService snappingExecutor = null;
 
    // Generates Footsteps using grid without a mask
    private List<Point3d> pointList = new ArrayList<Point3d>();
@@ -90,6 +102,21 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
    private double maskBuffer = 0.0;
    private static PointWriter writer = null;
 
+   /**
+    * Results of the recent snaps with the points they were computed from. Re-planning over unchanged terrain asks for the same footsteps
+    * with the same points, which then only costs the point lookup instead of the plane fit and the convex hull.
+    */
+   private final Map<SnappedFootstepKey, SnappedFootstep> snappedFootstepCache = new LinkedHashMap<SnappedFootstepKey, SnappedFootstep>(16, 0.75f, true)
+   {
+      private static final long serialVersionUID = -5305640815069617378L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<SnappedFootstepKey, SnappedFootstep> eldest)
+      {
+         return size() > SNAPPED_FOOTSTEP_CACHE_SIZE;
+      }
+   };
+
    public ConvexHullFootstepSnapper(FootstepValueFunction valueFunction, FootstepSnappingParameters parameters)
    {
       this.footstepValueFunction = valueFunction;
@@ -104,6 +131,7 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
    public void setMask(List<Point2d> footShape)
    {
       this.footstepMask = new BasicFootstepMask(footShape, maskBuffer);
+      clearSnappedFootstepCache();
    }
 
    @Override
@@ -113,7 +141,7 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
       maskBuffer = maskSafetyBuffer;
 
       this.footstepMask = new BasicFootstepMask(parameters.getCollisionPolygon(), maskBuffer);
-
+      clearSnappedFootstepCache();
    }
 
    public void updateParameters(FootstepSnappingParameters newParameters)
@@ -122,6 +150,18 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
       footstepValueFunction.updateFunction();
 
       this.footstepMask = new BasicFootstepMask(parameters.getCollisionPolygon(), maskBuffer);
+      clearSnappedFootstepCache();
+   }
+
+   /**
+    * Forgets the previous snapping results. Only needed when the value function changes without going through updateParameters.
+    */
+   public void clearSnappedFootstepCache()
+   {
+      synchronized (snappedFootstepCache)
+      {
+         snappedFootstepCache.clear();
+      }
    }
 
    @Override
@@ -186,16 +226,7 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
 
    @Override
    public Footstep.FootstepType snapFootstep(Footstep footstep, HeightMapWithPoints heightMap){
-      FootstepDataMessage originalFootstep = new FootstepDataMessage(footstep);
-
-      //set to the sole pose
-      Vector3d position = new Vector3d();
-      Quat4d orientation = new Quat4d();
-      RigidBodyTransform solePose = new RigidBodyTransform();
-      footstep.getSolePose(solePose);
-      solePose.get(orientation, position);
-      originalFootstep.setLocation(new Point3d(position));
-      originalFootstep.setOrientation(orientation);
+      FootstepDataMessage originalFootstep = createSoleFootstepDataMessage(footstep);
 
       //get the footstep
       Footstep.FootstepType type = snapFootstep(originalFootstep, heightMap);
@@ -204,39 +235,91 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
       }
       footstep.setPredictedContactPointsFromPoint2ds(originalFootstep.getPredictedContactPoints());
       footstep.setFootstepType(type);
-      FramePose solePoseInWorld = new FramePose(ReferenceFrame.getWorldFrame(), originalFootstep.getLocation(), originalFootstep.getOrientation());
-      footstep.setSolePose(solePoseInWorld);
-
-      footstep.setSwingHeight(originalFootstep.getSwingHeight());
-      footstep.setTrajectoryType(originalFootstep.getTrajectoryType());
+      setSolePoseAndTrajectory(footstep, originalFootstep);
 
       return type;
    }
 
-   @Override
-   public Footstep.FootstepType snapFootstep(FootstepDataMessage footstep, HeightMapWithPoints heightMap)
+   /**
+    * Snaps all the footsteps of a plan in parallel, with the same result as snapping them one after the other.
+    * The footsteps have to be distinct objects and the height map must not change during the call.
+    * Unlike the other snapping methods, this does not update the point list of the snapper.
+    */
+   public List<Footstep.FootstepType> snapFootsteps(List<Footstep> footsteps, final HeightMapWithPoints heightMap)
    {
-      FootstepDataMessage originalFootstepFound = new FootstepDataMessage(footstep);
-      Point3d position = originalFootstepFound.getLocation();
-      double yaw = RotationTools.computeYaw(originalFootstepFound.getOrientation());
+      ExecutorService executor = getSnappingExecutor();
+      List<Future<Footstep.FootstepType>> futures = new ArrayList<Future<Footstep.FootstepType>>(footsteps.size());
 
-      if (!useMask)
+      for (final Footstep footstep : footsteps)
       {
-         pointList = heightMap.getAllPointsWithinArea(position.getX(), position.getY(), parameters.getBoundingSquareSizeLength(),
-                 parameters.getBoundingSquareSizeLength());
+         futures.add(executor.submit(new Callable<Footstep.FootstepType>()
+         {
+            @Override
+            public Footstep.FootstepType call()
+            {
+               // Each task positions its own mask and has its own plane fitter
+               BasicFootstepMask mask = new BasicFootstepMask(footstepMask);
+               PlaneFitter localPlaneFitter = new LeastSquaresZPlaneFitter();
+
+               FootstepDataMessage originalFootstep = createSoleFootstepDataMessage(footstep);
+               List<Point3d> points = getPointsAroundFootstep(originalFootstep, heightMap, mask);
+               Point3d position = originalFootstep.getLocation();
+               double height = heightMap.getHeightAtPoint(position.getX(), position.getY());
+
+               Footstep.FootstepType type = snapFootstep(originalFootstep, points, height, localPlaneFitter);
+               footstep.setPredictedContactPointsFromPoint2ds(originalFootstep.getPredictedContactPoints());
+               footstep.setFootstepType(type);
+               setSolePoseAndTrajectory(footstep, originalFootstep);
+
+               return type;
+            }
+         }));
       }
-      else
+
+      List<Footstep.FootstepType> types = new ArrayList<Footstep.FootstepType>(footsteps.size());
+      try
+      {
+         for (Future<Footstep.FootstepType> future : futures)
+         {
+            types.add(future.get());
+         }
+      }
+      catch (InterruptedException e)
+      {
+         throw new RuntimeException(e);
+      }
+      catch (ExecutionException e)
       {
-         footstepMask.setPositionAndYaw(position.x, position.y, yaw);
-         pointList = heightMap.getAllPointsWithinArea(position.x, position.y, parameters.getBoundingSquareSizeLength(),
-                 parameters.getBoundingSquareSizeLength(), footstepMask);
+         throw new RuntimeException(e.getCause());
       }
 
-      double height = heightMap.getHeightAtPoint(position.getX(), position.getY());
-      return snapFootstep(footstep, pointList, height);
+      return types;
    }
 
-   public Footstep.FootstepType snapFootstep(Footstep footstep, List<Point3d> pointList, double defaultHeight){
+   private static synchronized ExecutorService getSnappingExecutor()
+   {
+      if (snappingExecutor == null)
+      {
+         snappingExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+         {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable)
+            {
+               Thread thread = new Thread(runnable, "ConvexHullFootstepSnapper-thread-" + threadNumber.getAndIncrement());
+               thread.setDaemon(true);
+
+               return thread;
+            }
+         });
+      }
+
+      return snappingExecutor;
+   }
+
+   private FootstepDataMessage createSoleFootstepDataMessage(Footstep footstep)
+   {
       FootstepDataMessage originalFootstep = new FootstepDataMessage(footstep);
 
       //set to the sole pose
@@ -248,20 +331,90 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
       originalFootstep.setLocation(new Point3d(position));
       originalFootstep.setOrientation(orientation);
 
+      return originalFootstep;
+   }
+
+   private void setSolePoseAndTrajectory(Footstep footstep, FootstepDataMessage snappedFootstep)
+   {
+      FramePose solePoseInWorld = new FramePose(ReferenceFrame.getWorldFrame(), snappedFootstep.getLocation(), snappedFootstep.getOrientation());
+      footstep.setSolePose(solePoseInWorld);
+
+      footstep.setSwingHeight(snappedFootstep.getSwingHeight());
+      footstep.setTrajectoryType(snappedFootstep.getTrajectoryType());
+   }
+
+   @Override
+   public Footstep.FootstepType snapFootstep(FootstepDataMessage footstep, HeightMapWithPoints heightMap)
+   {
+      Point3d position = footstep.getLocation();
+      pointList = getPointsAroundFootstep(footstep, heightMap, footstepMask);
+
+      double height = heightMap.getHeightAtPoint(position.getX(), position.getY());
+      return snapFootstep(footstep, pointList, height);
+   }
+
+   private List<Point3d> getPointsAroundFootstep(FootstepDataMessage footstep, HeightMapWithPoints heightMap, BasicFootstepMask mask)
+   {
+      Point3d position = footstep.getLocation();
+      double yaw = RotationTools.computeYaw(footstep.getOrientation());
+
+      if (!useMask)
+      {
+         return heightMap.getAllPointsWithinArea(position.getX(), position.getY(), parameters.getBoundingSquareSizeLength(),
+                 parameters.getBoundingSquareSizeLength());
+      }
+      else
+      {
+         mask.setPositionAndYaw(position.x, position.y, yaw);
+         return heightMap.getAllPointsWithinArea(position.x, position.y, parameters.getBoundingSquareSizeLength(),
+                 parameters.getBoundingSquareSizeLength(), mask);
+      }
+   }
+
+   public Footstep.FootstepType snapFootstep(Footstep footstep, List<Point3d> pointList, double defaultHeight){
+      FootstepDataMessage originalFootstep = createSoleFootstepDataMessage(footstep);
+
       //get the footstep
       Footstep.FootstepType type = snapFootstep(originalFootstep, pointList, defaultHeight);
       footstep.setFootstepType(type);
       footstep.setPredictedContactPointsFromPoint2ds(originalFootstep.getPredictedContactPoints());
-      FramePose solePoseInWorld = new FramePose(ReferenceFrame.getWorldFrame(), originalFootstep.getLocation(), originalFootstep.getOrientation());
-      footstep.setSolePose(solePoseInWorld);
-
-      footstep.setSwingHeight(originalFootstep.getSwingHeight());
-      footstep.setTrajectoryType(originalFootstep.getTrajectoryType());
+      setSolePoseAndTrajectory(footstep, originalFootstep);
 
       return type;
    }
 
    public Footstep.FootstepType snapFootstep(FootstepDataMessage footstep, List<Point3d> pointList, double defaultHeight)
+   {
+      return snapFootstep(footstep, pointList, defaultHeight, planeFitter);
+   }
+
+   private Footstep.FootstepType snapFootstep(FootstepDataMessage footstep, List<Point3d> pointList, double defaultHeight, PlaneFitter planeFitter)
+   {
+      SnappedFootstepKey key = new SnappedFootstepKey(footstep, defaultHeight);
+      SnappedFootstep snappedFootstep;
+      synchronized (snappedFootstepCache)
+      {
+         snappedFootstep = snappedFootstepCache.get(key);
+      }
+
+      if (snappedFootstep != null && snappedFootstep.wasComputedFrom(pointList))
+      {
+         snappedFootstep.apply(footstep);
+         return snappedFootstep.type;
+      }
+
+      Footstep.FootstepType type = computeSnappedFootstep(footstep, pointList, defaultHeight, planeFitter);
+      snappedFootstep = new SnappedFootstep(pointList, footstep, type);
+
+      synchronized (snappedFootstepCache)
+      {
+         snappedFootstepCache.put(key, snappedFootstep);
+      }
+
+      return type;
+   }
+
+   private Footstep.FootstepType computeSnappedFootstep(FootstepDataMessage footstep, List<Point3d> pointList, double defaultHeight, PlaneFitter planeFitter)
    {
       Point3d position = footstep.getLocation();
       Quat4d orientation = footstep.getOrientation();
@@ -447,7 +600,7 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
       if (maxValueFootstep == null)
       {
          if (RECORD_BAD_FOOTSTEPS)
-            writer.writeFootstepAndPointsToFile(footstep, pointList);
+            writer.writeFootstepAndPointsToFile(footstep, points);
 
          return false;
       }
@@ -568,6 +721,121 @@ public class ConvexHullFootstepSnapper implements FootstepSnapper
       return finalSupportPoints;
    }
 
+   /**
+    * Everything of the input footstep the snapping result depends on, besides the points.
+    */
+   private static class SnappedFootstepKey
+   {
+      private final RobotSide robotSide;
+      private final double x;
+      private final double y;
+      private final double yaw;
+      private final double defaultHeight;
+
+      public SnappedFootstepKey(FootstepDataMessage footstep, double defaultHeight)
+      {
+         this.robotSide = footstep.getRobotSide();
+         this.x = footstep.getLocation().getX();
+         this.y = footstep.getLocation().getY();
+         this.yaw = RotationTools.computeYaw(footstep.getOrientation());
+         this.defaultHeight = defaultHeight;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         long bits = Double.doubleToLongBits(x);
+         bits = 31L * bits + Double.doubleToLongBits(y);
+         bits = 31L * bits + Double.doubleToLongBits(yaw);
+         bits = 31L * bits + Double.doubleToLongBits(defaultHeight);
+
+         return 31 * (int) (bits ^ (bits >>> 32)) + (robotSide == null ? 0 : robotSide.hashCode());
+      }
+
+      @Override
+      public boolean equals(Object object)
+      {
+         if (!(object instanceof SnappedFootstepKey))
+            return false;
+
+         SnappedFootstepKey other = (SnappedFootstepKey) object;
+
+         return (robotSide == other.robotSide) && (Double.doubleToLongBits(x) == Double.doubleToLongBits(other.x))
+               && (Double.doubleToLongBits(y) == Double.doubleToLongBits(other.y)) && (Double.doubleToLongBits(yaw) == Double.doubleToLongBits(other.yaw))
+               && (Double.doubleToLongBits(defaultHeight) == Double.doubleToLongBits(other.defaultHeight));
+      }
+   }
+
+   private static class SnappedFootstep
+   {
+      private final double[] points;
+      private final Point3d location;
+      private final Quat4d orientation;
+      private final ArrayList<Point2d> predictedContactPoints;
+      private final Footstep.FootstepType type;
+
+      public SnappedFootstep(List<Point3d> pointList, FootstepDataMessage snappedFootstep, Footstep.FootstepType type)
+      {
+         // Copied, the caller is free to reuse its points
+         this.points = new double[3 * pointList.size()];
+         int index = 0;
+         for (Point3d point : pointList)
+         {
+            points[index++] = point.x;
+            points[index++] = point.y;
+            points[index++] = point.z;
+         }
+
+         this.location = new Point3d(snappedFootstep.getLocation());
+         this.orientation = new Quat4d(snappedFootstep.getOrientation());
+         this.predictedContactPoints = copyPoints(snappedFootstep.getPredictedContactPoints());
+         this.type = type;
+      }
+
+      public boolean wasComputedFrom(List<Point3d> pointList)
+      {
+         if (points.length != 3 * pointList.size())
+            return false;
+
+         int index = 0;
+         for (Point3d point : pointList)
+         {
+            if (Double.doubleToLongBits(points[index++]) != Double.doubleToLongBits(point.x))
+               return false;
+            if (Double.doubleToLongBits(points[index++]) != Double.doubleToLongBits(point.y))
+               return false;
+            if (Double.doubleToLongBits(points[index++]) != Double.doubleToLongBits(point.z))
+               return false;
+         }
+
+         return true;
+      }
+
+      public void apply(FootstepDataMessage footstep)
+      {
+         footstep.setLocation(new Point3d(location));
+         footstep.setOrientation(new Quat4d(orientation));
+
+         // A bad footstep keeps the contact points it came with
+         if (type != Footstep.FootstepType.BAD_FOOTSTEP)
+            footstep.predictedContactPoints = copyPoints(predictedContactPoints);
+      }
+
+      private static ArrayList<Point2d> copyPoints(List<Point2d> points)
+      {
+         if (points == null)
+            return null;
+
+         ArrayList<Point2d> copy = new ArrayList<Point2d>(points.size());
+         for (Point2d point : points)
+         {
+            copy.add(new Point2d(point));
+         }
+
+         return copy;
+      }
+   }
+
    // class to help with cropping calculations
    public class VertexData implements Comparable<VertexData>
    {
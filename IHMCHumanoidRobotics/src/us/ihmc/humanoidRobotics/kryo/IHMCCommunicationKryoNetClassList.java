@@ -113,6 +113,8 @@ import us.ihmc.humanoidRobotics.communication.packets.sensing.MultisenseParamete
 import us.ihmc.humanoidRobotics.communication.packets.sensing.MultisenseTest;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.MultisenseTest.MultisenseFrameName;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PelvisPoseErrorPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldAcknowledgementPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.RawIMUPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.RequestWristForceSensorCalibrationPacket;
@@ -446,6 +448,8 @@ public class IHMCCommunicationKryoNetClassList extends NetClassList
       registerPacketField(Point3d[].class);
       
       registerPacketClass(PointCloudWorldPacket.class);
+      registerPacketClass(PointCloudWorldDeltaPacket.class);
+      registerPacketClass(PointCloudWorldAcknowledgementPacket.class);
       
       registerPacketClass(ControllerCrashNotificationPacket.class);
       registerPacketField(ControllerCrashNotificationPacket.CrashLocation.class);
@@ -219,5 +219,62 @@ public class TimeStampedTransformBufferTest
             }
          }
       }
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.2)
+   @Test(timeout = 30000)
+   public void testLookupInLargeBufferAgainstLinearSearch()
+   {
+      int bufferSize = 5000;
+      Random random = new Random(5617L);
+
+      TimeStampedTransformBuffer timeStampedPelvisPoseBuffer = new TimeStampedTransformBuffer(bufferSize);
+      TimeStampedTransform3D toTest = new TimeStampedTransform3D();
+      TimeStampedTransform3D expected = new TimeStampedTransform3D();
+
+      TransformInterpolationCalculator transformInterpolationCalculator = new TransformInterpolationCalculator();
+
+      ArrayList<TimeStampedTransform3D> pelvisPosesRegistered = new ArrayList<>();
+      long timeStamp = 0L;
+
+      // Wrap around the buffer a few times, with some repeated timestamps
+      for (int poseIndex = 0; poseIndex < 3 * bufferSize + 1234; poseIndex++)
+      {
+         RigidBodyTransform newestPelvisPose = RigidBodyTransform.generateRandomTransform(random);
+         if (random.nextInt(10) != 0)
+            timeStamp += (long) RandomTools.generateRandomInt(random, 1, 1516);
+         pelvisPosesRegistered.add(new TimeStampedTransform3D(newestPelvisPose, timeStamp));
+         timeStampedPelvisPoseBuffer.put(newestPelvisPose, timeStamp);
+      }
+
+      int oldestIndex = pelvisPosesRegistered.size() - bufferSize;
+      assertEquals(pelvisPosesRegistered.get(oldestIndex).getTimeStamp(), timeStampedPelvisPoseBuffer.getOldestTimestamp());
+      assertFalse(timeStampedPelvisPoseBuffer.findTransform(pelvisPosesRegistered.get(oldestIndex).getTimeStamp() - 1, toTest));
+      assertFalse(timeStampedPelvisPoseBuffer.findTransform(timeStamp + 1, toTest));
+
+      for (int i = 0; i < 10000; i++)
+      {
+         long oldestTimeStamp = timeStampedPelvisPoseBuffer.getOldestTimestamp();
+         long queryTimeStamp = oldestTimeStamp + (long) (random.nextDouble() * (timeStamp - oldestTimeStamp));
+
+         // Same as the newest to oldest linear search: the newest pose with this timestamp, or the interpolation with the newest pose before it
+         for (int poseIndex = pelvisPosesRegistered.size() - 1; poseIndex >= oldestIndex; poseIndex--)
+         {
+            TimeStampedTransform3D floor = pelvisPosesRegistered.get(poseIndex);
+            if (floor.getTimeStamp() == queryTimeStamp)
+            {
+               expected.set(floor);
+               break;
+            }
+            else if (floor.getTimeStamp() < queryTimeStamp)
+            {
+               transformInterpolationCalculator.interpolate(floor, pelvisPosesRegistered.get(poseIndex + 1), expected, queryTimeStamp);
+               break;
+            }
+         }
+
+         assertTrue(timeStampedPelvisPoseBuffer.findTransform(queryTimeStamp, toTest));
+         assertTrue(expected.epsilonEquals(toTest, 1.0e-10));
+      }
    }
 }
@@ -8,9 +8,17 @@ import java.util.List;
 import java.util.Random;
 
 import javax.vecmath.Point2d;
+import javax.vecmath.Vector3d;
 
 import org.junit.Test;
 
+import us.ihmc.humanoidRobotics.footstep.FootSpoof;
+import us.ihmc.humanoidRobotics.footstep.Footstep;
+import us.ihmc.robotics.dataStructures.DoubleHashHeightMap;
+import us.ihmc.robotics.geometry.FramePose;
+import us.ihmc.robotics.geometry.FramePose2d;
+import us.ihmc.robotics.referenceFrames.ReferenceFrame;
+import us.ihmc.robotics.robotSide.RobotSide;
 import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
 import us.ihmc.humanoidRobotics.footstep.footstepSnapper.ConvexHullFootstepSnapper;
 import us.ihmc.humanoidRobotics.footstep.footstepSnapper.FootstepSnappingParameters;
@@ -76,5 +84,110 @@ public class ConvexHullFootstepSnapperTest
       assertTrue(endArea <= startArea);
       assertTrue(endArea <= intermediateStepArea);
       assertTrue(endPolygon.getNumberOfVertices() <= 4);
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+	@Test(timeout = 30000)
+	public void testBatchSnappingMatchesSnappingOneByOne()
+	{
+      Random random = new Random(1776L);
+      DoubleHashHeightMap heightMap = new DoubleHashHeightMap(0.02);
+      for (double x = -0.5; x < 3.0; x += 0.02)
+      {
+         for (double y = -0.6; y < 0.6; y += 0.02)
+         {
+            double stepHeight = x > 1.0 ? 0.15 : 0.0;
+            heightMap.addPoint(x, y, stepHeight + 0.05 * y + 0.005 * random.nextDouble());
+         }
+      }
+
+      FootstepSnappingParameters snappingParameters = new GenericFootstepSnappingParameters();
+      ConvexHullFootstepSnapper oneByOneSnapper = new ConvexHullFootstepSnapper(new SimpleFootstepValueFunction(snappingParameters), snappingParameters);
+      ConvexHullFootstepSnapper batchSnapper = new ConvexHullFootstepSnapper(new SimpleFootstepValueFunction(snappingParameters), snappingParameters);
+
+      int numberOfFootsteps = 30;
+      List<Footstep> expectedFootsteps = createFootsteps(oneByOneSnapper, numberOfFootsteps);
+      List<Footstep> batchFootsteps = createFootsteps(batchSnapper, numberOfFootsteps);
+
+      for (Footstep footstep : expectedFootsteps)
+      {
+         oneByOneSnapper.snapFootstep(footstep, heightMap);
+      }
+
+      List<Footstep.FootstepType> types = batchSnapper.snapFootsteps(batchFootsteps, heightMap);
+      assertFootstepsEqual(expectedFootsteps, batchFootsteps, types);
+
+      // Same plan over the same terrain, answered from the cache
+      List<Footstep> replannedFootsteps = createFootsteps(batchSnapper, numberOfFootsteps);
+      types = batchSnapper.snapFootsteps(replannedFootsteps, heightMap);
+      assertFootstepsEqual(expectedFootsteps, replannedFootsteps, types);
+
+      // Changed terrain has to be snapped again
+      for (double x = -0.5; x < 3.0; x += 0.02)
+      {
+         for (double y = -0.6; y < 0.6; y += 0.02)
+         {
+            heightMap.addPoint(x, y, 0.3 - 0.1 * x);
+         }
+      }
+
+      expectedFootsteps = createFootsteps(oneByOneSnapper, numberOfFootsteps);
+      for (Footstep footstep : expectedFootsteps)
+      {
+         oneByOneSnapper.snapFootstep(footstep, heightMap);
+      }
+
+      replannedFootsteps = createFootsteps(batchSnapper, numberOfFootsteps);
+      types = batchSnapper.snapFootsteps(replannedFootsteps, heightMap);
+      assertFootstepsEqual(expectedFootsteps, replannedFootsteps, types);
+   }
+
+   private static List<Footstep> createFootsteps(ConvexHullFootstepSnapper footstepSnapper, int numberOfFootsteps)
+   {
+      List<Footstep> footsteps = new ArrayList<Footstep>();
+      for (int i = 0; i < numberOfFootsteps; i++)
+      {
+         RobotSide robotSide = (i % 2 == 0) ? RobotSide.LEFT : RobotSide.RIGHT;
+         FootSpoof foot = new FootSpoof(robotSide.getCamelCaseNameForStartOfExpression() + "Foot" + i);
+         FramePose2d solePose = new FramePose2d(ReferenceFrame.getWorldFrame(), new Point2d(0.1 * i, robotSide.negateIfRightSide(0.12)), 0.05 * i);
+         footsteps.add(footstepSnapper.generateFootstepWithoutHeightMap(solePose, foot.getRigidBody(), foot.getSoleFrame(), robotSide, 0.0,
+               new Vector3d(0.0, 0.0, 1.0)));
+      }
+
+      return footsteps;
+   }
+
+   private static void assertFootstepsEqual(List<Footstep> expectedFootsteps, List<Footstep> footsteps, List<Footstep.FootstepType> types)
+   {
+      assertEquals(expectedFootsteps.size(), types.size());
+
+      FramePose expectedPose = new FramePose();
+      FramePose pose = new FramePose();
+      for (int i = 0; i < expectedFootsteps.size(); i++)
+      {
+         Footstep expectedFootstep = expectedFootsteps.get(i);
+         Footstep footstep = footsteps.get(i);
+
+         assertEquals(expectedFootstep.getFootstepType(), types.get(i));
+         assertEquals(expectedFootstep.getFootstepType(), footstep.getFootstepType());
+
+         expectedFootstep.getSolePose(expectedPose);
+         footstep.getSolePose(pose);
+         assertTrue(expectedPose.epsilonEquals(pose, 1e-12));
+
+         List<Point2d> expectedContactPoints = expectedFootstep.getPredictedContactPoints();
+         List<Point2d> contactPoints = footstep.getPredictedContactPoints();
+         if (expectedContactPoints == null)
+         {
+            assertTrue(contactPoints == null);
+            continue;
+         }
+
+         assertEquals(expectedContactPoints.size(), contactPoints.size());
+         for (int j = 0; j < expectedContactPoints.size(); j++)
+         {
+            assertTrue(expectedContactPoints.get(j).epsilonEquals(contactPoints.get(j), 1e-12));
+         }
+      }
    }
 }
@@ -5,7 +5,9 @@ import us.ihmc.robotics.referenceFrames.ReferenceFrame;
 import us.ihmc.tools.time.Timer;
 
 import javax.vecmath.Point3d;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 public class AsyncPointCloudReceiver implements PointCloudDataReceiverInterface
 {
@@ -48,6 +50,27 @@ public class AsyncPointCloudReceiver implements PointCloudDataReceiverInterface
       }
    }
 
+   /**
+    * The points are kept as a list for {@link #getPointsInWorldFrame()}, so this creates a point per point of the scan.
+    */
+   @Override
+   public void receivedPointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long timestamp, FloatBuffer points,
+         PointCloudSource... sources)
+   {
+      int start = points.position();
+      int numberOfPoints = points.remaining() / 3;
+      ArrayList<Point3d> pointList = new ArrayList<Point3d>(numberOfPoints);
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         int index = start + 3 * i;
+         pointList.add(new Point3d(points.get(index), points.get(index + 1), points.get(index + 2)));
+      }
+
+      long[] timestamps = new long[numberOfPoints];
+      Arrays.fill(timestamps, timestamp);
+      receivedPointCloudData(scanFrame, lidarFrame, timestamps, pointList, sources);
+   }
+
    public synchronized ArrayList<Point3d> getPointsInWorldFrame()
    {
       return pointsInWorldFrame;
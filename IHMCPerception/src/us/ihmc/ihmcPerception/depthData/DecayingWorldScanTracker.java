@@ -0,0 +1,114 @@
+package us.ihmc.ihmcPerception.depthData;
+
+import java.util.ArrayList;
+
+import us.ihmc.robotics.dataStructures.TimestampedPoint;
+
+/**
+ * Follows the decaying world scan as a queue. The scan only drops its oldest points and appends new ones, so every point gets a
+ * sequence number when it first shows up and the changes since a version are the points dropped from the front and the points
+ * appended since. Points are recognized by reference, nothing is hashed.
+ */
+class DecayingWorldScanTracker
+{
+   private final long[] endSequences;
+
+   private ArrayList<TimestampedPoint> points = new ArrayList<>();
+   private long firstSequence = 0;
+
+   /**
+    * @param historyLength number of versions the changes can be computed from.
+    */
+   DecayingWorldScanTracker(int historyLength)
+   {
+      endSequences = new long[historyLength + 1];
+   }
+
+   /**
+    * Replaces the points with a new copy of the scan. The list is kept and must not be modified afterwards.
+    */
+   void update(ArrayList<TimestampedPoint> newPoints, long version)
+   {
+      long endSequence = firstSequence + points.size();
+      int dropped = findDroppedPoints(newPoints);
+
+      if (dropped < 0)
+      {
+         // Cleared or replaced, all the points are new
+         firstSequence = endSequence;
+      }
+      else
+      {
+         firstSequence += dropped;
+      }
+
+      points = newPoints;
+      endSequences[(int) (version % endSequences.length)] = firstSequence + points.size();
+   }
+
+   /**
+    * @return the number of points dropped from the front of the previous points to get the start of the new points, or -1 if the new
+    * points do not continue the previous ones.
+    */
+   private int findDroppedPoints(ArrayList<TimestampedPoint> newPoints)
+   {
+      if (newPoints.isEmpty())
+         return points.size();
+
+      TimestampedPoint newFirst = newPoints.get(0);
+      int dropped = 0;
+      while (dropped < points.size() && points.get(dropped) != newFirst)
+      {
+         dropped++;
+      }
+
+      if (dropped == points.size())
+         return -1;
+
+      int kept = Math.min(points.size() - dropped, newPoints.size());
+      for (int i = 1; i < kept; i++)
+      {
+         if (points.get(dropped + i) != newPoints.get(i))
+            return -1;
+      }
+
+      return dropped;
+   }
+
+   long getFirstSequence()
+   {
+      return firstSequence;
+   }
+
+   /**
+    * @param baseVersion a version within the history, or {@link us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket#KEYFRAME}.
+    * @return the sequence of the first point the base version does not have.
+    */
+   long getAppendedSequence(long baseVersion)
+   {
+      if (baseVersion < 0)
+         return firstSequence;
+
+      return Math.max(endSequences[(int) (baseVersion % endSequences.length)], firstSequence);
+   }
+
+   /**
+    * @return the points from the given sequence to the end, x, y, z one after the other.
+    */
+   float[] getPoints(long fromSequence)
+   {
+      int start = (int) (fromSequence - firstSequence);
+      float[] appendedPoints = new float[3 * (points.size() - start)];
+
+      for (int i = start; i < points.size(); i++)
+      {
+         TimestampedPoint point = points.get(i);
+         int index = 3 * (i - start);
+         appendedPoints[index] = point.x;
+         appendedPoints[index + 1] = point.y;
+         appendedPoints[index + 2] = point.z;
+      }
+
+      return appendedPoints;
+   }
+}
@@ -1,5 +1,7 @@
 package us.ihmc.ihmcPerception.depthData;
 
+import java.nio.FloatBuffer;
+
 import javax.vecmath.Point3d;
 
 import us.ihmc.humanoidRobotics.communication.packets.sensing.DepthDataFilterParameters;
@@ -11,6 +13,8 @@ public class DepthDataFilter extends DepthDataStore
    // See DRCManualLidarTransform and DRCLidarVisualizationManager. This is a bit of a hack but less likely to have unintended consequences.
    private final RigidBodyTransform worldToCorrected = new RigidBodyTransform();
 
+   private final Point3d batchPoint = new Point3d();
+   private float[] filteredBatchPoints = new float[0];
 
    public DepthDataFilter()
    {
@@ -42,6 +46,78 @@ public class DepthDataFilter extends DepthDataStore
    public boolean addQuatreePoint(Point3d point, Point3d sensorOrigin)
    {
       boolean send = false;
+
+      if (filterQuadTreePoint(point, sensorOrigin))
+      {
+         send = quadTree.addPoint(point.x, point.y, point.z) || send;
+      }
+
+      return send;
+   }
+
+   /**
+    * Adds a scan to the quad tree at once, which is much faster than adding its points one by one.
+    * @param points x, y, z of the points in world frame, one after the other.
+    * @param sensorOrigin origin of the sensor for the whole scan.
+    */
+   public boolean addQuadTreePoints(float[] points, int numberOfPoints, Point3d sensorOrigin)
+   {
+      ensureFilteredBatchCapacity(numberOfPoints);
+      int numberOfFilteredPoints = 0;
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         batchPoint.set(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+         numberOfFilteredPoints = addFilteredBatchPoint(numberOfFilteredPoints, sensorOrigin);
+      }
+
+      return quadTree.addPoints(filteredBatchPoints, numberOfFilteredPoints);
+   }
+
+   /**
+    * Adds the points from the position to the limit of the buffer to the quad tree at once. The position of the buffer is not changed.
+    * @see #addQuadTreePoints(float[], int, Point3d)
+    */
+   public boolean addQuadTreePoints(FloatBuffer points, Point3d sensorOrigin)
+   {
+      int start = points.position();
+      int numberOfPoints = points.remaining() / 3;
+      ensureFilteredBatchCapacity(numberOfPoints);
+      int numberOfFilteredPoints = 0;
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         int index = start + 3 * i;
+         batchPoint.set(points.get(index), points.get(index + 1), points.get(index + 2));
+         numberOfFilteredPoints = addFilteredBatchPoint(numberOfFilteredPoints, sensorOrigin);
+      }
+
+      return quadTree.addPoints(filteredBatchPoints, numberOfFilteredPoints);
+   }
+
+   private void ensureFilteredBatchCapacity(int numberOfPoints)
+   {
+      if (filteredBatchPoints.length < 3 * numberOfPoints)
+         filteredBatchPoints = new float[3 * numberOfPoints];
+   }
+
+   private int addFilteredBatchPoint(int numberOfFilteredPoints, Point3d sensorOrigin)
+   {
+      if (!filterQuadTreePoint(batchPoint, sensorOrigin))
+         return numberOfFilteredPoints;
+
+      filteredBatchPoints[3 * numberOfFilteredPoints] = (float) batchPoint.x;
+      filteredBatchPoints[3 * numberOfFilteredPoints + 1] = (float) batchPoint.y;
+      filteredBatchPoints[3 * numberOfFilteredPoints + 2] = (float) batchPoint.z;
+      return numberOfFilteredPoints + 1;
+   }
+
+   /**
+    * Applies the lidar adjustment to the point and checks that it should go in the quad tree.
+    * @return true if the point should be added to the quad tree.
+    */
+   public boolean filterQuadTreePoint(Point3d point, Point3d sensorOrigin)
+   {
       if(!pointInRange(point, sensorOrigin))
          return false;
 
@@ -49,15 +125,7 @@ public class DepthDataFilter extends DepthDataStore
       if (DepthDataFilterParameters.LIDAR_ADJUSTMENT_ACTIVE)
          worldToCorrected.transform(point);
 
-      if (isValidPoint(point, sensorOrigin))
-      {
-         if (isPossibleGround(point, sensorOrigin))
-         {
-            send = quadTree.addPoint(point.x, point.y, point.z) || send;
-         }
-      }
-
-      return send;
+      return isValidPoint(point, sensorOrigin) && isPossibleGround(point, sensorOrigin);
    }
    
    public boolean addPoint(Point3d point,Point3d sensorOrigin)
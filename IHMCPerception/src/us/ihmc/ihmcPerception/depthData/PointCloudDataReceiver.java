@@ -1,5 +1,6 @@
 package us.ihmc.ihmcPerception.depthData;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -53,6 +54,9 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
    private final PacketCommunicator sensorSuitePacketCommunicator;
    private boolean DEBUG_WITH_MOCAP = false;
 
+   // Quad tree points of the current scan, added to the quad tree all at once
+   private float[] quadTreePoints = new float[0];
+
    public PointCloudDataReceiver(SDFFullHumanoidRobotModelFactory modelFactory, CollisionBoxProvider collisionBoxProvider,
          PPSTimestampOffsetProvider ppsTimestampOffsetProvider, DRCRobotJointMap jointMap, RobotConfigurationDataBuffer robotConfigurationDataBuffer,
          PacketCommunicator sensorSuitePacketCommunicator)
@@ -124,7 +128,7 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
          {
             PointCloudData data = dataQueue.take(); // Do this outside lock to avoid dead-locks
             readWriteLock.writeLock().lock();
-            if(DEBUG_WITH_MOCAP)
+            if(DEBUG_WITH_MOCAP && data.points != null)
             {
                for (PointCloudSource cloudSource : data.sources)
                {
@@ -164,10 +168,18 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
                }
             }
 
-            if (data != null && sendData.get())
+            if (data != null && data.packedPoints != null && sendData.get())
+            {
+               addPackedScan(data);
+            }
+            else if (data != null && sendData.get())
             {
                long prevTimestamp = -1;
 
+               if (quadTreePoints.length < 3 * data.points.size())
+                  quadTreePoints = new float[3 * data.points.size()];
+               int numberOfQuadTreePoints = 0;
+
                RigidBodyTransform scanFrameToWorld = new RigidBodyTransform();
                for (int i = 0; i < data.points.size(); i++)
                {
@@ -210,7 +222,13 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
                            depthDataFilter.addNearScanPoint(pointInWorld, origin);
                            break;
                         case QUADTREE:
-                           depthDataFilter.addQuatreePoint(pointInWorld, origin);
+                           if (depthDataFilter.filterQuadTreePoint(pointInWorld, origin))
+                           {
+                              quadTreePoints[3 * numberOfQuadTreePoints] = (float) pointInWorld.getX();
+                              quadTreePoints[3 * numberOfQuadTreePoints + 1] = (float) pointInWorld.getY();
+                              quadTreePoints[3 * numberOfQuadTreePoints + 2] = (float) pointInWorld.getZ();
+                              numberOfQuadTreePoints++;
+                           }
                            break;
                         default:
                            System.out.println(getClass().getSimpleName() + " unrecognized cloud source " + cloudSource.name());
@@ -218,6 +236,8 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
                      }
                   }
                }
+
+               depthDataFilter.getQuadTree().addPoints(quadTreePoints, numberOfQuadTreePoints);
             }
             readWriteLock.writeLock().unlock();
          }
@@ -229,6 +249,64 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
       }
    }
 
+   /**
+    * Transforms the points of a scan taken at a single time to world in place, drops the ones inside the robot, and adds the rest at once.
+    */
+   private void addPackedScan(PointCloudData data)
+   {
+      long timestamp = ppsTimestampOffsetProvider.adjustTimeStampToRobotClock(data.timestamp);
+      if (robotConfigurationDataBuffer.updateFullRobotModel(true, timestamp, fullRobotModel, null) == -1)
+      {
+         return;
+      }
+      if (collisionBoxNode != null)
+      {
+         collisionBoxNode.update();
+      }
+
+      RigidBodyTransform scanFrameToWorld = new RigidBodyTransform();
+      data.scanFrame.getTransformToDesiredFrame(scanFrameToWorld, ReferenceFrame.getWorldFrame());
+      Point3d origin = new Point3d();
+      data.lidarFrame.getTransformToWorldFrame().transform(origin);
+      boolean checkCollisions = collisionBoxNode != null && depthDataFilter.getParameters().boundingBoxScale > 0;
+
+      float[] points = data.packedPoints;
+      Point3d pointInWorld = new Point3d();
+      int numberOfPointsOutsideRobot = 0;
+      for (int i = 0; i < data.numberOfPackedPoints; i++)
+      {
+         pointInWorld.set(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+         scanFrameToWorld.transform(pointInWorld);
+
+         if (checkCollisions && collisionBoxNode.contains(pointInWorld))
+            continue;
+
+         points[3 * numberOfPointsOutsideRobot] = (float) pointInWorld.getX();
+         points[3 * numberOfPointsOutsideRobot + 1] = (float) pointInWorld.getY();
+         points[3 * numberOfPointsOutsideRobot + 2] = (float) pointInWorld.getZ();
+         numberOfPointsOutsideRobot++;
+      }
+
+      for (PointCloudSource cloudSource : data.sources)
+      {
+         switch (cloudSource)
+         {
+         case NEARSCAN:
+            for (int i = 0; i < numberOfPointsOutsideRobot; i++)
+            {
+               pointInWorld.set(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+               depthDataFilter.addNearScanPoint(pointInWorld, origin);
+            }
+            break;
+         case QUADTREE:
+            depthDataFilter.addQuadTreePoints(FloatBuffer.wrap(points, 0, 3 * numberOfPointsOutsideRobot), origin);
+            break;
+         default:
+            System.out.println(getClass().getSimpleName() + " unrecognized cloud source " + cloudSource.name());
+         }
+      }
+   }
+
    /**
     * Receive new data. Data is stored in a queue, so do not reuse!
     * @param scanFrame
@@ -249,6 +327,19 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
       dataQueue.offer(new PointCloudData(scanFrame, lidarFrame, timestamps, points, sources));
    }
 
+   /**
+    * Receive a scan taken at a single time. The points are copied once into the queue, without an object per point.
+    */
+   @Override
+   public void receivedPointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long timestamp, FloatBuffer points,
+         PointCloudSource... sources)
+   {
+      float[] packedPoints = new float[points.remaining()];
+      points.duplicate().get(packedPoints);
+
+      dataQueue.offer(new PointCloudData(scanFrame, lidarFrame, timestamp, packedPoints, sources));
+   }
+
    @Override
    public void connected()
    {
@@ -362,6 +453,9 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
       private ReferenceFrame lidarFrame;
       private long[] timestamps;
       private ArrayList<Point3d> points;
+      private long timestamp;
+      private float[] packedPoints;
+      private int numberOfPackedPoints;
 
       public PointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long[] timestamps, ArrayList<Point3d> points, PointCloudSource[] sources)
       {
@@ -372,5 +466,15 @@ public class PointCloudDataReceiver extends Thread implements NetStateListener,
          this.sources = sources;
       }
 
+      public PointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long timestamp, float[] packedPoints, PointCloudSource[] sources)
+      {
+         this.scanFrame = scanFrame;
+         this.lidarFrame = lidarFrame;
+         this.timestamp = timestamp;
+         this.packedPoints = packedPoints;
+         this.numberOfPackedPoints = packedPoints.length / 3;
+         this.sources = sources;
+      }
+
    }
 }
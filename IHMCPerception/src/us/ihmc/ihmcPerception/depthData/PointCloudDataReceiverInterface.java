@@ -1,5 +1,6 @@
 package us.ihmc.ihmcPerception.depthData;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 
 import javax.vecmath.Point3d;
@@ -10,4 +11,9 @@ public interface PointCloudDataReceiverInterface
 {
    void receivedPointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long[] timestamps, ArrayList<Point3d> points, PointCloudSource... sources);
 
+   /**
+    * Receive a scan taken at a single time. The points are x, y, z one after the other, from the position to the limit of the buffer.
+    * The buffer is only valid during the call, so keep a copy of what is needed.
+    */
+   void receivedPointCloudData(ReferenceFrame scanFrame, ReferenceFrame lidarFrame, long timestamp, FloatBuffer points, PointCloudSource... sources);
 }
@@ -0,0 +1,228 @@
+package us.ihmc.ihmcPerception.depthData;
+
+import gnu.trove.iterator.TLongLongIterator;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+
+import java.util.Arrays;
+
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket;
+
+/**
+ * Keeps the ground cells of the point cloud world with the version they last changed in. A cell is a point keyed by its x and y on a
+ * grid. The removed cells are remembered for a number of versions, so the changes since any of these versions can be sent instead of
+ * all the cells.
+ */
+class PointCloudWorldCellTracker
+{
+   private final long historyLength;
+
+   private final TLongIntHashMap slots = new TLongIntHashMap(16, 0.5f, Long.MIN_VALUE, -1);
+   private long[] ids = new long[16];
+   private float[] points = new float[48];
+   private long[] modifiedVersions = new long[16];
+   private long[] seenVersions = new long[16];
+   private int size = 0;
+
+   private final TLongLongHashMap removedVersions = new TLongLongHashMap();
+   private float[] lastPoints = null;
+   private double lastResolution;
+
+   /**
+    * @param historyLength number of versions the changes can be computed from.
+    */
+   PointCloudWorldCellTracker(long historyLength)
+   {
+      this.historyLength = historyLength;
+   }
+
+   /**
+    * Replaces the cells with the given points, x, y, z one after the other. The cells that are not in the points are removed, the
+    * others are added or changed only if their point is different. The array is kept and must not be modified afterwards.
+    */
+   void update(float[] points, double resolution, long version)
+   {
+      // The ground changes much less often than it is sent, comparing the arrays is much cheaper than looking up every cell
+      if (resolution == lastResolution && Arrays.equals(points, lastPoints))
+         return;
+      lastPoints = points;
+      lastResolution = resolution;
+
+      int numberOfPoints = points.length / 3;
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         float x = points[3 * i];
+         float y = points[3 * i + 1];
+         float z = points[3 * i + 2];
+
+         long id = PointCloudWorldDeltaPacket.getGroundCellId(x, y, resolution);
+         int slot = slots.get(id);
+
+         // Two points in the same grid cell, the next id that is not already used by this version is taken. The ids of a keyframe
+         // are rebuilt from this rule, see PointCloudWorldDeltaPacket.
+         while (slot != -1 && seenVersions[slot] == version)
+         {
+            id++;
+            slot = slots.get(id);
+         }
+
+         if (slot == -1)
+         {
+            slot = addSlot(id);
+            setPoint(slot, x, y, z);
+            modifiedVersions[slot] = version;
+            removedVersions.remove(id);
+         }
+         else if (this.points[3 * slot] != x || this.points[3 * slot + 1] != y || this.points[3 * slot + 2] != z)
+         {
+            setPoint(slot, x, y, z);
+            modifiedVersions[slot] = version;
+         }
+
+         seenVersions[slot] = version;
+      }
+
+      for (int slot = size - 1; slot >= 0; slot--)
+      {
+         if (seenVersions[slot] != version)
+         {
+            removedVersions.put(ids[slot], version);
+            removeSlot(slot);
+         }
+      }
+
+      TLongLongIterator iterator = removedVersions.iterator();
+      while (iterator.hasNext())
+      {
+         iterator.advance();
+         if (iterator.value() <= version - historyLength)
+            iterator.remove();
+      }
+   }
+
+   /**
+    * @return true if the changes from the base version to the given version are known.
+    */
+   boolean hasChangesSince(long baseVersion, long version)
+   {
+      return baseVersion >= 0 && baseVersion <= version && version - baseVersion <= historyLength;
+   }
+
+   long[] getCellIds(long baseVersion)
+   {
+      long[] modifiedIds = new long[countModifiedSince(baseVersion)];
+
+      int index = 0;
+      for (int slot = 0; slot < size; slot++)
+      {
+         if (modifiedVersions[slot] > baseVersion)
+            modifiedIds[index++] = ids[slot];
+      }
+
+      return modifiedIds;
+   }
+
+   /**
+    * @return the points of the cells modified since the base version, in the same order as {@link #getCellIds(long)}.
+    */
+   float[] getCellPoints(long baseVersion)
+   {
+      float[] modifiedPoints = new float[3 * countModifiedSince(baseVersion)];
+
+      int index = 0;
+      for (int slot = 0; slot < size; slot++)
+      {
+         if (modifiedVersions[slot] > baseVersion)
+         {
+            System.arraycopy(points, 3 * slot, modifiedPoints, index, 3);
+            index += 3;
+         }
+      }
+
+      return modifiedPoints;
+   }
+
+   /**
+    * @return all the points sorted by cell id, the ids of a keyframe are not sent and are rebuilt from this order.
+    */
+   float[] getKeyframeCellPoints()
+   {
+      long[] sortedIds = Arrays.copyOf(ids, size);
+      Arrays.sort(sortedIds);
+
+      float[] sortedPoints = new float[3 * size];
+      for (int i = 0; i < size; i++)
+      {
+         System.arraycopy(points, 3 * slots.get(sortedIds[i]), sortedPoints, 3 * i, 3);
+      }
+
+      return sortedPoints;
+   }
+
+   long[] getRemovedCellIds(long baseVersion)
+   {
+      if (baseVersion < 0)
+         return new long[0];
+
+      long[] removedIds = new long[removedVersions.size()];
+      int index = 0;
+
+      TLongLongIterator iterator = removedVersions.iterator();
+      while (iterator.hasNext())
+      {
+         iterator.advance();
+         if (iterator.value() > baseVersion)
+            removedIds[index++] = iterator.key();
+      }
+
+      return Arrays.copyOf(removedIds, index);
+   }
+
+   private int countModifiedSince(long baseVersion)
+   {
+      int count = 0;
+      for (int slot = 0; slot < size; slot++)
+      {
+         if (modifiedVersions[slot] > baseVersion)
+            count++;
+      }
+      return count;
+   }
+
+   private void setPoint(int slot, float x, float y, float z)
+   {
+      points[3 * slot] = x;
+      points[3 * slot + 1] = y;
+      points[3 * slot + 2] = z;
+   }
+
+   private int addSlot(long id)
+   {
+      if (size == ids.length)
+      {
+         ids = Arrays.copyOf(ids, 2 * size);
+         points = Arrays.copyOf(points, 6 * size);
+         modifiedVersions = Arrays.copyOf(modifiedVersions, 2 * size);
+         seenVersions = Arrays.copyOf(seenVersions, 2 * size);
+      }
+
+      ids[size] = id;
+      slots.put(id, size);
+      return size++;
+   }
+
+   private void removeSlot(int slot)
+   {
+      slots.remove(ids[slot]);
+      size--;
+
+      if (slot != size)
+      {
+         ids[slot] = ids[size];
+         System.arraycopy(points, 3 * size, points, 3 * slot, 3);
+         modifiedVersions[slot] = modifiedVersions[size];
+         seenVersions[slot] = seenVersions[size];
+         slots.put(ids[slot], slot);
+      }
+   }
+}
@@ -1,6 +1,9 @@
 package us.ihmc.ihmcPerception.depthData;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
@@ -13,14 +16,28 @@ import javax.vecmath.Point3d;
 import us.ihmc.communication.net.PacketConsumer;
 import us.ihmc.communication.packetCommunicator.PacketCommunicator;
 import us.ihmc.communication.packets.PacketDestination;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.DepthDataFilterParameters;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.DepthDataStateCommand;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldAcknowledgementPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
 import us.ihmc.robotics.dataStructures.TimestampedPoint;
 import us.ihmc.tools.io.printing.PrintTools;
 import us.ihmc.tools.thread.ThreadTools;
 
+/**
+ * Sends the point cloud world once a second. In delta mode, every subscriber that acknowledges the versions it receives gets the
+ * changes since its last acknowledged version instead, and a keyframe with everything is broadcast every {@link #KEYFRAME_INTERVAL}
+ * versions. The whole point cloud world is still sent to the destinations that have not acknowledged a version.
+ */
 public class PointCloudWorldPacketGenerator implements Runnable
 {
+   public static final int KEYFRAME_INTERVAL = 10;
+   // Subscribers that did not acknowledge for this many versions only get the keyframes until they acknowledge again
+   private static final int SUBSCRIBER_TIMEOUT = 2 * KEYFRAME_INTERVAL;
+   // Destinations that read the point cloud world when it is broadcast
+   private static final PacketDestination[] POINT_CLOUD_WORLD_DESTINATIONS = {PacketDestination.UI, PacketDestination.BEHAVIOR_MODULE};
+
    private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor(ThreadTools
          .getNamedThreadFactory("PointCloudWorldPacketGenerator"));
 
@@ -30,6 +47,14 @@ public class PointCloudWorldPacketGenerator implements Runnable
    private PacketDestination packetDestination = PacketDestination.BROADCAST;
    private ScheduledFuture<?> scheduled = null;
 
+   private boolean publishDeltas = DepthDataFilterParameters.PUBLISH_POINT_CLOUD_WORLD_DELTAS;
+   private final ConcurrentHashMap<PacketDestination, Subscriber> subscribers = new ConcurrentHashMap<>();
+   private final PointCloudWorldCellTracker groundQuadTreeCells = new PointCloudWorldCellTracker(KEYFRAME_INTERVAL);
+   private final DecayingWorldScanTracker decayingWorldScan = new DecayingWorldScanTracker(KEYFRAME_INTERVAL);
+   private long version = 0;
+   private long timestamp;
+   private float defaultGroundHeight;
+
    public PointCloudWorldPacketGenerator(PacketCommunicator sensorSuitePacketCommunicator, ReadLock readLock, DepthDataStore depthDataFilter)
    {
       this.packetCommunicator = sensorSuitePacketCommunicator;
@@ -59,6 +84,15 @@ public class PointCloudWorldPacketGenerator implements Runnable
             }
          }
       });
+
+      packetCommunicator.attachListener(PointCloudWorldAcknowledgementPacket.class, new PacketConsumer<PointCloudWorldAcknowledgementPacket>()
+      {
+         @Override
+         public void receivedPacket(PointCloudWorldAcknowledgementPacket acknowledgement)
+         {
+            receivedAcknowledgement(acknowledgement);
+         }
+      });
    }
 
    PointCloudWorldPacketGenerator(DepthDataStore depthDataFilter)
@@ -68,7 +102,47 @@ public class PointCloudWorldPacketGenerator implements Runnable
       this.packetCommunicator = null;
    }
 
+   void receivedAcknowledgement(PointCloudWorldAcknowledgementPacket acknowledgement)
+   {
+      if (acknowledgement.getSubscriber() != null)
+         subscribers.put(acknowledgement.getSubscriber(), new Subscriber(acknowledgement.getVersion()));
+   }
+
+   /**
+    * @return where to send the whole point cloud world: the current destination, or when broadcasting, each destination that reads it.
+    * In delta mode, the destinations that have acknowledged a version are left out.
+    */
+   ArrayList<PacketDestination> getPointCloudWorldPacketDestinations()
+   {
+      ArrayList<PacketDestination> destinations = new ArrayList<>();
+      if (!publishDeltas || subscribers.isEmpty())
+      {
+         destinations.add(packetDestination);
+      }
+      else if (packetDestination == PacketDestination.BROADCAST)
+      {
+         for (PacketDestination destination : POINT_CLOUD_WORLD_DESTINATIONS)
+         {
+            if (!subscribers.containsKey(destination))
+               destinations.add(destination);
+         }
+      }
+      else if (!subscribers.containsKey(packetDestination))
+      {
+         destinations.add(packetDestination);
+      }
+      return destinations;
+   }
+
    public PointCloudWorldPacket getPointCloudWorldPacket()
+   {
+      return takeSnapshot().packet;
+   }
+
+   /**
+    * Copies the point cloud world once, for both the packet and the deltas.
+    */
+   private Snapshot takeSnapshot()
    {
       PointCloudWorldPacket packet = new PointCloudWorldPacket();
 
@@ -88,7 +162,7 @@ public class PointCloudWorldPacketGenerator implements Runnable
       }
       packet.setDecayingWorldScan(nearScanPoints.toArray(new Point3d[nearScanPoints.size()]));
       packet.timestamp = System.nanoTime();
-      return packet;
+      return new Snapshot(packet, nearScanTimestampedPoints);
    }
 
    public void start()
@@ -106,14 +180,139 @@ public class PointCloudWorldPacketGenerator implements Runnable
       executorService.shutdown();
    }
 
+   public void setPublishDeltas(boolean publishDeltas)
+   {
+      this.publishDeltas = publishDeltas;
+   }
+
+   /**
+    * Takes a new version of the point cloud world, the deltas are computed from the versions taken here.
+    * @return the new version.
+    */
+   long updateCells()
+   {
+      return updateCells(takeSnapshot());
+   }
+
+   private long updateCells(Snapshot snapshot)
+   {
+      version++;
+      timestamp = snapshot.packet.timestamp;
+      defaultGroundHeight = snapshot.packet.defaultGroundHeight;
+
+      // The arrays of the snapshot are not modified once taken, the trackers keep them
+      groundQuadTreeCells.update(snapshot.packet.groundQuadTreeSupport, DepthDataFilterParameters.GRID_RESOLUTION, version);
+      decayingWorldScan.update(snapshot.nearScanPoints, version);
+
+      return version;
+   }
+
+   /**
+    * @return the changes from the base version to the last version taken by {@link #updateCells()}, or a keyframe if these changes
+    * are not known anymore.
+    */
+   PointCloudWorldDeltaPacket getPointCloudWorldDeltaPacket(long baseVersion)
+   {
+      if (!groundQuadTreeCells.hasChangesSince(baseVersion, version))
+         baseVersion = PointCloudWorldDeltaPacket.KEYFRAME;
+
+      PointCloudWorldDeltaPacket packet = new PointCloudWorldDeltaPacket();
+      packet.timestamp = timestamp;
+      packet.version = version;
+      packet.baseVersion = baseVersion;
+      packet.groundQuadTreeResolution = DepthDataFilterParameters.GRID_RESOLUTION;
+      if (packet.isKeyframe())
+      {
+         // The ids are rebuilt from the order of the cells, so a keyframe is not larger than a PointCloudWorldPacket
+         packet.groundQuadTreeCellIds = new long[0];
+         packet.groundQuadTreeSupport = groundQuadTreeCells.getKeyframeCellPoints();
+      }
+      else
+      {
+         packet.groundQuadTreeCellIds = groundQuadTreeCells.getCellIds(baseVersion);
+         packet.groundQuadTreeSupport = groundQuadTreeCells.getCellPoints(baseVersion);
+      }
+      packet.removedGroundQuadTreeCellIds = groundQuadTreeCells.getRemovedCellIds(baseVersion);
+      packet.decayingWorldScanFirstSequence = decayingWorldScan.getFirstSequence();
+      packet.decayingWorldScanAppendedSequence = decayingWorldScan.getAppendedSequence(baseVersion);
+      packet.decayingWorldScan = decayingWorldScan.getPoints(packet.decayingWorldScanAppendedSequence);
+      packet.defaultGroundHeight = defaultGroundHeight;
+      return packet;
+   }
+
+   private void sendDeltas(Snapshot snapshot)
+   {
+      updateCells(snapshot);
+
+      if (version % KEYFRAME_INTERVAL == 1)
+      {
+         PointCloudWorldDeltaPacket keyframe = getPointCloudWorldDeltaPacket(PointCloudWorldDeltaPacket.KEYFRAME);
+         keyframe.setDestination(packetDestination);
+         packetCommunicator.send(keyframe);
+         return;
+      }
+
+      // Subscribers at the same version share the same delta
+      HashMap<Long, PointCloudWorldDeltaPacket> deltas = new HashMap<>();
+      for (Map.Entry<PacketDestination, Subscriber> entry : subscribers.entrySet())
+      {
+         PacketDestination destination = entry.getKey();
+         Subscriber subscriber = entry.getValue();
+
+         if (subscriber.acknowledgedAtVersion < 0)
+            subscriber.acknowledgedAtVersion = version;
+
+         if (version - subscriber.acknowledgedAtVersion > SUBSCRIBER_TIMEOUT)
+         {
+            subscribers.remove(destination, subscriber);
+            continue;
+         }
+
+         if (packetDestination != PacketDestination.BROADCAST && packetDestination != destination)
+            continue;
+
+         PointCloudWorldDeltaPacket delta = deltas.get(subscriber.version);
+         if (delta == null)
+         {
+            delta = getPointCloudWorldDeltaPacket(subscriber.version);
+            deltas.put(subscriber.version, delta);
+         }
+
+         PointCloudWorldDeltaPacket packet = new PointCloudWorldDeltaPacket();
+         packet.timestamp = delta.timestamp;
+         packet.version = delta.version;
+         packet.baseVersion = delta.baseVersion;
+         packet.groundQuadTreeResolution = delta.groundQuadTreeResolution;
+         packet.groundQuadTreeCellIds = delta.groundQuadTreeCellIds;
+         packet.groundQuadTreeSupport = delta.groundQuadTreeSupport;
+         packet.removedGroundQuadTreeCellIds = delta.removedGroundQuadTreeCellIds;
+         packet.decayingWorldScanFirstSequence = delta.decayingWorldScanFirstSequence;
+         packet.decayingWorldScanAppendedSequence = delta.decayingWorldScanAppendedSequence;
+         packet.decayingWorldScan = delta.decayingWorldScan;
+         packet.defaultGroundHeight = delta.defaultGroundHeight;
+         packet.setDestination(destination);
+         packetCommunicator.send(packet);
+      }
+   }
+
    @Override
    public void run()
    {
       try
       {
-         PointCloudWorldPacket pointCloudWorldPacket = getPointCloudWorldPacket();
-         pointCloudWorldPacket.setDestination(packetDestination);
-         packetCommunicator.send(pointCloudWorldPacket);
+         Snapshot snapshot = takeSnapshot();
+
+         // The UI only reads the whole point cloud world, as do the behaviors until they acknowledge a version
+         ArrayList<PacketDestination> destinations = getPointCloudWorldPacketDestinations();
+         for (int i = 0; i < destinations.size(); i++)
+         {
+            PointCloudWorldPacket pointCloudWorldPacket = i == 0 ? snapshot.packet : copyPointCloudWorldPacket(snapshot.packet);
+            pointCloudWorldPacket.setDestination(destinations.get(i));
+            packetCommunicator.send(pointCloudWorldPacket);
+         }
+
+         if (publishDeltas)
+            sendDeltas(snapshot);
       }
       catch(Exception e)
       {
@@ -121,4 +320,39 @@ public class PointCloudWorldPacketGenerator implements Runnable
          throw new RuntimeException(e);
       }
    }
+
+   private static PointCloudWorldPacket copyPointCloudWorldPacket(PointCloudWorldPacket original)
+   {
+      // The arrays are not modified once sent, so the copies share them
+      PointCloudWorldPacket packet = new PointCloudWorldPacket();
+      packet.timestamp = original.timestamp;
+      packet.groundQuadTreeSupport = original.groundQuadTreeSupport;
+      packet.decayingWorldScan = original.decayingWorldScan;
+      packet.defaultGroundHeight = original.defaultGroundHeight;
+      return packet;
+   }
+
+   private static class Snapshot
+   {
+      private final PointCloudWorldPacket packet;
+      private final ArrayList<TimestampedPoint> nearScanPoints;
+
+      private Snapshot(PointCloudWorldPacket packet, ArrayList<TimestampedPoint> nearScanPoints)
+      {
+         this.packet = packet;
+         this.nearScanPoints = nearScanPoints;
+      }
+   }
+
+   private static class Subscriber
+   {
+      private final long version;
+      // Version of the generator when the acknowledgement was received, set on the next update
+      private long acknowledgedAtVersion = -1;
+
+      private Subscriber(long version)
+      {
+         this.version = version;
+      }
+   }
 }
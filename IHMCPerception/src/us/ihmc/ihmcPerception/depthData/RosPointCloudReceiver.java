@@ -7,10 +7,6 @@ import us.ihmc.tools.time.Timer;
 import us.ihmc.utilities.ros.RosMainNode;
 import us.ihmc.utilities.ros.subscriber.RosPointCloudSubscriber;
 
-import javax.vecmath.Point3d;
-import java.util.ArrayList;
-import java.util.Arrays;
-
 public class RosPointCloudReceiver extends RosPointCloudSubscriber
 {
    private final boolean DEBUG = false;
@@ -25,6 +21,7 @@ public class RosPointCloudReceiver extends RosPointCloudSubscriber
    private final PointCloudDataReceiverInterface pointCloudDataReceiver;
    private final ReferenceFrame sensorframe;
    private final PointCloudSource[] pointCloudSource;
+   private final PackedPointCloud packedPointCloud = new PackedPointCloud();
 
    public RosPointCloudReceiver(String rosTopic, RosMainNode rosMainNode, ReferenceFrame cloudFrame, ReferenceFrame sensorframe,
          PointCloudDataReceiverInterface pointCloudDataReceiver, PointCloudSource... pointCloudSource)
@@ -47,12 +44,8 @@ public class RosPointCloudReceiver extends RosPointCloudSubscriber
          timer.lap();
       }
 
-      UnpackedPointCloud pointCloudData = unpackPointsAndIntensities(pointCloud);
-		Point3d[] points = pointCloudData.getPoints();
-		ArrayList<Point3d> pointsAsArrayList = new ArrayList<Point3d>(Arrays.asList(points));
-	   long[] timestamps = new long[points.length];
-	   long time = pointCloud.getHeader().getStamp().totalNsecs();
-	   Arrays.fill(timestamps, time);
-		pointCloudDataReceiver.receivedPointCloudData(cloudFrame, sensorframe, timestamps, pointsAsArrayList, pointCloudSource);
+      unpackPoints(pointCloud, packedPointCloud);
+      long time = pointCloud.getHeader().getStamp().totalNsecs();
+      pointCloudDataReceiver.receivedPointCloudData(cloudFrame, sensorframe, time, packedPointCloud.getXYZBuffer(), pointCloudSource);
 	}
 }
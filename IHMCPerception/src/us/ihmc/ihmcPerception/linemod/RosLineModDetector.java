@@ -1,6 +1,5 @@
 package us.ihmc.ihmcPerception.linemod;
 
-import java.awt.Color;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.net.URI;
@@ -9,7 +8,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 
 import javax.swing.JFrame;
-import javax.vecmath.Point3d;
 
 import boofcv.gui.image.ImagePanel;
 import boofcv.gui.image.ShowImages;
@@ -46,11 +44,8 @@ public class RosLineModDetector extends LineModDetector
       setupRosSubscriber();
    }
 
-   private synchronized void onNewPointcloud(RosPointCloudSubscriber.UnpackedPointCloud unpackedPointCloud)
+   private synchronized void onNewPointcloud(OrganizedPointCloud organizedPointCloud)
    {
-
-      OrganizedPointCloud organizedPointCloud = new OrganizedPointCloud(unpackedPointCloud.getWidth(), unpackedPointCloud.getHeight(),
-            unpackedPointCloud.getXYZRGB());
       ArrayList<LineModDetection> detections = new ArrayList<>();
       LineModDetection bestDetection = detectObjectAndEstimatePose(organizedPointCloud, detections,false,false);
       System.out.println(bestDetection);
@@ -77,30 +72,37 @@ public class RosLineModDetector extends LineModDetector
    {
       rosPointCloudSubscriber = new RosPointCloudSubscriber()
       {
+         private final PackedPointCloud cloud = new PackedPointCloud();
+
          @Override
          public void onNewMessage(PointCloud2 pointCloud)
          {
-            UnpackedPointCloud cloud = unpackPointsAndIntensities(pointCloud);
+            unpackPoints(pointCloud, cloud);
             if (cloud.getWidth() > 1200)
             {
+               int width = cloud.getWidth() / 2;
+               int height = cloud.getHeight() / 2;
+               float[] xyz = cloud.getXYZ();
+               int[] rgb = cloud.getRGB();
+               float[] xyzrgb = new float[4 * width * height];
+
                int ptr = 0;
-               Point3d[] points = new Point3d[(cloud.getWidth() / 2) * (cloud.getHeight() / 2)];
-               Color[] pointColors = new Color[(cloud.getWidth() / 2) * (cloud.getHeight() / 2)];
-               for (int j = 0; j < cloud.getHeight(); j += 2)
-                  for (int i = 0; i < cloud.getWidth(); i += 2)
+               for (int j = 0; j < 2 * height; j += 2)
+                  for (int i = 0; i < 2 * width; i += 2)
                   {
-                     points[ptr] = cloud.getPoints()[j * cloud.getWidth() + i];
-                     pointColors[ptr] = cloud.getPointColors()[j * cloud.getWidth() + i];
-                     ptr++;
+                     int index = j * cloud.getWidth() + i;
+                     xyzrgb[ptr++] = xyz[3 * index];
+                     xyzrgb[ptr++] = xyz[3 * index + 1];
+                     xyzrgb[ptr++] = xyz[3 * index + 2];
+                     xyzrgb[ptr++] = Float.intBitsToFloat(rgb[index]);
                   }
 
-               UnpackedPointCloud scaledCloud = new UnpackedPointCloud(cloud.getWidth() / 2, cloud.getHeight() / 2, cloud.getPointType(), points, pointColors);
-               onNewPointcloud(scaledCloud);
+               onNewPointcloud(new OrganizedPointCloud(width, height, xyzrgb));
                return;
             }
             else
             {
-               onNewPointcloud(cloud);
+               onNewPointcloud(new OrganizedPointCloud(cloud.getWidth(), cloud.getHeight(), cloud.getXYZRGB(null)));
                return;
             }
          }
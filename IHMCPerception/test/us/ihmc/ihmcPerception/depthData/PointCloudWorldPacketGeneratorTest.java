@@ -1,12 +1,27 @@
 package us.ihmc.ihmcPerception.depthData;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
 import javax.vecmath.Point3d;
 
 import org.junit.Test;
 
+import us.ihmc.communication.packets.PacketDestination;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.DepthDataClearCommand.DepthDataTree;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.DepthDataFilterParameters;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldAcknowledgementPacket;
+import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldDeltaPacket;
 import us.ihmc.humanoidRobotics.communication.packets.sensing.PointCloudWorldPacket;
+import us.ihmc.humanoidRobotics.communication.subscribers.PointCloudWorldDeltaSubscriber;
+import us.ihmc.robotics.dataStructures.TimestampedPoint;
 import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
 
 public class PointCloudWorldPacketGeneratorTest
@@ -36,4 +51,250 @@ public class PointCloudWorldPacketGeneratorTest
 
    }
 
+	@DeployableTestMethod(estimatedDuration = 0.8)
+   @Test(timeout = 30000)
+   public void testDeltasRebuildPointCloudWorld()
+   {
+      DepthDataFilter depthDataFilter = new DepthDataFilter();
+      PointCloudWorldPacketGenerator generator = new PointCloudWorldPacketGenerator(depthDataFilter);
+      PointCloudWorldDeltaSubscriber subscriber = new PointCloudWorldDeltaSubscriber(PacketDestination.UI, null);
+      Point3d sensorOrigin = new Point3d(0, 0, 1.0);
+
+      addPoints(depthDataFilter, sensorOrigin, -2.0, 0.0);
+      long firstVersion = generator.updateCells();
+      PointCloudWorldDeltaPacket keyframe = generator.getPointCloudWorldDeltaPacket(subscriber.getVersion());
+      assertTrue(keyframe.isKeyframe());
+      assertTrue(subscriber.applyDelta(keyframe));
+      assertEquals(firstVersion, subscriber.createAcknowledgement().getVersion());
+      assertSamePoints(generator.getPointCloudWorldPacket(), subscriber.getPointCloudWorldPacket());
+
+      // Only the new cells are sent
+      addPoints(depthDataFilter, sensorOrigin, 0.0, 2.0);
+      long secondVersion = generator.updateCells();
+      PointCloudWorldDeltaPacket delta = generator.getPointCloudWorldDeltaPacket(firstVersion);
+      assertFalse(delta.isKeyframe());
+      assertTrue(delta.groundQuadTreeCellIds.length > 0);
+      assertTrue(delta.groundQuadTreeCellIds.length < generator.getPointCloudWorldPacket().groundQuadTreeSupport.length / 3);
+      assertTrue(subscriber.applyDelta(delta));
+      assertEquals(secondVersion, subscriber.getVersion());
+      assertSamePoints(generator.getPointCloudWorldPacket(), subscriber.getPointCloudWorldPacket());
+
+      // Nothing changed, nothing is sent
+      generator.updateCells();
+      delta = generator.getPointCloudWorldDeltaPacket(secondVersion);
+      assertEquals(0, delta.groundQuadTreeCellIds.length);
+      assertEquals(0, delta.decayingWorldScan.length);
+      assertTrue(subscriber.applyDelta(delta));
+
+      // Removed cells
+      depthDataFilter.clearLidarData(DepthDataTree.DECAY_POINT_CLOUD);
+      generator.updateCells();
+      delta = generator.getPointCloudWorldDeltaPacket(subscriber.getVersion());
+      assertTrue(delta.decayingWorldScanFirstSequence > 0);
+      assertEquals(0, delta.decayingWorldScan.length);
+      assertTrue(subscriber.applyDelta(delta));
+      assertEquals(0, subscriber.getDecayingWorldScan().length);
+      assertSamePoints(generator.getPointCloudWorldPacket(), subscriber.getPointCloudWorldPacket());
+
+      // A delta from another version is dropped
+      assertFalse(subscriber.applyDelta(generator.getPointCloudWorldDeltaPacket(firstVersion)));
+
+      // Too old to know the changes, a keyframe is sent instead
+      for (int i = 0; i <= PointCloudWorldPacketGenerator.KEYFRAME_INTERVAL; i++)
+      {
+         generator.updateCells();
+      }
+      assertTrue(generator.getPointCloudWorldDeltaPacket(secondVersion).isKeyframe());
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testKeyframeIsNotLargerThanPointCloudWorldPacket()
+   {
+      DepthDataFilter depthDataFilter = new DepthDataFilter();
+      PointCloudWorldPacketGenerator generator = new PointCloudWorldPacketGenerator(depthDataFilter);
+      addPoints(depthDataFilter, new Point3d(0, 0, 1.0), -2.0, 2.0);
+
+      generator.updateCells();
+      PointCloudWorldPacket pointCloudWorld = generator.getPointCloudWorldPacket();
+      PointCloudWorldDeltaPacket keyframe = generator.getPointCloudWorldDeltaPacket(PointCloudWorldDeltaPacket.KEYFRAME);
+
+      assertEquals(0, keyframe.groundQuadTreeCellIds.length);
+      assertEquals(0, keyframe.removedGroundQuadTreeCellIds.length);
+      assertEquals(pointCloudWorld.groundQuadTreeSupport.length, keyframe.groundQuadTreeSupport.length);
+      assertEquals(pointCloudWorld.decayingWorldScan.length, keyframe.decayingWorldScan.length);
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testPointCloudWorldOnlySentToUnacknowledgedDestinations()
+   {
+      PointCloudWorldPacketGenerator generator = new PointCloudWorldPacketGenerator(new DepthDataFilter());
+      generator.receivedAcknowledgement(new PointCloudWorldAcknowledgementPacket(PacketDestination.BEHAVIOR_MODULE, 3));
+
+      // Without deltas, everyone reads the whole point cloud world
+      assertEquals(Arrays.asList(PacketDestination.BROADCAST), generator.getPointCloudWorldPacketDestinations());
+
+      generator.setPublishDeltas(true);
+      assertEquals(Arrays.asList(PacketDestination.UI), generator.getPointCloudWorldPacketDestinations());
+
+      generator.receivedAcknowledgement(new PointCloudWorldAcknowledgementPacket(PacketDestination.UI, PointCloudWorldDeltaPacket.KEYFRAME));
+      assertTrue(generator.getPointCloudWorldPacketDestinations().isEmpty());
+   }
+
+	@DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testDeltasFollowFullDecayingWorldScan()
+   {
+      DepthDataFilterParameters parameters = DepthDataFilterParameters.getDefaultParameters();
+      parameters.nearScanCapacity = 3000;
+      DepthDataFilter depthDataFilter = new DepthDataFilter();
+      depthDataFilter.setParameters(parameters);
+      PointCloudWorldPacketGenerator generator = new PointCloudWorldPacketGenerator(depthDataFilter);
+      Point3d sensorOrigin = new Point3d(0, 0, 1.0);
+      Random random = new Random(1976L);
+
+      // One subscriber gets every delta, the other one only every third and starts late
+      PointCloudWorldDeltaSubscriber everyDelta = new PointCloudWorldDeltaSubscriber(PacketDestination.UI, null);
+      PointCloudWorldDeltaSubscriber someDeltas = new PointCloudWorldDeltaSubscriber(PacketDestination.BEHAVIOR_MODULE, null);
+
+      for (int i = 0; i < 3 * PointCloudWorldPacketGenerator.KEYFRAME_INTERVAL; i++)
+      {
+         // The oldest points of the scan are dropped as new ones come in
+         for (int j = 0; j < 1000; j++)
+         {
+            depthDataFilter.addPoint(new Point3d(4.0 * random.nextDouble() - 2.0, 4.0 * random.nextDouble() - 2.0, 0.1 * random.nextDouble()), sensorOrigin);
+         }
+         if (i == 17)
+            depthDataFilter.clearLidarData(DepthDataTree.DECAY_POINT_CLOUD);
+
+         generator.updateCells();
+         PointCloudWorldPacket expected = generator.getPointCloudWorldPacket();
+
+         assertTrue(everyDelta.applyDelta(generator.getPointCloudWorldDeltaPacket(everyDelta.getVersion())));
+         assertSamePoints(expected, everyDelta.getPointCloudWorldPacket());
+
+         if (i > 4 && i % 3 == 0)
+         {
+            assertTrue(someDeltas.applyDelta(generator.getPointCloudWorldDeltaPacket(someDeltas.getVersion())));
+            assertSamePoints(expected, someDeltas.getPointCloudWorldPacket());
+         }
+      }
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testKeyframeCellIdsWithManyPointsPerCell()
+   {
+      int historyLength = 5;
+      double resolution = 0.1;
+      PointCloudWorldCellTracker tracker = new PointCloudWorldCellTracker(historyLength);
+      DecayingWorldScanTracker scanTracker = new DecayingWorldScanTracker(historyLength);
+      Random random = new Random(42L);
+
+      PointCloudWorldDeltaSubscriber fromKeyframe = null;
+      PointCloudWorldDeltaSubscriber fromStart = new PointCloudWorldDeltaSubscriber(PacketDestination.UI, null);
+      float[] points = new float[0];
+
+      for (long version = 1; version <= 40; version++)
+      {
+         // A few cells with up to four points each, some of which move every version
+         float[] newPoints = new float[3 * (50 + random.nextInt(50))];
+         for (int i = 0; i < newPoints.length / 3; i++)
+         {
+            if (3 * i + 2 < points.length && random.nextInt(4) != 0)
+            {
+               System.arraycopy(points, 3 * i, newPoints, 3 * i, 3);
+               continue;
+            }
+            newPoints[3 * i] = (float) (random.nextInt(5) * resolution + 0.5 * resolution * random.nextDouble());
+            newPoints[3 * i + 1] = (float) (random.nextInt(5) * resolution + 0.5 * resolution * random.nextDouble());
+            newPoints[3 * i + 2] = random.nextFloat();
+         }
+         points = newPoints;
+         tracker.update(points, resolution, version);
+         scanTracker.update(new ArrayList<TimestampedPoint>(), version);
+
+         assertTrue(fromStart.applyDelta(createGroundDelta(tracker, scanTracker, resolution, fromStart.getVersion(), version)));
+         if (version % 10 == 3)
+         {
+            fromKeyframe = new PointCloudWorldDeltaSubscriber(PacketDestination.UI, null);
+            assertTrue(fromKeyframe.applyDelta(createGroundDelta(tracker, scanTracker, resolution, PointCloudWorldDeltaPacket.KEYFRAME, version)));
+         }
+         else if (fromKeyframe != null)
+         {
+            // The deltas after a keyframe use the ids rebuilt from it
+            assertTrue(fromKeyframe.applyDelta(createGroundDelta(tracker, scanTracker, resolution, fromKeyframe.getVersion(), version)));
+         }
+
+         assertArrayEquals(sortPoints(points), sortPoints(fromStart.getGroundQuadTreeSupport()), 0.0f);
+         if (fromKeyframe != null)
+            assertArrayEquals(sortPoints(points), sortPoints(fromKeyframe.getGroundQuadTreeSupport()), 0.0f);
+      }
+   }
+
+   private static PointCloudWorldDeltaPacket createGroundDelta(PointCloudWorldCellTracker tracker, DecayingWorldScanTracker scanTracker,
+         double resolution, long baseVersion, long version)
+   {
+      PointCloudWorldDeltaPacket packet = new PointCloudWorldDeltaPacket();
+      packet.version = version;
+      packet.baseVersion = baseVersion;
+      packet.groundQuadTreeResolution = resolution;
+      packet.groundQuadTreeCellIds = packet.isKeyframe() ? new long[0] : tracker.getCellIds(baseVersion);
+      packet.groundQuadTreeSupport = packet.isKeyframe() ? tracker.getKeyframeCellPoints() : tracker.getCellPoints(baseVersion);
+      packet.removedGroundQuadTreeCellIds = tracker.getRemovedCellIds(baseVersion);
+      packet.decayingWorldScanFirstSequence = scanTracker.getFirstSequence();
+      packet.decayingWorldScanAppendedSequence = scanTracker.getAppendedSequence(baseVersion);
+      packet.decayingWorldScan = scanTracker.getPoints(packet.decayingWorldScanAppendedSequence);
+      return packet;
+   }
+
+   private static void addPoints(DepthDataFilter depthDataFilter, Point3d sensorOrigin, double xMin, double xMax)
+   {
+      for (double x = xMin; x < xMax; x += 0.01)
+      {
+         for (double y = -2; y < 2; y += 0.01)
+         {
+            depthDataFilter.addPoint(new Point3d(x, y, Math.max(x + y, 0.0)), sensorOrigin);
+         }
+      }
+   }
+
+   private static void assertSamePoints(PointCloudWorldPacket expected, PointCloudWorldPacket actual)
+   {
+      assertArrayEquals(sortPoints(expected.groundQuadTreeSupport), sortPoints(actual.groundQuadTreeSupport), 0.0f);
+      assertArrayEquals(sortPoints(expected.decayingWorldScan), sortPoints(actual.decayingWorldScan), 0.0f);
+      assertEquals(expected.defaultGroundHeight, actual.defaultGroundHeight, 0.0f);
+   }
+
+   private static float[] sortPoints(float[] points)
+   {
+      float[][] sortedPoints = new float[points.length / 3][];
+      for (int i = 0; i < sortedPoints.length; i++)
+      {
+         sortedPoints[i] = Arrays.copyOfRange(points, 3 * i, 3 * i + 3);
+      }
+
+      Arrays.sort(sortedPoints, new Comparator<float[]>()
+      {
+         @Override
+         public int compare(float[] point1, float[] point2)
+         {
+            for (int i = 0; i < 3; i++)
+            {
+               int comparison = Float.compare(point1[i], point2[i]);
+               if (comparison != 0)
+                  return comparison;
+            }
+            return 0;
+         }
+      });
+
+      float[] sorted = new float[points.length];
+      for (int i = 0; i < sortedPoints.length; i++)
+      {
+         System.arraycopy(sortedPoints[i], 0, sorted, 3 * i, 3);
+      }
+      return sorted;
+   }
 }
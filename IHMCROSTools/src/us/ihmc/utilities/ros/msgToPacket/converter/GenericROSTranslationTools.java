@@ -18,6 +18,7 @@ import us.ihmc.tools.io.printing.PrintTools;
 import javax.vecmath.*;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class GenericROSTranslationTools
 {
@@ -31,6 +32,10 @@ public class GenericROSTranslationTools
 
    private static final HashMap<Class<?>, String> javaClassToRosMessageTypeMap = new HashMap<>();
 
+   /* Translators are built on the first message of each type, they hold no state so any thread can use them */
+   private static final ConcurrentHashMap<Class<?>, IHMCMessageToRosMessageTranslator> ihmcToRosTranslators = new ConcurrentHashMap<>();
+   private static final ConcurrentHashMap<String, RosMessageToIHMCMessageTranslator> rosToIHMCTranslators = new ConcurrentHashMap<>();
+
    /* Initialize the class to message type map */
    static
    {
@@ -85,153 +90,31 @@ public class GenericROSTranslationTools
          throws IllegalAccessException, ClassNotFoundException, NoSuchMethodException, InvocationTargetException
    {
       Class<? extends Packet> ihmcMessageClass = ihmcMessage.getClass();
-      String rosMessageClassNameFromIHMCMessage = getRosMessageClassNameFromIHMCMessage(ihmcMessageClass.getSimpleName());
-      RosMessagePacket rosAnnotation = ihmcMessageClass.getAnnotation(RosMessagePacket.class);
-
-      Message message = messageFactory.newFromType(rosAnnotation.rosPackage() + "/" + rosMessageClassNameFromIHMCMessage);
+      IHMCMessageToRosMessageTranslator translator = ihmcToRosTranslators.get(ihmcMessageClass);
 
-      ArrayList<Field> fields = new ArrayList<>();
-      for (Field field : ihmcMessageClass.getFields())
+      if (translator == null)
       {
-         if (field.isAnnotationPresent(RosExportedField.class))
-         {
-            fields.add(field);
-         }
+         translator = IHMCMessageToRosMessageTranslator.create(messageFactory, ihmcMessageClass);
+         ihmcToRosTranslators.put(ihmcMessageClass, translator);
       }
 
-      convertIHMCMessageFieldsToROSFields(ihmcMessage, message, fields);
-
-      return message;
+      return translator.translate(ihmcMessage);
    }
 
-   @SuppressWarnings("unchecked")
    public static Packet<?> convertRosMessageToIHMCMessage(Message rosMessage)
          throws ClassNotFoundException, NoSuchFieldException, IllegalAccessException, InstantiationException, InvocationTargetException,
          RosEnumConversionException
    {
-      Set<Class<?>> typesAnnotatedWith = getAllRosMessagePacketAnnotatedClasses();
       String fullRosTypeName = rosMessage.toRawMessage().getType();
-      String rosMessageName = fullRosTypeName.split("/")[1];
-      Class<?> rosMessageClass = Class.forName(fullRosTypeName.replace("/", "."));
-
-      Class<? extends Packet> ihmcMessageClass = getIHMCMessageClassForROSMessage(typesAnnotatedWith, rosMessageName);
+      RosMessageToIHMCMessageTranslator translator = rosToIHMCTranslators.get(fullRosTypeName);
 
-      Map<Method, Field> rosGetterToIHMCFieldMap = new HashMap<>();
-
-      for (Method getter : ReflectionUtils.getMethods(rosMessageClass, ReflectionUtils.withPrefix("get")))
+      if (translator == null)
       {
-         String fieldName = StringUtils.uncapitalize(getter.getName().replace("get", ""));
-         try
-         {
-            Field field = ihmcMessageClass.getField(fieldName);
-            rosGetterToIHMCFieldMap.put(getter, field);
-         }
-         catch(NoSuchFieldException e)
-         {
-            System.out.println("Couldn't find field " + fieldName + " for class " + ihmcMessageClass.getSimpleName());
-         }
+         translator = RosMessageToIHMCMessageTranslator.create(fullRosTypeName, getAllRosMessagePacketAnnotatedClasses());
+         rosToIHMCTranslators.put(fullRosTypeName, translator);
       }
 
-      if(!rosGetterToIHMCFieldMap.isEmpty())
-      {
-         Packet<?> ihmcMessage = ihmcMessageClass.newInstance();
-         for (Map.Entry<Method, Field> methodFieldEntry : rosGetterToIHMCFieldMap.entrySet())
-         {
-            Method rosGetter = methodFieldEntry.getKey();
-            Field ihmcField = methodFieldEntry.getValue();
-
-            Class<?> ihmcMessageFieldType = ihmcField.getType();
-            if(List.class.isAssignableFrom(rosGetter.getReturnType()) && ihmcMessageFieldType.isArray())
-            {
-               setArrayFromList(rosMessage, ihmcMessage, rosGetter, ihmcField, ihmcMessageFieldType);
-            }
-            else if(ihmcMessageFieldType.isEnum())
-            {
-               setEnumFromByte(rosMessage, ihmcMessage, rosGetter, ihmcField, (Class<? extends Enum>) ihmcMessageFieldType);
-            }
-            else if(ihmcMessageFieldType.getCanonicalName().contains("javax.vecmath"))
-            {
-               setVecmathFieldFromRosGeometryMessage(rosMessage, ihmcMessage, rosGetter, ihmcField, ihmcMessageFieldType);
-            }
-            else
-            {
-               ihmcField.set(ihmcMessage, rosGetter.invoke(rosMessage));
-            }
-         }
-
-         return ihmcMessage;
-      }
-
-      return null;
-   }
-
-   private static void setVecmathFieldFromRosGeometryMessage(Message rosMessage, Packet<?> ihmcMessage, Method rosGetter, Field ihmcField,
-         Class<?> ihmcMessageFieldType) throws IllegalAccessException, InvocationTargetException, InstantiationException
-   {
-      if(ihmcMessageFieldType.equals(Point2d.class))
-      {
-         Point2d point2d = convertPoint2DRos((Point2dRosMessage) rosGetter.invoke(rosMessage));
-         ihmcField.set(ihmcMessage, point2d);
-      }
-      else
-      {
-         if(rosGetter.getReturnType().equals(Quaternion.class))
-         {
-            Tuple4d newTuple = (Tuple4d) ihmcField.getType().newInstance();
-            newTuple.set(convertQuaternion((Quaternion) rosGetter.invoke(rosMessage)));
-            ihmcField.set(ihmcMessage, newTuple);
-         }
-         else if(rosGetter.getReturnType().equals(Vector3.class))
-         {
-            Tuple3d newTuple = (Tuple3d) ihmcField.getType().newInstance();
-            newTuple.set(convertVector3((Vector3) rosGetter.invoke(rosMessage)));
-            ihmcField.set(ihmcMessage, newTuple);
-         }
-      }
-   }
-
-   private static void setEnumFromByte(Message rosMessage, Packet<?> ihmcMessage, Method rosGetter, Field ihmcField, Class<? extends Enum> fieldType)
-         throws IllegalAccessException, InvocationTargetException, RosEnumConversionException
-   {
-      Class<? extends Enum> enumClass = fieldType;
-      byte ordinal = (byte) rosGetter.invoke(rosMessage);
-
-      Enum[] enumConstants = enumClass.getEnumConstants();
-      if(ordinal >= enumConstants.length)
-      {
-         throw new RosEnumConversionException(enumClass, ordinal, "");
-      }
-      else
-      {
-         ihmcField.set(ihmcMessage, enumConstants[ordinal]);
-      }
-   }
-
-   private static void setArrayFromList(Message rosMessage, Packet<?> ihmcMessage, Method rosGetter, Field ihmcField, Class<?> fieldType)
-         throws IllegalAccessException, InvocationTargetException, ClassNotFoundException, InstantiationException, RosEnumConversionException,
-         NoSuchFieldException
-   {
-      List rosValues = (List) rosGetter.invoke(rosMessage);
-
-      Class<?> componentType = fieldType.getComponentType();
-      Object ihmcArray = Array.newInstance(componentType, rosValues.size());
-
-      int i = 0;
-      for(Object value : rosValues)
-      {
-         if(value instanceof Message)
-         {
-            Array.set(ihmcArray, i, convertRosMessageToIHMCMessage((Message) value));
-         }
-         else
-         {
-            Array.set(ihmcArray, i, value);
-         }
-
-         i++;
-      }
-
-      ihmcField.set(ihmcMessage, ihmcArray);
+      return translator.translate(rosMessage);
    }
 
    public static Class<? extends Packet> getIHMCMessageClassForROSMessage(Set<Class<?>> typesAnnotatedWith, String rosMessageName)
@@ -356,158 +239,7 @@ public class GenericROSTranslationTools
       return inputTopicsForPackage;
    }
 
-   private static void convertIHMCMessageFieldsToROSFields(Packet<?> ihmcMessage, Message message, ArrayList<Field> fields)
-         throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, ClassNotFoundException
-   {
-      for (Field field : fields)
-      {
-         if (field.getType().getCanonicalName().contains("javax.vecmath"))
-         {
-            convertVecmathField(ihmcMessage, message, field);
-         }
-         else if (field.getType().isArray() && !field.getType().getComponentType().isPrimitive())
-         {
-            setListFromArray(ihmcMessage, message, field);
-         }
-         else if (Enum.class.isAssignableFrom(field.getType()))
-         {
-            setByteFromEnum(ihmcMessage, message, field);
-         }
-         else
-         {
-            setField(message, field, field.get(ihmcMessage));
-         }
-      }
-   }
-
-   private static void convertVecmathField(Packet<?> ihmcMessage, Message message, Field field)
-         throws IllegalAccessException, NoSuchMethodException, InvocationTargetException, ClassNotFoundException
-   {
-      if (field.getType().equals(Point2d.class))
-      {
-         Point2d point = (Point2d) field.get(ihmcMessage);
-         setPoint2dField(message, field, point);
-      }
-      else
-      {
-         Object vecmathObject = field.get(ihmcMessage);
-         setVecmathField(message, field, vecmathObject);
-      }
-   }
-
-   private static void setPoint2dField(Message message, Field field, Point2d value)
-         throws NoSuchMethodException, InvocationTargetException, IllegalAccessException
-   {
-      String setterName = getRosGetterNameForField(field);
-      Method setterMethod = message.getClass().getMethod(setterName, Point2dRosMessage.class);
-      setterMethod.setAccessible(true);
-
-      setterMethod.invoke(message, convertPoint2d(value));
-   }
-
-   private static void setVecmathField(Message message, Field field, Object value)
-         throws ClassNotFoundException, NoSuchMethodException, InvocationTargetException, IllegalAccessException
-   {
-      String setterName = getRosSetterNameForField(field);
-      String rosTypeForJavaType = getRosTypeForJavaType(field, field.getType());
-
-      assert rosTypeForJavaType != null;
-      Method setterMethod = message.getClass().getMethod(setterName, Class.forName(rosTypeForJavaType.replace("/", ".")));
-      setterMethod.setAccessible(true);
-
-      Class<?> vecmathClass = field.getType();
-      Class<?> genericVecmathClass = Class.forName(vecmathClass.getGenericSuperclass().getTypeName());
-      String genericVecmathClassName = genericVecmathClass.getSimpleName();
-      Method converterMethod = GenericROSTranslationTools.class.getMethod("convert" + genericVecmathClassName, genericVecmathClass);
-      converterMethod.setAccessible(true);
-
-      setterMethod.invoke(message, converterMethod.invoke(null, value));
-   }
-
-   private static void setField(Message message, Field field, Object value) throws NoSuchMethodException, InvocationTargetException, IllegalAccessException
-   {
-      Method rosSetterForField = getRosSetterForField(message.getClass(), field);
-      rosSetterForField.invoke(message, value);
-   }
-
-   private static void setByteFromEnum(Packet<?> ihmcMessage, Message message, Field field)
-         throws NoSuchMethodException, InvocationTargetException, IllegalAccessException
-   {
-      Method rosSetterForField = getRosSetterForField(message.getClass(), field);
-      Enum enumField = (Enum) field.get(ihmcMessage);
-      if(enumField != null)
-      {
-         rosSetterForField.invoke(message, (byte) enumField.ordinal());
-      }
-   }
-
-   private static void setListFromArray(Packet<?> ihmcMessage, Message message, Field field)
-         throws NoSuchMethodException, InvocationTargetException, IllegalAccessException
-   {
-      Object[] fieldAsArray = (Object[]) field.get(ihmcMessage);
-
-      String setterMethodName = getRosSetterNameForField(field);
-      Method listSetterMethod;
-
-      if(field.getType().isArray() && field.getType().getComponentType().isPrimitive())
-      {
-         listSetterMethod = message.getClass().getMethod(setterMethodName, field.getType());
-         listSetterMethod.setAccessible(true);
-         if (fieldAsArray == null)
-         {
-            listSetterMethod.invoke(message, Array.newInstance(field.getType().getComponentType(), 0));
-         }
-         else
-         {
-            listSetterMethod.invoke(message, fieldAsArray);
-         }
-      }
-      else
-      {
-         List<Object> objects;
-
-         if (fieldAsArray == null)
-         {
-            objects = new ArrayList<>();
-         }
-         else
-         {
-            objects = Arrays.asList(fieldAsArray);
-         }
-
-         listSetterMethod = message.getClass().getMethod(setterMethodName, List.class);
-         listSetterMethod.setAccessible(true);
-         listSetterMethod.invoke(message, objects);
-      }
-
-   }
-
-   private static Method getRosGetterForField(Class<? extends Message> rosMessageClass, Field field) throws NoSuchMethodException
-   {
-      String methodName = getRosGetterNameForField(field);
-      Method method = rosMessageClass.getMethod(methodName);
-      method.setAccessible(true);
-
-      return method;
-   }
-
-   private static Method getRosSetterForField(Class<? extends Message> rosMessageClass, Field field) throws NoSuchMethodException
-   {
-      String methodName = getRosSetterNameForField(field);
-      Class<?> type = field.getType().isEnum() ? byte.class : field.getType();
-
-      Method method = rosMessageClass.getMethod(methodName, type);
-      method.setAccessible(true);
-
-      return method;
-   }
-
-   private static String getRosGetterNameForField(Field field)
-   {
-      return "get" + StringUtils.capitalize(field.getName());
-   }
-
-   private static String getRosSetterNameForField(Field field)
+   static String getRosSetterNameForField(Field field)
    {
       return "set" + StringUtils.capitalize(field.getName());
    }
@@ -0,0 +1,221 @@
+package us.ihmc.utilities.ros.msgToPacket.converter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.vecmath.Point2d;
+
+import ihmc_msgs.Point2dRosMessage;
+import org.ros.internal.message.Message;
+import org.ros.message.MessageFactory;
+import us.ihmc.communication.packets.Packet;
+import us.ihmc.communication.ros.generators.RosExportedField;
+import us.ihmc.communication.ros.generators.RosMessagePacket;
+
+/**
+ * Converts one IHMC message class to its ROS message. All the fields, setters and converters are looked up once when the
+ * translator is created and bound into method handles, so converting a message does no reflective lookup.
+ */
+class IHMCMessageToRosMessageTranslator
+{
+   private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+   private static final MethodType copyType = MethodType.methodType(void.class, Object.class, Object.class);
+
+   private final MessageFactory messageFactory;
+   private final String rosMessageType;
+   private final FieldTranslator[] fieldTranslators;
+
+   private IHMCMessageToRosMessageTranslator(MessageFactory messageFactory, String rosMessageType, FieldTranslator[] fieldTranslators)
+   {
+      this.messageFactory = messageFactory;
+      this.rosMessageType = rosMessageType;
+      this.fieldTranslators = fieldTranslators;
+   }
+
+   static IHMCMessageToRosMessageTranslator create(MessageFactory messageFactory, Class<?> ihmcMessageClass)
+         throws NoSuchMethodException, IllegalAccessException, ClassNotFoundException
+   {
+      String rosMessageClassName = GenericROSTranslationTools.getRosMessageClassNameFromIHMCMessage(ihmcMessageClass.getSimpleName());
+      RosMessagePacket rosAnnotation = ihmcMessageClass.getAnnotation(RosMessagePacket.class);
+      String rosMessageType = rosAnnotation.rosPackage() + "/" + rosMessageClassName;
+
+      // The setters are looked up on the class the factory creates, as the message itself is only an interface
+      Message prototype = messageFactory.newFromType(rosMessageType);
+      Class<?> rosMessageClass = prototype.getClass();
+
+      ArrayList<FieldTranslator> fieldTranslators = new ArrayList<>();
+      for (Field field : ihmcMessageClass.getFields())
+      {
+         if (field.isAnnotationPresent(RosExportedField.class))
+         {
+            fieldTranslators.add(createFieldTranslator(rosMessageClass, field));
+         }
+      }
+
+      return new IHMCMessageToRosMessageTranslator(messageFactory, rosMessageType, fieldTranslators.toArray(new FieldTranslator[fieldTranslators.size()]));
+   }
+
+   private static FieldTranslator createFieldTranslator(Class<?> rosMessageClass, Field field)
+         throws NoSuchMethodException, IllegalAccessException, ClassNotFoundException
+   {
+      Class<?> fieldType = field.getType();
+      String setterName = GenericROSTranslationTools.getRosSetterNameForField(field);
+      MethodHandle getter = lookup.unreflectGetter(field);
+
+      if (fieldType.getCanonicalName().contains("javax.vecmath"))
+      {
+         if (fieldType.equals(Point2d.class))
+         {
+            MethodHandle setter = findSetter(rosMessageClass, setterName, Point2dRosMessage.class);
+            MethodHandle converter = lookup.findStatic(GenericROSTranslationTools.class, "convertPoint2d",
+                  MethodType.methodType(Point2dRosMessage.class, Point2d.class));
+            return new CopyTranslator(getter, converter, setter);
+         }
+         else
+         {
+            String rosTypeForJavaType = GenericROSTranslationTools.getRosTypeForJavaType(field, fieldType);
+            MethodHandle setter = findSetter(rosMessageClass, setterName, Class.forName(rosTypeForJavaType.replace("/", ".")));
+
+            // Point3d and Vector3d both go through convertTuple3d, and so on
+            Class<?> genericVecmathClass = fieldType.getSuperclass();
+            Method converterMethod = GenericROSTranslationTools.class.getMethod("convert" + genericVecmathClass.getSimpleName(), genericVecmathClass);
+            return new CopyTranslator(getter, lookup.unreflect(converterMethod), setter);
+         }
+      }
+      else if (fieldType.isArray() && !fieldType.getComponentType().isPrimitive())
+      {
+         return new ListFromArrayTranslator(getter, findSetter(rosMessageClass, setterName, List.class));
+      }
+      else if (Enum.class.isAssignableFrom(fieldType))
+      {
+         return new ByteFromEnumTranslator(getter, findSetter(rosMessageClass, setterName, byte.class));
+      }
+      else
+      {
+         return new CopyTranslator(getter, null, findSetter(rosMessageClass, setterName, fieldType));
+      }
+   }
+
+   private static MethodHandle findSetter(Class<?> rosMessageClass, String setterName, Class<?> parameterType)
+         throws NoSuchMethodException, IllegalAccessException
+   {
+      Method setter = rosMessageClass.getMethod(setterName, parameterType);
+      setter.setAccessible(true);
+
+      return lookup.unreflect(setter);
+   }
+
+   Message translate(Packet<?> ihmcMessage) throws InvocationTargetException
+   {
+      Message message = messageFactory.newFromType(rosMessageType);
+
+      for (FieldTranslator fieldTranslator : fieldTranslators)
+      {
+         fieldTranslator.translate(ihmcMessage, message);
+      }
+
+      return message;
+   }
+
+   private static abstract class FieldTranslator
+   {
+      abstract void translate(Object ihmcMessage, Object rosMessage) throws InvocationTargetException;
+   }
+
+   /**
+    * Calls the setter of the ROS message with the field of the IHMC message, optionally through a converter, all bound in
+    * a single method handle so that primitives are not boxed.
+    */
+   private static class CopyTranslator extends FieldTranslator
+   {
+      private final MethodHandle copy;
+
+      CopyTranslator(MethodHandle getter, MethodHandle converter, MethodHandle setter)
+      {
+         if (converter != null)
+         {
+            converter = converter.asType(converter.type().changeParameterType(0, getter.type().returnType()));
+            getter = MethodHandles.filterReturnValue(getter, converter);
+         }
+
+         getter = getter.asType(getter.type().changeReturnType(setter.type().parameterType(1)));
+         copy = MethodHandles.filterArguments(setter, 1, getter).asType(copyType);
+      }
+
+      @Override
+      void translate(Object ihmcMessage, Object rosMessage) throws InvocationTargetException
+      {
+         try
+         {
+            copy.invokeExact(rosMessage, ihmcMessage);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+
+   private static class ListFromArrayTranslator extends FieldTranslator
+   {
+      private final MethodHandle getter;
+      private final MethodHandle setter;
+
+      ListFromArrayTranslator(MethodHandle getter, MethodHandle setter)
+      {
+         this.getter = getter.asType(MethodType.methodType(Object[].class, Object.class));
+         this.setter = setter.asType(MethodType.methodType(void.class, Object.class, List.class));
+      }
+
+      @Override
+      void translate(Object ihmcMessage, Object rosMessage) throws InvocationTargetException
+      {
+         try
+         {
+            Object[] fieldAsArray = (Object[]) getter.invokeExact(ihmcMessage);
+            List<Object> objects = fieldAsArray == null ? new ArrayList<Object>() : Arrays.asList(fieldAsArray);
+            setter.invokeExact(rosMessage, objects);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+
+   private static class ByteFromEnumTranslator extends FieldTranslator
+   {
+      private final MethodHandle getter;
+      private final MethodHandle setter;
+
+      ByteFromEnumTranslator(MethodHandle getter, MethodHandle setter)
+      {
+         this.getter = getter.asType(MethodType.methodType(Enum.class, Object.class));
+         this.setter = setter.asType(MethodType.methodType(void.class, Object.class, byte.class));
+      }
+
+      @Override
+      void translate(Object ihmcMessage, Object rosMessage) throws InvocationTargetException
+      {
+         try
+         {
+            Enum<?> enumField = (Enum<?>) getter.invokeExact(ihmcMessage);
+            if (enumField != null)
+            {
+               setter.invokeExact(rosMessage, (byte) enumField.ordinal());
+            }
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+}
@@ -0,0 +1,360 @@
+package us.ihmc.utilities.ros.msgToPacket.converter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.vecmath.Point2d;
+import javax.vecmath.Tuple3d;
+import javax.vecmath.Tuple4d;
+
+import geometry_msgs.Quaternion;
+import geometry_msgs.Vector3;
+import ihmc_msgs.Point2dRosMessage;
+import org.apache.commons.lang3.StringUtils;
+import org.reflections.ReflectionUtils;
+import org.ros.internal.message.Message;
+import us.ihmc.communication.packets.Packet;
+
+/**
+ * Converts one ROS message type to its IHMC message. The getters of the ROS message are matched with the fields of the IHMC
+ * message once when the translator is created and bound into method handles, so converting a message does no reflective
+ * lookup.
+ */
+class RosMessageToIHMCMessageTranslator
+{
+   private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+   private static final MethodType copyType = MethodType.methodType(void.class, Object.class, Object.class);
+
+   private final MethodHandle ihmcMessageConstructor;
+   private final FieldTranslator[] fieldTranslators;
+
+   private RosMessageToIHMCMessageTranslator(MethodHandle ihmcMessageConstructor, FieldTranslator[] fieldTranslators)
+   {
+      this.ihmcMessageConstructor = ihmcMessageConstructor;
+      this.fieldTranslators = fieldTranslators;
+   }
+
+   static RosMessageToIHMCMessageTranslator create(String fullRosTypeName, Set<Class<?>> typesAnnotatedWith)
+         throws ClassNotFoundException, IllegalAccessException, InstantiationException
+   {
+      String rosMessageName = fullRosTypeName.split("/")[1];
+      Class<?> rosMessageClass = Class.forName(fullRosTypeName.replace("/", "."));
+
+      Class<? extends Packet> ihmcMessageClass = GenericROSTranslationTools.getIHMCMessageClassForROSMessage(typesAnnotatedWith, rosMessageName);
+      if (ihmcMessageClass == null)
+         throw new ClassNotFoundException("No IHMC message corresponds to " + fullRosTypeName);
+
+      ArrayList<FieldTranslator> fieldTranslators = new ArrayList<>();
+      boolean hasMatchingFields = false;
+      for (Method getter : ReflectionUtils.getMethods(rosMessageClass, ReflectionUtils.withPrefix("get")))
+      {
+         String fieldName = StringUtils.uncapitalize(getter.getName().replace("get", ""));
+         Field field;
+         try
+         {
+            field = ihmcMessageClass.getField(fieldName);
+         }
+         catch (NoSuchFieldException e)
+         {
+            System.out.println("Couldn't find field " + fieldName + " for class " + ihmcMessageClass.getSimpleName());
+            continue;
+         }
+
+         hasMatchingFields = true;
+         FieldTranslator fieldTranslator = createFieldTranslator(getter, field);
+         if (fieldTranslator != null)
+            fieldTranslators.add(fieldTranslator);
+         else
+            System.out.println("Cannot convert " + getter.getReturnType().getSimpleName() + " to field " + fieldName + " of class " + ihmcMessageClass.getSimpleName());
+      }
+
+      if (!hasMatchingFields)
+         return new RosMessageToIHMCMessageTranslator(null, new FieldTranslator[0]);
+
+      MethodHandle ihmcMessageConstructor;
+      try
+      {
+         ihmcMessageConstructor = lookup.findConstructor(ihmcMessageClass, MethodType.methodType(void.class)).asType(MethodType.methodType(Object.class));
+      }
+      catch (NoSuchMethodException e)
+      {
+         throw new InstantiationException(ihmcMessageClass.getName() + " has no public empty constructor");
+      }
+
+      return new RosMessageToIHMCMessageTranslator(ihmcMessageConstructor, fieldTranslators.toArray(new FieldTranslator[fieldTranslators.size()]));
+   }
+
+   @SuppressWarnings("unchecked")
+   private static FieldTranslator createFieldTranslator(Method rosGetter, Field ihmcField) throws IllegalAccessException
+   {
+      Class<?> ihmcMessageFieldType = ihmcField.getType();
+      MethodHandle getter = lookup.unreflect(rosGetter);
+      MethodHandle setter = lookup.unreflectSetter(ihmcField);
+
+      if (List.class.isAssignableFrom(rosGetter.getReturnType()) && ihmcMessageFieldType.isArray())
+      {
+         return new ArrayFromListTranslator(getter, setter, ihmcMessageFieldType.getComponentType());
+      }
+      else if (ihmcMessageFieldType.isEnum())
+      {
+         return new EnumFromByteTranslator(getter, setter, (Class<? extends Enum<?>>) ihmcMessageFieldType);
+      }
+      else if (ihmcMessageFieldType.getCanonicalName().contains("javax.vecmath"))
+      {
+         if (ihmcMessageFieldType.equals(Point2d.class))
+         {
+            try
+            {
+               MethodHandle converter = lookup.findStatic(GenericROSTranslationTools.class, "convertPoint2DRos",
+                     MethodType.methodType(Point2d.class, Point2dRosMessage.class));
+               return new CopyTranslator(MethodHandles.filterReturnValue(getter.asType(getter.type().changeReturnType(Point2dRosMessage.class)), converter),
+                     setter);
+            }
+            catch (NoSuchMethodException e)
+            {
+               throw new RuntimeException(e);
+            }
+         }
+         else if (rosGetter.getReturnType().equals(Quaternion.class) || rosGetter.getReturnType().equals(Vector3.class))
+         {
+            try
+            {
+               MethodHandle constructor = lookup.findConstructor(ihmcMessageFieldType, MethodType.methodType(void.class));
+               return new TupleTranslator(getter, setter, constructor, rosGetter.getReturnType().equals(Quaternion.class));
+            }
+            catch (NoSuchMethodException e)
+            {
+               throw new RuntimeException(e);
+            }
+         }
+         else
+         {
+            return null;
+         }
+      }
+      else
+      {
+         return new CopyTranslator(getter, setter);
+      }
+   }
+
+   /**
+    * @return the IHMC message, or null if none of the getters of the ROS message matches a field of the IHMC message.
+    */
+   Packet<?> translate(Message rosMessage)
+         throws ClassNotFoundException, NoSuchFieldException, IllegalAccessException, InstantiationException, InvocationTargetException,
+         RosEnumConversionException
+   {
+      if (ihmcMessageConstructor == null)
+         return null;
+
+      Packet<?> ihmcMessage;
+      try
+      {
+         ihmcMessage = (Packet<?>) (Object) ihmcMessageConstructor.invokeExact();
+      }
+      catch (Throwable e)
+      {
+         throw new InvocationTargetException(e);
+      }
+
+      for (FieldTranslator fieldTranslator : fieldTranslators)
+      {
+         fieldTranslator.translate(rosMessage, ihmcMessage);
+      }
+
+      return ihmcMessage;
+   }
+
+   private static abstract class FieldTranslator
+   {
+      abstract void translate(Object rosMessage, Object ihmcMessage)
+            throws ClassNotFoundException, NoSuchFieldException, IllegalAccessException, InstantiationException, InvocationTargetException,
+            RosEnumConversionException;
+   }
+
+   /**
+    * Sets the field of the IHMC message with the getter of the ROS message, both bound in a single method handle so that
+    * primitives are not boxed. Types that only convert at run time, like a narrowing of primitives, go through boxes.
+    */
+   private static class CopyTranslator extends FieldTranslator
+   {
+      private final MethodHandle copy;
+
+      CopyTranslator(MethodHandle getter, MethodHandle setter)
+      {
+         MethodHandle typedCopy;
+         try
+         {
+            getter = getter.asType(getter.type().changeReturnType(setter.type().parameterType(1)));
+            typedCopy = MethodHandles.filterArguments(setter, 1, getter);
+         }
+         catch (WrongMethodTypeException e)
+         {
+            getter = getter.asType(getter.type().changeReturnType(Object.class));
+            typedCopy = MethodHandles.filterArguments(setter.asType(setter.type().changeParameterType(1, Object.class)), 1, getter);
+         }
+
+         copy = typedCopy.asType(copyType);
+      }
+
+      @Override
+      void translate(Object rosMessage, Object ihmcMessage) throws InvocationTargetException
+      {
+         try
+         {
+            copy.invokeExact(ihmcMessage, rosMessage);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+
+   private static class ArrayFromListTranslator extends FieldTranslator
+   {
+      private final MethodHandle getter;
+      private final MethodHandle setter;
+      private final Class<?> componentType;
+
+      ArrayFromListTranslator(MethodHandle getter, MethodHandle setter, Class<?> componentType)
+      {
+         this.getter = getter.asType(MethodType.methodType(List.class, Object.class));
+         this.setter = setter.asType(copyType);
+         this.componentType = componentType;
+      }
+
+      @Override
+      void translate(Object rosMessage, Object ihmcMessage)
+            throws ClassNotFoundException, NoSuchFieldException, IllegalAccessException, InstantiationException, InvocationTargetException,
+            RosEnumConversionException
+      {
+         List<?> rosValues;
+         try
+         {
+            rosValues = (List<?>) getter.invokeExact(rosMessage);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+
+         Object ihmcArray = Array.newInstance(componentType, rosValues.size());
+
+         for (int i = 0; i < rosValues.size(); i++)
+         {
+            Object value = rosValues.get(i);
+            if (value instanceof Message)
+            {
+               Array.set(ihmcArray, i, GenericROSTranslationTools.convertRosMessageToIHMCMessage((Message) value));
+            }
+            else
+            {
+               Array.set(ihmcArray, i, value);
+            }
+         }
+
+         try
+         {
+            setter.invokeExact(ihmcMessage, ihmcArray);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+
+   private static class EnumFromByteTranslator extends FieldTranslator
+   {
+      private final MethodHandle getter;
+      private final MethodHandle setter;
+      private final Class<? extends Enum<?>> enumClass;
+      private final Enum<?>[] enumConstants;
+
+      EnumFromByteTranslator(MethodHandle getter, MethodHandle setter, Class<? extends Enum<?>> enumClass)
+      {
+         this.getter = getter.asType(MethodType.methodType(byte.class, Object.class));
+         this.setter = setter.asType(copyType);
+         this.enumClass = enumClass;
+         this.enumConstants = enumClass.getEnumConstants();
+      }
+
+      @Override
+      @SuppressWarnings("unchecked")
+      void translate(Object rosMessage, Object ihmcMessage) throws InvocationTargetException, RosEnumConversionException
+      {
+         byte ordinal;
+         try
+         {
+            ordinal = (byte) getter.invokeExact(rosMessage);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+
+         if (ordinal >= enumConstants.length)
+            throw new RosEnumConversionException((Class<? extends Enum>) enumClass, ordinal, "");
+
+         try
+         {
+            setter.invokeExact(ihmcMessage, (Object) enumConstants[ordinal]);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+
+   /**
+    * Quaternions and vectors are converted into a new instance of the exact vecmath type of the field.
+    */
+   private static class TupleTranslator extends FieldTranslator
+   {
+      private final MethodHandle getter;
+      private final MethodHandle setter;
+      private final MethodHandle constructor;
+      private final boolean isQuaternion;
+
+      TupleTranslator(MethodHandle getter, MethodHandle setter, MethodHandle constructor, boolean isQuaternion)
+      {
+         this.getter = getter.asType(MethodType.methodType(Object.class, Object.class));
+         this.setter = setter.asType(copyType);
+         this.constructor = constructor.asType(MethodType.methodType(Object.class));
+         this.isQuaternion = isQuaternion;
+      }
+
+      @Override
+      void translate(Object rosMessage, Object ihmcMessage) throws InvocationTargetException
+      {
+         try
+         {
+            Object rosValue = getter.invokeExact(rosMessage);
+            Object newTuple = constructor.invokeExact();
+
+            if (isQuaternion)
+               ((Tuple4d) newTuple).set(GenericROSTranslationTools.convertQuaternion((Quaternion) rosValue));
+            else
+               ((Tuple3d) newTuple).set(GenericROSTranslationTools.convertVector3((Vector3) rosValue));
+
+            setter.invokeExact(ihmcMessage, newTuple);
+         }
+         catch (Throwable e)
+         {
+            throw new InvocationTargetException(e);
+         }
+      }
+   }
+}
@@ -3,15 +3,22 @@ package us.ihmc.utilities.ros.subscriber;
 import java.awt.Color;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.vecmath.Point3d;
 
 import sensor_msgs.PointCloud2;
+import sensor_msgs.PointField;
 import us.ihmc.utilities.ros.types.PointType;
 
 public abstract class RosPointCloudSubscriber extends AbstractRosTopicSubscriber<PointCloud2>
 {
    private boolean DEBUG = false;
+   private static final int OPAQUE = 0xff000000;
+
+   private PointCloudLayout layout = null;
 
    public RosPointCloudSubscriber()
    {
@@ -120,83 +127,278 @@ public abstract class RosPointCloudSubscriber extends AbstractRosTopicSubscriber
       }
    }
 
-   protected UnpackedPointCloud unpackPointsAndIntensities(PointCloud2 pointCloud)
+   /**
+    * Point cloud stored as flat arrays: x, y, z of each point one after the other, and one intensity or rgb value per point. Only the
+    * first {@link #getNumberOfPoints()} entries are valid, the arrays may be longer.
+    */
+   public static class PackedPointCloud
    {
+      private float[] xyz = new float[0];
+      private float[] intensities = new float[0];
+      private int[] rgb = new int[0];
+      private PointType pointType = null;
+      private int width;
+      private int height;
+
+      private void setSize(int width, int height, PointType pointType)
+      {
+         this.width = width;
+         this.height = height;
+         this.pointType = pointType;
+
+         int numberOfPoints = width * height;
+         if (xyz.length < 3 * numberOfPoints)
+            xyz = new float[3 * numberOfPoints];
+         if (pointType == PointType.XYZI && intensities.length < numberOfPoints)
+            intensities = new float[numberOfPoints];
+         if (pointType == PointType.XYZRGB && rgb.length < numberOfPoints)
+            rgb = new int[numberOfPoints];
+      }
 
-      UnpackedPointCloud packet = new UnpackedPointCloud();
-      int numberOfPoints = pointCloud.getWidth() * pointCloud.getHeight();
-      packet.points = new Point3d[numberOfPoints];
-      packet.pointType = PointType.fromFromFieldNames(pointCloud.getFields());
-      packet.width = pointCloud.getWidth();
-      packet.height = pointCloud.getHeight();
+      public int getWidth()
+      {
+         return width;
+      }
 
-      switch (packet.pointType)
+      public int getHeight()
       {
-      case XYZI:
-         packet.intensities = new float[numberOfPoints];
+         return height;
+      }
 
-         break;
+      public int getNumberOfPoints()
+      {
+         return width * height;
+      }
 
-      case XYZRGB:
-    	  packet.pointColors = new Color[numberOfPoints];
-    	  break;
-    	  
-      case XYZ:
-    	  break;
+      public PointType getPointType()
+      {
+         return pointType;
+      }
+
+      public float[] getXYZ()
+      {
+         return xyz;
+      }
+
+      /**
+       * @return a view of the valid x, y, z values, from position 0 to the limit.
+       */
+      public FloatBuffer getXYZBuffer()
+      {
+         return FloatBuffer.wrap(xyz, 0, 3 * getNumberOfPoints());
       }
 
-      int offset = pointCloud.getData().arrayOffset();
-      int pointStep = pointCloud.getPointStep();
+      public float[] getIntensities()
+      {
+         return intensities;
+      }
 
-      byte[] array = pointCloud.getData().array();
-	ByteBuffer byteBuffer = ByteBuffer.wrap(array, offset, numberOfPoints * pointStep);
+      /**
+       * @return the colors packed like {@link Color#getRGB()}.
+       */
+      public int[] getRGB()
+      {
+         return rgb;
+      }
 
-      if (pointCloud.getIsBigendian())
-         byteBuffer.order(ByteOrder.BIG_ENDIAN);
-      else
-         byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+      public void getPoint(int index, Point3d pointToPack)
+      {
+         pointToPack.set(xyz[3 * index], xyz[3 * index + 1], xyz[3 * index + 2]);
+      }
 
-      for (int i = 0; i < numberOfPoints; i++)
+      /**
+       * Same layout as {@link UnpackedPointCloud#getXYZRGB()}, written in the given array if it is long enough.
+       *
+       * @throws IllegalStateException if the cloud has no color
+       */
+      public float[] getXYZRGB(float[] xyzrgbToPack)
+      {
+         if (pointType != PointType.XYZRGB)
+            throw new IllegalStateException("The point cloud has no color, point type: " + pointType);
+
+         int numberOfPoints = getNumberOfPoints();
+         if (xyzrgbToPack == null || xyzrgbToPack.length < 4 * numberOfPoints)
+            xyzrgbToPack = new float[4 * numberOfPoints];
+
+         for (int i = 0; i < numberOfPoints; i++)
+         {
+            xyzrgbToPack[4 * i] = xyz[3 * i];
+            xyzrgbToPack[4 * i + 1] = xyz[3 * i + 1];
+            xyzrgbToPack[4 * i + 2] = xyz[3 * i + 2];
+            xyzrgbToPack[4 * i + 3] = Float.intBitsToFloat(rgb[i]);
+         }
+         return xyzrgbToPack;
+      }
+   }
+
+   /**
+    * Where the fields are in a point, resolved from the field list once and kept as long as the clouds have the same layout.
+    */
+   private static class PointCloudLayout
+   {
+      private final PointType pointType;
+      private final int pointStep;
+      private final boolean bigEndian;
+      private final ByteOrder byteOrder;
+      private final String[] fieldNames;
+      private final int[] fieldOffsets;
+      private final int xOffset;
+      private final int yOffset;
+      private final int zOffset;
+      private final int valueOffset;
+
+      private PointCloudLayout(PointCloud2 pointCloud)
       {
-         byteBuffer.position(i * pointStep + offset);
-         float x = byteBuffer.getFloat();
-         float y = byteBuffer.getFloat();
-         float z = byteBuffer.getFloat();
+         List<PointField> fields = pointCloud.getFields();
+         pointType = PointType.fromFromFieldNames(fields);
+         pointStep = pointCloud.getPointStep();
+         bigEndian = pointCloud.getIsBigendian();
+         byteOrder = bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+
+         fieldNames = new String[fields.size()];
+         fieldOffsets = new int[fields.size()];
+         for (int i = 0; i < fields.size(); i++)
+         {
+            fieldNames[i] = fields.get(i).getName();
+            fieldOffsets[i] = fields.get(i).getOffset();
+         }
 
-         packet.points[i] = new Point3d(x, y, z);
+         xOffset = getFloatFieldOffset(fields, "x");
+         yOffset = getFloatFieldOffset(fields, "y");
+         zOffset = getFloatFieldOffset(fields, "z");
+         valueOffset = pointType == PointType.XYZ ? -1 : fieldOffsets[3];
+      }
 
-         switch (packet.pointType)
+      private static int getFloatFieldOffset(List<PointField> fields, String name)
+      {
+         for (PointField field : fields)
+         {
+            if (field.getName().equals(name))
+            {
+               if (field.getDatatype() != PointField.FLOAT32)
+                  throw new RuntimeException("Field " + name + " is of type " + field.getDatatype() + ", only FLOAT32 is supported");
+               return field.getOffset();
+            }
+         }
+
+         throw new RuntimeException("Point cloud has no field " + name);
+      }
+
+      private boolean matches(PointCloud2 pointCloud)
+      {
+         if (pointCloud.getPointStep() != pointStep || pointCloud.getIsBigendian() != bigEndian)
+            return false;
+
+         List<PointField> fields = pointCloud.getFields();
+         if (fields.size() != fieldNames.length)
+            return false;
+
+         for (int i = 0; i < fieldNames.length; i++)
+         {
+            PointField field = fields.get(i);
+            if (field.getOffset() != fieldOffsets[i] || !field.getName().equals(fieldNames[i]))
+               return false;
+         }
+
+         return true;
+      }
+   }
+
+   /**
+    * Decodes the cloud into a structure of arrays that is reused from one cloud to the next, so decoding does not create an object
+    * per point. The arrays of the packed cloud only grow, and are overwritten by the next call.
+    */
+   protected PackedPointCloud unpackPoints(PointCloud2 pointCloud, PackedPointCloud packedCloud)
+   {
+      PointCloudLayout layout = getLayout(pointCloud);
+      int numberOfPoints = pointCloud.getWidth() * pointCloud.getHeight();
+      packedCloud.setSize(pointCloud.getWidth(), pointCloud.getHeight(), layout.pointType);
+
+      ByteBuffer byteBuffer = ByteBuffer.wrap(pointCloud.getData().array());
+      byteBuffer.order(layout.byteOrder);
+
+      float[] xyz = packedCloud.xyz;
+      int pointStart = pointCloud.getData().arrayOffset();
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         xyz[3 * i] = byteBuffer.getFloat(pointStart + layout.xOffset);
+         xyz[3 * i + 1] = byteBuffer.getFloat(pointStart + layout.yOffset);
+         xyz[3 * i + 2] = byteBuffer.getFloat(pointStart + layout.zOffset);
+
+         switch (layout.pointType)
          {
          case XYZI:
-            packet.intensities[i] = byteBuffer.getFloat();
+            packedCloud.intensities[i] = byteBuffer.getFloat(pointStart + layout.valueOffset);
             break;
 
          case XYZRGB:
-            int r = 0,
-            g = 0,
-            b = 0,
-            a = 0;
-            try
-            {
-               b = byteToUnsignedInt(byteBuffer.get());
-               g = byteToUnsignedInt(byteBuffer.get());
-               r = byteToUnsignedInt(byteBuffer.get());
-               a = byteToUnsignedInt(byteBuffer.get());
-               packet.pointColors[i] = new Color(r, g, b);
-               //               System.out.println(r + " " + g + " " + b + " " + a);
-            }
-            catch (RuntimeException e)
-            {
-               System.out.println(g);
-            }
-		case XYZ:
-			break;
+            int b = byteToUnsignedInt(byteBuffer.get(pointStart + layout.valueOffset));
+            int g = byteToUnsignedInt(byteBuffer.get(pointStart + layout.valueOffset + 1));
+            int r = byteToUnsignedInt(byteBuffer.get(pointStart + layout.valueOffset + 2));
+            packedCloud.rgb[i] = OPAQUE | (r << 16) | (g << 8) | b;
+            break;
+
+         case XYZ:
+            break;
          }
+
+         pointStart += layout.pointStep;
+      }
+
+      return packedCloud;
+   }
+
+   protected UnpackedPointCloud unpackPointsAndIntensities(PointCloud2 pointCloud)
+   {
+      PackedPointCloud packedCloud = unpackPoints(pointCloud, new PackedPointCloud());
+
+      UnpackedPointCloud packet = new UnpackedPointCloud();
+      int numberOfPoints = packedCloud.getNumberOfPoints();
+      packet.points = new Point3d[numberOfPoints];
+      packet.pointType = packedCloud.getPointType();
+      packet.width = packedCloud.getWidth();
+      packet.height = packedCloud.getHeight();
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         packet.points[i] = new Point3d();
+         packedCloud.getPoint(i, packet.points[i]);
+      }
+
+      switch (packet.pointType)
+      {
+      case XYZI:
+         packet.intensities = Arrays.copyOf(packedCloud.intensities, numberOfPoints);
+         break;
+
+      case XYZRGB:
+         packet.pointColors = new Color[numberOfPoints];
+         for (int i = 0; i < numberOfPoints; i++)
+         {
+            packet.pointColors[i] = new Color(packedCloud.rgb[i]);
+         }
+         break;
+
+      case XYZ:
+         break;
       }
 
       return packet;
    }
 
+   private PointCloudLayout getLayout(PointCloud2 pointCloud)
+   {
+      if (layout == null || !layout.matches(pointCloud))
+      {
+         layout = new PointCloudLayout(pointCloud);
+
+         if (DEBUG)
+            System.out.println(getClass().getSimpleName() + ": New point cloud layout " + layout.pointType + ", point step " + layout.pointStep);
+      }
+
+      return layout;
+   }
+
    private int byteToUnsignedInt(byte b)
    {
       return ((int) b) & 0xff;
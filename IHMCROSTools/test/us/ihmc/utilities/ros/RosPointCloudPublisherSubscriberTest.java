@@ -78,6 +78,29 @@ public class RosPointCloudPublisherSubscriberTest extends IHMCRosTestWithRosCore
                   break;
             }
 
+
+            PackedPointCloud packedCloud = unpackPoints(pointCloud, new PackedPointCloud());
+            assertEquals(testPointType, packedCloud.getPointType());
+            assertEquals(testPoints.length, packedCloud.getNumberOfPoints());
+            Point3d packedPoint = new Point3d();
+            for (int i = 0; i < testPoints.length; i++)
+            {
+               packedCloud.getPoint(i, packedPoint);
+               assertEquals(testPoints[i], packedPoint);
+
+               switch (testPointType)
+               {
+                  case XYZI :
+                     assertEquals(testIntensities[i], packedCloud.getIntensities()[i], 1e-10f);
+
+                     break;
+
+                  case XYZRGB :
+                     assertEquals(unpackedCloud.getPointColors()[i].getRGB(), packedCloud.getRGB()[i]);
+                     break;
+               }
+            }
+
             assertEquals(testFrameId, pointCloud.getHeader().getFrameId());
             latch.countDown();
          }
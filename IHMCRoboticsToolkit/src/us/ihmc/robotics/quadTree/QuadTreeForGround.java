@@ -1,7 +1,9 @@
 package us.ihmc.robotics.quadTree;
 
 import javax.vecmath.Point3d;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 
 /**
@@ -13,6 +15,10 @@ import java.util.Collection;
  * As more than a certain amount of points get put into a small node, the points will start overwriting previous points randomly.
  *
  *
+ * Queries are synchronized with the insertions by default. For a tree that is filled by one thread, typically from a lidar, while
+ * other threads query it, {@link #enableSnapshotReads(double)} makes the queries run lock free on an immutable snapshot of the
+ * tree which is republished by the inserting thread, so readers never wait for the insertions.
+ *
  * TODO: Later add functionality for clearing just a portion of the quad tree or for remembering the age of points and removing old points.
  * TODO: But for now, can only add to the quad tree, not take away.
  */
@@ -25,7 +31,15 @@ public class QuadTreeForGround
    private final QuadTreeForGroundParameters quadTreeParameters;
    private final Point3d nearestPointForHeightAt = new Point3d();
    private final QuadTreeForGroundPointLimiter pointLimiter;
-   
+
+   private volatile QuadTreeForGroundSnapshot snapshot = null;
+   private long maximumSnapshotAgeInNanoseconds;
+   private long lastSnapshotTime;
+
+   // Number of cells per axis of the grid used to compute the Morton codes of the points added by batch
+   private static final int MORTON_GRID_SIZE = 1 << 16;
+   private long[] sortedMortonCodesAndIndices = new long[0];
+   private float[] pointsFromBuffer = new float[0];
    
    public QuadTreeForGround(double minX, double minY, double maxX, double maxY, double resolution, double heightThreshold,
                              double maxMultiLevelZChangeToFilterNoise, int maxSameHeightPointsPerNode,
@@ -105,7 +119,145 @@ public class QuadTreeForGround
          listener.RawPointAdded((float) x, (float) y, (float) z);
       }
 
-      return root.put(x, y, z);
+      QuadTreeForGroundPutResult putResult = root.put(x, y, z);
+
+      if (snapshot != null && System.nanoTime() - lastSnapshotTime >= maximumSnapshotAgeInNanoseconds)
+      {
+         updateSnapshot();
+      }
+
+      return putResult;
+   }
+
+   /**
+    * Adds a batch of points, packed as x, y, z triples.
+    * The points are added in the order of their Morton code, so that points close to each other go down the tree together,
+    * and the lock is only taken once. The resulting tree is the same as when adding the points one by one in that order.
+    *
+    * @param points x, y, z of the points, one after the other.
+    * @param numberOfPoints number of points to add from the beginning of the array.
+    * @return the number of points that changed the tree.
+    */
+   public synchronized int putAll(float[] points, int numberOfPoints)
+   {
+      if (numberOfPoints == 0)
+         return 0;
+
+      for (QuadTreeForGroundListener listener : listeners)
+      {
+         listener.rawPointsAdded(points, numberOfPoints);
+      }
+
+      if (sortedMortonCodesAndIndices.length < numberOfPoints)
+         sortedMortonCodesAndIndices = new long[numberOfPoints];
+
+      double xScale = MORTON_GRID_SIZE / (bounds.maxX - bounds.minX);
+      double yScale = MORTON_GRID_SIZE / (bounds.maxY - bounds.minY);
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         int xCell = toMortonGridCell((points[3 * i] - bounds.minX) * xScale);
+         int yCell = toMortonGridCell((points[3 * i + 1] - bounds.minY) * yScale);
+         long mortonCode = spreadBits(xCell) | (spreadBits(yCell) << 1);
+         // The 32 bits code goes in the bits 31 to 62 so the key stays positive
+         sortedMortonCodesAndIndices[i] = (mortonCode << 31) | i;
+      }
+
+      Arrays.sort(sortedMortonCodesAndIndices, 0, numberOfPoints);
+
+      QuadTreeForGroundPoint[] sortedPoints = new QuadTreeForGroundPoint[numberOfPoints];
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         int index = (int) (sortedMortonCodesAndIndices[i] & 0x7FFFFFFFL);
+         sortedPoints[i] = new QuadTreeForGroundPoint(points[3 * index], points[3 * index + 1], points[3 * index + 2]);
+      }
+
+      int numberOfChanges = root.putAll(sortedPoints, 0, numberOfPoints);
+
+      if (snapshot != null && System.nanoTime() - lastSnapshotTime >= maximumSnapshotAgeInNanoseconds)
+      {
+         updateSnapshot();
+      }
+
+      return numberOfChanges;
+   }
+
+   /**
+    * Adds the points, packed as x, y, z triples, from the position to the limit of the buffer. The position of the buffer is not changed.
+    *
+    * @see #putAll(float[], int)
+    */
+   public synchronized int putAll(FloatBuffer points)
+   {
+      int numberOfPoints = points.remaining() / 3;
+      if (pointsFromBuffer.length < 3 * numberOfPoints)
+         pointsFromBuffer = new float[3 * numberOfPoints];
+
+      points.duplicate().get(pointsFromBuffer, 0, 3 * numberOfPoints);
+      return putAll(pointsFromBuffer, numberOfPoints);
+   }
+
+   private static int toMortonGridCell(double scaledCoordinate)
+   {
+      if (scaledCoordinate < 0.0)
+         return 0;
+      if (scaledCoordinate >= MORTON_GRID_SIZE)
+         return MORTON_GRID_SIZE - 1;
+      return (int) scaledCoordinate;
+   }
+
+   /**
+    * Spreads the 16 lowest bits of the value to the even bits of the result.
+    */
+   private static long spreadBits(int value)
+   {
+      long bits = value & 0xFFFFL;
+      bits = (bits | (bits << 8)) & 0x00FF00FFL;
+      bits = (bits | (bits << 4)) & 0x0F0F0F0FL;
+      bits = (bits | (bits << 2)) & 0x33333333L;
+      bits = (bits | (bits << 1)) & 0x55555555L;
+      return bits;
+   }
+
+   /**
+    * Makes the queries read from an immutable snapshot of the tree instead of locking it.
+    * The snapshot is republished by {@link #put(double, double, double)} once it is older than the given age,
+    * so the queries may miss the points added during that time. Use {@link #updateSnapshot()} to publish it sooner.
+    *
+    * @param maximumSnapshotAgeInSeconds maximum time between two snapshots while points are being added, 0.0 to republish on every put.
+    */
+   public synchronized void enableSnapshotReads(double maximumSnapshotAgeInSeconds)
+   {
+      maximumSnapshotAgeInNanoseconds = (long) (maximumSnapshotAgeInSeconds * 1e9);
+      updateSnapshot();
+   }
+
+   public synchronized void disableSnapshotReads()
+   {
+      snapshot = null;
+   }
+
+   public boolean isSnapshotReadsEnabled()
+   {
+      return snapshot != null;
+   }
+
+   /**
+    * Publishes a snapshot of the current state of the tree. Only the nodes that changed since the previous snapshot are copied.
+    */
+   public synchronized void updateSnapshot()
+   {
+      snapshot = new QuadTreeForGroundSnapshot(root.getSnapshotNode(), bounds, root.getDefaultHeightWhenNoPoints(),
+            quadTreeParameters.getMaxAllowableXYDistanceForAPointToBeConsideredClose());
+      lastSnapshotTime = System.nanoTime();
+   }
+
+   /**
+    * @return the last published snapshot, or null if the snapshot reads are not enabled.
+    */
+   public QuadTreeForGroundSnapshot getSnapshot()
+   {
+      return snapshot;
    }
    
    public boolean isEmpty()
@@ -116,42 +268,81 @@ public class QuadTreeForGround
    public synchronized void clear()
    {
       root.clear();
+
+      if (snapshot != null)
+         updateSnapshot();
    }
 
 
-   public synchronized double getHeightAtPoint(double x, double y)
+   public double getHeightAtPoint(double x, double y)
    {
-      if (!bounds.containsOrEquals(x, y))
-         return Double.NaN;
-
-      nearestPointForHeightAt.set(Double.NaN, Double.NaN, Double.NaN);
-      PointAndDistance pointAndDistance = new PointAndDistance(nearestPointForHeightAt,
-                                             quadTreeParameters.getMaxAllowableXYDistanceForAPointToBeConsideredClose());
-      root.getClosestPointAndDistance(x, y, pointAndDistance);
+      QuadTreeForGroundSnapshot snapshot = this.snapshot;
+      if (snapshot != null)
+         return snapshot.getHeightAtPoint(x, y);
 
-      double heightToReturn = nearestPointForHeightAt.getZ();
-      
-      if (Double.isNaN(heightToReturn))
+      synchronized (this)
       {
-         heightToReturn = root.getDefaultHeightWhenNoPoints();
+         if (!bounds.containsOrEquals(x, y))
+            return Double.NaN;
+
+         nearestPointForHeightAt.set(Double.NaN, Double.NaN, Double.NaN);
+         PointAndDistance pointAndDistance = new PointAndDistance(nearestPointForHeightAt,
+                                                quadTreeParameters.getMaxAllowableXYDistanceForAPointToBeConsideredClose());
+         root.getClosestPointAndDistance(x, y, pointAndDistance);
+
+         double heightToReturn = nearestPointForHeightAt.getZ();
+
+         if (Double.isNaN(heightToReturn))
+         {
+            heightToReturn = root.getDefaultHeightWhenNoPoints();
+         }
+         return heightToReturn;
       }
-      return heightToReturn;
-      
    }
 
-   public synchronized void getClosestPoint(double xQuery, double yQuery, Point3d pointToPack)
+   public void getClosestPoint(double xQuery, double yQuery, Point3d pointToPack)
    {
-      root.getClosestPoint(xQuery, yQuery, pointToPack);
+      QuadTreeForGroundSnapshot snapshot = this.snapshot;
+      if (snapshot != null)
+      {
+         snapshot.getClosestPoint(xQuery, yQuery, pointToPack);
+         return;
+      }
+
+      synchronized (this)
+      {
+         root.getClosestPoint(xQuery, yQuery, pointToPack);
+      }
    }
 
-   public synchronized void getAllPointsWithinDistance(double x, double y, double distance, ArrayList<Point3d> pointsWithinDistanceToPack)
+   public void getAllPointsWithinDistance(double x, double y, double distance, ArrayList<Point3d> pointsWithinDistanceToPack)
    {
-      this.root.getAllPointsWithinDistance(x, y, distance, pointsWithinDistanceToPack);
+      QuadTreeForGroundSnapshot snapshot = this.snapshot;
+      if (snapshot != null)
+      {
+         snapshot.getAllPointsWithinDistance(x, y, distance, pointsWithinDistanceToPack);
+         return;
+      }
+
+      synchronized (this)
+      {
+         this.root.getAllPointsWithinDistance(x, y, distance, pointsWithinDistanceToPack);
+      }
    }
 
-   public synchronized void getAllPointsWithinBounds(Box bounds, ArrayList<Point3d> pointsWithinBoundsToPack)
+   public void getAllPointsWithinBounds(Box bounds, ArrayList<Point3d> pointsWithinBoundsToPack)
    {
-      this.root.getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+      QuadTreeForGroundSnapshot snapshot = this.snapshot;
+      if (snapshot != null)
+      {
+         snapshot.getAllPointsWithinBounds(bounds, pointsWithinBoundsToPack);
+         return;
+      }
+
+      synchronized (this)
+      {
+         this.root.getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+      }
    }
 
    public double getMinX()
@@ -184,9 +375,12 @@ public class QuadTreeForGround
       return root;
    }
    
-   public void setDefaultHeightWhenNoPoints(double defaultHeightWhenNoPonts)
+   public synchronized void setDefaultHeightWhenNoPoints(double defaultHeightWhenNoPonts)
    {
       root.setDefaultHeightWhenNoPoints(defaultHeightWhenNoPonts);
+
+      if (snapshot != null)
+         updateSnapshot();
    }
    
    protected double getDefaultHeightWhenNoPoints()
@@ -194,14 +388,34 @@ public class QuadTreeForGround
       return root.getDefaultHeightWhenNoPoints();
    }
 
-   public synchronized void getStoredPoints(Collection<Point3d> points)
+   public void getStoredPoints(Collection<Point3d> points)
    {
-      root.getAllSubTreePoints(points);
+      QuadTreeForGroundSnapshot snapshot = this.snapshot;
+      if (snapshot != null)
+      {
+         snapshot.getStoredPoints(points);
+         return;
+      }
+
+      synchronized (this)
+      {
+         root.getAllSubTreePoints(points);
+      }
    }
 
-   public synchronized void getCellAverageStoredPoints(Collection<Point3d> points)
+   public void getCellAverageStoredPoints(Collection<Point3d> points)
    {
-      root.getCellAverageSubTreePoints(points);
+      QuadTreeForGroundSnapshot snapshot = this.snapshot;
+      if (snapshot != null)
+      {
+         snapshot.getCellAverageStoredPoints(points);
+         return;
+      }
+
+      synchronized (this)
+      {
+         root.getCellAverageSubTreePoints(points);
+      }
    }
 
    public void checkRepInvarients()
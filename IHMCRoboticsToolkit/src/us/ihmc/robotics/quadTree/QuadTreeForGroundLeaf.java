@@ -51,6 +51,7 @@ public class QuadTreeForGroundLeaf
       }
       points.clear();
       setAveragePointDirty();
+      node.markSnapshotOutdated();
    }
 
    public ArrayList<QuadTreeForGroundPoint> getPoints()
@@ -74,11 +75,13 @@ public class QuadTreeForGroundLeaf
       
       
       setAveragePointDirty();
+      node.markSnapshotOutdated();
    }
 
    public void replaceLeastRecentPoint(QuadTreeForGroundPoint point)
    {
       setAveragePointDirty();
+      node.markSnapshotOutdated();
       QuadTreeForGroundPoint removed = this.points.remove(0);
       this.points.add(point);
       point.setParent(this);
@@ -215,6 +218,8 @@ public class QuadTreeForGroundLeaf
    public void removePoint(QuadTreeForGroundPoint quadTreeForGroundPoint)
    {
       points.remove(quadTreeForGroundPoint);
+      setAveragePointDirty();
+      node.markSnapshotOutdated();
       if(points.size() == 0)
       {
          node.merge();
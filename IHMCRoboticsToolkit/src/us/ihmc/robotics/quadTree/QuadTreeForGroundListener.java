@@ -9,6 +9,12 @@ public interface QuadTreeForGroundListener
    public void nodeRemoved(String id);
 
    public void RawPointAdded(float x, float y, float z);
+
+   /**
+    * Called once for a batch of points added with {@link QuadTreeForGround#putAll(float[], int)}, instead of {@link #RawPointAdded(float, float, float)} for each point.
+    * @param points x, y, z of the points, one after the other.
+    */
+   public void rawPointsAdded(float[] points, int numberOfPoints);
    
    public void PopToOctree(Point3f location);
    public void PopToOctree(Point3f location, Point3f LidarHeadLocation);
@@ -23,6 +23,17 @@ public class QuadTreeForGroundNode
    
    private final QuadTreeForGroundNode parent;
 
+   // Set when a merge or a clear removes this node from the tree. Only nodes without children are removed, so every node of
+   // a removed subtree has been marked.
+   private boolean detached = false;
+
+   // Counts the points that changed the tree during putAll, only used on the node putAll has been called on
+   private int numberOfChangesInPutAll = 0;
+
+   // Copy of this node used by the snapshots of the tree, rebuilt when the subtree changed
+   private QuadTreeForGroundSnapshot.Node snapshotNode = null;
+   private boolean snapshotOutdated = true;
+
    public QuadTreeForGroundNode(String id, double minX, double minY, double maxX, double maxY, QuadTreeForGroundParameters parameters, QuadTreeForGroundPointLimiter decay, QuadTreeForGroundNode parent, double defaultHeightWhenNoPonts, 
                              ArrayList<QuadTreeForGroundListener> listeners)
    {
@@ -215,6 +226,68 @@ public class QuadTreeForGroundNode
       }
    }
 
+   /**
+    * Adds the points between start (inclusive) and end (exclusive), in order, giving the same tree as adding them one by one.
+    * Consecutive points that go to the same child are passed down together, so points sorted by Morton code
+    * only go down the tree once per cluster.
+    *
+    * Adding a point can evict the oldest point of the tree, and the merge that follows can detach the node the points are
+    * going down to. The remaining points then go down again from the closest node that is still in the tree.
+    *
+    * @return the number of points that changed the tree.
+    */
+   public int putAll(QuadTreeForGroundPoint[] points, int start, int end)
+   {
+      numberOfChangesInPutAll = 0;
+      int index = putAllUntilDetached(points, start, end, this);
+
+      if (index < end)
+      {
+         QuadTreeForGroundNode root = this;
+         while (root.parent != null)
+            root = root.parent;
+
+         root.putAllUntilDetached(points, index, end, this);
+      }
+
+      return numberOfChangesInPutAll;
+   }
+
+   /**
+    * @return the index of the first point that has not been added, which is end unless this node has been detached from the tree.
+    */
+   private int putAllUntilDetached(QuadTreeForGroundPoint[] points, int start, int end, QuadTreeForGroundNode changeCounter)
+   {
+      int index = start;
+
+      while (index < end)
+      {
+         if (this.hasChildren)
+         {
+            QuadTreeForGroundNode child = getChild(points[index].getX(), points[index].getY());
+            int clusterEnd = index + 1;
+            while (clusterEnd < end && getChild(points[clusterEnd].getX(), points[clusterEnd].getY()) == child)
+            {
+               clusterEnd++;
+            }
+
+            // Returns before clusterEnd if the child has been merged away, the child is then resolved again
+            index = child.putAllUntilDetached(points, index, clusterEnd, changeCounter);
+         }
+         else
+         {
+            if (put(points[index]).treeChanged)
+               changeCounter.numberOfChangesInPutAll++;
+            index++;
+         }
+
+         if (index < end && detached)
+            return index;
+      }
+
+      return end;
+   }
+
    public String getID()
    {
       return id;
@@ -239,12 +312,15 @@ public class QuadTreeForGroundNode
 
    public void clear()
    {
+      markSnapshotOutdated();
+
       if (this.hasChildren)
       {
          this.NW.clear();
          this.NE.clear();
          this.SE.clear();
          this.SW.clear();
+         detachChildren();
          this.NW = null;
          this.NE = null;
          this.SE = null;
@@ -388,6 +464,8 @@ public class QuadTreeForGroundNode
 
    private void divide()
    {
+      markSnapshotOutdated();
+
       for (QuadTreeForGroundListener listener : listeners)
       {
          listener.nodeRemoved(id);
@@ -487,6 +565,7 @@ public class QuadTreeForGroundNode
    protected void setLeaf(QuadTreeForGroundLeaf leaf)
    {
       this.leaf = leaf;
+      markSnapshotOutdated();
    }
 
    public QuadTreeForGroundLeaf getLeaf()
@@ -588,30 +667,86 @@ public class QuadTreeForGroundNode
 
    public void merge()
    {
+      markSnapshotOutdated();
+
       if(hasChildren)
       {
          if(NE.isEmpty() && NW.isEmpty() && SE.isEmpty() && SW.isEmpty())
          {
+            detachChildren();
             NE = null;
             NW = null;
             SE = null;
             SW = null;
             hasChildren = false;
-            parent.merge();
+            if (parent != null)
+               parent.merge();
          }
       }
       else
       {
          leaf = null;
-         parent.merge();
+         if (parent != null)
+            parent.merge();
       }
       
    }
 
+   private void detachChildren()
+   {
+      NW.detached = true;
+      NE.detached = true;
+      SE.detached = true;
+      SW.detached = true;
+   }
+
    public QuadTreeForGroundPutResult put(double x, double y, double z)
    {
       QuadTreeForGroundPoint point = new QuadTreeForGroundPoint(x, y, z);
       return put(point);
    }
 
+   /**
+    * Marks this node and its ancestors as changed since the last snapshot.
+    * If this node is already marked, so are its ancestors.
+    */
+   void markSnapshotOutdated()
+   {
+      QuadTreeForGroundNode node = this;
+      while (node != null && !node.snapshotOutdated)
+      {
+         node.snapshotOutdated = true;
+         node = node.parent;
+      }
+   }
+
+   /**
+    * Returns an immutable copy of this subtree. Only the nodes that changed since the last call are copied again.
+    */
+   QuadTreeForGroundSnapshot.Node getSnapshotNode()
+   {
+      if (snapshotOutdated || snapshotNode == null)
+      {
+         QuadTreeForGroundSnapshot.Node[] children = null;
+         Point3d[] points = null;
+         Point3d averagePoint = null;
+
+         if (hasChildren)
+         {
+            children = new QuadTreeForGroundSnapshot.Node[] {NW.getSnapshotNode(), NE.getSnapshotNode(), SE.getSnapshotNode(), SW.getSnapshotNode()};
+         }
+         else if (leaf != null)
+         {
+            ArrayList<QuadTreeForGroundPoint> leafPoints = leaf.getPoints();
+            points = leafPoints.toArray(new Point3d[leafPoints.size()]);
+            averagePoint = new Point3d(leaf.getAveragePoint());
+         }
+
+         snapshotNode = new QuadTreeForGroundSnapshot.Node(bounds, isAtSmallestResolution(), children, points, averagePoint);
+         snapshotOutdated = false;
+      }
+
+      return snapshotNode;
+   }
+
 }
@@ -0,0 +1,302 @@
+package us.ihmc.robotics.quadTree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import javax.vecmath.Point3d;
+
+/**
+ * Immutable copy of a {@link QuadTreeForGround}, used to answer queries without locking the tree while points are being
+ * added to it. The queries give the same results as the ones of the tree at the time the snapshot was taken.
+ *
+ * Snapshots share the nodes of the subtrees that did not change since the previous snapshot, so taking a snapshot only
+ * copies the nodes that changed and their ancestors. The points returned by the queries are shared between the callers
+ * and must not be modified.
+ */
+public class QuadTreeForGroundSnapshot
+{
+   private final Node root;
+   private final Box bounds;
+   private final double defaultHeightWhenNoPoints;
+   private final double maxAllowableXYDistanceForAPointToBeConsideredClose;
+
+   QuadTreeForGroundSnapshot(Node root, Box bounds, double defaultHeightWhenNoPoints, double maxAllowableXYDistanceForAPointToBeConsideredClose)
+   {
+      this.root = root;
+      this.bounds = bounds;
+      this.defaultHeightWhenNoPoints = defaultHeightWhenNoPoints;
+      this.maxAllowableXYDistanceForAPointToBeConsideredClose = maxAllowableXYDistanceForAPointToBeConsideredClose;
+   }
+
+   public double getHeightAtPoint(double x, double y)
+   {
+      if (!bounds.containsOrEquals(x, y))
+         return Double.NaN;
+
+      Point3d nearestPoint = new Point3d(Double.NaN, Double.NaN, Double.NaN);
+      PointAndDistance pointAndDistance = new PointAndDistance(nearestPoint, maxAllowableXYDistanceForAPointToBeConsideredClose);
+      root.getClosestPointAndDistance(x, y, pointAndDistance);
+
+      double heightToReturn = nearestPoint.getZ();
+
+      if (Double.isNaN(heightToReturn))
+      {
+         heightToReturn = defaultHeightWhenNoPoints;
+      }
+      return heightToReturn;
+   }
+
+   public void getClosestPoint(double xQuery, double yQuery, Point3d pointToPack)
+   {
+      PointAndDistance pointAndDistance = new PointAndDistance(pointToPack, Double.POSITIVE_INFINITY);
+      root.getClosestPointAndDistance(xQuery, yQuery, pointAndDistance);
+   }
+
+   public void getAllPointsWithinDistance(double x, double y, double distance, ArrayList<Point3d> pointsWithinDistanceToPack)
+   {
+      root.getAllPointsWithinDistance(x, y, distance, pointsWithinDistanceToPack);
+   }
+
+   public void getAllPointsWithinBounds(Box bounds, ArrayList<Point3d> pointsWithinBoundsToPack)
+   {
+      root.getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+   }
+
+   public void getStoredPoints(Collection<Point3d> points)
+   {
+      root.getAllSubTreePoints(points);
+   }
+
+   public void getCellAverageStoredPoints(Collection<Point3d> points)
+   {
+      root.getCellAverageSubTreePoints(points);
+   }
+
+   public boolean isEmpty()
+   {
+      return root.children == null && root.points == null;
+   }
+
+   public double getDefaultHeightWhenNoPoints()
+   {
+      return defaultHeightWhenNoPoints;
+   }
+
+   /**
+    * Immutable copy of a {@link QuadTreeForGroundNode}, following the same query logic.
+    */
+   static final class Node
+   {
+      private final Box bounds;
+      private final boolean atSmallestResolution;
+
+      // In the order NW, NE, SE, SW, or null if the node has no children
+      private final Node[] children;
+
+      // Points of the leaf, or null if the node has no leaf
+      private final Point3d[] points;
+      private final Point3d averagePoint;
+
+      Node(Box bounds, boolean atSmallestResolution, Node[] children, Point3d[] points, Point3d averagePoint)
+      {
+         this.bounds = bounds;
+         this.atSmallestResolution = atSmallestResolution;
+         this.children = children;
+         this.points = points;
+         this.averagePoint = averagePoint;
+      }
+
+      private Node getNW()
+      {
+         return children[0];
+      }
+
+      private Node getNE()
+      {
+         return children[1];
+      }
+
+      private Node getSE()
+      {
+         return children[2];
+      }
+
+      private Node getSW()
+      {
+         return children[3];
+      }
+
+      private Node getChild(double x, double y)
+      {
+         if (x < bounds.centreX)
+         {
+            if (y < bounds.centreY)
+               return getSW();
+            return getNW();
+         }
+
+         if (y < bounds.centreY)
+            return getSE();
+         return getNE();
+      }
+
+      private void getAllSubTreePoints(Collection<Point3d> pointsToPack)
+      {
+         if (children != null)
+         {
+            getNE().getAllSubTreePoints(pointsToPack);
+            getNW().getAllSubTreePoints(pointsToPack);
+            getSE().getAllSubTreePoints(pointsToPack);
+            getSW().getAllSubTreePoints(pointsToPack);
+         }
+         else if (points != null)
+         {
+            for (Point3d point : points)
+               pointsToPack.add(point);
+         }
+      }
+
+      private void getCellAverageSubTreePoints(Collection<Point3d> pointsToPack)
+      {
+         if (children != null)
+         {
+            getNE().getCellAverageSubTreePoints(pointsToPack);
+            getNW().getCellAverageSubTreePoints(pointsToPack);
+            getSE().getCellAverageSubTreePoints(pointsToPack);
+            getSW().getCellAverageSubTreePoints(pointsToPack);
+         }
+         else if (points != null)
+         {
+            pointsToPack.add(averagePoint);
+         }
+      }
+
+      private void getClosestPointAndDistance(double x, double y, PointAndDistance bestSoFarToUpdate)
+      {
+         // exclude node if point is farther away than best distance in either axis
+         if ((x < bounds.minX - bestSoFarToUpdate.getDistance()) || (x > bounds.maxX + bestSoFarToUpdate.getDistance())
+               || (y < bounds.minY - bestSoFarToUpdate.getDistance()) || (y > bounds.maxY + bestSoFarToUpdate.getDistance()))
+         {
+            return;
+         }
+
+         if (children != null)
+         {
+            Node childAtXY = getChild(x, y);
+            childAtXY.getClosestPointAndDistance(x, y, bestSoFarToUpdate);
+
+            if (getNE() != childAtXY)
+               getNE().getClosestPointAndDistance(x, y, bestSoFarToUpdate);
+            if (getNW() != childAtXY)
+               getNW().getClosestPointAndDistance(x, y, bestSoFarToUpdate);
+            if (getSE() != childAtXY)
+               getSE().getClosestPointAndDistance(x, y, bestSoFarToUpdate);
+            if (getSW() != childAtXY)
+               getSW().getClosestPointAndDistance(x, y, bestSoFarToUpdate);
+         }
+         else if (points != null)
+         {
+            if (atSmallestResolution)
+               getClosestPointAndDistanceUsingAverage(x, y, bestSoFarToUpdate);
+            else
+               getClosestPointAndDistanceUsingAverageHeight(x, y, bestSoFarToUpdate);
+         }
+      }
+
+      private void getClosestPointAndDistanceUsingAverage(double x, double y, PointAndDistance closestPointAndDistance)
+      {
+         double distanceSquared = distanceXYSquared(x, y, averagePoint);
+         double bestDistanceSquared = closestPointAndDistance.getDistance() * closestPointAndDistance.getDistance();
+
+         if (distanceSquared < bestDistanceSquared)
+         {
+            closestPointAndDistance.setPoint(averagePoint);
+            closestPointAndDistance.setDistance(Math.sqrt(distanceSquared));
+         }
+      }
+
+      private void getClosestPointAndDistanceUsingAverageHeight(double x, double y, PointAndDistance closestPointAndDistance)
+      {
+         double bestDistanceSquared = closestPointAndDistance.getDistance() * closestPointAndDistance.getDistance();
+
+         Point3d betterPoint = null;
+         for (Point3d point : points)
+         {
+            double distanceSquared = distanceXYSquared(x, y, point);
+            if (distanceSquared < bestDistanceSquared)
+            {
+               betterPoint = point;
+               bestDistanceSquared = distanceSquared;
+            }
+         }
+
+         if (betterPoint != null)
+         {
+            closestPointAndDistance.setPoint(betterPoint);
+            closestPointAndDistance.setPointZ(averagePoint.getZ()); // Use the average for z to do some filtering...
+
+            closestPointAndDistance.setDistance(Math.sqrt(bestDistanceSquared));
+         }
+      }
+
+      private static double distanceXYSquared(double x, double y, Point3d point)
+      {
+         return ((x - point.getX()) * (x - point.getX()) + (y - point.getY()) * (y - point.getY()));
+      }
+
+      private void getAllPointsWithinDistance(double x, double y, double maxDistance, ArrayList<Point3d> pointsWithinDistanceToPack)
+      {
+         if (maxDistance < 0.0)
+            return;
+
+         if (children != null)
+         {
+            if (getNW().bounds.calcDist(x, y) <= maxDistance)
+               getNW().getAllPointsWithinDistance(x, y, maxDistance, pointsWithinDistanceToPack);
+            if (getNE().bounds.calcDist(x, y) <= maxDistance)
+               getNE().getAllPointsWithinDistance(x, y, maxDistance, pointsWithinDistanceToPack);
+            if (getSE().bounds.calcDist(x, y) <= maxDistance)
+               getSE().getAllPointsWithinDistance(x, y, maxDistance, pointsWithinDistanceToPack);
+            if (getSW().bounds.calcDist(x, y) <= maxDistance)
+               getSW().getAllPointsWithinDistance(x, y, maxDistance, pointsWithinDistanceToPack);
+
+            return;
+         }
+
+         if (points != null)
+         {
+            double maxDistanceSquared = maxDistance * maxDistance;
+
+            for (Point3d point : points)
+            {
+               if (distanceXYSquared(x, y, point) < maxDistanceSquared)
+                  pointsWithinDistanceToPack.add(point);
+            }
+         }
+      }
+
+      private void getAllPointsWithBounds(Box bounds, ArrayList<Point3d> pointsWithinBoundsToPack)
+      {
+         if (children != null)
+         {
+            if (getNW().bounds.intersects(bounds))
+               getNW().getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+            if (getNE().bounds.intersects(bounds))
+               getNE().getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+            if (getSE().bounds.intersects(bounds))
+               getSE().getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+            if (getSW().bounds.intersects(bounds))
+               getSW().getAllPointsWithBounds(bounds, pointsWithinBoundsToPack);
+         }
+         else if (points != null)
+         {
+            boolean containsNode = bounds.containsOrEquals(this.bounds);
+            for (Point3d point : points)
+            {
+               if (containsNode || bounds.containsOrEquals(point.getX(), point.getY()))
+                  pointsWithinBoundsToPack.add(point);
+            }
+         }
+      }
+   }
+}
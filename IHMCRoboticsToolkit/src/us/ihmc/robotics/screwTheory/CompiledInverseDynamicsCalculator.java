@@ -0,0 +1,298 @@
+package us.ihmc.robotics.screwTheory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import us.ihmc.robotics.referenceFrames.ReferenceFrame;
+
+/**
+ * Computes joint torques based on desired joint accelerations, like {@link InverseDynamicsCalculator}.
+ *
+ * The kinematic tree is ordered once at construction, breadth first from the root body. Every body gets an index, the
+ * predecessor of every body is stored as an index, and the twists, accelerations and wrenches are kept in preallocated
+ * arrays in that order. The forward pass (twists, spatial accelerations and net wrenches) walks the arrays up and the
+ * backward pass (joint wrenches and torques) walks them down, so {@link #compute()} does no map lookups and does not need
+ * a separate {@link TwistCalculator} or {@link SpatialAccelerationCalculator}.
+ *
+ * The topology is fixed at construction. Create a new calculator when joints are added or removed.
+ */
+public class CompiledInverseDynamicsCalculator
+{
+   private static final int ROOT_INDEX = 0;
+
+   private final ReferenceFrame inertialFrame;
+   private final SpatialAccelerationVector rootAcceleration;
+   private final boolean doVelocityTerms;
+   private final boolean doAccelerationTerms;
+
+   private final int numberOfBodies;
+   private final RigidBody[] bodies;
+   private final ReferenceFrame[] bodyFrames;
+   private final InverseDynamicsJoint[] parentJoints;
+   private final int[] parentIndices;
+
+   private final Twist[] twists;
+   private final SpatialAccelerationVector[] accelerations;
+   private final Wrench[] externalWrenches;
+   private final Wrench[] jointWrenches;
+
+   private final HashMap<RigidBody, Integer> bodyIndices = new HashMap<RigidBody, Integer>();
+   private final HashMap<InverseDynamicsJoint, Integer> jointIndices = new HashMap<InverseDynamicsJoint, Integer>();
+
+   private final Twist tempJointTwist = new Twist();
+   private final SpatialAccelerationVector tempJointAcceleration = new SpatialAccelerationVector();
+   private final Wrench wrenchExertedByChild = new Wrench();
+
+   public CompiledInverseDynamicsCalculator(RigidBody rootBody, double gravity)
+   {
+      this(ReferenceFrame.getWorldFrame(), rootBody, ScrewTools.createGravitationalSpatialAcceleration(rootBody, gravity),
+            new ArrayList<InverseDynamicsJoint>(), true, true);
+   }
+
+   public CompiledInverseDynamicsCalculator(RigidBody rootBody, double gravity, List<InverseDynamicsJoint> jointsToIgnore)
+   {
+      this(ReferenceFrame.getWorldFrame(), rootBody, ScrewTools.createGravitationalSpatialAcceleration(rootBody, gravity), jointsToIgnore, true, true);
+   }
+
+   public CompiledInverseDynamicsCalculator(ReferenceFrame inertialFrame, RigidBody rootBody, SpatialAccelerationVector rootAcceleration,
+         List<InverseDynamicsJoint> jointsToIgnore, boolean doVelocityTerms, boolean doAccelerationTerms)
+   {
+      if (!rootBody.isRootBody())
+      {
+         throw new IllegalArgumentException(rootBody + " is not the root of its kinematic tree");
+      }
+
+      this.inertialFrame = inertialFrame;
+      this.rootAcceleration = new SpatialAccelerationVector(rootAcceleration);
+      this.doVelocityTerms = doVelocityTerms;
+      this.doAccelerationTerms = doAccelerationTerms;
+
+      ArrayList<RigidBody> orderedBodies = new ArrayList<RigidBody>();
+      ArrayList<InverseDynamicsJoint> orderedParentJoints = new ArrayList<InverseDynamicsJoint>();
+      orderBodiesBreadthFirst(rootBody, jointsToIgnore, orderedBodies, orderedParentJoints);
+
+      numberOfBodies = orderedBodies.size();
+      bodies = orderedBodies.toArray(new RigidBody[numberOfBodies]);
+      parentJoints = orderedParentJoints.toArray(new InverseDynamicsJoint[numberOfBodies]);
+      bodyFrames = new ReferenceFrame[numberOfBodies];
+      parentIndices = new int[numberOfBodies];
+
+      twists = new Twist[numberOfBodies];
+      accelerations = new SpatialAccelerationVector[numberOfBodies];
+      externalWrenches = new Wrench[numberOfBodies];
+      jointWrenches = new Wrench[numberOfBodies];
+
+      for (int bodyIndex = 0; bodyIndex < numberOfBodies; bodyIndex++)
+      {
+         bodyIndices.put(bodies[bodyIndex], bodyIndex);
+      }
+
+      for (int bodyIndex = 0; bodyIndex < numberOfBodies; bodyIndex++)
+      {
+         ReferenceFrame bodyFixedFrame = bodies[bodyIndex].getBodyFixedFrame();
+         bodyFrames[bodyIndex] = bodyFixedFrame;
+         twists[bodyIndex] = new Twist(bodyFixedFrame, inertialFrame, bodyFixedFrame);
+         accelerations[bodyIndex] = new SpatialAccelerationVector(bodyFixedFrame, inertialFrame, bodyFixedFrame);
+         externalWrenches[bodyIndex] = new Wrench(bodyFixedFrame, bodyFixedFrame);
+         jointWrenches[bodyIndex] = new Wrench(bodyFixedFrame, bodyFixedFrame);
+
+         if (bodyIndex == ROOT_INDEX)
+         {
+            parentIndices[bodyIndex] = -1;
+         }
+         else
+         {
+            parentIndices[bodyIndex] = bodyIndices.get(parentJoints[bodyIndex].getPredecessor());
+            jointIndices.put(parentJoints[bodyIndex], bodyIndex);
+         }
+      }
+   }
+
+   private static void orderBodiesBreadthFirst(RigidBody rootBody, List<InverseDynamicsJoint> jointsToIgnore, List<RigidBody> orderedBodiesToPack,
+         List<InverseDynamicsJoint> parentJointsToPack)
+   {
+      orderedBodiesToPack.add(rootBody);
+      parentJointsToPack.add(null);
+
+      for (int bodyIndex = 0; bodyIndex < orderedBodiesToPack.size(); bodyIndex++)
+      {
+         RigidBody currentBody = orderedBodiesToPack.get(bodyIndex);
+         if (!currentBody.hasChildrenJoints())
+            continue;
+
+         List<InverseDynamicsJoint> childrenJoints = currentBody.getChildrenJoints();
+         for (int childIndex = 0; childIndex < childrenJoints.size(); childIndex++)
+         {
+            InverseDynamicsJoint joint = childrenJoints.get(childIndex);
+            RigidBody successor = joint.getSuccessor();
+            if (jointsToIgnore.contains(joint) || successor == null)
+               continue;
+
+            if (orderedBodiesToPack.contains(successor))
+            {
+               throw new RuntimeException("This algorithm doesn't do loops.");
+            }
+
+            orderedBodiesToPack.add(successor);
+            parentJointsToPack.add(joint);
+         }
+      }
+   }
+
+   public void setRootAcceleration(SpatialAccelerationVector newRootAcceleration)
+   {
+      rootAcceleration.checkReferenceFramesMatch(newRootAcceleration.getBodyFrame(), newRootAcceleration.getBaseFrame(),
+            newRootAcceleration.getExpressedInFrame());
+      rootAcceleration.set(newRootAcceleration);
+   }
+
+   public void compute()
+   {
+      computeForwardPass();
+      computeBackwardPass();
+   }
+
+   /**
+    * Computes the twist, spatial acceleration and net wrench of every body, from the root to the leaves. The joint wrench
+    * of every body is initialized to its net wrench minus its external wrench.
+    */
+   private void computeForwardPass()
+   {
+      accelerations[ROOT_INDEX].set(rootAcceleration);
+
+      for (int bodyIndex = ROOT_INDEX + 1; bodyIndex < numberOfBodies; bodyIndex++)
+      {
+         int parentIndex = parentIndices[bodyIndex];
+         InverseDynamicsJoint joint = parentJoints[bodyIndex];
+         ReferenceFrame bodyFrame = bodyFrames[bodyIndex];
+         Twist parentTwist = twists[parentIndex];
+         Twist twist = twists[bodyIndex];
+
+         // Without velocity terms, the twists are left at zero
+         if (doVelocityTerms)
+         {
+            joint.getSuccessorTwist(tempJointTwist);
+            twist.set(parentTwist);
+            twist.changeFrame(bodyFrame);
+            twist.add(tempJointTwist);
+         }
+
+         joint.getPredecessorTwist(tempJointTwist);
+         if (!doVelocityTerms)
+            tempJointTwist.setToZero();
+
+         joint.getDesiredSuccessorAcceleration(tempJointAcceleration);
+         if (!doAccelerationTerms)
+            tempJointAcceleration.setToZero();
+
+         SpatialAccelerationVector acceleration = accelerations[bodyIndex];
+         acceleration.set(accelerations[parentIndex]);
+         acceleration.changeFrame(bodyFrame, tempJointTwist, parentTwist);
+         acceleration.add(tempJointAcceleration);
+
+         Wrench jointWrench = jointWrenches[bodyIndex];
+         bodies[bodyIndex].getInertia().computeDynamicWrenchInBodyCoordinates(jointWrench, acceleration, twist);
+         jointWrench.sub(externalWrenches[bodyIndex]);
+      }
+   }
+
+   /**
+    * Walks from the leaves to the root, adding the wrench of every joint to the joint wrench of its parent body and setting
+    * the joint torques. Children always come after their parent in the ordering, so a joint wrench is complete when it is
+    * reached.
+    */
+   private void computeBackwardPass()
+   {
+      for (int bodyIndex = numberOfBodies - 1; bodyIndex > ROOT_INDEX; bodyIndex--)
+      {
+         Wrench jointWrench = jointWrenches[bodyIndex];
+         parentJoints[bodyIndex].setTorqueFromWrench(jointWrench);
+
+         int parentIndex = parentIndices[bodyIndex];
+         if (parentIndex != ROOT_INDEX)
+         {
+            Wrench parentJointWrench = jointWrenches[parentIndex];
+            wrenchExertedByChild.set(jointWrench);
+            wrenchExertedByChild.changeBodyFrameAttachedToSameBody(bodyFrames[parentIndex]);
+            wrenchExertedByChild.changeFrame(parentJointWrench.getExpressedInFrame());
+            parentJointWrench.add(wrenchExertedByChild);
+         }
+      }
+   }
+
+   public void reset()
+   {
+      for (int bodyIndex = 0; bodyIndex < numberOfBodies; bodyIndex++)
+      {
+         externalWrenches[bodyIndex].setToZero(bodyFrames[bodyIndex], bodyFrames[bodyIndex]);
+      }
+   }
+
+   /**
+    * @return index of the body in the compiled ordering, or -1 if the body is not part of the tree handled by this calculator
+    */
+   public int getBodyIndex(RigidBody rigidBody)
+   {
+      Integer bodyIndex = bodyIndices.get(rigidBody);
+      return bodyIndex == null ? -1 : bodyIndex;
+   }
+
+   public int getNumberOfBodies()
+   {
+      return numberOfBodies;
+   }
+
+   public void setExternalWrench(RigidBody rigidBody, Wrench externalWrench)
+   {
+      setExternalWrench(bodyIndices.get(rigidBody), externalWrench);
+   }
+
+   /**
+    * Same as {@link #setExternalWrench(RigidBody, Wrench)}, without the body lookup. Get the index once with {@link #getBodyIndex(RigidBody)}.
+    */
+   public void setExternalWrench(int bodyIndex, Wrench externalWrench)
+   {
+      externalWrenches[bodyIndex].set(externalWrench);
+   }
+
+   public void getExternalWrench(RigidBody rigidBody, Wrench externalWrenchToPack)
+   {
+      externalWrenchToPack.set(externalWrenches[bodyIndices.get(rigidBody)]);
+   }
+
+   public Wrench computeTotalExternalWrench(ReferenceFrame referenceFrame)
+   {
+      Wrench totalGroundReactionWrench = new Wrench(referenceFrame, referenceFrame);
+      Wrench temporaryWrench = new Wrench();
+      for (int bodyIndex = ROOT_INDEX + 1; bodyIndex < numberOfBodies; bodyIndex++)
+      {
+         temporaryWrench.set(externalWrenches[bodyIndex]);
+         temporaryWrench.changeFrame(referenceFrame);
+         temporaryWrench.changeBodyFrameAttachedToSameBody(referenceFrame);
+         totalGroundReactionWrench.add(temporaryWrench);
+      }
+
+      return totalGroundReactionWrench;
+   }
+
+   public void getJointWrench(InverseDynamicsJoint joint, Wrench wrenchToPack)
+   {
+      wrenchToPack.set(jointWrenches[jointIndices.get(joint)]);
+   }
+
+   public void getTwistOfBody(Twist twistToPack, RigidBody rigidBody)
+   {
+      twistToPack.set(twists[bodyIndices.get(rigidBody)]);
+   }
+
+   public void getAccelerationOfBody(SpatialAccelerationVector accelerationToPack, RigidBody rigidBody)
+   {
+      accelerationToPack.set(accelerations[bodyIndices.get(rigidBody)]);
+   }
+
+   public ReferenceFrame getInertialFrame()
+   {
+      return inertialFrame;
+   }
+}
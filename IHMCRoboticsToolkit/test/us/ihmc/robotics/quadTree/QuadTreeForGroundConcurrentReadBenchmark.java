@@ -0,0 +1,127 @@
+package us.ihmc.robotics.quadTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.vecmath.Point3d;
+
+/**
+ * Measures the latency of the queries of a {@link QuadTreeForGround} while another thread adds points at a sustained rate,
+ * as a lidar does, with the synchronized queries and with the snapshot reads.
+ */
+public class QuadTreeForGroundConcurrentReadBenchmark
+{
+   private static final int POINTS_PER_SECOND = 300000;
+   private static final int POINTS_PER_MILLISECOND = POINTS_PER_SECOND / 1000;
+   private static final double BENCHMARK_DURATION = 5.0;
+   private static final double MAXIMUM_SNAPSHOT_AGE = 0.025;
+
+   private static final Box BOUNDS = new Box(-10.0, -10.0, 10.0, 10.0);
+
+   public static void main(String[] args) throws InterruptedException
+   {
+      // Warm up both modes before measuring
+      runBenchmark(false, 1.0);
+      runBenchmark(true, 1.0);
+
+      System.out.println("mode\t\tinserted [points/s]\tqueries\tmedian [us]\t99% [us]\t99.9% [us]\tmax [us]");
+      printResult("synchronized", runBenchmark(false, BENCHMARK_DURATION));
+      printResult("snapshot", runBenchmark(true, BENCHMARK_DURATION));
+   }
+
+   private static Result runBenchmark(boolean useSnapshotReads, double duration) throws InterruptedException
+   {
+      QuadTreeForGroundParameters parameters = new QuadTreeForGroundParameters(0.05, 0.02, 0.1, 5, 0.5, 200000);
+      final QuadTreeForGround quadTree = new QuadTreeForGround(BOUNDS, parameters);
+      if (useSnapshotReads)
+         quadTree.enableSnapshotReads(MAXIMUM_SNAPSHOT_AGE);
+
+      final long durationInNanoseconds = (long) (duration * 1e9);
+      final long[] numberOfInsertedPoints = new long[1];
+
+      Thread lidarThread = new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            Random random = new Random(1776L);
+            long startTime = System.nanoTime();
+            long elapsedTime;
+
+            while ((elapsedTime = System.nanoTime() - startTime) < durationInNanoseconds)
+            {
+               // Add the points due at this time, by batches of one millisecond
+               long pointsDue = elapsedTime / 1000000L * POINTS_PER_MILLISECOND;
+               if (numberOfInsertedPoints[0] >= pointsDue)
+               {
+                  Thread.yield();
+                  continue;
+               }
+
+               for (int i = 0; i < POINTS_PER_MILLISECOND; i++)
+               {
+                  double x = BOUNDS.minX + random.nextDouble() * (BOUNDS.maxX - BOUNDS.minX);
+                  double y = BOUNDS.minY + random.nextDouble() * (BOUNDS.maxY - BOUNDS.minY);
+                  double z = 0.1 * Math.sin(x) * Math.cos(y) + 0.005 * random.nextGaussian();
+                  quadTree.put(x, y, z);
+               }
+               numberOfInsertedPoints[0] += POINTS_PER_MILLISECOND;
+            }
+         }
+      }, "LidarThread");
+
+      Random random = new Random(1986L);
+      ArrayList<Point3d> points = new ArrayList<Point3d>();
+      long[] latencies = new long[1 << 20];
+      int numberOfQueries = 0;
+
+      long startTime = System.nanoTime();
+      lidarThread.start();
+
+      while (lidarThread.isAlive() && numberOfQueries < latencies.length)
+      {
+         double x = BOUNDS.minX + random.nextDouble() * (BOUNDS.maxX - BOUNDS.minX);
+         double y = BOUNDS.minY + random.nextDouble() * (BOUNDS.maxY - BOUNDS.minY);
+
+         long queryStartTime = System.nanoTime();
+         if (numberOfQueries % 2 == 0)
+         {
+            quadTree.getHeightAtPoint(x, y);
+         }
+         else
+         {
+            points.clear();
+            quadTree.getAllPointsWithinBounds(new Box(x - 0.5, y - 0.5, x + 0.5, y + 0.5), points);
+         }
+         latencies[numberOfQueries++] = System.nanoTime() - queryStartTime;
+      }
+
+      lidarThread.join();
+      double elapsedTime = (System.nanoTime() - startTime) / 1e9;
+
+      Result result = new Result();
+      result.insertionRate = numberOfInsertedPoints[0] / elapsedTime;
+      result.latencies = Arrays.copyOf(latencies, numberOfQueries);
+      Arrays.sort(result.latencies);
+      return result;
+   }
+
+   private static void printResult(String mode, Result result)
+   {
+      long[] latencies = result.latencies;
+      System.out.println(mode + "\t" + (long) result.insertionRate + "\t\t\t" + latencies.length + "\t" + percentile(latencies, 0.5) + "\t\t"
+            + percentile(latencies, 0.99) + "\t\t" + percentile(latencies, 0.999) + "\t\t" + latencies[latencies.length - 1] / 1000.0);
+   }
+
+   private static double percentile(long[] sortedLatencies, double percentile)
+   {
+      return sortedLatencies[(int) (percentile * (sortedLatencies.length - 1))] / 1000.0;
+   }
+
+   private static class Result
+   {
+      private double insertionRate;
+      private long[] latencies;
+   }
+}
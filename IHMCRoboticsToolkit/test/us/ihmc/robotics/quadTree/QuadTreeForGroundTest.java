@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Random;
@@ -478,6 +479,283 @@ public class QuadTreeForGroundTest
       }
    }
 
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testSnapshotMatchesTree()
+   {
+      Random random = new Random(1986L);
+      Box bounds = new Box(-10.0, -8.0, 10.0, 12.0);
+      QuadTreeForGroundParameters parameters = new QuadTreeForGroundParameters(0.1, 0.05, 0.02, 5, 0.5, 2000);
+
+      QuadTreeForGround quadTree = new QuadTreeForGround(bounds, parameters);
+      QuadTreeForGround quadTreeWithSnapshots = new QuadTreeForGround(bounds, parameters);
+      quadTreeWithSnapshots.enableSnapshotReads(Double.POSITIVE_INFINITY);
+      assertTrue(quadTreeWithSnapshots.isSnapshotReadsEnabled());
+
+      for (int batch = 0; batch < 20; batch++)
+      {
+         ArrayList<Point3d> storedPointsBeforeBatch = new ArrayList<Point3d>();
+         QuadTreeForGroundSnapshot snapshotBeforeBatch = quadTreeWithSnapshots.getSnapshot();
+         snapshotBeforeBatch.getStoredPoints(storedPointsBeforeBatch);
+
+         // Enough points to make the point limiter remove points and merge nodes
+         for (Point3d point : generateRandomPoints(random, 500, bounds, -0.2, 0.2))
+         {
+            quadTree.put(point.getX(), point.getY(), point.getZ());
+            quadTreeWithSnapshots.put(point.getX(), point.getY(), point.getZ());
+         }
+
+         // The snapshot is only published on request, so the old one is still used
+         ArrayList<Point3d> storedPoints = new ArrayList<Point3d>();
+         quadTreeWithSnapshots.getStoredPoints(storedPoints);
+         assertEquals(storedPointsBeforeBatch, storedPoints);
+
+         quadTreeWithSnapshots.updateSnapshot();
+         assertSameQueries(random, bounds, quadTree, quadTreeWithSnapshots);
+
+         // Previous snapshots are not affected by the changes to the tree
+         storedPoints.clear();
+         snapshotBeforeBatch.getStoredPoints(storedPoints);
+         assertEquals(storedPointsBeforeBatch, storedPoints);
+      }
+
+      quadTree.clear();
+      quadTree.setDefaultHeightWhenNoPoints(0.3);
+      quadTreeWithSnapshots.clear();
+      quadTreeWithSnapshots.setDefaultHeightWhenNoPoints(0.3);
+      assertTrue(quadTreeWithSnapshots.getSnapshot().isEmpty());
+      assertSameQueries(random, bounds, quadTree, quadTreeWithSnapshots);
+   }
+
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testSnapshotReadsWhileAddingPoints() throws InterruptedException
+   {
+      final Random random = new Random(1987L);
+      final Box bounds = new Box(-10.0, -10.0, 10.0, 10.0);
+      QuadTreeForGroundParameters parameters = new QuadTreeForGroundParameters(0.1, 0.05, 0.02, 5, 0.5, 5000);
+      final QuadTreeForGround quadTree = new QuadTreeForGround(bounds, parameters);
+      quadTree.enableSnapshotReads(0.001);
+
+      final ArrayList<Throwable> writerExceptions = new ArrayList<Throwable>();
+      Thread writer = new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               addRandomPointsToQuadTree(random, 100000, bounds, -0.2, 0.2, quadTree);
+            }
+            catch (Throwable e)
+            {
+               writerExceptions.add(e);
+            }
+         }
+      });
+      writer.start();
+
+      Random queryRandom = new Random(1988L);
+      ArrayList<Point3d> points = new ArrayList<Point3d>();
+      while (writer.isAlive())
+      {
+         double x = RandomTools.generateRandomDouble(queryRandom, bounds.minX, bounds.maxX);
+         double y = RandomTools.generateRandomDouble(queryRandom, bounds.minY, bounds.maxY);
+         double height = quadTree.getHeightAtPoint(x, y);
+         assertTrue(Double.isNaN(height) || Math.abs(height) <= 0.2);
+
+         points.clear();
+         quadTree.getAllPointsWithinBounds(new Box(x - 1.0, y - 1.0, x + 1.0, y + 1.0), points);
+         for (Point3d point : points)
+         {
+            assertTrue(Math.abs(point.getX() - x) <= 1.0 && Math.abs(point.getY() - y) <= 1.0);
+         }
+      }
+
+      writer.join();
+      assertTrue(writerExceptions.isEmpty());
+
+      quadTree.updateSnapshot();
+      ArrayList<Point3d> snapshotPoints = new ArrayList<Point3d>();
+      quadTree.getStoredPoints(snapshotPoints);
+      ArrayList<Point3d> treePoints = new ArrayList<Point3d>();
+      quadTree.getRootNode().getAllSubTreePoints(treePoints);
+      assertEquals(treePoints, snapshotPoints);
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.2)
+   @Test(timeout = 30000)
+   public void testPutAllOnNodeMatchesPut()
+   {
+      Random random = new Random(1989L);
+      Box bounds = new Box(-10.0, -8.0, 10.0, 12.0);
+      QuadTreeForGroundParameters parameters = new QuadTreeForGroundParameters(0.1, 0.05, 0.02, 5, 0.5, 3000);
+
+      QuadTreeForGround quadTree = new QuadTreeForGround(bounds, parameters);
+      QuadTreeForGround quadTreeWithPutAll = new QuadTreeForGround(bounds, parameters);
+
+      for (int batch = 0; batch < 10; batch++)
+      {
+         ArrayList<Point3d> points = generateRandomPoints(random, 1000, bounds, -0.2, 0.2);
+         QuadTreeForGroundPoint[] pointArray = new QuadTreeForGroundPoint[points.size()];
+         for (int i = 0; i < points.size(); i++)
+         {
+            Point3d point = points.get(i);
+            quadTree.put(point.getX(), point.getY(), point.getZ());
+            pointArray[i] = new QuadTreeForGroundPoint(point.getX(), point.getY(), point.getZ());
+         }
+
+         // Adding the points together gives the same tree as adding them one by one, whatever their order
+         quadTreeWithPutAll.getRootNode().putAll(pointArray, 0, pointArray.length);
+         assertSameQueries(random, bounds, quadTree, quadTreeWithPutAll);
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.2)
+   @Test(timeout = 30000)
+   public void testPutAll()
+   {
+      Random random = new Random(1990L);
+      Box bounds = new Box(-10.0, -8.0, 10.0, 12.0);
+
+      // No filtering or averaging, so every point is kept as it is
+      QuadTreeForGroundParameters parameters = new QuadTreeForGroundParameters(0.0, 0.1, Double.POSITIVE_INFINITY, Integer.MAX_VALUE,
+            Double.POSITIVE_INFINITY, -1);
+      QuadTreeForGround quadTree = new QuadTreeForGround(bounds, parameters);
+      QuadTreeForGround quadTreeFromBuffer = new QuadTreeForGround(bounds, parameters);
+
+      int numberOfPoints = 2000;
+      float[] points = new float[3 * numberOfPoints + 3];
+      for (int i = 0; i < numberOfPoints + 1; i++)
+      {
+         points[3 * i] = (float) RandomTools.generateRandomDouble(random, bounds.minX, bounds.maxX);
+         points[3 * i + 1] = (float) RandomTools.generateRandomDouble(random, bounds.minY, bounds.maxY);
+         points[3 * i + 2] = (float) RandomTools.generateRandomDouble(random, -1.0, 1.0);
+      }
+
+      // Only the given number of points is added
+      assertEquals(numberOfPoints, quadTree.putAll(points, numberOfPoints));
+
+      FloatBuffer buffer = FloatBuffer.wrap(points, 3, 3 * numberOfPoints);
+      assertEquals(numberOfPoints, quadTreeFromBuffer.putAll(buffer));
+      assertEquals(3, buffer.position());
+
+      ArrayList<Point3d> storedPoints = new ArrayList<Point3d>();
+      quadTree.getStoredPoints(storedPoints);
+      assertEquals(numberOfPoints, storedPoints.size());
+
+      Point3d closestPoint = new Point3d();
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         Point3d point = new Point3d(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+         quadTree.getClosestPoint(point.getX(), point.getY(), closestPoint);
+         JUnitTools.assertPoint3dEquals("", point, closestPoint, 0.0);
+
+         point.set(points[3 * i + 3], points[3 * i + 4], points[3 * i + 5]);
+         quadTreeFromBuffer.getClosestPoint(point.getX(), point.getY(), closestPoint);
+         JUnitTools.assertPoint3dEquals("", point, closestPoint, 0.0);
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.2)
+   @Test(timeout = 30000)
+   public void testPutAllWithEvictionsMatchesPut()
+   {
+      Random random = new Random(1991L);
+      Box bounds = new Box(-10.0, -8.0, 10.0, 12.0);
+
+      // Only keeps two points, so going down with a cluster evicts the last point of the previous cluster and merges its nodes away
+      int maximumNumberOfPoints = 2;
+      QuadTreeForGroundParameters parameters = new QuadTreeForGroundParameters(0.0, 0.1, Double.POSITIVE_INFINITY, Integer.MAX_VALUE,
+            Double.POSITIVE_INFINITY, maximumNumberOfPoints);
+
+      for (int trial = 0; trial < 50; trial++)
+      {
+         QuadTreeForGround quadTree = new QuadTreeForGround(bounds, parameters);
+         QuadTreeForGround quadTreeWithPutAll = new QuadTreeForGround(bounds, parameters);
+
+         for (int batch = 0; batch < 10; batch++)
+         {
+            int numberOfClusters = 3;
+            QuadTreeForGroundPoint[] pointArray = new QuadTreeForGroundPoint[numberOfClusters * maximumNumberOfPoints];
+            for (int cluster = 0; cluster < numberOfClusters; cluster++)
+            {
+               double centerX = RandomTools.generateRandomDouble(random, bounds.minX + 1.0, bounds.maxX - 1.0);
+               double centerY = RandomTools.generateRandomDouble(random, bounds.minY + 1.0, bounds.maxY - 1.0);
+               for (int i = 0; i < maximumNumberOfPoints; i++)
+               {
+                  double x = centerX + RandomTools.generateRandomDouble(random, 0.0, 0.5);
+                  double y = centerY + RandomTools.generateRandomDouble(random, 0.0, 0.5);
+                  double z = RandomTools.generateRandomDouble(random, 0.0, 1.0);
+                  quadTree.put(x, y, z);
+                  pointArray[cluster * maximumNumberOfPoints + i] = new QuadTreeForGroundPoint(x, y, z);
+               }
+            }
+
+            quadTreeWithPutAll.getRootNode().putAll(pointArray, 0, pointArray.length);
+            quadTreeWithPutAll.getRootNode().checkRepInvarients();
+
+            assertSameQueries(random, bounds, quadTree, quadTreeWithPutAll);
+         }
+      }
+   }
+
+   private void assertSameQueries(Random random, Box bounds, QuadTreeForGround expectedQuadTree, QuadTreeForGround quadTree)
+   {
+      ArrayList<Point3d> expectedPoints = new ArrayList<Point3d>();
+      ArrayList<Point3d> points = new ArrayList<Point3d>();
+
+      expectedQuadTree.getStoredPoints(expectedPoints);
+      quadTree.getStoredPoints(points);
+      assertPointListsEqual(expectedPoints, points);
+
+      expectedPoints.clear();
+      points.clear();
+      expectedQuadTree.getCellAverageStoredPoints(expectedPoints);
+      quadTree.getCellAverageStoredPoints(points);
+      assertPointListsEqual(expectedPoints, points);
+
+      Point3d expectedPoint = new Point3d();
+      Point3d point = new Point3d();
+
+      for (int i = 0; i < 200; i++)
+      {
+         // Also query a bit outside of the bounds
+         double x = RandomTools.generateRandomDouble(random, bounds.minX - 1.0, bounds.maxX + 1.0);
+         double y = RandomTools.generateRandomDouble(random, bounds.minY - 1.0, bounds.maxY + 1.0);
+
+         assertEquals(expectedQuadTree.getHeightAtPoint(x, y), quadTree.getHeightAtPoint(x, y), 0.0);
+
+         expectedPoint.set(Double.NaN, Double.NaN, Double.NaN);
+         point.set(Double.NaN, Double.NaN, Double.NaN);
+         expectedQuadTree.getClosestPoint(x, y, expectedPoint);
+         quadTree.getClosestPoint(x, y, point);
+         JUnitTools.assertPoint3dEquals("", expectedPoint, point, 0.0);
+
+         expectedPoints.clear();
+         points.clear();
+         expectedQuadTree.getAllPointsWithinDistance(x, y, 0.7, expectedPoints);
+         quadTree.getAllPointsWithinDistance(x, y, 0.7, points);
+         assertPointListsEqual(expectedPoints, points);
+
+         expectedPoints.clear();
+         points.clear();
+         Box queryBounds = new Box(x - 0.8, y - 0.5, x + 0.8, y + 0.5);
+         expectedQuadTree.getAllPointsWithinBounds(queryBounds, expectedPoints);
+         quadTree.getAllPointsWithinBounds(queryBounds, points);
+         assertPointListsEqual(expectedPoints, points);
+      }
+   }
+
+   private void assertPointListsEqual(ArrayList<Point3d> expectedPoints, ArrayList<Point3d> points)
+   {
+      assertEquals(expectedPoints.size(), points.size());
+      for (int i = 0; i < expectedPoints.size(); i++)
+      {
+         JUnitTools.assertPoint3dEquals("", expectedPoints.get(i), points.get(i), 0.0);
+      }
+   }
+
    private boolean isPointValueInList(Point3d pointToCheck, ArrayList<Point3d> pointList)
    {
       for (Point3d pointInList : pointList)
@@ -0,0 +1,120 @@
+package us.ihmc.robotics.screwTheory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import us.ihmc.robotics.geometry.RigidBodyTransform;
+import us.ihmc.robotics.random.RandomTools;
+import us.ihmc.robotics.referenceFrames.ReferenceFrame;
+import us.ihmc.tools.testing.JUnitTools;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class CompiledInverseDynamicsCalculatorTest
+{
+   private static final double EPSILON = 1e-10;
+
+   @DeployableTestMethod(estimatedDuration = 0.2)
+   @Test(timeout = 30000)
+   public void testMatchesInverseDynamicsCalculatorOnRandomFloatingTree()
+   {
+      Random random = new Random(1776L);
+      double gravity = -9.81;
+
+      ReferenceFrame worldFrame = ReferenceFrame.getWorldFrame();
+      ReferenceFrame elevatorFrame = ReferenceFrame.constructFrameWithUnchangingTransformToParent("elevator", worldFrame, new RigidBodyTransform());
+      RigidBody elevator = new RigidBody("elevator", elevatorFrame);
+      SixDoFJoint rootJoint = new SixDoFJoint("rootJoint", elevator, elevatorFrame);
+      RigidBody rootBody = ScrewTestTools.addRandomRigidBody("rootBody", random, rootJoint);
+
+      ArrayList<RevoluteJoint> revoluteJoints = new ArrayList<RevoluteJoint>();
+      ScrewTestTools.createRandomTreeRobot(revoluteJoints, rootBody, 30, random);
+
+      TwistCalculator twistCalculator = new TwistCalculator(worldFrame, elevator);
+      InverseDynamicsCalculator inverseDynamicsCalculator = new InverseDynamicsCalculator(twistCalculator, gravity);
+      CompiledInverseDynamicsCalculator compiledInverseDynamicsCalculator = new CompiledInverseDynamicsCalculator(elevator, gravity);
+      assertEquals(revoluteJoints.size() + 2, compiledInverseDynamicsCalculator.getNumberOfBodies());
+
+      Wrench expectedRootJointWrench = new Wrench();
+      Wrench actualRootJointWrench = new Wrench();
+      double[] expectedTaus = new double[revoluteJoints.size()];
+
+      for (int i = 0; i < 100; i++)
+      {
+         ScrewTestTools.setRandomPositionAndOrientation(rootJoint, random);
+         ScrewTestTools.setRandomVelocity(rootJoint, random);
+         setRandomDesiredAcceleration(rootJoint, random);
+         ScrewTestTools.setRandomPositions(revoluteJoints, random);
+         ScrewTestTools.setRandomVelocities(revoluteJoints, random);
+         ScrewTestTools.setRandomDesiredAccelerations(revoluteJoints, random);
+         elevator.updateFramesRecursively();
+
+         for (int j = 0; j < revoluteJoints.size(); j++)
+         {
+            RigidBody body = revoluteJoints.get(j).getSuccessor();
+            if (!body.hasChildrenJoints())
+            {
+               ReferenceFrame bodyFrame = body.getBodyFixedFrame();
+               Wrench externalWrench = new Wrench(bodyFrame, bodyFrame, RandomTools.generateRandomVector(random), RandomTools.generateRandomVector(random));
+               inverseDynamicsCalculator.setExternalWrench(body, externalWrench);
+               compiledInverseDynamicsCalculator.setExternalWrench(body, externalWrench);
+            }
+         }
+
+         twistCalculator.compute();
+         inverseDynamicsCalculator.compute();
+         inverseDynamicsCalculator.getJointWrench(rootJoint, expectedRootJointWrench);
+         for (int j = 0; j < revoluteJoints.size(); j++)
+         {
+            expectedTaus[j] = revoluteJoints.get(j).getTau();
+         }
+
+         compiledInverseDynamicsCalculator.compute();
+         compiledInverseDynamicsCalculator.getJointWrench(rootJoint, actualRootJointWrench);
+         for (int j = 0; j < revoluteJoints.size(); j++)
+         {
+            assertEquals(expectedTaus[j], revoluteJoints.get(j).getTau(), EPSILON);
+         }
+
+         assertEquals(expectedRootJointWrench.getExpressedInFrame(), actualRootJointWrench.getExpressedInFrame());
+         JUnitTools.assertTuple3dEquals(expectedRootJointWrench.getLinearPartCopy(), actualRootJointWrench.getLinearPartCopy(), EPSILON);
+         JUnitTools.assertTuple3dEquals(expectedRootJointWrench.getAngularPartCopy(), actualRootJointWrench.getAngularPartCopy(), EPSILON);
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testIgnoredJointsAreNotCompiled()
+   {
+      Random random = new Random(1984L);
+
+      RigidBody elevator = new RigidBody("elevator", ReferenceFrame.getWorldFrame());
+      ArrayList<RevoluteJoint> revoluteJoints = new ArrayList<RevoluteJoint>();
+      ScrewTestTools.createRandomTreeRobot(revoluteJoints, elevator, 10, random);
+
+      ArrayList<InverseDynamicsJoint> jointsToIgnore = new ArrayList<InverseDynamicsJoint>();
+      RevoluteJoint ignoredJoint = revoluteJoints.get(0);
+      jointsToIgnore.add(ignoredJoint);
+
+      CompiledInverseDynamicsCalculator calculator = new CompiledInverseDynamicsCalculator(elevator, -9.81, jointsToIgnore);
+      int expectedNumberOfBodies = 1 + revoluteJoints.size() - ScrewTools.computeSubtreeJoints(ignoredJoint.getSuccessor()).length - 1;
+      assertEquals(expectedNumberOfBodies, calculator.getNumberOfBodies());
+      assertEquals(0, calculator.getBodyIndex(elevator));
+      assertEquals(-1, calculator.getBodyIndex(ignoredJoint.getSuccessor()));
+   }
+
+   private static void setRandomDesiredAcceleration(SixDoFJoint rootJoint, Random random)
+   {
+      SpatialAccelerationVector jointAcceleration = new SpatialAccelerationVector();
+      rootJoint.getDesiredJointAcceleration(jointAcceleration);
+      jointAcceleration.setAngularPart(RandomTools.generateRandomVector(random));
+      jointAcceleration.setLinearPart(RandomTools.generateRandomVector(random));
+      rootJoint.setDesiredAcceleration(jointAcceleration);
+   }
+}
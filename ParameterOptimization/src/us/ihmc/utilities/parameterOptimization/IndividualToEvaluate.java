@@ -1,10 +1,15 @@
 package us.ihmc.utilities.parameterOptimization;
 
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+
 public abstract class IndividualToEvaluate
 {   
    private boolean fitnessAlreadyComputed = false;
    private double cachedFitness = -1.0;
    private String name = "notNamed";
+   private final ArrayList<Runnable> evaluationDoneCallbacks = new ArrayList<Runnable>();
+   private boolean evaluationDoneNotified = false;
    
    public abstract IndividualToEvaluate createNewIndividual();
    
@@ -16,6 +21,59 @@ public abstract class IndividualToEvaluate
    public abstract boolean isEvaluationDone();
 
    public abstract double computeFitness();
+
+   /**
+    * Runs the callback once the evaluation is done: right away if {@link #isEvaluationDone()} already returns true,
+    * otherwise on the thread calling {@link #notifyEvaluationDone()}.
+    * Individuals that finish after {@link #startEvaluation()} returns have to call {@link #notifyEvaluationDone()} when they are done.
+    * A Population also polls {@link #isEvaluationDone()}, so individuals that do not notify are still picked up, only later.
+    */
+   public void runWhenEvaluationDone(Runnable callback)
+   {
+      synchronized (evaluationDoneCallbacks)
+      {
+         if (!evaluationDoneNotified && !isEvaluationDone())
+         {
+            evaluationDoneCallbacks.add(callback);
+            return;
+         }
+      }
+
+      callback.run();
+   }
+
+   /**
+    * Blocks until the evaluation is done, see {@link #runWhenEvaluationDone(Runnable)}.
+    */
+   public void waitForEvaluationDone() throws InterruptedException
+   {
+      final CountDownLatch evaluationDoneLatch = new CountDownLatch(1);
+      runWhenEvaluationDone(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            evaluationDoneLatch.countDown();
+         }
+      });
+      evaluationDoneLatch.await();
+   }
+
+   protected void notifyEvaluationDone()
+   {
+      ArrayList<Runnable> callbacks;
+      synchronized (evaluationDoneCallbacks)
+      {
+         evaluationDoneNotified = true;
+         callbacks = new ArrayList<Runnable>(evaluationDoneCallbacks);
+         evaluationDoneCallbacks.clear();
+      }
+
+      for (int i = 0; i < callbacks.size(); i++)
+      {
+         callbacks.get(i).run();
+      }
+   }
    
    public String getName()
    {
@@ -60,9 +118,14 @@ public abstract class IndividualToEvaluate
       return cachedFitness;
    }
    
-   protected synchronized void setFitness(double fitness)
+   protected void setFitness(double fitness)
    {
-      fitnessAlreadyComputed = true;
-      cachedFitness = fitness;
+      synchronized (this)
+      {
+         fitnessAlreadyComputed = true;
+         cachedFitness = fitness;
+      }
+
+      notifyEvaluationDone();
    }
 }
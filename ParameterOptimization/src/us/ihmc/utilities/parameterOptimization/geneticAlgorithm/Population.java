@@ -2,8 +2,23 @@ package us.ihmc.utilities.parameterOptimization.geneticAlgorithm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import us.ihmc.utilities.parameterOptimization.EvaluatedIndividualListener;
 import us.ihmc.utilities.parameterOptimization.IndividualToEvaluate;
@@ -25,9 +40,16 @@ import us.ihmc.utilities.parameterOptimization.IndividualToEvaluate;
 
 public class Population
 {
+   /**
+    * Evaluations that are not notified through IndividualToEvaluate.notifyEvaluationDone() are picked up by polling
+    * isEvaluationDone() at this period.
+    */
+   private static final long EVALUATION_DONE_POLL_PERIOD_IN_MILLISECONDS = 100;
+
    private ArrayList<EvaluatedIndividualListener> evaluatedIndividualListeners;
 
    private final Random random;
+   private final int numberOfEvaluationThreads;
    
    private final GeneticAlgorithmIndividualToEvaluate[] generation;
    private final String popName;
@@ -43,6 +65,7 @@ public class Population
    public Population(PopulationParameters populationParameters, int popNumber)
    {
       this.random = populationParameters.getRandom();
+      this.numberOfEvaluationThreads = populationParameters.getNumberOfEvaluationThreads();
       int numIndividuals = populationParameters.getPopulationSize();
       IndividualToEvaluate individualToEvaluate = populationParameters.getSeedIndividualToEvaluate();
       int numberOfSeedInvidualsToCopy = populationParameters.getNumberOfSeedIndividualsToCopyIntoFirstPopulation();
@@ -112,9 +135,11 @@ public class Population
 //      // evaluateAllIndividuals();
 //   }
 
-   private Population(Random random, int numberOfIndividuals, Comparator<GeneticAlgorithmIndividualToEvaluate> comparator, String name, int popNumber)
+   private Population(Random random, int numberOfEvaluationThreads, int numberOfIndividuals, Comparator<GeneticAlgorithmIndividualToEvaluate> comparator,
+         String name, int popNumber)
    {
       this.random = random;
+      this.numberOfEvaluationThreads = numberOfEvaluationThreads;
       
       this.popName = name;
       this.popNumber = popNumber;
@@ -147,34 +172,177 @@ public class Population
       if (allIndividualsEvaluated)
          return;
 
-      // System.out.println("Starting the Evals");
-      for (int i = 0; i < generation.length; i++)
-      {
-         if (!generation[i].isEvaluationDone())
-            generation[i].startEvaluation();
-      }
+      ExecutorService evaluationExecutor = createEvaluationExecutor(popName + "_" + popNumber, numberOfEvaluationThreads);
+      CompletionService<GeneticAlgorithmIndividualToEvaluate> completionService = new ExecutorCompletionService<GeneticAlgorithmIndividualToEvaluate>(evaluationExecutor);
+      int numberOfTasksPending = 0;
 
-      // System.out.println("Waiting for the Evals to finish");
-      for (int i = 0; i < generation.length; i++)
+      // Started evaluations whose fitness computation has not been submitted yet
+      Set<GeneticAlgorithmIndividualToEvaluate> evaluationsInProgress = Collections.newSetFromMap(new ConcurrentHashMap<GeneticAlgorithmIndividualToEvaluate, Boolean>());
+
+      // The same individual can be selected twice as a parent, so it is only evaluated and reported once.
+      Set<GeneticAlgorithmIndividualToEvaluate> individuals = Collections.newSetFromMap(new IdentityHashMap<GeneticAlgorithmIndividualToEvaluate, Boolean>());
+      ArrayList<GeneticAlgorithmIndividualToEvaluate> individualsAlreadyEvaluated = new ArrayList<GeneticAlgorithmIndividualToEvaluate>();
+
+      try
       {
-         while (!generation[i].isEvaluationDone())
+         for (int i = 0; i < generation.length; i++)
          {
-            try
+            if (!individuals.add(generation[i]))
+               continue;
+
+            if (generation[i].isEvaluationDone())
+            {
+               individualsAlreadyEvaluated.add(generation[i]);
+            }
+            else
             {
-               Thread.sleep(1000);
+               // One task starts the evaluation, the other computes the fitness once the evaluation is done.
+               completionService.submit(new EvaluationStart(generation[i], completionService, evaluationsInProgress));
+               numberOfTasksPending += 2;
             }
-            catch (InterruptedException e)
+         }
+
+         // Individuals done before starting are reported first, then the others as soon as their evaluation finishes.
+         for (int i = 0; i < individualsAlreadyEvaluated.size(); i++)
+         {
+            notifyEvaluatedIndividualListeners(individualsAlreadyEvaluated.get(i).getIndividualToEvaluate());
+         }
+
+         while (numberOfTasksPending > 0)
+         {
+            Future<GeneticAlgorithmIndividualToEvaluate> completedTask = completionService.poll(EVALUATION_DONE_POLL_PERIOD_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+            if (completedTask == null)
             {
+               submitFitnessComputationsOfUnnotifiedEvaluations(completionService, evaluationsInProgress);
+               continue;
             }
+
+            GeneticAlgorithmIndividualToEvaluate evaluatedIndividual = completedTask.get();
+            numberOfTasksPending--;
+
+            if (evaluatedIndividual != null)
+               notifyEvaluatedIndividualListeners(evaluatedIndividual.getIndividualToEvaluate());
          }
-         
-         
-         notifyEvaluatedIndividualListeners(generation[i].getIndividualToEvaluate());  
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new RuntimeException("Interrupted while evaluating population " + popName + "_" + popNumber, e);
+      }
+      catch (ExecutionException e)
+      {
+         throw new RuntimeException("Evaluation failed in population " + popName + "_" + popNumber, e.getCause());
+      }
+      finally
+      {
+         evaluationExecutor.shutdownNow();
       }
 
       allIndividualsEvaluated = true;
    }
-   
+
+   /**
+    * Falls back on isEvaluationDone() for individuals that finished without calling notifyEvaluationDone().
+    */
+   private static void submitFitnessComputationsOfUnnotifiedEvaluations(CompletionService<GeneticAlgorithmIndividualToEvaluate> completionService,
+         Set<GeneticAlgorithmIndividualToEvaluate> evaluationsInProgress)
+   {
+      for (GeneticAlgorithmIndividualToEvaluate individual : evaluationsInProgress)
+      {
+         if (individual.isEvaluationDone())
+            submitFitnessComputation(individual, completionService, evaluationsInProgress);
+      }
+   }
+
+   /**
+    * Submits the fitness computation of the individual, unless it has already been submitted.
+    */
+   private static void submitFitnessComputation(GeneticAlgorithmIndividualToEvaluate individual,
+         CompletionService<GeneticAlgorithmIndividualToEvaluate> completionService, Set<GeneticAlgorithmIndividualToEvaluate> evaluationsInProgress)
+   {
+      if (!evaluationsInProgress.remove(individual))
+         return;
+
+      try
+      {
+         completionService.submit(new FitnessComputation(individual));
+      }
+      catch (RejectedExecutionException e)
+      {
+         // The evaluation of the population has been aborted
+      }
+   }
+
+   /**
+    * Starts the evaluation and returns without waiting for it, so an evaluation that finishes asynchronously does not hold a worker thread.
+    */
+   private static class EvaluationStart implements Callable<GeneticAlgorithmIndividualToEvaluate>
+   {
+      private final GeneticAlgorithmIndividualToEvaluate individual;
+      private final CompletionService<GeneticAlgorithmIndividualToEvaluate> completionService;
+      private final Set<GeneticAlgorithmIndividualToEvaluate> evaluationsInProgress;
+
+      public EvaluationStart(GeneticAlgorithmIndividualToEvaluate individual, CompletionService<GeneticAlgorithmIndividualToEvaluate> completionService,
+            Set<GeneticAlgorithmIndividualToEvaluate> evaluationsInProgress)
+      {
+         this.individual = individual;
+         this.completionService = completionService;
+         this.evaluationsInProgress = evaluationsInProgress;
+      }
+
+      @Override
+      public GeneticAlgorithmIndividualToEvaluate call() throws Exception
+      {
+         individual.startEvaluation();
+         evaluationsInProgress.add(individual);
+         individual.getIndividualToEvaluate().runWhenEvaluationDone(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               submitFitnessComputation(individual, completionService, evaluationsInProgress);
+            }
+         });
+
+         return null;
+      }
+   }
+
+   private static class FitnessComputation implements Callable<GeneticAlgorithmIndividualToEvaluate>
+   {
+      private final GeneticAlgorithmIndividualToEvaluate individual;
+
+      public FitnessComputation(GeneticAlgorithmIndividualToEvaluate individual)
+      {
+         this.individual = individual;
+      }
+
+      @Override
+      public GeneticAlgorithmIndividualToEvaluate call() throws Exception
+      {
+         // Computing the fitness here keeps it off the threads notifying the end of the evaluations and the listeners
+         individual.getFitness();
+         return individual;
+      }
+   }
+
+   private static ExecutorService createEvaluationExecutor(final String name, int numberOfThreads)
+   {
+      ThreadFactory threadFactory = new ThreadFactory()
+      {
+         private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+         @Override
+         public Thread newThread(Runnable runnable)
+         {
+            Thread thread = new Thread(runnable, name + "-evaluation-thread-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+         }
+      };
+
+      return Executors.newFixedThreadPool(numberOfThreads, threadFactory);
+   }
 
    public int getNumberOfIndividuals()
    {
@@ -199,7 +367,8 @@ public class Population
 
    public Population breed(double crossoverRate, double mutationRate)
    {
-      Population retPop = new Population(this.random, generation.length, this.comparator, this.popName, this.popNumber + 1);
+      Population retPop = new Population(this.random, this.numberOfEvaluationThreads, generation.length, this.comparator, this.popName, this.popNumber + 1);
+      retPop.evaluatedIndividualListeners = this.evaluatedIndividualListeners;
 
       GeneticAlgorithmIndividualToEvaluate parent1, parent2;
       GeneticAlgorithmIndividualToEvaluate[] children = new GeneticAlgorithmIndividualToEvaluate[2];
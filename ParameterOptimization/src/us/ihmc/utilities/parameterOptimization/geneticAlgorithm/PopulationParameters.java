@@ -17,6 +17,7 @@ public class PopulationParameters
    
    private int numberOfSeedIndividualsToCopyIntoFirstPopulation = 0;
    private double mutationRateForCopiedIndividuals = 0.0;
+   private int numberOfEvaluationThreads = 1;
    
    public PopulationParameters(String name, Random random, int populationSize)
    {
@@ -75,6 +76,24 @@ public class PopulationParameters
    {
       return random;
    }
+
+   public int getNumberOfEvaluationThreads()
+   {
+      return numberOfEvaluationThreads;
+   }
+
+   /**
+    * Number of worker threads starting the evaluations of a population and computing the fitnesses. Individuals that evaluate
+    * asynchronously (e.g. dispatched simulations) do not hold a worker while they run, so all of them run at once.
+    * Defaults to 1, so synchronous individuals are evaluated one at a time unless they are known to be thread safe.
+    */
+   public void setNumberOfEvaluationThreads(int numberOfEvaluationThreads)
+   {
+      if (numberOfEvaluationThreads < 1)
+         throw new RuntimeException("numberOfEvaluationThreads must be at least 1, was " + numberOfEvaluationThreads);
+
+      this.numberOfEvaluationThreads = numberOfEvaluationThreads;
+   }
   
 
 }
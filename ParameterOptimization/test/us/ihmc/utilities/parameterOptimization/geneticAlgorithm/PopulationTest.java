@@ -4,12 +4,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Random;
 
 import org.junit.Test;
 
 import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.utilities.parameterOptimization.EvaluatedIndividualListener;
+import us.ihmc.utilities.parameterOptimization.IndividualToEvaluate;
+import us.ihmc.utilities.parameterOptimization.IntegerParameterToOptimize;
 
 public class PopulationTest
 {
@@ -92,4 +97,141 @@ public class PopulationTest
       assertTrue("bestFitness = " + bestFitness, bestFitness > 13.0);
    }
 
+   @DeployableTestMethod(estimatedDuration = 0.6)
+   @Test(timeout = 30000)
+   public void testListenersNotifiedAsEvaluationsFinish()
+   {
+      Random random = new Random(1777L);
+      int populationSize = 16;
+
+      PopulationParameters populationParameters = new PopulationParameters("asynchronous", random, populationSize);
+      populationParameters.setComparator(new MaximizationIndividualComparator());
+      populationParameters.setSeedIndividualToEvaluate(new AsynchronousExampleIndividualToEvaluate());
+      // Waiting for the evaluations does not hold the worker, so one is enough to run them all at once
+      populationParameters.setNumberOfEvaluationThreads(1);
+
+      Population population = new Population(populationParameters, 0);
+
+      final List<AsynchronousExampleIndividualToEvaluate> notifiedIndividuals = new ArrayList<AsynchronousExampleIndividualToEvaluate>();
+      population.attachEvaluatedIndividualListener(new EvaluatedIndividualListener()
+      {
+         @Override
+         public void evaluatedIndividual(IndividualToEvaluate individual)
+         {
+            assertTrue(individual.isEvaluationDone());
+            notifiedIndividuals.add((AsynchronousExampleIndividualToEvaluate) individual);
+         }
+      });
+
+      long startTime = System.currentTimeMillis();
+      population.evaluateAndSortByFitness();
+      long evaluationTime = System.currentTimeMillis() - startTime;
+
+      assertTrue(population.allIndividualsEvaluated());
+      assertEquals(populationSize, notifiedIndividuals.size());
+
+      // All the evaluations run at once, the slowest one takes less than half a second
+      assertTrue("evaluationTime = " + evaluationTime, evaluationTime < 1000);
+
+      // Individuals that finished clearly earlier are reported first
+      for (int i = 0; i < notifiedIndividuals.size(); i++)
+      {
+         for (int j = i + 1; j < notifiedIndividuals.size(); j++)
+         {
+            long delayI = notifiedIndividuals.get(i).getEvaluationDelay();
+            long delayJ = notifiedIndividuals.get(j).getEvaluationDelay();
+            assertFalse("delays: " + delayI + " " + delayJ, delayI > delayJ + 200);
+         }
+      }
+
+      Population nextPopulation = population.breed(0.6, 0.02);
+      notifiedIndividuals.clear();
+      nextPopulation.evaluateAndSortByFitness();
+      assertEquals(populationSize, nextPopulation.getNumberOfIndividuals());
+      assertFalse(notifiedIndividuals.isEmpty());
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testEvaluationsWithoutNotificationAreDetected()
+   {
+      Random random = new Random(1778L);
+      int populationSize = 8;
+
+      PopulationParameters populationParameters = new PopulationParameters("unnotified", random, populationSize);
+      populationParameters.setComparator(new MaximizationIndividualComparator());
+      AsynchronousExampleIndividualToEvaluate seedIndividual = new AsynchronousExampleIndividualToEvaluate();
+      seedIndividual.notifyWhenDone = false;
+      populationParameters.setSeedIndividualToEvaluate(seedIndividual);
+
+      Population population = new Population(populationParameters, 0);
+
+      final List<IndividualToEvaluate> notifiedIndividuals = new ArrayList<IndividualToEvaluate>();
+      population.attachEvaluatedIndividualListener(new EvaluatedIndividualListener()
+      {
+         @Override
+         public void evaluatedIndividual(IndividualToEvaluate individual)
+         {
+            assertTrue(individual.isEvaluationDone());
+            notifiedIndividuals.add(individual);
+         }
+      });
+
+      population.evaluateAndSortByFitness();
+
+      assertTrue(population.allIndividualsEvaluated());
+      assertEquals(populationSize, notifiedIndividuals.size());
+   }
+
+   private static class AsynchronousExampleIndividualToEvaluate extends ExampleIndividualToEvaluateOne
+   {
+      private volatile boolean evaluationDone = false;
+      private boolean notifyWhenDone = true;
+
+      @Override
+      public IndividualToEvaluate createNewIndividual()
+      {
+         AsynchronousExampleIndividualToEvaluate newIndividual = new AsynchronousExampleIndividualToEvaluate();
+         newIndividual.notifyWhenDone = notifyWhenDone;
+         return newIndividual;
+      }
+
+      public long getEvaluationDelay()
+      {
+         IntegerParameterToOptimize parameter = (IntegerParameterToOptimize) getControlParametersToOptimize().get(0);
+         return 5 * (parameter.getCurrentValue() - 32);
+      }
+
+      @Override
+      public void startEvaluation()
+      {
+         final long evaluationDelay = getEvaluationDelay();
+
+         new Thread(new Runnable()
+         {
+            @Override
+            public void run()
+            {
+               try
+               {
+                  Thread.sleep(evaluationDelay);
+               }
+               catch (InterruptedException e)
+               {
+               }
+
+               evaluationDone = true;
+               if (notifyWhenDone)
+                  notifyEvaluationDone();
+            }
+         }).start();
+      }
+
+      @Override
+      public boolean isEvaluationDone()
+      {
+         return evaluationDone;
+      }
+   }
+
 }
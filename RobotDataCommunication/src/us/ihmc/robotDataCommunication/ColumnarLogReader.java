@@ -0,0 +1,255 @@
+package us.ihmc.robotDataCommunication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import us.ihmc.tools.compression.SnappyUtils;
+
+/**
+ * Reads single columns out of a file written by {@link ColumnarLogWriter}.
+ *
+ * Only the blocks that overlap the requested range of the requested column are read from disk and decompressed. The
+ * most recently decompressed block is cached, so reading a column in consecutive ranges does not decompress blocks twice.
+ *
+ * Not thread safe.
+ */
+public class ColumnarLogReader
+{
+   public static final int TIMESTAMP_COLUMN = 0;
+
+   private final RandomAccessFile randomAccessFile;
+   private final FileChannel channel;
+
+   private final int numberOfColumns;
+   private final int numberOfEntries;
+   private final int entriesPerBlock;
+   private final int numberOfBlocks;
+
+   private final long[] blockTimestamps;
+   private final long[] blockOffsets;
+   private final long columnOffsetTableStart;
+
+   private final ByteBuffer columnOffsetBuffer = ByteBuffer.allocate(8);
+   private final ByteBuffer compressedBuffer;
+   private final ByteBuffer blockBuffer;
+   private final LongBuffer blockLongBuffer;
+
+   private int cachedColumn = -1;
+   private int cachedBlock = -1;
+
+   public ColumnarLogReader(File file) throws IOException
+   {
+      randomAccessFile = new RandomAccessFile(file, "r");
+      channel = randomAccessFile.getChannel();
+
+      ByteBuffer header = ByteBuffer.allocate(ColumnarLogWriter.HEADER_SIZE);
+      readFully(header, 0);
+      if (header.getInt() != ColumnarLogWriter.MAGIC)
+      {
+         close();
+         throw new IOException(file + " is not a columnar log file");
+      }
+      int version = header.getInt();
+      if (version != ColumnarLogWriter.VERSION)
+      {
+         close();
+         throw new IOException("Unsupported columnar log version " + version);
+      }
+      numberOfColumns = header.getInt();
+      numberOfEntries = header.getInt();
+      entriesPerBlock = header.getInt();
+      numberOfBlocks = header.getInt();
+
+      ByteBuffer blockTable = ByteBuffer.allocate(8 * numberOfBlocks + 8 * (numberOfBlocks + 1));
+      readFully(blockTable, ColumnarLogWriter.HEADER_SIZE);
+      blockTimestamps = new long[numberOfBlocks];
+      blockOffsets = new long[numberOfBlocks + 1];
+      blockTable.asLongBuffer().get(blockTimestamps).get(blockOffsets);
+      columnOffsetTableStart = ColumnarLogWriter.getColumnOffsetTableStart(numberOfBlocks);
+
+      compressedBuffer = ByteBuffer.allocate(SnappyUtils.maxCompressedLength(entriesPerBlock * 8));
+      blockBuffer = ByteBuffer.allocate(entriesPerBlock * 8);
+      blockLongBuffer = blockBuffer.asLongBuffer();
+   }
+
+   /**
+    * Fills the remaining space of the buffer from the given file position, and flips the buffer.
+    */
+   private void readFully(ByteBuffer buffer, long position) throws IOException
+   {
+      while (buffer.hasRemaining())
+      {
+         int read = channel.read(buffer, position);
+         if (read < 0)
+         {
+            throw new IOException("Unexpected end of columnar log file");
+         }
+         position += read;
+      }
+      buffer.flip();
+   }
+
+   public int getNumberOfColumns()
+   {
+      return numberOfColumns;
+   }
+
+   public int getNumberOfEntries()
+   {
+      return numberOfEntries;
+   }
+
+   public int getEntriesPerBlock()
+   {
+      return entriesPerBlock;
+   }
+
+   /**
+    * @return index of the first entry with a timestamp larger or equal to the given timestamp, clamped to the last entry. -1
+    *         if the log has no entries.
+    */
+   public int seek(long timestamp) throws IOException
+   {
+      if (numberOfEntries == 0)
+      {
+         return -1;
+      }
+
+      int block = Arrays.binarySearch(blockTimestamps, timestamp);
+      if (block < 0)
+      {
+         // The entry is in the block before the insertion point, or is the first entry of the insertion point
+         block = Math.max(0, -block - 2);
+      }
+
+      loadBlock(TIMESTAMP_COLUMN, block);
+      int entries = getEntriesInBlock(block);
+      int head = 0;
+      int tail = entries;
+      while (head < tail)
+      {
+         int position = (head + tail) >>> 1;
+         if (blockLongBuffer.get(position) < timestamp)
+         {
+            head = position + 1;
+         }
+         else
+         {
+            tail = position;
+         }
+      }
+
+      return Math.min(block * entriesPerBlock + head, numberOfEntries - 1);
+   }
+
+   /**
+    * Reads a range of raw long bits of a column.
+    *
+    * @param column column to read, {@link #TIMESTAMP_COLUMN} for the timestamps, 1 + variable index for variables
+    * @param startEntry first entry to read
+    * @param target array to pack
+    * @param targetOffset first element of target to write to
+    * @param length number of entries to read
+    */
+   public void readColumn(int column, int startEntry, long[] target, int targetOffset, int length) throws IOException
+   {
+      if (column < 0 || column >= numberOfColumns)
+      {
+         throw new IndexOutOfBoundsException("Column " + column + " out of range [0, " + numberOfColumns + ")");
+      }
+      if (startEntry < 0 || length < 0 || startEntry + length > numberOfEntries)
+      {
+         throw new IndexOutOfBoundsException("Entries [" + startEntry + ", " + (startEntry + length) + ") out of range [0, " + numberOfEntries + ")");
+      }
+
+      int entry = startEntry;
+      int end = startEntry + length;
+      while (entry < end)
+      {
+         int block = entry / entriesPerBlock;
+         loadBlock(column, block);
+
+         int offsetInBlock = entry - block * entriesPerBlock;
+         int entriesToCopy = Math.min(getEntriesInBlock(block) - offsetInBlock, end - entry);
+         blockLongBuffer.position(offsetInBlock);
+         blockLongBuffer.get(target, targetOffset + entry - startEntry, entriesToCopy);
+         entry += entriesToCopy;
+      }
+   }
+
+   /**
+    * Reads a range of a column as doubles.
+    *
+    * @param bitsBuffer scratch space for the raw long bits, reuse it between calls. Any length is fine, entriesPerBlock
+    *        elements avoid copying a block in several pieces.
+    * @see #readColumn(int, int, long[], int, int)
+    */
+   public void readDoubleColumn(int column, int startEntry, double[] target, int targetOffset, int length, long[] bitsBuffer) throws IOException
+   {
+      if (bitsBuffer.length == 0)
+      {
+         throw new IllegalArgumentException("bitsBuffer has to hold at least one element");
+      }
+
+      for (int i = 0; i < length; i += bitsBuffer.length)
+      {
+         int entries = Math.min(bitsBuffer.length, length - i);
+         readColumn(column, startEntry + i, bitsBuffer, 0, entries);
+         for (int j = 0; j < entries; j++)
+         {
+            target[targetOffset + i + j] = Double.longBitsToDouble(bitsBuffer[j]);
+         }
+      }
+   }
+
+   private int getEntriesInBlock(int block)
+   {
+      return Math.min(entriesPerBlock, numberOfEntries - block * entriesPerBlock);
+   }
+
+   private void loadBlock(int column, int block) throws IOException
+   {
+      if (column == cachedColumn && block == cachedBlock)
+      {
+         return;
+      }
+
+      long columnOffsetPosition = columnOffsetTableStart + 4L * ((long) block * numberOfColumns + column);
+      boolean lastColumn = column + 1 == numberOfColumns;
+      columnOffsetBuffer.clear();
+      columnOffsetBuffer.limit(lastColumn ? 4 : 8);
+      readFully(columnOffsetBuffer, columnOffsetPosition);
+
+      long start = blockOffsets[block] + columnOffsetBuffer.getInt(0);
+      long end = lastColumn ? blockOffsets[block + 1] : blockOffsets[block] + columnOffsetBuffer.getInt(4);
+
+      compressedBuffer.clear();
+      compressedBuffer.limit((int) (end - start));
+      readFully(compressedBuffer, start);
+
+      blockBuffer.clear();
+      SnappyUtils.uncompress(compressedBuffer, blockBuffer);
+      blockLongBuffer.clear();
+
+      cachedColumn = column;
+      cachedBlock = block;
+   }
+
+   public void close()
+   {
+      try
+      {
+         channel.close();
+         randomAccessFile.close();
+      }
+      catch (IOException e)
+      {
+         // Nothing to do here
+      }
+   }
+}
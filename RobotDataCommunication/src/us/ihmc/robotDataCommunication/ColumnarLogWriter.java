@@ -0,0 +1,175 @@
+package us.ihmc.robotDataCommunication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import us.ihmc.tools.compression.SnappyUtils;
+
+/**
+ * Writes log variable data in a chunked columnar layout that can be read with {@link ColumnarLogReader}.
+ *
+ * The log is split in time windows of entriesPerBlock frames. For every window, every column (timestamp, variables and
+ * joint states) is stored as a separate Snappy compressed block, so a reader only has to decompress the columns and time
+ * windows it needs.
+ *
+ * File layout, all values big endian:
+ * <pre>
+ * int magic, int version, int numberOfColumns, int numberOfEntries, int entriesPerBlock, int numberOfBlocks
+ * long[numberOfBlocks] timestamp of the first entry of every block
+ * long[numberOfBlocks + 1] file offset of every block, the last element is the end of the data
+ * int[numberOfBlocks * numberOfColumns] offset of every column relative to the start of its block
+ * compressed blocks
+ * </pre>
+ */
+public class ColumnarLogWriter
+{
+   public static final int MAGIC = 0x59434F4C; // YCOL
+   public static final int VERSION = 1;
+   public static final int HEADER_SIZE = 6 * 4;
+
+   private final RandomAccessFile randomAccessFile;
+   private final FileChannel channel;
+
+   private final int numberOfColumns;
+   private final int numberOfEntries;
+   private final int entriesPerBlock;
+   private final int numberOfBlocks;
+
+   private final long[] blockTimestamps;
+   private final long[] blockOffsets;
+   private final ByteBuffer columnOffsetBuffer;
+
+   private final ByteBuffer columnBuffer;
+   private final ByteBuffer compressedBuffer;
+
+   private int currentBlock = 0;
+   private long currentOffset;
+
+   public ColumnarLogWriter(File file, int numberOfColumns, int numberOfEntries, int entriesPerBlock) throws IOException
+   {
+      this.numberOfColumns = numberOfColumns;
+      this.numberOfEntries = numberOfEntries;
+      this.entriesPerBlock = entriesPerBlock;
+      this.numberOfBlocks = (numberOfEntries + entriesPerBlock - 1) / entriesPerBlock;
+
+      blockTimestamps = new long[numberOfBlocks];
+      blockOffsets = new long[numberOfBlocks + 1];
+      columnOffsetBuffer = ByteBuffer.allocate(4 * numberOfColumns);
+
+      columnBuffer = ByteBuffer.allocate(entriesPerBlock * 8);
+      compressedBuffer = ByteBuffer.allocate(SnappyUtils.maxCompressedLength(entriesPerBlock * 8));
+
+      randomAccessFile = new RandomAccessFile(file, "rw");
+      randomAccessFile.setLength(0);
+      channel = randomAccessFile.getChannel();
+
+      currentOffset = getDataStart(numberOfColumns, numberOfBlocks);
+   }
+
+   static long getColumnOffsetTableStart(int numberOfBlocks)
+   {
+      return HEADER_SIZE + 8L * numberOfBlocks + 8L * (numberOfBlocks + 1);
+   }
+
+   static long getDataStart(int numberOfColumns, int numberOfBlocks)
+   {
+      return getColumnOffsetTableStart(numberOfBlocks) + 4L * numberOfBlocks * numberOfColumns;
+   }
+
+   public int getEntriesPerBlock()
+   {
+      return entriesPerBlock;
+   }
+
+   public int getNumberOfBlocks()
+   {
+      return numberOfBlocks;
+   }
+
+   /**
+    * Write the next block.
+    *
+    * @param columns data of the block, indexed as [column][entry]. Column 0 holds the timestamps.
+    * @param entries number of entries in this block, equal to entriesPerBlock for every block but the last one
+    */
+   public void writeBlock(long[][] columns, int entries) throws IOException
+   {
+      if (currentBlock >= numberOfBlocks)
+      {
+         throw new IOException("All " + numberOfBlocks + " blocks have already been written");
+      }
+
+      blockTimestamps[currentBlock] = columns[0][0];
+      blockOffsets[currentBlock] = currentOffset;
+      columnOffsetBuffer.clear();
+
+      for (int column = 0; column < numberOfColumns; column++)
+      {
+         columnOffsetBuffer.putInt((int) (currentOffset - blockOffsets[currentBlock]));
+
+         long[] columnData = columns[column];
+         columnBuffer.clear();
+         for (int i = 0; i < entries; i++)
+         {
+            columnBuffer.putLong(columnData[i]);
+         }
+         columnBuffer.flip();
+
+         compressedBuffer.clear();
+         SnappyUtils.compress(columnBuffer, compressedBuffer);
+         compressedBuffer.flip();
+
+         while (compressedBuffer.hasRemaining())
+         {
+            currentOffset += channel.write(compressedBuffer, currentOffset);
+         }
+      }
+
+      // The column offset table can be large for long logs, so it is written to the reserved space block by block
+      columnOffsetBuffer.flip();
+      long columnOffsetPosition = getColumnOffsetTableStart(numberOfBlocks) + 4L * currentBlock * numberOfColumns;
+      while (columnOffsetBuffer.hasRemaining())
+      {
+         columnOffsetPosition += channel.write(columnOffsetBuffer, columnOffsetPosition);
+      }
+
+      currentBlock++;
+   }
+
+   /**
+    * Writes the header and block table and closes the file.
+    */
+   public void close() throws IOException
+   {
+      if (currentBlock != numberOfBlocks)
+      {
+         channel.close();
+         randomAccessFile.close();
+         throw new IOException("Expected " + numberOfBlocks + " blocks, got " + currentBlock);
+      }
+      blockOffsets[numberOfBlocks] = currentOffset;
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + 8 * blockTimestamps.length + 8 * blockOffsets.length);
+      header.putInt(MAGIC);
+      header.putInt(VERSION);
+      header.putInt(numberOfColumns);
+      header.putInt(numberOfEntries);
+      header.putInt(entriesPerBlock);
+      header.putInt(numberOfBlocks);
+      header.asLongBuffer().put(blockTimestamps).put(blockOffsets);
+      header.clear();
+
+      long position = 0;
+      while (header.hasRemaining())
+      {
+         position += channel.write(header, position);
+      }
+
+      channel.force(true);
+      channel.close();
+      randomAccessFile.close();
+   }
+}
@@ -0,0 +1,162 @@
+package us.ihmc.robotDataCommunication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import us.ihmc.tools.compression.SnappyUtils;
+
+/**
+ * Random access reader for the Snappy compressed variable data of a log.
+ *
+ * Both the data file and the index are memory mapped. Frames are located by binary searching the index, and only the
+ * frames that are requested get decompressed. The data file is mapped lazily in overlapping segments, so logs larger than
+ * 2GB are supported and opening a log does not depend on its length.
+ *
+ * Not thread safe, the returned buffers are reused for every call.
+ */
+public class MappedLogDataReader
+{
+   private static final long SEGMENT_SIZE = 1L << 30;
+
+   private final RandomAccessFile dataRandomAccessFile;
+   private final FileChannel dataChannel;
+   private final MappedLogIndex logIndex;
+
+   private final long dataSize;
+   private final long segmentOverlap;
+   private final ByteBuffer[] segments;
+
+   private final ByteBuffer compressedData;
+   private final ByteBuffer uncompressedData;
+
+   /**
+    * @param dataFile compressed variable data
+    * @param indexFile timestamped index of the data file
+    * @param uncompressedFrameSize size of a single uncompressed frame in bytes
+    */
+   public MappedLogDataReader(File dataFile, File indexFile, int uncompressedFrameSize) throws IOException
+   {
+      dataRandomAccessFile = new RandomAccessFile(dataFile, "r");
+      dataChannel = dataRandomAccessFile.getChannel();
+      dataSize = dataChannel.size();
+      logIndex = new MappedLogIndex(indexFile, dataSize);
+
+      int maximumCompressedSize = SnappyUtils.maxCompressedLength(uncompressedFrameSize);
+      compressedData = ByteBuffer.allocate(maximumCompressedSize);
+      uncompressedData = ByteBuffer.allocate(uncompressedFrameSize);
+
+      // Segments overlap by the maximum frame size, so every frame fits in the segment it starts in
+      segmentOverlap = maximumCompressedSize;
+      segments = new ByteBuffer[(int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+   }
+
+   public MappedLogIndex getLogIndex()
+   {
+      return logIndex;
+   }
+
+   public int getNumberOfEntries()
+   {
+      return logIndex.getNumberOfEntries();
+   }
+
+   public long getTimestamp(int position)
+   {
+      return logIndex.getTimestamp(position);
+   }
+
+   /**
+    * @return position of the first frame with a timestamp larger or equal to the given timestamp
+    */
+   public int seek(long timestamp)
+   {
+      return logIndex.seek(timestamp);
+   }
+
+   private ByteBuffer getSegment(int segmentIndex) throws IOException
+   {
+      ByteBuffer segment = segments[segmentIndex];
+      if (segment == null)
+      {
+         long start = segmentIndex * SEGMENT_SIZE;
+         long size = Math.min(SEGMENT_SIZE + segmentOverlap, dataSize - start);
+         segment = dataChannel.map(MapMode.READ_ONLY, start, size);
+         segments[segmentIndex] = segment;
+      }
+      return segment;
+   }
+
+   /**
+    * Copies the compressed frame at the given position out of the mapped data file.
+    *
+    * @return internal buffer holding the compressed frame, valid until the next call
+    */
+   public ByteBuffer readCompressedData(int position) throws IOException
+   {
+      long offset = logIndex.getDataOffset(position);
+      int size = logIndex.getCompressedSize(position);
+
+      if (size < 0 || size > compressedData.capacity() || offset + size > dataSize)
+      {
+         throw new IOException("Invalid frame " + position + " at offset " + offset + " with size " + size);
+      }
+
+      int segmentIndex = (int) (offset / SEGMENT_SIZE);
+      ByteBuffer segment = getSegment(segmentIndex);
+      int segmentOffset = (int) (offset - segmentIndex * SEGMENT_SIZE);
+
+      segment.position(segmentOffset);
+      compressedData.clear();
+      segment.get(compressedData.array(), 0, size);
+      compressedData.limit(size);
+
+      return compressedData;
+   }
+
+   /**
+    * Decompresses the frame at the given position.
+    *
+    * @return internal buffer holding the uncompressed frame, valid until the next call
+    */
+   public ByteBuffer readData(int position) throws IOException
+   {
+      uncompressedData.clear();
+      readData(position, uncompressedData);
+      uncompressedData.flip();
+      return uncompressedData;
+   }
+
+   /**
+    * Decompresses the frame at the given position into the remaining space of the target buffer.
+    */
+   public void readData(int position, ByteBuffer target) throws IOException
+   {
+      ByteBuffer compressedData = readCompressedData(position);
+      SnappyUtils.uncompress(compressedData, target);
+   }
+
+   /**
+    * Releases the file handle. The mapped regions are released by the garbage collector.
+    */
+   public void close()
+   {
+      for (int i = 0; i < segments.length; i++)
+      {
+         segments[i] = null;
+      }
+
+      try
+      {
+         dataChannel.close();
+         dataRandomAccessFile.close();
+      }
+      catch (IOException e)
+      {
+         // Nothing to do here
+      }
+   }
+}
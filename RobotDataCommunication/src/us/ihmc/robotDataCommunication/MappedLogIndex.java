@@ -0,0 +1,117 @@
+package us.ihmc.robotDataCommunication;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Read only view on a timestamped log index (robotData.dat). Every entry is 16 bytes, a timestamp followed by the offset of
+ * the compressed frame in the data file.
+ *
+ * The index file is memory mapped instead of being read into arrays, so opening a log takes constant time and the
+ * operating system only pages in the parts of the index that are actually used.
+ */
+public class MappedLogIndex
+{
+   private static final int ENTRY_SIZE = 16;
+   private static final int ENTRIES_PER_SEGMENT = Integer.MAX_VALUE / ENTRY_SIZE;
+
+   private final ByteBuffer[] segments;
+   private final int numberOfEntries;
+   private final long dataSize;
+
+   /**
+    * @param indexFile timestamped index file
+    * @param dataSize size of the data file in bytes, used to calculate the size of the last frame
+    */
+   public MappedLogIndex(File indexFile, long dataSize) throws IOException
+   {
+      this.dataSize = dataSize;
+
+      RandomAccessFile indexRandomAccessFile = new RandomAccessFile(indexFile, "r");
+      try
+      {
+         FileChannel indexChannel = indexRandomAccessFile.getChannel();
+         long entries = indexChannel.size() / ENTRY_SIZE;
+         if (entries > Integer.MAX_VALUE)
+         {
+            throw new IOException("Index file " + indexFile + " has too many entries: " + entries);
+         }
+         numberOfEntries = (int) entries;
+
+         int numberOfSegments = (numberOfEntries + ENTRIES_PER_SEGMENT - 1) / ENTRIES_PER_SEGMENT;
+         segments = new ByteBuffer[numberOfSegments];
+         for (int i = 0; i < numberOfSegments; i++)
+         {
+            long firstEntry = ((long) i) * ENTRIES_PER_SEGMENT;
+            long segmentEntries = Math.min(ENTRIES_PER_SEGMENT, numberOfEntries - firstEntry);
+            segments[i] = indexChannel.map(MapMode.READ_ONLY, firstEntry * ENTRY_SIZE, segmentEntries * ENTRY_SIZE);
+         }
+      }
+      finally
+      {
+         // The mapping stays valid after closing the channel
+         indexRandomAccessFile.close();
+      }
+   }
+
+   public int getNumberOfEntries()
+   {
+      return numberOfEntries;
+   }
+
+   public long getTimestamp(int position)
+   {
+      return segments[position / ENTRIES_PER_SEGMENT].getLong((position % ENTRIES_PER_SEGMENT) * ENTRY_SIZE);
+   }
+
+   public long getDataOffset(int position)
+   {
+      return segments[position / ENTRIES_PER_SEGMENT].getLong((position % ENTRIES_PER_SEGMENT) * ENTRY_SIZE + 8);
+   }
+
+   public int getCompressedSize(int position)
+   {
+      long nextOffset = position + 1 < numberOfEntries ? getDataOffset(position + 1) : dataSize;
+      return (int) (nextOffset - getDataOffset(position));
+   }
+
+   public long getInitialTimestamp()
+   {
+      return getTimestamp(0);
+   }
+
+   public long getFinalTimestamp()
+   {
+      return getTimestamp(numberOfEntries - 1);
+   }
+
+   /**
+    * Binary search for the first entry with a timestamp larger or equal to the given timestamp.
+    *
+    * @return the position of the entry, clamped to the last entry if all timestamps are smaller
+    */
+   public int seek(long timestamp)
+   {
+      int head = 0;
+      int tail = numberOfEntries;
+
+      while (head < tail)
+      {
+         int position = (head + tail) >>> 1;
+         if (getTimestamp(position) < timestamp)
+         {
+            head = position + 1;
+         }
+         else
+         {
+            tail = position;
+         }
+      }
+
+      return Math.min(head, numberOfEntries - 1);
+   }
+}
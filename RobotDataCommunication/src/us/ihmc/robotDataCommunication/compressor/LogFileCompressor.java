@@ -1,192 +1,271 @@
 package us.ihmc.robotDataCommunication.compressor;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 
 import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZInputStream;
 import org.tukaani.xz.XZOutputStream;
 
+import us.ihmc.robotDataCommunication.MappedLogDataReader;
 import us.ihmc.robotDataCommunication.logger.LogProperties;
 import us.ihmc.robotDataCommunication.logger.LogPropertiesReader;
 import us.ihmc.robotDataCommunication.logger.YoVariableLogReader;
 import us.ihmc.robotDataCommunication.logger.YoVariableLoggerListener;
-
-public class
-LogFileCompressor extends YoVariableLogReader
+import us.ihmc.robotDataCommunication.logger.util.FileSelectionDialog;
+import us.ihmc.tools.thread.ThreadTools;
+
+/**
+ * Recompresses the variable data of a log for archival.
+ *
+ * The log is split in chunks of consecutive frames. Chunks are decompressed, transposed to one run of values per
+ * variable and XZ compressed in parallel, one chunk per thread. Every chunk is written to its own robotData.[chunk].xz file.
+ * The chunk buffers of all threads together take at most the given buffer size, so adding threads makes the chunks smaller
+ * instead of adding memory.
+ *
+ * With XOR delta encoding, every value is stored as the XOR of its long bits with the previous value of the same variable.
+ * Variables that do not change from tick to tick then become runs of zeros, which compress a lot better.
+ *
+ * Chunk file layout, inside the XZ stream: int numberOfVariables, int numberOfEntries, byte encoding, followed by
+ * numberOfEntries longs for every variable. Use {@link #readChunk(File)} to get the original values back.
+ */
+public class LogFileCompressor extends YoVariableLogReader
 {
-   public static final int NUMBER_OF_THREADS = 8;
-   public static final int MAX_BUFFER_SIZE_IN_BYTE = 100000000;
+   /** Default memory for the buffers of all threads together */
+   public static final long MAX_BUFFER_SIZE_IN_BYTE = 100000000;
    public static final int COMPRESSION_LEVEL = 3;
 
-   public static final String out = "/home/jesper/scratch/";
+   public static final byte RAW_ENCODING = 0;
+   public static final byte XOR_DELTA_ENCODING = 1;
 
-   private int bufferedElements;
+   private final File outputDirectory;
+   private final int numberOfThreads;
+   private final boolean xorDelta;
+   private final long maxBufferSizeInBytes;
 
-   private final ExecutorService threadPool = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
    private final LinkedBlockingQueue<DataBuffer> availableBuffers = new LinkedBlockingQueue<>();
-   private final LinkedBlockingQueue<DataBuffer> writableBuffers = new LinkedBlockingQueue<>();
 
-   public LogFileCompressor(File logDirectory, LogProperties logProperties) throws IOException
+   public LogFileCompressor(File logDirectory, LogProperties logProperties, File outputDirectory)
    {
-      super(logDirectory, logProperties);
-      initialize();
-
-      int maxBufferedElements = MAX_BUFFER_SIZE_IN_BYTE / 8;
-
-      bufferedElements = maxBufferedElements / getNumberOfVariables();
+      this(logDirectory, logProperties, outputDirectory, Runtime.getRuntime().availableProcessors(), true, MAX_BUFFER_SIZE_IN_BYTE);
+   }
 
-      System.out.println("Reading " + getNumberOfEntries() + " entries.");
-      System.out.println("Found " + getNumberOfVariables() + " variables.");
-      System.out.println("Writing " + bufferedElements + " data points at a time");
-      System.out.println("Total space " + (getNumberOfEntries() * getNumberOfVariables() * 8) / (1024 * 1024) + " MB.");
+   /**
+    * @param maxBufferSizeInBytes memory for the chunk buffers, shared by all threads
+    */
+   public LogFileCompressor(File logDirectory, LogProperties logProperties, File outputDirectory, int numberOfThreads, boolean xorDelta,
+         long maxBufferSizeInBytes)
+   {
+      super(logDirectory, logProperties);
+      this.outputDirectory = outputDirectory;
+      this.numberOfThreads = numberOfThreads;
+      this.xorDelta = xorDelta;
+      this.maxBufferSizeInBytes = maxBufferSizeInBytes;
+   }
 
-      if (bufferedElements > getNumberOfEntries())
+   public void compress() throws IOException
+   {
+      if (!initialize())
       {
-         System.out.println("Reading all elements into buffer");
-         bufferedElements = getNumberOfEntries();
+         return;
       }
 
-      for (int i = 0; i < NUMBER_OF_THREADS; i++)
+      if (!outputDirectory.exists() && !outputDirectory.mkdirs())
       {
-         try
-         {
-            availableBuffers.put(new DataBuffer(getNumberOfVariables(), bufferedElements * 8));
-         }
-         catch (InterruptedException e)
-         {
-            throw new RuntimeException(e);
-         }
+         throw new IOException("Cannot create " + outputDirectory);
       }
 
-      decompressData();
-
-      close();
-   }
-
-   private void decompressData() throws IOException
-   {
-
-      int currentFile = 0;
-      int currentFileEntry = 0;
+      long maxBufferedElementsPerThread = maxBufferSizeInBytes / 8 / numberOfThreads;
+      int entriesPerChunk = (int) Math.max(1, Math.min(maxBufferedElementsPerThread / getNumberOfVariables(), getNumberOfEntries()));
+      int numberOfChunks = (getNumberOfEntries() + entriesPerChunk - 1) / entriesPerChunk;
 
-      DataBuffer buffer = getFreeDataBuffer(currentFile);
+      System.out.println("Reading " + getNumberOfEntries() + " entries.");
+      System.out.println("Found " + getNumberOfVariables() + " variables.");
+      System.out.println("Writing " + numberOfChunks + " chunks of " + entriesPerChunk + " entries on " + numberOfThreads + " threads"
+            + (xorDelta ? " with XOR delta encoding" : ""));
+      System.out.println("Total space " + ((long) getNumberOfEntries() * getNumberOfVariables() * 8) / (1024 * 1024) + " MB.");
 
-      for (int i = 0; i < getNumberOfEntries(); i++)
+      for (int i = 0; i < Math.min(numberOfThreads, numberOfChunks); i++)
       {
-         ByteBuffer dataLine = readData(i);
+         availableBuffers.add(new DataBuffer(getNumberOfVariables(), entriesPerChunk));
+      }
 
-         for (int e = 0; e < getNumberOfVariables(); e++)
-         {
-            buffer.data[e][currentFileEntry * 8] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 1] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 2] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 3] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 4] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 5] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 6] = dataLine.get();
-            buffer.data[e][currentFileEntry * 8 + 7] = dataLine.get();
-         }
+      long startTime = System.nanoTime();
 
-         currentFileEntry++;
-         if (currentFileEntry >= bufferedElements)
-         {
-            try
-            {
-               writableBuffers.put(buffer);
-               threadPool.execute(new DataWriter());
-            }
-            catch (InterruptedException e)
-            {
-               throw new RuntimeException(e);
-            }
-            buffer = getFreeDataBuffer(currentFile);
-            currentFileEntry = 0;
-            currentFile++;
-         }
+      ExecutorService threadPool = Executors.newFixedThreadPool(numberOfThreads, ThreadTools.getNamedThreadFactory(getClass().getSimpleName()));
+      ArrayList<Future<Long>> writtenSizes = new ArrayList<>();
+      for (int chunk = 0; chunk < numberOfChunks; chunk++)
+      {
+         int start = chunk * entriesPerChunk;
+         int end = Math.min(start + entriesPerChunk, getNumberOfEntries());
+         writtenSizes.add(threadPool.submit(new ChunkCompressor(chunk, start, end)));
       }
-
-      System.out.println("All data read");
       threadPool.shutdown();
 
-      copyMetaData(new File(out));
-   }
-
-   private DataBuffer getFreeDataBuffer(int currentFile)
-   {
+      long totalSize = 0;
       try
       {
-         DataBuffer dataBuffers = availableBuffers.take();
-
-         dataBuffers.fileID = currentFile;
-         return dataBuffers;
+         for (int i = 0; i < writtenSizes.size(); i++)
+         {
+            totalSize += writtenSizes.get(i).get();
+         }
       }
-      catch (InterruptedException e1)
+      catch (InterruptedException | ExecutionException e)
       {
-         throw new RuntimeException(e1);
+         threadPool.shutdownNow();
+         throw new IOException("Compression failed", e);
       }
+
+      copyMetaData(outputDirectory);
+      close();
+
+      double time = (System.nanoTime() - startTime) / 1e9;
+      System.out.println("Wrote " + totalSize / (1024 * 1024) + " MB in " + time + " s");
    }
 
    private class DataBuffer
    {
       private final byte[][] data;
-      private int fileID;
+      private final ByteBuffer[] dataAsByteBuffers;
+      private final long[] previousValues;
 
       public DataBuffer(int variables, int elements)
       {
-         data = new byte[variables][elements];
+         data = new byte[variables][elements * 8];
+         dataAsByteBuffers = new ByteBuffer[variables];
+         for (int i = 0; i < variables; i++)
+         {
+            dataAsByteBuffers[i] = ByteBuffer.wrap(data[i]);
+         }
+         previousValues = new long[variables];
       }
    }
 
-   private class DataWriter implements Runnable
+   private class ChunkCompressor implements Callable<Long>
    {
+      private final int chunk;
+      private final int start;
+      private final int end;
+
+      private ChunkCompressor(int chunk, int start, int end)
+      {
+         this.chunk = chunk;
+         this.start = start;
+         this.end = end;
+      }
 
       @Override
-      public void run()
+      public Long call() throws IOException, InterruptedException
       {
+         DataBuffer buffer = availableBuffers.take();
+         MappedLogDataReader logDataReader = createLogDataReader();
          try
          {
-            DataBuffer buffer = writableBuffers.take();
-            int currentFile = buffer.fileID;
-            byte[][] dataBuffers = buffer.data;
+            int numberOfVariables = getNumberOfVariables();
+            int elements = end - start;
+            Arrays.fill(buffer.previousValues, 0L);
 
-            FileOutputStream logOutputStream = new FileOutputStream(new File(out + "robotData." + currentFile + ".xz"));
-            XZOutputStream xzOutputStream = new XZOutputStream(logOutputStream, new LZMA2Options(COMPRESSION_LEVEL));
-            int writtenLength = 0;
-            for (int i = 0; i < getNumberOfVariables(); i++)
+            for (int i = start; i < end; i++)
             {
-               writtenLength += dataBuffers[i].length;
-               xzOutputStream.write(dataBuffers[i]);
+               ByteBuffer dataLine = logDataReader.readData(i);
+               int position = (i - start) * 8;
+
+               for (int e = 0; e < numberOfVariables; e++)
+               {
+                  long value = dataLine.getLong(e * 8);
+                  if (xorDelta)
+                  {
+                     long delta = value ^ buffer.previousValues[e];
+                     buffer.previousValues[e] = value;
+                     value = delta;
+                  }
+                  buffer.dataAsByteBuffers[e].putLong(position, value);
+               }
             }
 
-            System.out.println("Wrote " + writtenLength / (1024 * 1024) + " MB");
+            File chunkFile = new File(outputDirectory, "robotData." + chunk + ".xz");
+            FileOutputStream logOutputStream = new FileOutputStream(chunkFile);
+            XZOutputStream xzOutputStream = new XZOutputStream(logOutputStream, new LZMA2Options(COMPRESSION_LEVEL));
+            DataOutputStream dataOutputStream = new DataOutputStream(xzOutputStream);
+            dataOutputStream.writeInt(numberOfVariables);
+            dataOutputStream.writeInt(elements);
+            dataOutputStream.writeByte(xorDelta ? XOR_DELTA_ENCODING : RAW_ENCODING);
+            for (int e = 0; e < numberOfVariables; e++)
+            {
+               dataOutputStream.write(buffer.data[e], 0, elements * 8);
+            }
+            dataOutputStream.close();
 
-            xzOutputStream.close();
-            logOutputStream.close();
-            availableBuffers.put(buffer);
+            return chunkFile.length();
          }
-         catch (IOException | InterruptedException e)
+         finally
          {
-            e.printStackTrace();
+            logDataReader.close();
+            availableBuffers.put(buffer);
          }
-
       }
+   }
 
+   /**
+    * Reads a chunk written by this compressor and undoes the delta encoding.
+    *
+    * @return the values of the chunk, indexed as [variable][entry]
+    */
+   public static long[][] readChunk(File chunkFile) throws IOException
+   {
+      DataInputStream dataInputStream = new DataInputStream(new BufferedInputStream(new XZInputStream(new FileInputStream(chunkFile))));
+      try
+      {
+         int numberOfVariables = dataInputStream.readInt();
+         int numberOfEntries = dataInputStream.readInt();
+         byte encoding = dataInputStream.readByte();
+
+         long[][] values = new long[numberOfVariables][numberOfEntries];
+         for (int e = 0; e < numberOfVariables; e++)
+         {
+            long previous = 0;
+            for (int i = 0; i < numberOfEntries; i++)
+            {
+               long value = dataInputStream.readLong();
+               if (encoding == XOR_DELTA_ENCODING)
+               {
+                  value ^= previous;
+                  previous = value;
+               }
+               values[e][i] = value;
+            }
+         }
+         return values;
+      }
+      finally
+      {
+         dataInputStream.close();
+      }
    }
 
    public static void main(String[] args) throws IOException
    {
-      //      File logDirectory = FileSelectionDialog.loadDirectoryWithFileNamed(YoVariableLoggerListener.propertyFile);
-      File logDirectory = new File("/home/jesper/robotLogs/20160520_130501_Atlas_WalkOnStraightLinesFallStanding_Step/");
+      File logDirectory = FileSelectionDialog.loadDirectoryWithFileNamed(YoVariableLoggerListener.propertyFile);
       if (logDirectory != null)
       {
          LogPropertiesReader logProperties = new LogPropertiesReader(new File(logDirectory, YoVariableLoggerListener.propertyFile));
 
-         new LogFileCompressor(logDirectory, logProperties);
+         File outputDirectory = args.length > 0 ? new File(args[0]) : new File(logDirectory, "archive");
+         new LogFileCompressor(logDirectory, logProperties, outputDirectory).compress();
       }
    }
 }
@@ -205,4 +205,17 @@ public abstract class LogProperties extends Properties
    {
       setProperty("variables.timestamped", String.valueOf(timestamped));
    }
+   
+   public void setColumnarDataFile(String filename)
+   {
+      setProperty("variables.columnar", filename);
+   }
+   
+   /**
+    * @return name of the columnar copy of the variable data, or null if the log has not been converted
+    */
+   public String getColumnarDataFile()
+   {
+      return getProperty("variables.columnar");
+   }
 }
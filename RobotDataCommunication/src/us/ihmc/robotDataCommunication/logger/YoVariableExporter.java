@@ -14,6 +14,7 @@ import com.jmatio.types.MLInt32;
 import com.jmatio.types.MLInt64;
 import com.jmatio.types.MLNumericArray;
 
+import us.ihmc.robotDataCommunication.ColumnarLogReader;
 import us.ihmc.robotDataCommunication.logger.util.CustomProgressMonitor;
 import us.ihmc.robotics.dataStructures.variable.BooleanYoVariable;
 import us.ihmc.robotics.dataStructures.variable.DoubleYoVariable;
@@ -77,35 +78,15 @@ public class YoVariableExporter extends YoVariableLogReader
             }
          }
          
-         int step = elements / 90;
-         
-         long firstTimestamp = -1;
-         for (int i = startPosition; i <= endPosition; i++)
+         ColumnarLogReader columnarLogReader = openColumnarLogReader();
+         if (columnarLogReader != null)
          {
-            if((i - startPosition) % step == 0) 
-            {
-               monitor.setProgress((i - startPosition) / step);
-            }
-            
-            ByteBuffer data = readData(i);
-            LongBuffer dataAsLong = data.asLongBuffer();
-
-            
-            long entryTimestamp = dataAsLong.get();
-            
-            if(firstTimestamp == -1)
-            {
-               firstTimestamp = entryTimestamp;
-            }
-            
-            timestamp.setReal(entryTimestamp, i - startPosition);
-            robotTime.setReal(TimeTools.nanoSecondstoSeconds(entryTimestamp - firstTimestamp), i - startPosition);
-            
-            for (int dh = 0; dh < dataHolders.size(); dh++)
-            {
-               DataHolder<?> dataHolder = dataHolders.get(dh);
-               dataHolder.addEntry(dataAsLong);
-            }
+            readColumns(columnarLogReader, startPosition, elements, timestamp, robotTime, dataHolders, monitor);
+            columnarLogReader.close();
+         }
+         else
+         {
+            readRows(startPosition, endPosition, timestamp, robotTime, dataHolders, monitor);
          }
          
          monitor.setNote("Writing data to disk");
@@ -129,6 +110,71 @@ public class YoVariableExporter extends YoVariableLogReader
       }
    }
 
+   private void readRows(int startPosition, int endPosition, MLInt64 timestamp, MLDouble robotTime, ArrayList<DataHolder<?>> dataHolders,
+         CustomProgressMonitor monitor) throws IOException
+   {
+      int elements = endPosition - startPosition + 1;
+      int step = Math.max(1, elements / 90);
+      
+      long firstTimestamp = -1;
+      for (int i = startPosition; i <= endPosition; i++)
+      {
+         if((i - startPosition) % step == 0) 
+         {
+            monitor.setProgress((i - startPosition) / step);
+         }
+         
+         ByteBuffer data = readData(i);
+         LongBuffer dataAsLong = data.asLongBuffer();
+
+         
+         long entryTimestamp = dataAsLong.get();
+         
+         if(firstTimestamp == -1)
+         {
+            firstTimestamp = entryTimestamp;
+         }
+         
+         timestamp.setReal(entryTimestamp, i - startPosition);
+         robotTime.setReal(TimeTools.nanoSecondstoSeconds(entryTimestamp - firstTimestamp), i - startPosition);
+         
+         for (int dh = 0; dh < dataHolders.size(); dh++)
+         {
+            DataHolder<?> dataHolder = dataHolders.get(dh);
+            dataHolder.addEntry(dataAsLong);
+         }
+      }
+   }
+
+   /**
+    * Reads only the columns of the exported variables from the columnar copy of the log.
+    */
+   private void readColumns(ColumnarLogReader columnarLogReader, int startPosition, int elements, MLInt64 timestamp, MLDouble robotTime,
+         ArrayList<DataHolder<?>> dataHolders, CustomProgressMonitor monitor) throws IOException
+   {
+      long[] column = new long[elements];
+
+      columnarLogReader.readColumn(ColumnarLogReader.TIMESTAMP_COLUMN, startPosition, column, 0, elements);
+      long firstTimestamp = column[0];
+      for (int i = 0; i < elements; i++)
+      {
+         timestamp.setReal(column[i], i);
+         robotTime.setReal(TimeTools.nanoSecondstoSeconds(column[i] - firstTimestamp), i);
+      }
+
+      for (int dh = 0; dh < dataHolders.size(); dh++)
+      {
+         monitor.setProgress((dh * 90) / dataHolders.size());
+
+         DataHolder<?> dataHolder = dataHolders.get(dh);
+         columnarLogReader.readColumn(dataHolder.getOffset(), startPosition, column, 0, elements);
+         for (int i = 0; i < elements; i++)
+         {
+            dataHolder.addEntry(column[i]);
+         }
+      }
+   }
+
    private DataHolder<?> createDataHolder(int offset, int elements, YoVariable<?> variable)
    {
       int[] dims = { elements, 1 };
@@ -219,11 +265,20 @@ public class YoVariableExporter extends YoVariableLogReader
 
       public void addEntry(LongBuffer dataAsLong)
       {
-         long entryAsLong = dataAsLong.get(offset);
+         addEntry(dataAsLong.get(offset));
+      }
+
+      public void addEntry(long entryAsLong)
+      {
          set(entryAsLong);
          index++;
       }
 
+      public int getOffset()
+      {
+         return offset;
+      }
+
       public abstract void set(long entryAsLong);
 
       protected void set(T entryAsDataType)
@@ -27,6 +27,7 @@ import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
 
+import us.ihmc.robotDataCommunication.ColumnarLogReader;
 import us.ihmc.robotDataCommunication.YoVariableHandshakeParser;
 import us.ihmc.robotDataCommunication.jointState.JointState;
 import us.ihmc.robotDataCommunication.logger.util.FileSelectionDialog;
@@ -61,12 +62,22 @@ public class YoVariableExtracter
       @SuppressWarnings("resource")
       final FileChannel logChannel = new FileInputStream(logdata).getChannel();
 
+      ColumnarLogReader columnarLogReader = null;
+      if (logProperties.getColumnarDataFile() != null)
+      {
+         File columnarData = new File(logFile, logProperties.getColumnarDataFile());
+         if (columnarData.exists())
+         {
+            columnarLogReader = new ColumnarLogReader(columnarData);
+         }
+      }
+
       List<YoVariable<?>> variables = parser.getYoVariablesList();
       int jointStateOffset = variables.size();
       int numberOfJointStates = JointState.getNumberOfJointStates(parser.getJointStates());
       int bufferSize = (1 + jointStateOffset + numberOfJointStates) * 8;
 
-      new YoVariableDialog(bufferSize, logChannel, variables, registry);
+      new YoVariableDialog(bufferSize, logChannel, columnarLogReader, variables, registry);
    }
 
    public static void main(String[] args) throws IOException
@@ -89,11 +100,21 @@ public class YoVariableExtracter
       private final List<YoVariable<?>> variables;
       
       private final FileChannel logChannel;
+      private final ColumnarLogReader columnarLogReader;
       private final int bufferSize;
       private final ByteBuffer logLine;
       private final LongBuffer logLongArray;
 
       public YoVariableDialog(int bufferSize, FileChannel logChannel, List<YoVariable<?>> variables, YoVariableRegistry registry)
+      {
+         this(bufferSize, logChannel, null, variables, registry);
+      }
+
+      /**
+       * @param columnarLogReader if not null, variables are read from the columnar copy of the log instead of the row data
+       */
+      public YoVariableDialog(int bufferSize, FileChannel logChannel, ColumnarLogReader columnarLogReader, List<YoVariable<?>> variables,
+            YoVariableRegistry registry)
       {
          super();
          setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -104,6 +125,7 @@ public class YoVariableExtracter
          this.bufferSize = bufferSize;
          this.registry = registry;
          this.logChannel = logChannel;
+         this.columnarLogReader = columnarLogReader;
          this.variables = variables;
          
          searchField = new JTextField();
@@ -178,6 +200,74 @@ public class YoVariableExtracter
          printVariable(results);
       }
 
+      private void readRows(List<YoVariable<?>> variables, int[] offsets, StringBuffer t, StringBuffer[] result) throws IOException
+      {
+         ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
+         LongBuffer longBuffer = buffer.asLongBuffer();
+         long tick = 0;
+         
+         logChannel.position(0);
+         while(logChannel.size() > tick * bufferSize)
+         {
+            buffer.clear();
+            logChannel.read(buffer);
+            t.append(longBuffer.get(0));
+            t.append(",");
+            
+            for(int i = 0; i < variables.size(); i++)
+            {
+               YoVariable<?> variable = variables.get(i);
+               variable.setValueFromLongBits(longBuffer.get(1 + offsets[i]), false);
+               variable.getValueString(result[i]);
+               result[i].append(",");
+            }
+            
+            tick++;
+            if(tick % 10000 == 0)
+            {
+               System.out.print(".");
+               System.out.flush();
+            }
+         }
+         System.out.println();
+      }
+
+      private void readColumns(List<YoVariable<?>> variables, int[] offsets, StringBuffer t, StringBuffer[] result) throws IOException
+      {
+         int numberOfEntries = columnarLogReader.getNumberOfEntries();
+         long[] column = new long[columnarLogReader.getEntriesPerBlock()];
+         
+         for (int start = 0; start < numberOfEntries; start += column.length)
+         {
+            int length = Math.min(column.length, numberOfEntries - start);
+            columnarLogReader.readColumn(ColumnarLogReader.TIMESTAMP_COLUMN, start, column, 0, length);
+            for (int e = 0; e < length; e++)
+            {
+               t.append(column[e]);
+               t.append(",");
+            }
+         }
+         
+         for (int i = 0; i < variables.size(); i++)
+         {
+            YoVariable<?> variable = variables.get(i);
+            for (int start = 0; start < numberOfEntries; start += column.length)
+            {
+               int length = Math.min(column.length, numberOfEntries - start);
+               columnarLogReader.readColumn(1 + offsets[i], start, column, 0, length);
+               for (int e = 0; e < length; e++)
+               {
+                  variable.setValueFromLongBits(column[e], false);
+                  variable.getValueString(result[i]);
+                  result[i].append(",");
+               }
+            }
+            System.out.print(".");
+            System.out.flush();
+         }
+         System.out.println();
+      }
+
       private void printVariable(List<YoVariable<?>> variables)
       {
          int[] offsets = new int[variables.size()];
@@ -191,39 +281,19 @@ public class YoVariableExtracter
             result[i].append(" = [");
             offsets[i] = this.variables.indexOf(variable);
          }
-         ByteBuffer buffer = ByteBuffer.allocate(bufferSize);
-         LongBuffer longBuffer = buffer.asLongBuffer();
          StringBuffer t = new StringBuffer();
          
          t.append("t = [");
          try
          {
-            long tick = 0;
-            
-            logChannel.position(0);
-            while(logChannel.size() > tick * bufferSize)
+            if (columnarLogReader != null)
             {
-               buffer.clear();
-               logChannel.read(buffer);
-               t.append(longBuffer.get(0));
-               t.append(",");
-               
-               for(int i = 0; i < variables.size(); i++)
-               {
-                  YoVariable<?> variable = variables.get(i);
-                  variable.setValueFromLongBits(longBuffer.get(1 + offsets[i]), false);
-                  variable.getValueString(result[i]);
-                  result[i].append(",");
-               }
-               
-               tick++;
-               if(tick % 10000 == 0)
-               {
-                  System.out.print(".");
-                  System.out.flush();
-               }
+               readColumns(variables, offsets, t, result);
+            }
+            else
+            {
+               readRows(variables, offsets, t, result);
             }
-            System.out.println();
             
             StringBuffer combine = new StringBuffer();
             t.deleteCharAt(t.length() - 1);
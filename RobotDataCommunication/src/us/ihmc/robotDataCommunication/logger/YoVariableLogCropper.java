@@ -6,6 +6,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 
+import us.ihmc.robotDataCommunication.ColumnarLogReader;
+import us.ihmc.robotDataCommunication.ColumnarLogWriter;
 import us.ihmc.robotDataCommunication.logger.util.CustomProgressMonitor;
 
 public class YoVariableLogCropper extends YoVariableLogReader
@@ -99,6 +101,14 @@ public class YoVariableLogCropper extends YoVariableLogReader
          indexChannel.close();
          indexStream.close();
 
+         ColumnarLogReader columnarLogReader = openColumnarLogReader();
+         if (columnarLogReader != null)
+         {
+            monitor.setNote("Writing columnar variable data");
+            cropColumns(columnarLogReader, new File(destination, logProperties.getColumnarDataFile()), startPosition, endPosition);
+            columnarLogReader.close();
+         }
+
          monitor.setNote("Cropping video files");
 
          if (player != null)
@@ -111,5 +121,25 @@ public class YoVariableLogCropper extends YoVariableLogReader
       }
    }
 
+   private void cropColumns(ColumnarLogReader columnarLogReader, File destination, int startPosition, int endPosition) throws IOException
+   {
+      int numberOfColumns = columnarLogReader.getNumberOfColumns();
+      int numberOfEntries = endPosition - startPosition + 1;
+      int entriesPerBlock = columnarLogReader.getEntriesPerBlock();
+
+      ColumnarLogWriter columnarLogWriter = new ColumnarLogWriter(destination, numberOfColumns, numberOfEntries, entriesPerBlock);
+      long[][] columns = new long[numberOfColumns][entriesPerBlock];
+      for (int start = 0; start < numberOfEntries; start += entriesPerBlock)
+      {
+         int entries = Math.min(entriesPerBlock, numberOfEntries - start);
+         for (int column = 0; column < numberOfColumns; column++)
+         {
+            columnarLogReader.readColumn(column, startPosition + start, columns[column], 0, entries);
+         }
+         columnarLogWriter.writeBlock(columns, entries);
+      }
+      columnarLogWriter.close();
+   }
+
 
 }
@@ -10,7 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import us.ihmc.SdfLoader.GeneralizedSDFRobotModel;
-import us.ihmc.robotDataCommunication.LogIndex;
+import us.ihmc.robotDataCommunication.MappedLogDataReader;
 import us.ihmc.robotDataCommunication.VisualizerRobot;
 import us.ihmc.robotDataCommunication.jointState.JointState;
 import us.ihmc.robotDataCommunication.visualizer.JointUpdater;
@@ -23,7 +23,6 @@ import us.ihmc.robotics.dataStructures.variable.YoVariable;
 import us.ihmc.robotics.time.TimeTools;
 import us.ihmc.simulationconstructionset.Joint;
 import us.ihmc.simulationconstructionset.SimulationConstructionSet;
-import us.ihmc.tools.compression.SnappyUtils;
 
 public class YoVariableLogPlaybackRobot extends VisualizerRobot implements RewoundListener
 {
@@ -36,8 +35,7 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
 
    // Compressed data helpers
    private final boolean compressed;
-   private final LogIndex logIndex;
-   private final ByteBuffer compressedBuffer;
+   private final MappedLogDataReader logDataReader;
    private int index = 0;
 
    private final List<JointState<? extends Joint>> jointStates;
@@ -80,7 +78,6 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
       {
          throw new RuntimeException("Cannot find " + logProperties.getVariableDataFile());
       }
-      this.logChannel = new FileInputStream(logdata).getChannel();
 
       this.compressed = logProperties.getCompressed();
       if (this.compressed)
@@ -90,15 +87,15 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
          {
             throw new RuntimeException("Cannot find " + logProperties.getVariablesIndexFile());
          }
-         logIndex = new LogIndex(indexData, logChannel.size());
-         compressedBuffer = ByteBuffer.allocate(SnappyUtils.maxCompressedLength(bufferSize));
-         numberOfEntries = logIndex.getNumberOfEntries();
+         logChannel = null;
+         logDataReader = new MappedLogDataReader(logdata, indexData, bufferSize);
+         numberOfEntries = logDataReader.getNumberOfEntries();
       }
       else
       {
+         logChannel = new FileInputStream(logdata).getChannel();
          numberOfEntries = (int) (logChannel.size() / bufferSize) - 1;
-         logIndex = null;
-         compressedBuffer = null;
+         logDataReader = null;
       }
 
       JointUpdater.getJointUpdaterList(getRootJoints(), jointStates, jointUpdaters);
@@ -112,7 +109,7 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
       {
       	if(this.compressed)
       	{
-         	initialTimestamp = logIndex.getInitialTimestamp();
+         	initialTimestamp = logDataReader.getLogIndex().getInitialTimestamp();
          	positionChannel(0);
          }
          else
@@ -243,10 +240,6 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
       if (compressed)
       {
          index = position;
-         if(index < logIndex.dataOffsets.length)
-         {
-            logChannel.position(logIndex.dataOffsets[position]);            
-         }
       }
       else
       {
@@ -261,7 +254,7 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
          throw new RuntimeException("Cannot get timestamp for non-compressed logs");
       }
       
-      return logIndex.timestamps[position];
+      return logDataReader.getTimestamp(position);
    }
 
    private boolean readLogLine() throws IOException
@@ -271,23 +264,12 @@ public class YoVariableLogPlaybackRobot extends VisualizerRobot implements Rewou
 
       if (compressed)
       {
-         if(index >= logIndex.getNumberOfEntries())
+         if(index >= logDataReader.getNumberOfEntries())
          {
             return false;
          }
-         int size = logIndex.compressedSizes[index];
-         compressedBuffer.clear();
-         compressedBuffer.limit(size);
-
-         int read = logChannel.read(compressedBuffer);
-         
-         if(read != size)
-         {
-            throw new RuntimeException("Expected read of " + size + ", got " + read + ". TODO: Implement loop for reading the full log line.");
-         }
-         compressedBuffer.flip();
 
-         SnappyUtils.uncompress(compressedBuffer, logLine);
+         logDataReader.readData(index, logLine);
          ++index;
 
          return true;
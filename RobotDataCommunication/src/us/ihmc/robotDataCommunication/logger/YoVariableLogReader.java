@@ -5,19 +5,18 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
 
 import com.google.common.io.Files;
 
-import us.ihmc.robotDataCommunication.LogIndex;
+import us.ihmc.robotDataCommunication.ColumnarLogReader;
+import us.ihmc.robotDataCommunication.MappedLogDataReader;
 import us.ihmc.robotDataCommunication.YoVariableHandshakeParser;
-import us.ihmc.tools.compression.SnappyUtils;
 
 public class YoVariableLogReader
 {
 
    private boolean initialized = false;
-   private final File logDirectory;
+   protected final File logDirectory;
    protected final LogProperties logProperties;
    
    
@@ -26,11 +25,7 @@ public class YoVariableLogReader
    
    
    protected final File handshake;
-   private FileChannel logChannel;
-   private LogIndex logIndex;
-   private ByteBuffer compressedData;
-   private ByteBuffer uncompressedData;
-   private FileInputStream logInputStream;
+   private MappedLogDataReader logDataReader;
    
    protected final File properties;
    private final File model;
@@ -83,27 +78,9 @@ public class YoVariableLogReader
             handshakeStream.close();
             logLineLength = YoVariableHandshakeParser.getNumberOfVariables(handshakeData);
 
-            File logdata = new File(logDirectory, logProperties.getVariableDataFile());
-            if (!logdata.exists())
-            {
-               throw new RuntimeException("Cannot find " + logProperties.getVariableDataFile());
-            }
-
-            File index = new File(logDirectory, logProperties.getVariablesIndexFile());
-            if (!index.exists())
-            {
-               throw new RuntimeException("Cannot find " + logProperties.getVariablesIndexFile());
-            }
-
-            logInputStream = new FileInputStream(logdata);
-            logChannel = logInputStream.getChannel();
-
-            logIndex = new LogIndex(index, logChannel.size());
-            int bufferSize = logLineLength * 8;
-            compressedData = ByteBuffer.allocate(SnappyUtils.maxCompressedLength(bufferSize));
-            uncompressedData = ByteBuffer.allocate(bufferSize);
-            
-            numberOfEntries = logIndex.getNumberOfEntries();
+            logDataReader = createLogDataReader();
+
+            numberOfEntries = logDataReader.getNumberOfEntries();
             initialized = true;
          }
          catch (IOException e)
@@ -114,6 +91,28 @@ public class YoVariableLogReader
       return initialized;
    }
 
+   /**
+    * Opens a new reader on the variable data of this log. Readers are not thread safe, every thread that reads data in
+    * parallel should create its own reader. Only valid after initialize() has read the handshake.
+    */
+   protected MappedLogDataReader createLogDataReader() throws IOException
+   {
+      File logdata = new File(logDirectory, logProperties.getVariableDataFile());
+      if (!logdata.exists())
+      {
+         throw new RuntimeException("Cannot find " + logProperties.getVariableDataFile());
+      }
+
+      File index = new File(logDirectory, logProperties.getVariablesIndexFile());
+      if (!index.exists())
+      {
+         throw new RuntimeException("Cannot find " + logProperties.getVariablesIndexFile());
+      }
+
+      int bufferSize = logLineLength * 8;
+      return new MappedLogDataReader(logdata, index, bufferSize);
+   }
+
    public int getNumberOfVariables()
    {
       return logLineLength;
@@ -126,58 +125,60 @@ public class YoVariableLogReader
    
    public void close()
    {
-      try
-      {
-         logChannel.close();
-         logInputStream.close();
-      }
-      catch (IOException e)
+      if (logDataReader != null)
       {
-         // Nothing to do here
+         logDataReader.close();
       }
    }
 
    protected int getPosition(long timestamp) throws IOException
    {
-      return logIndex.seek(timestamp);
+      return logDataReader.seek(timestamp);
    }
    
    protected long getDataOffset(int position)
    {
-      return logIndex.dataOffsets[position];
+      return logDataReader.getLogIndex().getDataOffset(position);
    }
    
    protected int getCompressedSize(int position)
    {
-      return logIndex.compressedSizes[position];
+      return logDataReader.getLogIndex().getCompressedSize(position);
    }
    
    protected long getTimestamp(int position)
    {
-      return logIndex.timestamps[position];
+      return logDataReader.getTimestamp(position);
    }
    
    protected ByteBuffer readCompressedData(int position) throws IOException
    {
-      int size = getCompressedSize(position);
-      long startOffset = getDataOffset(position);
-      logChannel.position(startOffset);
-      compressedData.clear();
-      compressedData.limit(size);
-      logChannel.read(compressedData);
-      compressedData.flip();
-      
-      return compressedData;
-      
+      return logDataReader.readCompressedData(position);
    }
    
    protected ByteBuffer readData(int position) throws IOException
    {
-      ByteBuffer compressedData = readCompressedData(position);
-      uncompressedData.clear();
-      SnappyUtils.uncompress(compressedData, uncompressedData);
-      uncompressedData.flip();
-      return uncompressedData;
+      return logDataReader.readData(position);
+   }
+
+   /**
+    * @return reader for the columnar copy of the variable data, or null if the log has not been converted with LogColumnarConverter
+    */
+   protected ColumnarLogReader openColumnarLogReader() throws IOException
+   {
+      String columnarDataFile = logProperties.getColumnarDataFile();
+      if (columnarDataFile == null)
+      {
+         return null;
+      }
+
+      File columnarData = new File(logDirectory, columnarDataFile);
+      if (!columnarData.exists())
+      {
+         return null;
+      }
+
+      return new ColumnarLogReader(columnarData);
    }
 
    protected void copyMetaData(File destination) throws IOException
@@ -0,0 +1,103 @@
+package us.ihmc.robotDataCommunication.logger.converters;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
+import us.ihmc.robotDataCommunication.ColumnarLogWriter;
+import us.ihmc.robotDataCommunication.logger.LogProperties;
+import us.ihmc.robotDataCommunication.logger.LogPropertiesReader;
+import us.ihmc.robotDataCommunication.logger.YoVariableLogReader;
+import us.ihmc.robotDataCommunication.logger.YoVariableLoggerListener;
+import us.ihmc.robotDataCommunication.logger.util.CustomProgressMonitor;
+import us.ihmc.robotDataCommunication.logger.util.FileSelectionDialog;
+
+/**
+ * Transposes the row oriented variable data of a compressed log into a columnar file next to it, and registers that file
+ * in the log properties. The original data is kept, so the log can still be played back by older tools.
+ *
+ * The exporter and extracter use the columnar file when it exists, so they only decompress the variables they need.
+ */
+public class LogColumnarConverter extends YoVariableLogReader
+{
+   public static final String columnarDataFile = "robotData.columns";
+
+   /**
+    * Number of frames per compressed block. Memory use of the conversion is entriesPerBlock * numberOfVariables * 8 bytes.
+    */
+   public static final int DEFAULT_ENTRIES_PER_BLOCK = 1024;
+
+   public LogColumnarConverter(File logDirectory, LogProperties logProperties)
+   {
+      super(logDirectory, logProperties);
+   }
+
+   public void convert() throws IOException
+   {
+      convert(DEFAULT_ENTRIES_PER_BLOCK);
+   }
+
+   public void convert(int entriesPerBlock) throws IOException
+   {
+      if (!logProperties.getCompressed() || !logProperties.isTimestampedIndex())
+      {
+         throw new RuntimeException("Only compressed logs with a timestamped index can be converted. Run LogCompressor or LogTimeStampedIndexGenerator first.");
+      }
+
+      if (!initialize())
+      {
+         return;
+      }
+
+      int numberOfColumns = getNumberOfVariables();
+      int numberOfEntries = getNumberOfEntries();
+
+      CustomProgressMonitor monitor = new CustomProgressMonitor("Converting " + logProperties.getLogName() + " to columns", "Transposing variable data", 0,
+            numberOfEntries);
+
+      File columnarFile = new File(logDirectory, columnarDataFile);
+      ColumnarLogWriter writer = new ColumnarLogWriter(columnarFile, numberOfColumns, numberOfEntries, entriesPerBlock);
+      long[][] columns = new long[numberOfColumns][entriesPerBlock];
+
+      int entryInBlock = 0;
+      for (int i = 0; i < numberOfEntries; i++)
+      {
+         ByteBuffer data = readData(i);
+         LongBuffer dataAsLong = data.asLongBuffer();
+         for (int column = 0; column < numberOfColumns; column++)
+         {
+            columns[column][entryInBlock] = dataAsLong.get(column);
+         }
+
+         entryInBlock++;
+         if (entryInBlock == entriesPerBlock || i == numberOfEntries - 1)
+         {
+            writer.writeBlock(columns, entryInBlock);
+            entryInBlock = 0;
+            monitor.setProgress(i);
+         }
+      }
+
+      writer.close();
+      close();
+
+      logProperties.setColumnarDataFile(columnarDataFile);
+      FileWriter propertiesWriter = new FileWriter(new File(logDirectory, YoVariableLoggerListener.propertyFile));
+      logProperties.store(propertiesWriter, "Columnar data added by LogColumnarConverter");
+      propertiesWriter.close();
+
+      monitor.close();
+   }
+
+   public static void main(String[] args) throws IOException
+   {
+      File logDirectory = FileSelectionDialog.loadDirectoryWithFileNamed(YoVariableLoggerListener.propertyFile);
+      if (logDirectory != null)
+      {
+         LogPropertiesReader logProperties = new LogPropertiesReader(new File(logDirectory, YoVariableLoggerListener.propertyFile));
+         new LogColumnarConverter(logDirectory, logProperties).convert();
+      }
+   }
+}
@@ -0,0 +1,191 @@
+package us.ihmc.robotDataCommunication;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class ColumnarLogWriterReaderTest
+{
+   @DeployableTestMethod(estimatedDuration = 0.2)
+   @Test(timeout = 30000)
+   public void testWriteAndReadBack() throws IOException
+   {
+      int numberOfColumns = 5;
+      int numberOfEntries = 1037; // Last block is not full
+      int entriesPerBlock = 100;
+      long[][] data = createData(numberOfColumns, numberOfEntries, new Random(1520L));
+
+      File file = File.createTempFile("robotData", ".columns");
+      file.deleteOnExit();
+      write(file, data, entriesPerBlock);
+
+      ColumnarLogReader reader = new ColumnarLogReader(file);
+      try
+      {
+         assertEquals(numberOfColumns, reader.getNumberOfColumns());
+         assertEquals(numberOfEntries, reader.getNumberOfEntries());
+         assertEquals(entriesPerBlock, reader.getEntriesPerBlock());
+
+         // Whole columns, read in reverse order so the block cache does not help
+         for (int column = numberOfColumns - 1; column >= 0; column--)
+         {
+            long[] readBack = new long[numberOfEntries];
+            reader.readColumn(column, 0, readBack, 0, numberOfEntries);
+            assertArrayEquals(data[column], readBack);
+         }
+
+         // Ranges crossing block boundaries, written at an offset in the target
+         int[][] ranges = {{0, 1}, {99, 2}, {150, 300}, {999, 38}, {1036, 1}, {512, 0}};
+         for (int[] range : ranges)
+         {
+            for (int column = 0; column < numberOfColumns; column++)
+            {
+               long[] readBack = new long[range[1] + 3];
+               reader.readColumn(column, range[0], readBack, 3, range[1]);
+               for (int i = 0; i < range[1]; i++)
+               {
+                  assertEquals(data[column][range[0] + i], readBack[3 + i]);
+               }
+            }
+         }
+
+         // A buffer smaller than a block, so blocks are copied in several pieces
+         double[] doubles = new double[numberOfEntries];
+         reader.readDoubleColumn(2, 0, doubles, 0, numberOfEntries, new long[37]);
+         for (int i = 0; i < numberOfEntries; i++)
+         {
+            assertEquals(Double.longBitsToDouble(data[2][i]), doubles[i], 0.0);
+         }
+
+         for (int i = 0; i < numberOfEntries; i++)
+         {
+            assertEquals(i, reader.seek(data[0][i]));
+            assertEquals(Math.min(i + 1, numberOfEntries - 1), reader.seek(data[0][i] + 1));
+         }
+         assertEquals(0, reader.seek(Long.MIN_VALUE));
+         assertEquals(numberOfEntries - 1, reader.seek(Long.MAX_VALUE));
+
+         try
+         {
+            reader.readColumn(numberOfColumns, 0, new long[1], 0, 1);
+            fail("Column out of range");
+         }
+         catch (IndexOutOfBoundsException e)
+         {
+         }
+
+         try
+         {
+            reader.readColumn(0, numberOfEntries - 1, new long[2], 0, 2);
+            fail("Entries out of range");
+         }
+         catch (IndexOutOfBoundsException e)
+         {
+         }
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testEmptyLog() throws IOException
+   {
+      File file = File.createTempFile("robotData", ".columns");
+      file.deleteOnExit();
+      write(file, new long[3][0], 10);
+
+      ColumnarLogReader reader = new ColumnarLogReader(file);
+      try
+      {
+         assertEquals(0, reader.getNumberOfEntries());
+         assertEquals(-1, reader.seek(0L));
+         reader.readColumn(0, 0, new long[0], 0, 0);
+      }
+      finally
+      {
+         reader.close();
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testIncompleteFileIsRejected() throws IOException
+   {
+      File file = File.createTempFile("robotData", ".columns");
+      file.deleteOnExit();
+
+      long[][] data = createData(3, 20, new Random(42L));
+      ColumnarLogWriter writer = new ColumnarLogWriter(file, 3, 20, 10);
+      writer.writeBlock(data, 10);
+      try
+      {
+         writer.close();
+         fail("Closed with missing blocks");
+      }
+      catch (IOException e)
+      {
+      }
+
+      try
+      {
+         new ColumnarLogReader(file);
+         fail("Read a file without header");
+      }
+      catch (IOException e)
+      {
+      }
+   }
+
+   private static long[][] createData(int numberOfColumns, int numberOfEntries, Random random)
+   {
+      long[][] data = new long[numberOfColumns][numberOfEntries];
+      long timestamp = 1000000L;
+      for (int i = 0; i < numberOfEntries; i++)
+      {
+         timestamp += 2 + random.nextInt(1000);
+         data[0][i] = timestamp;
+         data[1][i] = random.nextLong();
+         data[2][i] = Double.doubleToLongBits(random.nextGaussian());
+         for (int column = 3; column < numberOfColumns; column++)
+         {
+            // Slowly changing values, like most variables
+            data[column][i] = i / 50;
+         }
+      }
+      return data;
+   }
+
+   private static void write(File file, long[][] data, int entriesPerBlock) throws IOException
+   {
+      int numberOfColumns = data.length;
+      int numberOfEntries = data[0].length;
+      ColumnarLogWriter writer = new ColumnarLogWriter(file, numberOfColumns, numberOfEntries, entriesPerBlock);
+
+      long[][] block = new long[numberOfColumns][entriesPerBlock];
+      for (int start = 0; start < numberOfEntries; start += entriesPerBlock)
+      {
+         int entries = Math.min(entriesPerBlock, numberOfEntries - start);
+         for (int column = 0; column < numberOfColumns; column++)
+         {
+            System.arraycopy(data[column], start, block[column], 0, entries);
+         }
+         writer.writeBlock(block, entries);
+      }
+
+      writer.close();
+   }
+}
@@ -0,0 +1,60 @@
+package us.ihmc.robotDataCommunication;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.junit.Test;
+
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class MappedLogIndexTest
+{
+   @DeployableTestMethod(estimatedDuration = 0.1)
+   @Test(timeout = 30000)
+   public void testSeekAndCompressedSizes() throws IOException
+   {
+      int numberOfEntries = 1000;
+      long dataSize = 0;
+
+      File indexFile = File.createTempFile("robotData", ".dat");
+      indexFile.deleteOnExit();
+
+      FileOutputStream indexStream = new FileOutputStream(indexFile);
+      FileChannel indexChannel = indexStream.getChannel();
+      ByteBuffer entry = ByteBuffer.allocate(16);
+      for (int i = 0; i < numberOfEntries; i++)
+      {
+         entry.clear();
+         entry.putLong(1000L + 10L * i);
+         entry.putLong(dataSize);
+         entry.flip();
+         indexChannel.write(entry);
+         dataSize += 100 + i;
+      }
+      indexChannel.close();
+      indexStream.close();
+
+      MappedLogIndex logIndex = new MappedLogIndex(indexFile, dataSize);
+      assertEquals(numberOfEntries, logIndex.getNumberOfEntries());
+      assertEquals(1000L, logIndex.getInitialTimestamp());
+      assertEquals(1000L + 10L * (numberOfEntries - 1), logIndex.getFinalTimestamp());
+
+      for (int i = 0; i < numberOfEntries; i++)
+      {
+         assertEquals(100 + i, logIndex.getCompressedSize(i));
+         assertEquals(i, logIndex.seek(1000L + 10L * i));
+         assertEquals(Math.min(i + 1, numberOfEntries - 1), logIndex.seek(1000L + 10L * i + 5L));
+      }
+
+      assertEquals(0, logIndex.seek(0L));
+      assertEquals(numberOfEntries - 1, logIndex.seek(Long.MAX_VALUE));
+   }
+}
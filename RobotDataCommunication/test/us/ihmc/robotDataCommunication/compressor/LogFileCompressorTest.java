@@ -0,0 +1,163 @@
+package us.ihmc.robotDataCommunication.compressor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import us.ihmc.robotDataCommunication.YoVariableHandShakeBuilder;
+import us.ihmc.robotDataCommunication.logger.LogPropertiesReader;
+import us.ihmc.robotDataCommunication.logger.LogPropertiesWriter;
+import us.ihmc.robotDataCommunication.logger.YoVariableLoggerListener;
+import us.ihmc.robotics.dataStructures.registry.YoVariableRegistry;
+import us.ihmc.robotics.dataStructures.variable.DoubleYoVariable;
+import us.ihmc.robotics.dataStructures.variable.YoVariable;
+import us.ihmc.tools.compression.SnappyUtils;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class LogFileCompressorTest
+{
+   private static final String handshakeFile = "handshake.proto";
+   private static final String dataFile = "robotData.bsz";
+   private static final String indexFile = "robotData.dat";
+
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testXorDeltaRoundTrip() throws IOException
+   {
+      testRoundTrip(true);
+   }
+
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testRawRoundTrip() throws IOException
+   {
+      testRoundTrip(false);
+   }
+
+   private void testRoundTrip(boolean xorDelta) throws IOException
+   {
+      int numberOfThreads = 3;
+      int numberOfEntries = 250;
+      int entriesPerChunk = 30;
+
+      File logDirectory = Files.createTempDirectory("log").toFile();
+      long[][] values = writeLog(logDirectory, 10, numberOfEntries, new Random(2016L));
+      int numberOfVariables = values.length;
+
+      // Budget for chunks of entriesPerChunk on every thread, so the last chunk is not full
+      long maxBufferSizeInBytes = 8L * numberOfVariables * entriesPerChunk * numberOfThreads;
+      File outputDirectory = new File(logDirectory, "archive");
+      LogPropertiesReader logProperties = new LogPropertiesReader(new File(logDirectory, YoVariableLoggerListener.propertyFile));
+      new LogFileCompressor(logDirectory, logProperties, outputDirectory, numberOfThreads, xorDelta, maxBufferSizeInBytes).compress();
+
+      int numberOfChunks = (numberOfEntries + entriesPerChunk - 1) / entriesPerChunk;
+      int entry = 0;
+      for (int chunk = 0; chunk < numberOfChunks; chunk++)
+      {
+         long[][] chunkValues = LogFileCompressor.readChunk(new File(outputDirectory, "robotData." + chunk + ".xz"));
+         assertEquals(numberOfVariables, chunkValues.length);
+
+         int chunkEntries = chunkValues[0].length;
+         assertEquals(Math.min(entriesPerChunk, numberOfEntries - entry), chunkEntries);
+         for (int variable = 0; variable < numberOfVariables; variable++)
+         {
+            long[] expected = new long[chunkEntries];
+            System.arraycopy(values[variable], entry, expected, 0, chunkEntries);
+            assertArrayEquals(expected, chunkValues[variable]);
+         }
+         entry += chunkEntries;
+      }
+      assertEquals(numberOfEntries, entry);
+      assertTrue(!new File(outputDirectory, "robotData." + numberOfChunks + ".xz").exists());
+
+      assertTrue(new File(outputDirectory, YoVariableLoggerListener.propertyFile).exists());
+      assertTrue(new File(outputDirectory, handshakeFile).exists());
+   }
+
+   /**
+    * Writes a log the way the logger does, with values that are constant, slowly changing and random.
+    *
+    * @return the values of the log, indexed as [variable][entry]
+    */
+   private static long[][] writeLog(File logDirectory, int numberOfYoVariables, int numberOfEntries, Random random) throws IOException
+   {
+      YoVariableRegistry registry = new YoVariableRegistry("test");
+      for (int i = 0; i < numberOfYoVariables; i++)
+      {
+         new DoubleYoVariable("variable" + i, registry);
+      }
+
+      YoVariableHandShakeBuilder handshakeBuilder = new YoVariableHandShakeBuilder(null, 0.001);
+      handshakeBuilder.addRegistry(registry, new ArrayList<YoVariable<?>>());
+      FileOutputStream handshakeStream = new FileOutputStream(new File(logDirectory, handshakeFile));
+      handshakeStream.write(handshakeBuilder.toByteArray());
+      handshakeStream.close();
+
+      LogPropertiesWriter logProperties = new LogPropertiesWriter(new File(logDirectory, YoVariableLoggerListener.propertyFile));
+      logProperties.setHandshakeFile(handshakeFile);
+      logProperties.setVariableDataFile(dataFile);
+      logProperties.setVariablesIndexFile(indexFile);
+      logProperties.setCompressed(true);
+      logProperties.setTimestampedIndex(true);
+      logProperties.store();
+
+      // The timestamp followed by the variables
+      int numberOfVariables = 1 + numberOfYoVariables;
+      long[][] values = new long[numberOfVariables][numberOfEntries];
+
+      FileChannel dataChannel = new FileOutputStream(new File(logDirectory, dataFile)).getChannel();
+      FileChannel indexChannel = new FileOutputStream(new File(logDirectory, indexFile)).getChannel();
+      ByteBuffer buffer = ByteBuffer.allocate(numberOfVariables * 8);
+      ByteBuffer compressedBuffer = ByteBuffer.allocate(SnappyUtils.maxCompressedLength(numberOfVariables * 8));
+      ByteBuffer indexBuffer = ByteBuffer.allocate(16);
+
+      for (int i = 0; i < numberOfEntries; i++)
+      {
+         long timestamp = 1000000L * (i + 1);
+         values[0][i] = timestamp;
+         values[1][i] = Double.doubleToLongBits(1.0);
+         values[2][i] = Double.doubleToLongBits(i / 20);
+         for (int variable = 3; variable < numberOfVariables; variable++)
+         {
+            values[variable][i] = Double.doubleToLongBits(random.nextGaussian());
+         }
+
+         buffer.clear();
+         for (int variable = 0; variable < numberOfVariables; variable++)
+         {
+            buffer.putLong(values[variable][i]);
+         }
+         buffer.clear();
+         compressedBuffer.clear();
+         SnappyUtils.compress(buffer, compressedBuffer);
+         compressedBuffer.flip();
+
+         indexBuffer.clear();
+         indexBuffer.putLong(timestamp);
+         indexBuffer.putLong(dataChannel.position());
+         indexBuffer.flip();
+
+         indexChannel.write(indexBuffer);
+         dataChannel.write(compressedBuffer);
+      }
+
+      indexChannel.close();
+      dataChannel.close();
+
+      return values;
+   }
+}
@@ -3,6 +3,7 @@ package us.ihmc.SdfLoader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,9 +11,7 @@ import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
 
 import us.ihmc.SdfLoader.xmlDescription.SDFModel;
 import us.ihmc.SdfLoader.xmlDescription.SDFRoot;
@@ -50,9 +49,15 @@ public class JaxbSDFLoader
    public JaxbSDFLoader(InputStream inputStream, List<String> resourceDirectories, SDFDescriptionMutator mutator)
            throws JAXBException, FileNotFoundException
    {
-      JAXBContext context = JAXBContext.newInstance(SDFRoot.class);
-      Unmarshaller um = context.createUnmarshaller();
-      SDFRoot sdfRoot = (SDFRoot) um.unmarshal(inputStream);
+      SDFRoot sdfRoot;
+      try
+      {
+         sdfRoot = SDFDescriptionCache.getDefaultCache().load(inputStream);
+      }
+      catch (IOException e)
+      {
+         throw new RuntimeException(e);
+      }
 
       List<SDFModel> models;
       if (sdfRoot.getWorld() != null)
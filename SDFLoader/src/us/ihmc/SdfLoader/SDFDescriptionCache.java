@@ -0,0 +1,645 @@
+package us.ihmc.SdfLoader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+
+import us.ihmc.SdfLoader.xmlDescription.SDFRoot;
+
+/**
+ * Keeps the unmarshalled description of SDF files in a compact binary form on disk, so that the XML of a model is only
+ * parsed the first time it is loaded. The files are named after a hash of the SDF content and of the layout of the
+ * description classes, so that a modified SDF file or a modified description class never reads a stale entry.
+ *
+ * Only the raw description is cached. The {@link SDFDescriptionMutator}s and the derived link and joint data are applied on
+ * top of it every time, so the cache does not depend on them.
+ *
+ * The cache lives in ~/.ihmc/sdfCache, and is only used if that directory belongs to the current user. When the entries
+ * grow over the maximum size, the least recently used ones are deleted.
+ *
+ * The cache directory is set with the us.ihmc.sdfCacheDirectory property, its maximum size in bytes with
+ * us.ihmc.sdfCacheMaximumSize, and the cache is disabled by setting us.ihmc.sdfCache to false.
+ */
+public class SDFDescriptionCache
+{
+   private static final int FORMAT_VERSION = 1;
+   private static final String FILE_EXTENSION = ".sdfbin";
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+   private static final long DEFAULT_MAXIMUM_SIZE_IN_BYTES = 64L * 1024L * 1024L;
+
+   private static final Object defaultCacheLock = new Object();
+   private static SDFDescriptionCache defaultCache;
+
+   private static final Object jaxbContextLock = new Object();
+   private static JAXBContext jaxbContext;
+
+   private static final HashMap<Class<?>, Field[]> fieldsByClass = new HashMap<Class<?>, Field[]>();
+   private static byte[] descriptionLayoutHash;
+
+   private final File cacheDirectory;
+   private final long maximumSizeInBytes;
+
+   private boolean isCacheDirectoryChecked = false;
+   private UserPrincipal cacheOwner;
+
+   /**
+    * @param cacheDirectory directory to keep the cached descriptions in, null to always parse the XML.
+    */
+   public SDFDescriptionCache(File cacheDirectory)
+   {
+      this(cacheDirectory, DEFAULT_MAXIMUM_SIZE_IN_BYTES);
+   }
+
+   /**
+    * @param cacheDirectory directory to keep the cached descriptions in, null to always parse the XML.
+    * @param maximumSizeInBytes total size of the entries above which the least recently used ones are deleted.
+    */
+   public SDFDescriptionCache(File cacheDirectory, long maximumSizeInBytes)
+   {
+      this.cacheDirectory = cacheDirectory;
+      this.maximumSizeInBytes = maximumSizeInBytes;
+   }
+
+   public static SDFDescriptionCache getDefaultCache()
+   {
+      synchronized (defaultCacheLock)
+      {
+         if (defaultCache == null)
+         {
+            File cacheDirectory = null;
+            if (Boolean.parseBoolean(System.getProperty("us.ihmc.sdfCache", "true")))
+            {
+               String defaultCacheDirectory = System.getProperty("user.home") + File.separator + ".ihmc" + File.separator + "sdfCache";
+               cacheDirectory = new File(System.getProperty("us.ihmc.sdfCacheDirectory", defaultCacheDirectory));
+            }
+            long maximumSizeInBytes = Long.getLong("us.ihmc.sdfCacheMaximumSize", DEFAULT_MAXIMUM_SIZE_IN_BYTES);
+
+            defaultCache = new SDFDescriptionCache(cacheDirectory, maximumSizeInBytes);
+         }
+
+         return defaultCache;
+      }
+   }
+
+   /**
+    * Reads the whole stream and returns its description, from the cache if it has already been parsed.
+    */
+   public SDFRoot load(InputStream inputStream) throws JAXBException, IOException
+   {
+      return load(readFully(inputStream));
+   }
+
+   public SDFRoot load(byte[] sdfContent) throws JAXBException
+   {
+      File cacheFile = getCacheFile(sdfContent);
+
+      if (cacheFile != null && cacheFile.isFile() && isOwnedByCacheOwner(cacheFile))
+      {
+         try
+         {
+            SDFRoot sdfRoot = readDescription(cacheFile);
+            // Marks the entry as recently used, so it is evicted last
+            cacheFile.setLastModified(System.currentTimeMillis());
+            return sdfRoot;
+         }
+         catch (IOException | RuntimeException e)
+         {
+            // A corrupted entry can also fail while being decoded into the description classes
+            System.err.println("Could not read cached SDF description " + cacheFile + ", parsing the XML instead: " + e);
+         }
+      }
+
+      SDFRoot sdfRoot = unmarshal(sdfContent);
+
+      if (cacheFile != null)
+      {
+         try
+         {
+            writeDescription(sdfRoot, cacheFile);
+            evictLeastRecentlyUsedEntries(cacheFile);
+         }
+         catch (IOException e)
+         {
+            System.err.println("Could not cache SDF description in " + cacheFile + ": " + e.getMessage());
+         }
+      }
+
+      return sdfRoot;
+   }
+
+   public static SDFRoot unmarshal(byte[] sdfContent) throws JAXBException
+   {
+      // The context is thread safe and expensive to create, the unmarshallers are neither
+      Unmarshaller unmarshaller = getJAXBContext().createUnmarshaller();
+      return (SDFRoot) unmarshaller.unmarshal(new ByteArrayInputStream(sdfContent));
+   }
+
+   private static JAXBContext getJAXBContext() throws JAXBException
+   {
+      synchronized (jaxbContextLock)
+      {
+         if (jaxbContext == null)
+            jaxbContext = JAXBContext.newInstance(SDFRoot.class);
+
+         return jaxbContext;
+      }
+   }
+
+   private File getCacheFile(byte[] sdfContent)
+   {
+      if (cacheDirectory == null || !isCacheDirectoryUsable())
+         return null;
+
+      byte[] layoutHash;
+      try
+      {
+         layoutHash = getDescriptionLayoutHash();
+      }
+      catch (IOException e)
+      {
+         // A description class that cannot be encoded, never cache
+         return null;
+      }
+
+      MessageDigest digest = createDigest();
+      digest.update(layoutHash);
+      digest.update(sdfContent);
+
+      StringBuilder name = new StringBuilder();
+      for (byte b : digest.digest())
+      {
+         name.append(Character.forDigit((b >> 4) & 0xF, 16));
+         name.append(Character.forDigit(b & 0xF, 16));
+      }
+      name.append(FILE_EXTENSION);
+
+      return new File(cacheDirectory, name.toString());
+   }
+
+   /**
+    * Creates the cache directory, only readable by the current user, if it does not exist. Another user could plant or
+    * read entries in a directory they own, so the cache is not used at all if the directory belongs to someone else.
+    */
+   private synchronized boolean isCacheDirectoryUsable()
+   {
+      if (!isCacheDirectoryChecked)
+      {
+         isCacheDirectoryChecked = true;
+
+         try
+         {
+            Path directory = cacheDirectory.toPath();
+            if (!Files.isDirectory(directory))
+               createPrivateDirectory(directory);
+
+            UserPrincipal currentUser = directory.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+            UserPrincipal directoryOwner = Files.getOwner(directory);
+            if (directoryOwner.equals(currentUser))
+               cacheOwner = currentUser;
+            else
+               System.err.println("Not using the SDF description cache " + cacheDirectory + ", it belongs to " + directoryOwner.getName());
+         }
+         catch (IOException | UnsupportedOperationException e)
+         {
+            System.err.println("Not using the SDF description cache " + cacheDirectory + ": " + e.getMessage());
+         }
+      }
+
+      return cacheOwner != null;
+   }
+
+   private static void createPrivateDirectory(Path directory) throws IOException
+   {
+      Path parent = directory.toAbsolutePath().getParent();
+      if (parent != null)
+         Files.createDirectories(parent);
+
+      try
+      {
+         if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+         else
+            Files.createDirectory(directory);
+      }
+      catch (FileAlreadyExistsException e)
+      {
+         // Created by another process in the meantime, its owner is checked next
+      }
+   }
+
+   private synchronized boolean isOwnedByCacheOwner(File file)
+   {
+      try
+      {
+         return Files.getOwner(file.toPath()).equals(cacheOwner);
+      }
+      catch (IOException e)
+      {
+         return false;
+      }
+   }
+
+   /**
+    * Deletes the least recently used entries until the entries fit in the maximum size. The entry that was just written
+    * is always kept.
+    */
+   private void evictLeastRecentlyUsedEntries(File keptFile)
+   {
+      File[] files = cacheDirectory.listFiles();
+      if (files == null)
+         return;
+
+      // The modification times are read once, another process can touch the files while they are sorted
+      ArrayList<CacheEntry> entries = new ArrayList<CacheEntry>();
+      for (File file : files)
+      {
+         if (file.getName().endsWith(FILE_EXTENSION) && !file.equals(keptFile))
+            entries.add(new CacheEntry(file));
+      }
+
+      Collections.sort(entries, new Comparator<CacheEntry>()
+      {
+         @Override
+         public int compare(CacheEntry entry1, CacheEntry entry2)
+         {
+            return Long.compare(entry2.lastModified, entry1.lastModified);
+         }
+      });
+
+      long sizeInBytes = keptFile.length();
+      for (CacheEntry entry : entries)
+      {
+         sizeInBytes += entry.length;
+         if (sizeInBytes > maximumSizeInBytes)
+            entry.file.delete();
+      }
+   }
+
+   private static class CacheEntry
+   {
+      private final File file;
+      private final long lastModified;
+      private final long length;
+
+      public CacheEntry(File file)
+      {
+         this.file = file;
+         this.lastModified = file.lastModified();
+         this.length = file.length();
+      }
+   }
+
+   /**
+    * Hash of the names and types of the fields of all the classes reachable from {@link SDFRoot}. Adding, removing or
+    * changing a field of the description changes the name of every cache file.
+    */
+   private static synchronized byte[] getDescriptionLayoutHash() throws IOException
+   {
+      if (descriptionLayoutHash == null)
+      {
+         StringBuilder layout = new StringBuilder("format ").append(FORMAT_VERSION).append('\n');
+         appendLayout(SDFRoot.class, layout, new HashSet<Class<?>>());
+
+         MessageDigest digest = createDigest();
+         descriptionLayoutHash = digest.digest(layout.toString().getBytes(UTF8));
+      }
+
+      return descriptionLayoutHash;
+   }
+
+   private static void appendLayout(Class<?> clazz, StringBuilder layout, HashSet<Class<?>> visitedClasses) throws IOException
+   {
+      if (!visitedClasses.add(clazz))
+         return;
+
+      layout.append(clazz.getName()).append('\n');
+      for (Field field : getFields(clazz))
+      {
+         layout.append(' ').append(field.getName()).append(' ').append(field.getGenericType()).append('\n');
+
+         Class<?> fieldClass = getElementClass(field);
+         if (fieldClass != String.class)
+            appendLayout(fieldClass, layout, visitedClasses);
+      }
+   }
+
+   private static MessageDigest createDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance("SHA-1");
+      }
+      catch (NoSuchAlgorithmException e)
+      {
+         throw new RuntimeException(e);
+      }
+   }
+
+   private static SDFRoot readDescription(File cacheFile) throws IOException
+   {
+      long fileLength = cacheFile.length();
+      DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile), 65536));
+      try
+      {
+         if (input.readInt() != FORMAT_VERSION)
+            throw new IOException("Unknown format");
+
+         return (SDFRoot) readObject(input, SDFRoot.class, fileLength);
+      }
+      finally
+      {
+         input.close();
+      }
+   }
+
+   /**
+    * Writes to a temporary file first, so that another process never reads a partially written description.
+    */
+   private static void writeDescription(SDFRoot sdfRoot, File cacheFile) throws IOException
+   {
+      // Encode first so that a description that cannot be encoded leaves no file behind
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+      DataOutputStream output = new DataOutputStream(bytes);
+      output.writeInt(FORMAT_VERSION);
+      writeObject(output, sdfRoot, SDFRoot.class);
+      output.flush();
+
+      File directory = cacheFile.getParentFile();
+      File temporaryFile = File.createTempFile(cacheFile.getName(), ".tmp", directory);
+      try
+      {
+         BufferedOutputStream fileOutput = new BufferedOutputStream(new FileOutputStream(temporaryFile));
+         try
+         {
+            bytes.writeTo(fileOutput);
+         }
+         finally
+         {
+            fileOutput.close();
+         }
+
+         Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      finally
+      {
+         temporaryFile.delete();
+      }
+   }
+
+   /**
+    * The description classes only hold strings, lists and other description classes. Each object is written as a presence
+    * byte followed by its fields in name order.
+    */
+   private static void writeObject(DataOutputStream output, Object object, Class<?> declaredClass) throws IOException
+   {
+      if (object == null)
+      {
+         output.writeByte(0);
+         return;
+      }
+
+      if (object.getClass() != declaredClass)
+         throw new IOException("Cannot encode a " + object.getClass().getName() + " declared as a " + declaredClass.getName());
+
+      output.writeByte(1);
+
+      if (declaredClass == String.class)
+      {
+         byte[] stringBytes = ((String) object).getBytes(UTF8);
+         output.writeInt(stringBytes.length);
+         output.write(stringBytes);
+         return;
+      }
+
+      for (Field field : getFields(declaredClass))
+      {
+         Object value = getValue(field, object);
+
+         if (field.getType() == List.class)
+         {
+            if (value == null)
+            {
+               output.writeInt(-1);
+               continue;
+            }
+
+            List<?> list = (List<?>) value;
+            Class<?> elementClass = getElementClass(field);
+            output.writeInt(list.size());
+            for (int i = 0; i < list.size(); i++)
+            {
+               writeObject(output, list.get(i), elementClass);
+            }
+         }
+         else
+         {
+            writeObject(output, value, field.getType());
+         }
+      }
+   }
+
+   /**
+    * @param fileLength size of the file being read. Every string byte and list element takes at least one byte of the file,
+    *        so larger lengths can only come from a corrupted file.
+    */
+   private static Object readObject(DataInputStream input, Class<?> declaredClass, long fileLength) throws IOException
+   {
+      byte presence = input.readByte();
+      if (presence == 0)
+         return null;
+      if (presence != 1)
+         throw new IOException("Corrupted description");
+
+      if (declaredClass == String.class)
+      {
+         byte[] stringBytes = new byte[readLength(input, fileLength)];
+         input.readFully(stringBytes);
+         return new String(stringBytes, UTF8);
+      }
+
+      Object object = newInstance(declaredClass);
+
+      for (Field field : getFields(declaredClass))
+      {
+         if (field.getType() == List.class)
+         {
+            int size = input.readInt();
+            if (size == -1)
+               continue;
+            checkLength(size, fileLength);
+
+            Class<?> elementClass = getElementClass(field);
+            ArrayList<Object> list = new ArrayList<Object>(size);
+            for (int i = 0; i < size; i++)
+            {
+               list.add(readObject(input, elementClass, fileLength));
+            }
+            setValue(field, object, list);
+         }
+         else
+         {
+            setValue(field, object, readObject(input, field.getType(), fileLength));
+         }
+      }
+
+      return object;
+   }
+
+   private static int readLength(DataInputStream input, long fileLength) throws IOException
+   {
+      int length = input.readInt();
+      checkLength(length, fileLength);
+      return length;
+   }
+
+   private static void checkLength(int length, long fileLength) throws IOException
+   {
+      if (length < 0 || length > fileLength)
+         throw new IOException("Corrupted description, length " + length + " in a file of " + fileLength + " bytes");
+   }
+
+   private static Field[] getFields(Class<?> clazz) throws IOException
+   {
+      synchronized (fieldsByClass)
+      {
+         Field[] fields = fieldsByClass.get(clazz);
+         if (fields != null)
+            return fields;
+
+         ArrayList<Field> encodedFields = new ArrayList<Field>();
+         for (Field field : clazz.getDeclaredFields())
+         {
+            int modifiers = field.getModifiers();
+            if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic())
+               continue;
+
+            Class<?> fieldClass = getElementClass(field);
+            if (fieldClass.isPrimitive() || fieldClass.isInterface() || fieldClass.isArray() || Modifier.isAbstract(fieldClass.getModifiers()))
+               throw new IOException("Cannot encode field " + field);
+
+            field.setAccessible(true);
+            encodedFields.add(field);
+         }
+
+         if (clazz.getSuperclass() != Object.class)
+            throw new IOException("Cannot encode subclass " + clazz.getName());
+
+         // The order of getDeclaredFields is not specified
+         fields = encodedFields.toArray(new Field[encodedFields.size()]);
+         Arrays.sort(fields, new Comparator<Field>()
+         {
+            @Override
+            public int compare(Field field1, Field field2)
+            {
+               return field1.getName().compareTo(field2.getName());
+            }
+         });
+
+         fieldsByClass.put(clazz, fields);
+         return fields;
+      }
+   }
+
+   /**
+    * @return the type of the field, or the type of its elements if it is a list.
+    */
+   private static Class<?> getElementClass(Field field) throws IOException
+   {
+      if (field.getType() != List.class)
+         return field.getType();
+
+      Type genericType = field.getGenericType();
+      if (genericType instanceof ParameterizedType)
+      {
+         Type elementType = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+         if (elementType instanceof Class)
+            return (Class<?>) elementType;
+      }
+
+      throw new IOException("Cannot encode list field " + field);
+   }
+
+   private static Object getValue(Field field, Object object) throws IOException
+   {
+      try
+      {
+         return field.get(object);
+      }
+      catch (IllegalAccessException e)
+      {
+         throw new IOException(e);
+      }
+   }
+
+   private static void setValue(Field field, Object object, Object value) throws IOException
+   {
+      try
+      {
+         field.set(object, value);
+      }
+      catch (IllegalAccessException e)
+      {
+         throw new IOException(e);
+      }
+   }
+
+   private static Object newInstance(Class<?> clazz) throws IOException
+   {
+      try
+      {
+         Constructor<?> constructor = clazz.getDeclaredConstructor();
+         constructor.setAccessible(true);
+         return constructor.newInstance();
+      }
+      catch (ReflectiveOperationException e)
+      {
+         throw new IOException("Cannot create a " + clazz.getName(), e);
+      }
+   }
+
+   private static byte[] readFully(InputStream inputStream) throws IOException
+   {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(65536);
+      byte[] buffer = new byte[65536];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1)
+      {
+         bytes.write(buffer, 0, read);
+      }
+
+      return bytes.toByteArray();
+   }
+}
@@ -0,0 +1,306 @@
+package us.ihmc.SdfLoader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.List;
+
+import javax.xml.bind.JAXBException;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import us.ihmc.SdfLoader.xmlDescription.SDFRoot;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+
+public class SDFDescriptionCacheTest
+{
+	@DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testCachedDescriptionMatchesXML() throws JAXBException, IOException
+   {
+      byte[] sdfContent = readResource("sdfRobotTest.sdf");
+      File cacheDirectory = Files.createTempDirectory("sdfCacheTest").toFile();
+
+      try
+      {
+         SDFDescriptionCache cache = new SDFDescriptionCache(cacheDirectory);
+         SDFRoot parsedRoot = SDFDescriptionCache.unmarshal(sdfContent);
+
+         // First load parses the XML and writes the cache, second load reads the cache
+         assertModelsEqual(parsedRoot, cache.load(sdfContent));
+         File[] cacheFiles = cacheDirectory.listFiles();
+         assertEquals(1, cacheFiles.length);
+         assertModelsEqual(parsedRoot, cache.load(sdfContent));
+
+         // Other content gets another entry
+         byte[] modifiedContent = new String(sdfContent, "UTF-8").replace("<mass>", "<mass> ").getBytes("UTF-8");
+         assertModelsEqual(parsedRoot, cache.load(modifiedContent));
+         assertEquals(2, cacheDirectory.listFiles().length);
+
+         // A corrupted entry falls back to the XML and is written again
+         FileOutputStream corruptedFile = new FileOutputStream(cacheFiles[0]);
+         corruptedFile.write(new byte[] {0, 0, 0, 1, 1, 1});
+         corruptedFile.close();
+         assertModelsEqual(parsedRoot, cache.load(sdfContent));
+         assertTrue(cacheFiles[0].length() > 6);
+      }
+      finally
+      {
+         for (File file : cacheDirectory.listFiles())
+         {
+            file.delete();
+         }
+         cacheDirectory.delete();
+      }
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testCorruptedLengthsFallBackToXML() throws JAXBException, IOException
+   {
+      byte[] sdfContent = readResource("sdfRobotTest.sdf");
+      File cacheDirectory = Files.createTempDirectory("sdfCacheTest").toFile();
+
+      // Format version, root present, then the size of the model list or the length of the version string
+      byte[][] corruptedEntries = {{0, 0, 0, 1, 1, 0x7f, -1, -1, -1}, {0, 0, 0, 1, 1, -1, -1, -1, -2},
+            {0, 0, 0, 1, 1, 0, 0, 0, 0, 1, 0x7f, -1, -1, -1}, {0, 0, 0, 1, 1, 0, 0, 0, 0, 1, -1, -1, -1, -2}};
+
+      try
+      {
+         SDFDescriptionCache cache = new SDFDescriptionCache(cacheDirectory);
+         SDFRoot parsedRoot = SDFDescriptionCache.unmarshal(sdfContent);
+         cache.load(sdfContent);
+         File cacheFile = cacheDirectory.listFiles()[0];
+
+         for (byte[] corruptedEntry : corruptedEntries)
+         {
+            FileOutputStream corruptedFile = new FileOutputStream(cacheFile);
+            corruptedFile.write(corruptedEntry);
+            corruptedFile.close();
+
+            assertModelsEqual(parsedRoot, cache.load(sdfContent));
+            assertTrue(cacheFile.length() > corruptedEntry.length);
+         }
+      }
+      finally
+      {
+         deleteDirectory(cacheDirectory);
+      }
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testDisabledCacheDoesNotWrite() throws JAXBException, IOException
+   {
+      byte[] sdfContent = readResource("sdfRobotTest.sdf");
+      SDFDescriptionCache cache = new SDFDescriptionCache(null);
+
+      assertModelsEqual(SDFDescriptionCache.unmarshal(sdfContent), cache.load(sdfContent));
+   }
+
+	@DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testLeastRecentlyUsedEntriesAreEvicted() throws JAXBException, IOException
+   {
+      byte[] sdfContent = readResource("sdfRobotTest.sdf");
+      byte[][] contents = new byte[3][];
+      for (int i = 0; i < contents.length; i++)
+      {
+         // Same description, so every entry has the same size
+         contents[i] = (new String(sdfContent, "UTF-8") + "<!-- " + i + " -->").getBytes("UTF-8");
+      }
+
+      File cacheDirectory = Files.createTempDirectory("sdfCacheTest").toFile();
+      try
+      {
+         new SDFDescriptionCache(cacheDirectory).load(contents[0]);
+         File[] cacheFiles = cacheDirectory.listFiles();
+         long entrySize = cacheFiles[0].length();
+         cacheFiles[0].delete();
+
+         // Room for two entries
+         SDFDescriptionCache cache = new SDFDescriptionCache(cacheDirectory, 2 * entrySize + entrySize / 2);
+         cache.load(contents[0]);
+         File firstEntry = cacheDirectory.listFiles()[0];
+         cache.load(contents[1]);
+         File secondEntry = getOtherFile(cacheDirectory, firstEntry);
+
+         // The first entry is the oldest, until it is read again
+         long now = System.currentTimeMillis();
+         firstEntry.setLastModified(now - 20000);
+         secondEntry.setLastModified(now - 10000);
+         cache.load(contents[0]);
+         assertTrue(firstEntry.lastModified() > secondEntry.lastModified());
+
+         cache.load(contents[2]);
+         assertEquals(2, cacheDirectory.listFiles().length);
+         assertTrue(firstEntry.exists());
+         assertFalse(secondEntry.exists());
+
+         // An entry larger than the cache is still kept until the next one is written
+         SDFDescriptionCache tinyCache = new SDFDescriptionCache(cacheDirectory, 1);
+         tinyCache.load(contents[1]);
+         assertEquals(1, cacheDirectory.listFiles().length);
+         assertTrue(secondEntry.exists());
+      }
+      finally
+      {
+         deleteDirectory(cacheDirectory);
+      }
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testCacheDirectoryIsCreatedForTheCurrentUserOnly() throws JAXBException, IOException
+   {
+      byte[] sdfContent = readResource("sdfRobotTest.sdf");
+      File parentDirectory = Files.createTempDirectory("sdfCacheTest").toFile();
+      File cacheDirectory = new File(new File(parentDirectory, "home"), "sdfCache");
+
+      try
+      {
+         new SDFDescriptionCache(cacheDirectory).load(sdfContent);
+         assertEquals(1, cacheDirectory.listFiles().length);
+
+         Path directory = cacheDirectory.toPath();
+         if (directory.getFileSystem().supportedFileAttributeViews().contains("posix"))
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+      }
+      finally
+      {
+         deleteDirectory(cacheDirectory);
+         deleteDirectory(cacheDirectory.getParentFile());
+         deleteDirectory(parentDirectory);
+      }
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testCacheDirectoryOfAnotherUserIsNotUsed() throws JAXBException, IOException
+   {
+      byte[] sdfContent = readResource("sdfRobotTest.sdf");
+      File cacheDirectory = Files.createTempDirectory("sdfCacheTest").toFile();
+
+      try
+      {
+         // Only possible when the test is allowed to give a directory away
+         Path directory = cacheDirectory.toPath();
+         UserPrincipal otherUser;
+         try
+         {
+            otherUser = directory.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName("nobody");
+            Files.setOwner(directory, otherUser);
+         }
+         catch (IOException e)
+         {
+            otherUser = null;
+         }
+         Assume.assumeTrue(otherUser != null);
+
+         SDFDescriptionCache cache = new SDFDescriptionCache(cacheDirectory);
+         cache.load(sdfContent);
+         cache.load(sdfContent);
+         assertEquals(0, cacheDirectory.listFiles().length);
+      }
+      finally
+      {
+         deleteDirectory(cacheDirectory);
+      }
+   }
+
+   private static File getOtherFile(File directory, File file)
+   {
+      for (File other : directory.listFiles())
+      {
+         if (!other.equals(file))
+            return other;
+      }
+      return null;
+   }
+
+   private static void deleteDirectory(File directory)
+   {
+      File[] files = directory.listFiles();
+      if (files != null)
+      {
+         for (File file : files)
+         {
+            file.delete();
+         }
+      }
+      directory.delete();
+   }
+
+   private byte[] readResource(String name) throws IOException
+   {
+      InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name);
+      byte[] buffer = new byte[4096];
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      int read;
+      while ((read = inputStream.read(buffer)) != -1)
+      {
+         bytes.write(buffer, 0, read);
+      }
+      inputStream.close();
+
+      return bytes.toByteArray();
+   }
+
+   private static void assertModelsEqual(SDFRoot expectedRoot, SDFRoot actualRoot)
+   {
+      GeneralizedSDFRobotModel expected = new GeneralizedSDFRobotModel("atlas", expectedRoot.getModels().get(0), null);
+      GeneralizedSDFRobotModel actual = new GeneralizedSDFRobotModel("atlas", actualRoot.getModels().get(0), null);
+
+      assertEquals(expected.getTransformToRoot(), actual.getTransformToRoot());
+      assertEquals(expected.getRootLinks().size(), actual.getRootLinks().size());
+      for (int i = 0; i < expected.getRootLinks().size(); i++)
+      {
+         assertLinksEqual(expected.getRootLinks().get(i), actual.getRootLinks().get(i));
+      }
+   }
+
+   private static void assertLinksEqual(SDFLinkHolder expected, SDFLinkHolder actual)
+   {
+      assertEquals(expected.getName(), actual.getName());
+      assertEquals(expected.getMass(), actual.getMass(), 0.0);
+      assertEquals(expected.getInertia(), actual.getInertia());
+      assertEquals(expected.getCoMOffset(), actual.getCoMOffset());
+      assertEquals(expected.getTransformFromModelReferenceFrame(), actual.getTransformFromModelReferenceFrame());
+      assertEquals(size(expected.getVisuals()), size(actual.getVisuals()));
+      assertEquals(size(expected.getCollisions()), size(actual.getCollisions()));
+      assertEquals(size(expected.getSensors()), size(actual.getSensors()));
+
+      assertEquals(expected.getChildren().size(), actual.getChildren().size());
+      for (int i = 0; i < expected.getChildren().size(); i++)
+      {
+         SDFJointHolder expectedJoint = expected.getChildren().get(i);
+         SDFJointHolder actualJoint = actual.getChildren().get(i);
+
+         assertEquals(expectedJoint.getName(), actualJoint.getName());
+         assertEquals(expectedJoint.getType(), actualJoint.getType());
+         assertEquals(expectedJoint.getTransformToParentJoint(), actualJoint.getTransformToParentJoint());
+         assertEquals(expectedJoint.getAxisInModelFrame(), actualJoint.getAxisInModelFrame());
+         assertEquals(expectedJoint.getLowerLimit(), actualJoint.getLowerLimit(), 0.0);
+         assertEquals(expectedJoint.getUpperLimit(), actualJoint.getUpperLimit(), 0.0);
+         assertEquals(expectedJoint.getDamping(), actualJoint.getDamping(), 0.0);
+
+         assertLinksEqual(expectedJoint.getChildLinkHolder(), actualJoint.getChildLinkHolder());
+      }
+   }
+
+   private static int size(List<?> list)
+   {
+      return list == null ? -1 : list.size();
+   }
+}
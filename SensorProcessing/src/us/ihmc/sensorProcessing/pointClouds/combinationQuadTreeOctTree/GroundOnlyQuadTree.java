@@ -67,6 +67,16 @@ public class GroundOnlyQuadTree extends HyperCubeTree<GroundAirDescriptor, Groun
    }
    
 
+   public boolean addPoints(float[] points, int numberOfPoints)
+   {
+      boolean changed = false;
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         changed |= addToQuadtree(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+      }
+      return changed;
+   }
+
    public boolean addToQuadtree(double x, double y, double z)
    {
       double[] location = toLocation(x, y);
@@ -11,6 +11,7 @@ import us.ihmc.robotics.quadTree.Box;
 import us.ihmc.robotics.quadTree.QuadTreeForGround;
 import us.ihmc.robotics.quadTree.QuadTreeForGroundParameters;
 import us.ihmc.robotics.quadTree.QuadTreeForGroundPutResult;
+import us.ihmc.robotics.quadTree.QuadTreeForGroundSnapshot;
 import us.ihmc.robotics.geometry.InclusionFunction;
 
 public class QuadTreeForGroundHeightMap extends QuadTreeForGround implements QuadTreeHeightMapInterface
@@ -48,6 +49,33 @@ public class QuadTreeForGroundHeightMap extends QuadTreeForGround implements Qua
       return result.treeChanged;
    }
 
+   @Override
+   public boolean addPoints(float[] points, int numberOfPoints)
+   {
+      if (numberOfPoints == 0)
+         return false;
+
+      lock();
+      if (readerAndWriter != null)
+      {
+         for (int i = 0; i < numberOfPoints; i++)
+         {
+            readerAndWriter.writePoint(points[3 * i], points[3 * i + 1], points[3 * i + 2]);
+         }
+      }
+
+      // Set the default height to the first point you see if it were not set (ie NaN)
+      if (super.isEmpty() && Double.isNaN(super.getDefaultHeightWhenNoPoints()))
+      {
+         super.setDefaultHeightWhenNoPoints(points[2]);
+      }
+
+      int numberOfChanges = putAll(points, numberOfPoints);
+
+      unlock();
+      return numberOfChanges > 0;
+   }
+
    @Override
    public boolean addToQuadtree(double x, double y, double z)
    {
@@ -77,6 +105,23 @@ public class QuadTreeForGroundHeightMap extends QuadTreeForGround implements Qua
       ArrayList<Point3d> pointsWithinBoundsToPack = new ArrayList<Point3d>();
       ArrayList<Point3d> filteredPoints = new ArrayList<Point3d>();
 
+      // Work from a single snapshot, without blocking the thread adding the points
+      QuadTreeForGroundSnapshot snapshot = getSnapshot();
+      if (snapshot != null)
+      {
+         Box bounds = new Box(xCenter - xExtent, yCenter - yExtent, xCenter + xExtent, yCenter + yExtent);
+         snapshot.getAllPointsWithinBounds(bounds, pointsWithinBoundsToPack);
+         maskList(pointsWithinBoundsToPack, maskFunctionAboutCenter, filteredPoints);
+
+         if (filteredPoints.size() > 10)
+            return filteredPoints;
+
+         filteredPoints.clear();
+         ArrayList<Point3d> pointsAtGridResolution = getPointsAtGridResolution(snapshot, xCenter, yCenter, xExtent, yExtent);
+         maskList(pointsAtGridResolution, maskFunctionAboutCenter, filteredPoints);
+         return filteredPoints;
+      }
+
       lock();
       Box bounds = new Box(xCenter - xExtent, yCenter - yExtent, xCenter + xExtent, yCenter + yExtent);
       super.getAllPointsWithinBounds(bounds, pointsWithinBoundsToPack);
@@ -118,6 +163,25 @@ public class QuadTreeForGroundHeightMap extends QuadTreeForGround implements Qua
       return points;
    }
 
+   private ArrayList<Point3d> getPointsAtGridResolution(QuadTreeForGroundSnapshot snapshot, double centerX, double centerY, double extentX, double extentY)
+   {
+      ArrayList<Point3d> points = new ArrayList<Point3d>();
+
+      for (double x = centerX - extentX; x <= centerX + extentX; x += getQuadTreeParameters().getResolution())
+      {
+         for (double y = centerY - extentY; y <= centerY + extentY; y += getQuadTreeParameters().getResolution())
+         {
+            double height = snapshot.getHeightAtPoint(x, y);
+            if (!Double.isNaN(height))
+            {
+               points.add(new Point3d(x, y, height));
+            }
+         }
+      }
+
+      return points;
+   }
+
    private static void maskList(ArrayList<Point3d> originalPoints, InclusionFunction<Point3d> maskFunctionAboutCenter, ArrayList<Point3d> maskedPointsToPack)
    {
       if (maskFunctionAboutCenter == null)
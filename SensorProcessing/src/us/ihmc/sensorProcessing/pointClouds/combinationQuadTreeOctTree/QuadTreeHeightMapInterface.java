@@ -25,6 +25,13 @@ public interface QuadTreeHeightMapInterface extends HeightMapWithPoints
    public abstract void addQuadTreeListener(QuadTreeForGroundListener jmeGroundONlyQuadTreeVisualizer);
 
 	public abstract boolean addToQuadtree(double x, double y, double z);
+
+   /**
+    * Adds a batch of points at once.
+    * @param points x, y, z of the points, one after the other.
+    * @return true if adding the points changed the tree.
+    */
+   public abstract boolean addPoints(float[] points, int numberOfPoints);
 	
    public void getStoredPoints(Collection<Point3d> points);
    public void getCellAverageStoredPoints(Collection<Point3d> points);
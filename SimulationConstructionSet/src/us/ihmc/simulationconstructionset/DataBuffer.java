@@ -12,6 +12,8 @@ import us.ihmc.simulationconstructionset.commands.DataBufferCommandsExecutor;
 import us.ihmc.simulationconstructionset.commands.ToggleKeyPointModeCommandExecutor;
 import us.ihmc.simulationconstructionset.commands.ToggleKeyPointModeCommandListener;
 import us.ihmc.simulationconstructionset.dataBuffer.DataEntryHolder;
+import us.ihmc.simulationconstructionset.dataBuffer.PackedDataBufferStorage;
+import us.ihmc.simulationconstructionset.dataBuffer.PackedDataBufferStorage.Encoding;
 import us.ihmc.simulationconstructionset.dataBuffer.TimeDataHolder;
 import us.ihmc.simulationconstructionset.gui.KeyPoints;
 import us.ihmc.simulationconstructionset.gui.RegularExpression;
@@ -48,6 +50,9 @@ public class DataBuffer extends YoVariableHolderImplementation
 
    private boolean safeToManualyChangeIndex = true;
 
+   private transient PackedDataBufferStorage packedStorage = null;
+   private boolean storeDoublesAsFloats = false;
+
    public DataBuffer()
    {
       entries = new ArrayList<DataBufferEntry>();
@@ -60,6 +65,7 @@ public class DataBuffer extends YoVariableHolderImplementation
 
       entries.clear();
       entries = null;
+      packedStorage = null;
 
       index = -1;
    }
@@ -95,11 +101,90 @@ public class DataBuffer extends YoVariableHolderImplementation
       return this.wrapBuffer;
    }
 
+   /**
+    * Moves the histories of all the variables, current and future, to one off-heap region. This reduces the memory used
+    * by long buffers, and makes growing, cropping and thinning the buffer bulk operations.
+    *
+    * Boolean, integer and enum variables are stored exactly in 1 or 4 bytes. Double variables use 8 bytes, or 4 when
+    * storeDoublesAsFloats is true at the cost of precision.
+    *
+    * {@link DataBufferEntry#getData()} returns a copy of the data of packed entries.
+    *
+    * @param storeDoublesAsFloats store double variables as floats
+    */
+   public void enablePackedStorage(boolean storeDoublesAsFloats)
+   {
+      if (packedStorage != null)
+         return;
+
+      this.storeDoublesAsFloats = storeDoublesAsFloats;
+      PackedDataBufferStorage storage = new PackedDataBufferStorage(bufferSize);
+
+      // Add all the columns before moving the data, so the layout is only computed once
+      int[] columns = new int[entries.size()];
+      for (int i = 0; i < entries.size(); i++)
+      {
+         columns[i] = storage.addColumn(getEncoding(entries.get(i).getVariable()));
+      }
+
+      for (int i = 0; i < entries.size(); i++)
+      {
+         entries.get(i).moveToPackedStorage(storage, columns[i]);
+      }
+
+      packedStorage = storage;
+   }
+
+   public boolean isPackedStorageEnabled()
+   {
+      return packedStorage != null;
+   }
+
+   /**
+    * @return the size of the packed storage in bytes, or 0 if the packed storage is not enabled
+    */
+   public long getPackedStorageSizeInBytes()
+   {
+      if (packedStorage == null)
+         return 0;
+
+      return packedStorage.getSizeInBytes();
+   }
+
+   private Encoding getEncoding(YoVariable<?> variable)
+   {
+      switch (variable.getYoVariableType())
+      {
+      case BOOLEAN:
+         return Encoding.BYTE;
+      case INTEGER:
+      case ENUM:
+         return Encoding.INT;
+      case LONG:
+         return Encoding.LONG;
+      default:
+         return storeDoublesAsFloats ? Encoding.FLOAT : Encoding.DOUBLE;
+      }
+   }
+
+   private void notifyEntriesPackedDataChanged()
+   {
+      for (int i = 0; i < entries.size(); i++)
+      {
+         entries.get(i).packedDataChanged();
+      }
+   }
+
    public void addEntry(DataBufferEntry entry)
    {
       if (entry.getDataLength() != this.bufferSize)
          throw new RuntimeException("entry.getDataLength() != this.bufferSize");
 
+      if (packedStorage != null && !entry.isPacked())
+      {
+         entry.moveToPackedStorage(packedStorage, packedStorage.addColumn(getEncoding(entry.getVariable())));
+      }
+
       entries.add(entry);
    }
 
@@ -108,7 +193,15 @@ public class DataBuffer extends YoVariableHolderImplementation
       addVariableToHolder(newVariable);
       yoVariableSet.add(newVariable);
 
-      DataBufferEntry entry = new DataBufferEntry(newVariable, nPoints);
+      DataBufferEntry entry;
+      if (packedStorage != null && nPoints == bufferSize)
+      {
+         entry = new DataBufferEntry(newVariable, packedStorage, packedStorage.addColumn(getEncoding(newVariable)));
+      }
+      else
+      {
+         entry = new DataBufferEntry(newVariable, nPoints);
+      }
       this.addEntry(entry);
 
       if (newVariable.getName().equals("t"))
@@ -313,6 +406,15 @@ public class DataBuffer extends YoVariableHolderImplementation
 
    public void clearAll(int nPoints)
    {
+      if (packedStorage != null)
+      {
+         packedStorage.clear(nPoints);
+         notifyEntriesPackedDataChanged();
+         this.bufferSize = nPoints;
+
+         return;
+      }
+
       double[] blankData;
 
       for (int i = 0; i < entries.size(); i++)
@@ -344,6 +446,15 @@ public class DataBuffer extends YoVariableHolderImplementation
 
    private void enlargeBufferSize(int newSize)
    {
+      if (packedStorage != null)
+      {
+         packedStorage.enlarge(newSize);
+         notifyEntriesPackedDataChanged();
+         bufferSize = newSize;
+
+         return;
+      }
+
       for (int i = 0; i < entries.size(); i++)
       {
          DataBufferEntry entry = entries.get(i);
@@ -397,11 +508,19 @@ public class DataBuffer extends YoVariableHolderImplementation
       }
 
       // Shift the data in each entry to begin with start.
-      for (int i = 0; i < entries.size(); i++)
+      if (packedStorage != null)
       {
-         DataBufferEntry entry = entries.get(i);
+         packedStorage.pack(start);
+         notifyEntriesPackedDataChanged();
+      }
+      else
+      {
+         for (int i = 0; i < entries.size(); i++)
+         {
+            DataBufferEntry entry = entries.get(i);
 
-         entry.packData(start);
+            entry.packData(start);
+         }
       }
 
       // Move the current index to its relative position in the new data set, if the index is outside of the buffer move to zero
@@ -447,8 +566,16 @@ public class DataBuffer extends YoVariableHolderImplementation
          bufferSize = DataBufferEntry.computeBufferSizeAfterCrop(start, end, bufferSize);
       }
 
+      if (packedStorage != null)
+      {
+         int retSize = packedStorage.crop(start, end);
+         if (retSize >= 0)
+            bufferSize = retSize;
+         notifyEntriesPackedDataChanged();
+      }
+
       // Step through the entries cropping and resizing the data set for each
-      for (int i = 0; i < entries.size(); i++)
+      for (int i = 0; packedStorage == null && i < entries.size(); i++)
       {
          DataBufferEntry entry = entries.get(i);
          int retSize = entry.cropData(start, end);
@@ -506,8 +633,16 @@ public class DataBuffer extends YoVariableHolderImplementation
          bufferSize = DataBufferEntry.computeBufferSizeAfterCut(start, end, bufferSize);
       }
 
+      if (packedStorage != null)
+      {
+         int retSize = packedStorage.cut(start, end);
+         if (retSize >= 0)
+            bufferSize = retSize;
+         notifyEntriesPackedDataChanged();
+      }
+
       // Step through the entries cutting and resizing the data set for each
-      for (int i = 0; i < entries.size(); i++)
+      for (int i = 0; packedStorage == null && i < entries.size(); i++)
       {
          DataBufferEntry entry = entries.get(i);
          int retSize = entry.cutData(start, end);
@@ -551,8 +686,14 @@ public class DataBuffer extends YoVariableHolderImplementation
       if (bufferSize <= 2 * keepEveryNthPoint)
          return;
 
+      if (packedStorage != null)
+      {
+         bufferSize = packedStorage.thin(keepEveryNthPoint);
+         notifyEntriesPackedDataChanged();
+      }
+
       // Step through the entries cutting and resizing the data set for each
-      for (int i = 0; i < entries.size(); i++)
+      for (int i = 0; packedStorage == null && i < entries.size(); i++)
       {
          DataBufferEntry entry = entries.get(i);
          int retSize = entry.thinData(keepEveryNthPoint);
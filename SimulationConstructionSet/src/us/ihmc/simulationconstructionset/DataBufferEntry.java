@@ -2,12 +2,17 @@ package us.ihmc.simulationconstructionset;
 
 import us.ihmc.robotics.dataStructures.variable.YoVariable;
 import us.ihmc.simulationconstructionset.dataBuffer.DataEntry;
+import us.ihmc.simulationconstructionset.dataBuffer.PackedDataBufferStorage;
 
 public class DataBufferEntry implements DataEntry
 {
    private final YoVariable<?> variable;
    private double[] data;
 
+   // When the data is held in the packed storage of the DataBuffer, data is null
+   private PackedDataBufferStorage storage = null;
+   private int column = -1;
+
    private boolean inverted = false;
    
    private double min, max;
@@ -30,6 +35,70 @@ public class DataBufferEntry implements DataEntry
       reCalcMinMax();
    }
 
+   /**
+    * Creates an entry whose data is the given column of the packed storage. The column is expected to be zero.
+    */
+   protected DataBufferEntry(YoVariable<?> variable, PackedDataBufferStorage storage, int column)
+   {
+      this.variable = variable;
+      this.storage = storage;
+      this.column = column;
+
+      this.min = 0.0;
+      this.max = 0.0;
+      this.minMaxStale = false;
+   }
+
+   /**
+    * Moves the data of this entry to a column of the packed storage, which needs to have the same buffer size.
+    */
+   protected void moveToPackedStorage(PackedDataBufferStorage storage, int column)
+   {
+      if (this.storage != null)
+         throw new RuntimeException("Entry " + variable.getName() + " is already in a packed storage");
+
+      storage.setColumn(column, data);
+      this.storage = storage;
+      this.column = column;
+      this.data = null;
+      reCalcMinMax();
+   }
+
+   public boolean isPacked()
+   {
+      return storage != null;
+   }
+
+   /**
+    * Called by the DataBuffer after it changed the packed storage with a bulk operation.
+    */
+   protected synchronized void packedDataChanged()
+   {
+      minMaxStale = true;
+      setMinMaxChanged();
+   }
+
+   private void checkNotPacked()
+   {
+      if (storage != null)
+         throw new RuntimeException("The data of packed entries is resized by the DataBuffer");
+   }
+
+   public double getDataPoint(int index)
+   {
+      if (storage != null)
+         return storage.get(column, index);
+      return data[index];
+   }
+
+   private void setDataPoint(int index, double value)
+   {
+      if (storage != null)
+         storage.set(column, index, value);
+      else
+         data[index] = value;
+   }
+
    public void setInverted(boolean inverted)
    {
       this.inverted = inverted;
@@ -42,11 +111,19 @@ public class DataBufferEntry implements DataEntry
 
    public int getDataLength()
    {
+      if (storage != null)
+         return storage.getBufferSize();
       return data.length;
    }
-   
+
+   /**
+    * For packed entries, this returns a copy of the data. Use {@link #setData(double[], int)} to write modifications back, and
+    * {@link #getDataPoint(int)} to read the data without copying it.
+    */
    public double[] getData()
    {
+      if (storage != null)
+         return storage.getColumn(column, new double[storage.getBufferSize()]);
       return this.data;
    }
 
@@ -95,6 +172,13 @@ public class DataBufferEntry implements DataEntry
 
    protected void copyValueThrough()
    {
+      if (storage != null)
+      {
+         storage.fillColumn(column, variable.getValueAsDouble());
+         this.reCalcMinMax();
+         return;
+      }
+
       for (int i = 0; i < data.length; i++)
       {
          data[i] = variable.getValueAsDouble();
@@ -105,6 +189,7 @@ public class DataBufferEntry implements DataEntry
 
    protected void enlargeBufferSize(int newSize)
    {
+      checkNotPacked();
       double[] oldData = data;
       int oldNPoints = oldData.length;
 
@@ -132,6 +217,8 @@ public class DataBufferEntry implements DataEntry
     */
    protected int cropData(int start, int end)
    {
+      checkNotPacked();
+
       // If the endpoints are unreasonable indicate failure
       if ((start < 0) || (end > data.length))
          return -1;
@@ -164,6 +251,8 @@ public class DataBufferEntry implements DataEntry
    
    public int cutData(int start, int end)
    {
+      checkNotPacked();
+
       if (start > end) return -1;
       
       // If the endpoints are unreasonable indicate failure
@@ -204,6 +293,8 @@ public class DataBufferEntry implements DataEntry
 
    public int thinData(int keepEveryNthPoint)
    {
+      checkNotPacked();
+
       double[] oldData = data;
       int oldNPoints = oldData.length;
       
@@ -238,6 +329,8 @@ public class DataBufferEntry implements DataEntry
     */
    protected void packData(int start)
    {
+      checkNotPacked();
+
       // If the start point is outside of the data set abort
       if ((start <= 0) || (start >= data.length))
          return;
@@ -265,9 +358,9 @@ public class DataBufferEntry implements DataEntry
    public synchronized void setDataAtIndexToYoVariableValue(int index)
    {
       double newVal = variable.getValueAsDouble();
-      double oldVal = data[index];
+      double oldVal = getDataPoint(index);
 
-      data[index] = newVal;
+      setDataPoint(index, newVal);
 
       if (newVal < this.min)
       {
@@ -296,7 +389,7 @@ public class DataBufferEntry implements DataEntry
 
    protected void setYoVariableValueToDataAtIndex(int index)
    {
-      double doubleValue = data[index];
+      double doubleValue = getDataPoint(index);
       variable.setValueFromDouble(doubleValue);
    }
 
@@ -326,7 +419,7 @@ public class DataBufferEntry implements DataEntry
    {
       boolean ret = false;
 
-      if (data == null)
+      if (data == null && storage == null)
          return false;
 
       minMaxChanged = true;
@@ -334,12 +427,14 @@ public class DataBufferEntry implements DataEntry
       double newMin = Double.POSITIVE_INFINITY; // data[0];
       double newMax = Double.NEGATIVE_INFINITY; // data[0];
 
-      for (int i = 1; i < data.length; i++)
+      int length = getDataLength();
+      for (int i = 1; i < length; i++)
       {
-         if (!Double.isNaN(data[i]) && data[i] < newMin)
-            newMin = data[i];
-         if (!Double.isNaN(data[i]) && data[i] > newMax)
-            newMax = data[i];
+         double value = getDataPoint(i);
+         if (!Double.isNaN(value) && value < newMin)
+            newMin = value;
+         if (!Double.isNaN(value) && value > newMax)
+            newMax = value;
       }
       
       if (newMin > newMax)
@@ -377,6 +472,15 @@ public class DataBufferEntry implements DataEntry
 
    protected void setData(double[] data, int nPoints)
    {
+      if (storage != null)
+      {
+         if (storage.getBufferSize() != nPoints)
+            System.err.println("data and nPoints are not consistent in DataBufferEntry.setData()!!");
+         storage.setColumn(column, data);
+         reCalcMinMax();
+         return;
+      }
+
       this.data = data;
 
       // this.nPoints = nPoints;
@@ -388,7 +492,7 @@ public class DataBufferEntry implements DataEntry
 
    protected void setData(double data, int index)
    {
-      this.data[index] = data;
+      setDataPoint(index, data);
       if (data > max)
       {
          max = data;
@@ -405,10 +509,10 @@ public class DataBufferEntry implements DataEntry
    {
       double total = 0.0;
 
-      int length = data.length;
+      int length = getDataLength();
       for (int i=0; i<length; i++)
       {
-         total = total + data[i];
+         total = total + getDataPoint(i);
       }
 
       return total / ((double) length);
@@ -418,12 +522,13 @@ public class DataBufferEntry implements DataEntry
    {
       double[] ret = new double[bufferLength];
       int n = in;
+      int length = getDataLength();
 
       for (int i = 0; i < bufferLength; i++)
       {
-         ret[i] = data[n];
+         ret[i] = getDataPoint(n);
          n++;
-         if (n >= data.length)
+         if (n >= length)
             n = 0;
       }
 
@@ -451,7 +556,7 @@ public class DataBufferEntry implements DataEntry
 
       boolean ret = false;
 
-      if (data == null)
+      if (data == null && storage == null)
       {
          return false;
       }
@@ -464,27 +569,30 @@ public class DataBufferEntry implements DataEntry
       {
          for (int i = leftIndex; i < rightIndex; i++)
          {
-            if (!Double.isNaN(data[i]) && data[i] < newMin)
-               newMin = data[i];
-            if (!Double.isNaN(data[i]) && data[i] > newMax)
-               newMax = data[i];
+            double value = getDataPoint(i);
+            if (!Double.isNaN(value) && value < newMin)
+               newMin = value;
+            if (!Double.isNaN(value) && value > newMax)
+               newMax = value;
          }
       } else
       {
          for (int i = leftIndex; i < rightPlotIndex; i++)
          {
-            if (!Double.isNaN(data[i]) && data[i] < newMin)
-               newMin = data[i];
-            if (!Double.isNaN(data[i]) && data[i] > newMax)
-               newMax = data[i];
+            double value = getDataPoint(i);
+            if (!Double.isNaN(value) && value < newMin)
+               newMin = value;
+            if (!Double.isNaN(value) && value > newMax)
+               newMax = value;
          }
 
          for (int i = leftPlotIndex; i < rightIndex; i++)
          {
-            if (!Double.isNaN(data[i]) && data[i] < newMin)
-               newMin = data[i];
-            if (!Double.isNaN(data[i]) && data[i] > newMax)
-               newMax = data[i];
+            double value = getDataPoint(i);
+            if (!Double.isNaN(value) && value < newMin)
+               newMin = value;
+            if (!Double.isNaN(value) && value > newMax)
+               newMax = value;
          }
       }
 
@@ -509,13 +617,13 @@ public class DataBufferEntry implements DataEntry
    {
       //      System.out.println(this.variable.getName() + ": InPoint = " + inPoint + ", outPoint = " + outPoint);
 
-      if (inPoint >= this.data.length)
+      if (inPoint >= this.getDataLength())
          return false;
-      if (inPoint >= entry2.data.length)
+      if (inPoint >= entry2.getDataLength())
          return false;
-      if (outPoint >= this.data.length)
+      if (outPoint >= this.getDataLength())
          return false;
-      if (outPoint >= entry2.data.length)
+      if (outPoint >= entry2.getDataLength())
          return false;
 
       if (inPoint > outPoint)
@@ -524,8 +632,8 @@ public class DataBufferEntry implements DataEntry
       boolean ret = true;
       for (int i = inPoint; i < outPoint; i++)
       {
-         double dataOne = this.data[i];
-         double dataTwo = entry2.data[i];
+         double dataOne = this.getDataPoint(i);
+         double dataTwo = entry2.getDataPoint(i);
 
          //         System.out.println(this.variable.getName() + ": dataOne = " + dataOne + ", dataTwo = " + dataTwo);
 
@@ -545,7 +653,7 @@ public class DataBufferEntry implements DataEntry
 
    public void getVariableNameAndValueAtIndex(StringBuffer stringBuffer, int index)
    {
-      variable.getNameAndValueStringFromDouble(stringBuffer, data[index]);
+      variable.getNameAndValueStringFromDouble(stringBuffer, getDataPoint(index));
    }
 
    
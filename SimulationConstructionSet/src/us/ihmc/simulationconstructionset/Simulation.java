@@ -37,6 +37,7 @@ public class Simulation implements YoVariableHolder, Serializable // Runnable,
 
    // private final YoVariable time;
    private Simulator mySimulator;
+   private int parallelSteppingThreads = 1;
    private DataBuffer myDataBuffer;
 
    private YoVariableList myCombinedVarList = new YoVariableList("Combined");
@@ -87,6 +88,18 @@ public class Simulation implements YoVariableHolder, Serializable // Runnable,
       // recomputeTiming();
    }
 
+   /**
+    * Steps the robots in parallel on the given number of threads, see {@link Simulator#setParallelStepping(int)}.
+    *
+    * @param numberOfThreads number of threads to use, or 1 to step the robots serially
+    */
+   public void setParallelStepping(int numberOfThreads)
+   {
+      parallelSteppingThreads = numberOfThreads;
+      if (mySimulator != null)
+         mySimulator.setParallelStepping(numberOfThreads);
+   }
+
    public void setRecordDT(double recordDT)
    {
       RECORD_FREQ = (int) Math.round(recordDT / mySimulator.getDT());
@@ -211,6 +224,9 @@ public class Simulation implements YoVariableHolder, Serializable // Runnable,
    {
       myDataBuffer.closeAndDispose();
 
+      if (mySimulator != null)
+         mySimulator.setParallelStepping(1);
+
       myDataBuffer = null;
       mySimulator = null;
    }
@@ -223,7 +239,10 @@ public class Simulation implements YoVariableHolder, Serializable // Runnable,
       if (robots != null)
       {
          // Create a simulator:
+         if (mySimulator != null)
+            mySimulator.setParallelStepping(1);
          mySimulator = new Simulator(simulationSynchronizer, robots, SIMULATION_DT);
+         mySimulator.setParallelStepping(parallelSteppingThreads);
 
          // Set the default DT
          this.setDT(SIMULATION_DT, RECORD_FREQ);
@@ -409,6 +409,8 @@ public class SimulationConstructionSet implements Runnable, YoVariableHolder, Ru
 
       mySimulation = simulation;
       this.myDataBuffer = mySimulation.getDataBuffer();
+      if (parameters.getUsePackedDataBuffer())
+         this.myDataBuffer.enablePackedStorage(parameters.getStoreDoublesAsFloats());
       this.simulationSynchronizer = mySimulation.getSimulationSynchronizer();
 
       ArrayList<YoVariable<?>> originalRootVariables = rootRegistry.getAllVariablesIncludingDescendants();
@@ -621,6 +623,17 @@ public class SimulationConstructionSet implements Runnable, YoVariableHolder, Ru
       recomputeTiming();
    }
 
+   /**
+    * Steps the robots of this simulation in parallel. Only use this for robots that do not interact other than through
+    * their ground contact models and the collision detector.
+    *
+    * @param numberOfThreads number of threads to use, or 1 to step the robots serially
+    */
+   public void setParallelStepping(int numberOfThreads)
+   {
+      mySimulation.setParallelStepping(numberOfThreads);
+   }
+
    /**
     * Retrieves the Robots used in this simulation.
     *
@@ -7,6 +7,8 @@ public class SimulationConstructionSetParameters
    private boolean showWindows = true;
    private int dataBufferSize = 8192;
    private boolean showYoGraphicObjects = true;
+   private boolean usePackedDataBuffer = false;
+   private boolean storeDoublesAsFloats = false;
   
 
    public SimulationConstructionSetParameters()
@@ -69,6 +71,12 @@ public class SimulationConstructionSetParameters
          Boolean showYoGraphicsObjects = Boolean.parseBoolean(property);
          setShowYoGraphicObjects(showYoGraphicsObjects);
       }      
+
+      property = System.getProperty("scs.dataBuffer.packed");
+      if (property != null)
+      {
+         setUsePackedDataBuffer(Boolean.parseBoolean(property), Boolean.parseBoolean(System.getProperty("scs.dataBuffer.floats")));
+      }
    }
 
    public int getDataBufferSize()
@@ -121,6 +129,25 @@ public class SimulationConstructionSetParameters
       this.showYoGraphicObjects = showYoGraphicObjects;
    }
    
+   public boolean getUsePackedDataBuffer()
+   {
+      return usePackedDataBuffer;
+   }
+
+   public boolean getStoreDoublesAsFloats()
+   {
+      return storeDoublesAsFloats;
+   }
+
+   /**
+    * Keeps the data buffer in one off-heap region, see {@link DataBuffer#enablePackedStorage(boolean)}.
+    */
+   public void setUsePackedDataBuffer(boolean usePackedDataBuffer, boolean storeDoublesAsFloats)
+   {
+      this.usePackedDataBuffer = usePackedDataBuffer;
+      this.storeDoublesAsFloats = storeDoublesAsFloats;
+   }
+
    public String toString()
    {
       String st = "showSplashScreen: " + showSplashScreen + "\n";    
@@ -128,6 +155,7 @@ public class SimulationConstructionSetParameters
       st += "showWindows: " + showWindows + "\n";    
       st += "dataBufferSize: " + dataBufferSize + "\n";    
       st += "showYoGraphicObjects: " + showYoGraphicObjects + "\n";    
+      st += "usePackedDataBuffer: " + usePackedDataBuffer + "\n";    
       return st;   
    }
 }
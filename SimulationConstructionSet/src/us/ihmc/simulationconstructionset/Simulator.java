@@ -1,6 +1,12 @@
 package us.ihmc.simulationconstructionset;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import us.ihmc.simulationconstructionset.physics.ScsCollisionDetector;
 import us.ihmc.simulationconstructionset.physics.visualize.DefaultCollisionVisualize;
@@ -21,6 +27,11 @@ public class Simulator implements java.io.Serializable
    private DefaultCollisionVisualize collisionVisualize;
    protected ArrayList<WrenchContactPoint> forceSensor = new ArrayList<WrenchContactPoint>();
 
+   private transient ForkJoinPool parallelSteppingPool = null;
+   private transient ArrayList<Callable<Void>> updateVelocitiesTasks = null;
+   private transient ArrayList<Callable<Void>> doDynamicsAndIntegrateTasks = null;
+   private transient UnreasonableAccelerationException[] unreasonableAccelerationExceptions = null;
+
    // private final YoVariable time;
 
    public Simulator(SimulationSynchronizer simulationSynchronizer, Robot[] robots, double dt)
@@ -59,6 +70,103 @@ public class Simulator implements java.io.Serializable
       return forceSensor;
    }
 
+   /**
+    * Steps the robots in parallel on the given number of threads. Every tick, the velocities of the robots are updated
+    * in parallel, then ground contact, scripts, collisions and controllers are done serially, and finally the dynamics
+    * of the robots are integrated in parallel.
+    *
+    * Only use this for robots that do not share state other than through the ground contact models and the collision
+    * detector. The results do not depend on the number of threads, and exceptions are thrown for the first robot that
+    * failed, in the order of the robots.
+    *
+    * @param numberOfThreads number of threads to use, or 1 to step the robots serially
+    */
+   public void setParallelStepping(int numberOfThreads)
+   {
+      if (parallelSteppingPool != null)
+      {
+         parallelSteppingPool.shutdown();
+         parallelSteppingPool = null;
+      }
+
+      if (numberOfThreads <= 1 || robots.length <= 1)
+         return;
+
+      updateVelocitiesTasks = new ArrayList<Callable<Void>>(robots.length);
+      doDynamicsAndIntegrateTasks = new ArrayList<Callable<Void>>(robots.length);
+      unreasonableAccelerationExceptions = new UnreasonableAccelerationException[robots.length];
+      for (int i = 0; i < robots.length; i++)
+      {
+         final Robot robot = robots[i];
+         final int robotIndex = i;
+
+         updateVelocitiesTasks.add(new Callable<Void>()
+         {
+            @Override
+            public Void call()
+            {
+               robot.updateVelocities();
+               robot.updateAllGroundContactPointVelocities();
+               return null;
+            }
+         });
+
+         doDynamicsAndIntegrateTasks.add(new Callable<Void>()
+         {
+            @Override
+            public Void call()
+            {
+               // UnreasonableAccelerationException is a Throwable, so it can't go through the Future
+               try
+               {
+                  robot.doDynamicsAndIntegrate(DT);
+                  robot.updateIMUMountAccelerations();
+               }
+               catch (UnreasonableAccelerationException e)
+               {
+                  unreasonableAccelerationExceptions[robotIndex] = e;
+               }
+               return null;
+            }
+         });
+      }
+
+      parallelSteppingPool = new ForkJoinPool(Math.min(numberOfThreads, robots.length));
+   }
+
+   public boolean isParallelSteppingEnabled()
+   {
+      return parallelSteppingPool != null;
+   }
+
+   private void runInParallel(List<Callable<Void>> tasks)
+   {
+      List<Future<Void>> futures = parallelSteppingPool.invokeAll(tasks);
+
+      // invokeAll waits for all the tasks, report the first failure in the order of the robots
+      for (int i = 0; i < futures.size(); i++)
+      {
+         try
+         {
+            futures.get(i).get();
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+         }
+         catch (ExecutionException e)
+         {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+               throw (RuntimeException) cause;
+            if (cause instanceof Error)
+               throw (Error) cause;
+            throw new RuntimeException(cause);
+         }
+      }
+   }
+
    protected void simulate() throws UnreasonableAccelerationException
    {
       updateState();
@@ -70,15 +178,23 @@ public class Simulator implements java.io.Serializable
    {
       synchronized (simulationSynchronizer)
       {
+         if (parallelSteppingPool != null)
+         {
+            runInParallel(updateVelocitiesTasks);
+         }
+
          for (Robot robot : robots)
          {
-            // +++JEP090122 This updates the locations and velocities of everything. Need to do this instead of just update so that the ground contact has the
-            // most recent velocities and is rewindable...
-            robot.updateVelocities();
+            if (parallelSteppingPool == null)
+            {
+               // +++JEP090122 This updates the locations and velocities of everything. Need to do this instead of just update so that the ground contact has the
+               // most recent velocities and is rewindable...
+               robot.updateVelocities();
 
-            //          rob.update();
+               //          rob.update();
 
-            robot.updateAllGroundContactPointVelocities(); // +++JEP OPTIMIZE: Need to do this once so all point velocities get updated. Otherwise only those in contact will.
+               robot.updateAllGroundContactPointVelocities(); // +++JEP OPTIMIZE: Need to do this once so all point velocities get updated. Otherwise only those in contact will.
+            }
 
 
             if (robot.getGroundContactModel() != null)
@@ -131,6 +247,23 @@ public class Simulator implements java.io.Serializable
    {
       synchronized (simulationSynchronizer)
       {
+         if (parallelSteppingPool != null)
+         {
+            runInParallel(doDynamicsAndIntegrateTasks);
+
+            for (int i = 0; i < unreasonableAccelerationExceptions.length; i++)
+            {
+               UnreasonableAccelerationException exception = unreasonableAccelerationExceptions[i];
+               if (exception != null)
+               {
+                  Arrays.fill(unreasonableAccelerationExceptions, null);
+                  throw exception;
+               }
+            }
+
+            return;
+         }
+
          for (int i = 0; i < robots.length; i++)
          {
             Robot robot = robots[i];
@@ -15,6 +15,13 @@ public interface DataEntry
 
    public abstract double[] getData();
 
+   public abstract int getDataLength();
+
+   /**
+    * Reads one point of the data without copying it, use this instead of {@link #getData()} in code that runs often like painting.
+    */
+   public abstract double getDataPoint(int index);
+
    public abstract double getMax();
 
    public abstract double getMin();
@@ -0,0 +1,452 @@
+package us.ihmc.simulationconstructionset.dataBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Stores the histories of all the variables of a data buffer in one off-heap region instead of one double[] per variable.
+ *
+ * The region is laid out as one record per tick, every record holding the packed value of every column. Columns use the
+ * smallest encoding that holds their values, for example one byte for booleans. Since a tick is one contiguous record,
+ * growing, cropping, packing, cutting and thinning the buffer are bulk copies of record ranges, independent of the
+ * number of variables.
+ *
+ * The region is split in slabs of at most 1 GB, so buffers larger than the maximum size of a ByteBuffer are supported.
+ * Columns can be added at any time; the layout is updated lazily on the next access, so adding many columns is cheap.
+ *
+ * The layout is published as one immutable object, so get and set do not take the lock.
+ */
+public class PackedDataBufferStorage
+{
+   private static final int DEFAULT_MAXIMUM_SLAB_SIZE_IN_BYTES = 1 << 30;
+
+   public enum Encoding
+   {
+      DOUBLE(8), FLOAT(4), LONG(8), INT(4), BYTE(1);
+
+      private final int bytes;
+
+      private Encoding(int bytes)
+      {
+         this.bytes = bytes;
+      }
+
+      public int getSizeInBytes()
+      {
+         return bytes;
+      }
+   }
+
+   // Columns added so far, guarded by this. The layout is only updated to include them on the next access.
+   private Encoding[] encodings = new Encoding[0];
+   private int numberOfColumns = 0;
+
+   // Replaced as a whole by the synchronized methods. get and set read it once without the lock, so they always see slabs,
+   // offsets and record size of the same layout.
+   private volatile Layout layout;
+
+   private final int maximumSlabSizeInBytes;
+
+   public PackedDataBufferStorage(int bufferSize)
+   {
+      this(bufferSize, DEFAULT_MAXIMUM_SLAB_SIZE_IN_BYTES);
+   }
+
+   PackedDataBufferStorage(int bufferSize, int maximumSlabSizeInBytes)
+   {
+      this.maximumSlabSizeInBytes = maximumSlabSizeInBytes;
+      this.layout = new Layout(new Encoding[0], new int[0], 0, Integer.MAX_VALUE, allocate(bufferSize, Integer.MAX_VALUE, 0), bufferSize);
+   }
+
+   /**
+    * Adds a column, initialized to zero.
+    *
+    * @return the index of the new column
+    */
+   public synchronized int addColumn(Encoding encoding)
+   {
+      if (numberOfColumns == encodings.length)
+      {
+         encodings = Arrays.copyOf(encodings, Math.max(16, 2 * encodings.length));
+      }
+
+      encodings[numberOfColumns] = encoding;
+      return numberOfColumns++;
+   }
+
+   public synchronized int getNumberOfColumns()
+   {
+      return numberOfColumns;
+   }
+
+   public synchronized Encoding getEncoding(int column)
+   {
+      return encodings[column];
+   }
+
+   public int getBufferSize()
+   {
+      return layout.bufferSize;
+   }
+
+   public synchronized long getSizeInBytes()
+   {
+      Layout layout = updateLayoutIfOutdated();
+      return (long) layout.bufferSize * layout.recordSize;
+   }
+
+   public double get(int column, int index)
+   {
+      return get(getLayout(column), column, index);
+   }
+
+   public void set(int column, int index, double value)
+   {
+      set(getLayout(column), column, index, value);
+   }
+
+   /**
+    * Copies the history of a column to an array of length {@link #getBufferSize()}.
+    */
+   public double[] getColumn(int column, double[] dataToPack)
+   {
+      Layout layout = getLayout(column);
+      for (int i = 0; i < layout.bufferSize; i++)
+      {
+         dataToPack[i] = get(layout, column, i);
+      }
+      return dataToPack;
+   }
+
+   /**
+    * Sets the history of a column from the first {@link #getBufferSize()} elements of data.
+    */
+   public void setColumn(int column, double[] data)
+   {
+      Layout layout = getLayout(column);
+      int length = Math.min(data.length, layout.bufferSize);
+      for (int i = 0; i < length; i++)
+      {
+         set(layout, column, i, data[i]);
+      }
+   }
+
+   public void fillColumn(int column, double value)
+   {
+      Layout layout = getLayout(column);
+      for (int i = 0; i < layout.bufferSize; i++)
+      {
+         set(layout, column, i, value);
+      }
+   }
+
+   private static double get(Layout layout, int column, int index)
+   {
+      int slab = index / layout.recordsPerSlab;
+      int position = (index - slab * layout.recordsPerSlab) * layout.recordSize + layout.columnOffsets[column];
+      ByteBuffer buffer = layout.slabs[slab];
+
+      switch (layout.encodings[column])
+      {
+      case DOUBLE:
+         return buffer.getDouble(position);
+      case FLOAT:
+         return buffer.getFloat(position);
+      case LONG:
+         return buffer.getLong(position);
+      case INT:
+         return buffer.getInt(position);
+      case BYTE:
+         return buffer.get(position);
+      default:
+         throw new RuntimeException("Unknown encoding " + layout.encodings[column]);
+      }
+   }
+
+   /**
+    * A value set while another thread restructures the buffer may be written to the old layout and be lost, like a value
+    * written to the old array of a DataBufferEntry that is being resized.
+    */
+   private static void set(Layout layout, int column, int index, double value)
+   {
+      int slab = index / layout.recordsPerSlab;
+      int position = (index - slab * layout.recordsPerSlab) * layout.recordSize + layout.columnOffsets[column];
+      ByteBuffer buffer = layout.slabs[slab];
+
+      switch (layout.encodings[column])
+      {
+      case DOUBLE:
+         buffer.putDouble(position, value);
+         break;
+      case FLOAT:
+         buffer.putFloat(position, (float) value);
+         break;
+      case LONG:
+         buffer.putLong(position, (long) value);
+         break;
+      case INT:
+         buffer.putInt(position, (int) value);
+         break;
+      case BYTE:
+         buffer.put(position, (byte) value);
+         break;
+      default:
+         throw new RuntimeException("Unknown encoding " + layout.encodings[column]);
+      }
+   }
+
+   /**
+    * Discards all the data and resizes the buffer to newSize zeroed ticks.
+    */
+   public synchronized void clear(int newSize)
+   {
+      Layout layout = updateLayoutIfOutdated();
+      this.layout = layout.withSlabs(allocate(newSize, layout.recordsPerSlab, layout.recordSize), newSize);
+   }
+
+   /**
+    * Grows the buffer to newSize ticks. The new ticks are copies of the last tick, like in the DataBufferEntry.
+    */
+   public synchronized void enlarge(int newSize)
+   {
+      Layout layout = updateLayoutIfOutdated();
+      int bufferSize = layout.bufferSize;
+      if (newSize <= bufferSize)
+         return;
+
+      ByteBuffer[] newSlabs = allocate(newSize, layout.recordsPerSlab, layout.recordSize);
+      copyRecords(layout, layout.slabs, 0, newSlabs, 0, bufferSize);
+
+      // Doubling copies of the last tick
+      if (bufferSize > 0)
+      {
+         copyRecords(layout, layout.slabs, bufferSize - 1, newSlabs, bufferSize, 1);
+         int filled = 1;
+         while (filled < newSize - bufferSize)
+         {
+            int count = Math.min(filled, newSize - bufferSize - filled);
+            copyRecords(layout, newSlabs, bufferSize, newSlabs, bufferSize + filled, count);
+            filled += count;
+         }
+      }
+
+      this.layout = layout.withSlabs(newSlabs, newSize);
+   }
+
+   /**
+    * Keeps the ticks from start to end, going around the end of the buffer if end is smaller than start.
+    *
+    * @return the new buffer size, or -1 if the end points are out of bounds
+    */
+   public synchronized int crop(int start, int end)
+   {
+      int bufferSize = layout.bufferSize;
+      if ((start < 0) || (end > bufferSize))
+         return -1;
+
+      int newSize = (end - start + 1 + bufferSize) % bufferSize;
+      if (newSize == 0)
+         newSize = bufferSize;
+
+      rotate(start % bufferSize, newSize);
+      return newSize;
+   }
+
+   /**
+    * Shifts the data such that start becomes the first tick.
+    */
+   public synchronized void pack(int start)
+   {
+      if ((start <= 0) || (start >= layout.bufferSize))
+         return;
+
+      rotate(start, layout.bufferSize);
+   }
+
+   private void rotate(int start, int newSize)
+   {
+      Layout layout = updateLayoutIfOutdated();
+
+      ByteBuffer[] newSlabs = allocate(newSize, layout.recordsPerSlab, layout.recordSize);
+      int firstPart = Math.min(newSize, layout.bufferSize - start);
+      copyRecords(layout, layout.slabs, start, newSlabs, 0, firstPart);
+      copyRecords(layout, layout.slabs, 0, newSlabs, firstPart, newSize - firstPart);
+
+      this.layout = layout.withSlabs(newSlabs, newSize);
+   }
+
+   /**
+    * Removes the ticks from start to end, both included.
+    *
+    * @return the new buffer size, or -1 if the end points are out of bounds
+    */
+   public synchronized int cut(int start, int end)
+   {
+      Layout layout = updateLayoutIfOutdated();
+      int bufferSize = layout.bufferSize;
+
+      if (start > end)
+         return -1;
+      if ((start < 0) || (end > bufferSize))
+         return -1;
+
+      int newSize = bufferSize - (end - start + 1);
+      if (newSize == 0)
+         newSize = bufferSize;
+
+      ByteBuffer[] newSlabs = allocate(newSize, layout.recordsPerSlab, layout.recordSize);
+      copyRecords(layout, layout.slabs, 0, newSlabs, 0, Math.min(start, newSize));
+      if (end + 1 < bufferSize && newSize < bufferSize)
+         copyRecords(layout, layout.slabs, end + 1, newSlabs, start, bufferSize - end - 1);
+
+      this.layout = layout.withSlabs(newSlabs, newSize);
+      return newSize;
+   }
+
+   /**
+    * Keeps one out of every keepEveryNthPoint ticks, starting with the first one.
+    *
+    * @return the new buffer size
+    */
+   public synchronized int thin(int keepEveryNthPoint)
+   {
+      Layout layout = updateLayoutIfOutdated();
+
+      int newSize = layout.bufferSize / keepEveryNthPoint;
+      ByteBuffer[] newSlabs = allocate(newSize, layout.recordsPerSlab, layout.recordSize);
+      for (int i = 0; i < newSize; i++)
+      {
+         copyRecords(layout, layout.slabs, i * keepEveryNthPoint, newSlabs, i, 1);
+      }
+
+      this.layout = layout.withSlabs(newSlabs, newSize);
+      return newSize;
+   }
+
+   /**
+    * @return the current layout, updated first if it does not contain the column yet
+    */
+   private Layout getLayout(int column)
+   {
+      Layout layout = this.layout;
+      if (column < layout.numberOfColumns)
+         return layout;
+      return updateLayoutIfOutdated();
+   }
+
+   private synchronized Layout updateLayoutIfOutdated()
+   {
+      Layout layout = this.layout;
+      if (layout.numberOfColumns == numberOfColumns)
+         return layout;
+
+      // New columns are appended to the record, so the old records are a prefix of the new ones
+      int[] newColumnOffsets = new int[numberOfColumns];
+      int newRecordSize = 0;
+      for (int column = 0; column < numberOfColumns; column++)
+      {
+         newColumnOffsets[column] = newRecordSize;
+         newRecordSize += encodings[column].getSizeInBytes();
+      }
+
+      int bufferSize = layout.bufferSize;
+      int newRecordsPerSlab = Math.max(1, maximumSlabSizeInBytes / Math.max(1, newRecordSize));
+      ByteBuffer[] newSlabs = allocate(bufferSize, newRecordsPerSlab, newRecordSize);
+
+      int oldRecordSize = layout.recordSize;
+      if (oldRecordSize > 0)
+      {
+         for (int i = 0; i < bufferSize; i++)
+         {
+            ByteBuffer source = layout.slabs[i / layout.recordsPerSlab].duplicate();
+            int sourcePosition = (i % layout.recordsPerSlab) * oldRecordSize;
+            source.limit(sourcePosition + oldRecordSize);
+            source.position(sourcePosition);
+
+            ByteBuffer destination = newSlabs[i / newRecordsPerSlab].duplicate();
+            destination.position((i % newRecordsPerSlab) * newRecordSize);
+            destination.put(source);
+         }
+      }
+
+      layout = new Layout(Arrays.copyOf(encodings, numberOfColumns), newColumnOffsets, newRecordSize, newRecordsPerSlab, newSlabs, bufferSize);
+      this.layout = layout;
+      return layout;
+   }
+
+   /**
+    * Copies count records, taking care of records ranges spanning multiple slabs. Overlapping ranges are only supported
+    * when the destination comes after the end of the source.
+    */
+   private static void copyRecords(Layout layout, ByteBuffer[] sourceSlabs, int sourceIndex, ByteBuffer[] destinationSlabs, int destinationIndex,
+         int count)
+   {
+      int recordsPerSlab = layout.recordsPerSlab;
+      int recordSize = layout.recordSize;
+
+      while (count > 0)
+      {
+         int sourceSlab = sourceIndex / recordsPerSlab;
+         int sourceOffset = sourceIndex - sourceSlab * recordsPerSlab;
+         int destinationSlab = destinationIndex / recordsPerSlab;
+         int destinationOffset = destinationIndex - destinationSlab * recordsPerSlab;
+
+         int records = Math.min(count, Math.min(recordsPerSlab - sourceOffset, recordsPerSlab - destinationOffset));
+
+         ByteBuffer source = sourceSlabs[sourceSlab].duplicate();
+         source.limit((sourceOffset + records) * recordSize);
+         source.position(sourceOffset * recordSize);
+
+         ByteBuffer destination = destinationSlabs[destinationSlab].duplicate();
+         destination.position(destinationOffset * recordSize);
+         destination.put(source);
+
+         sourceIndex += records;
+         destinationIndex += records;
+         count -= records;
+      }
+   }
+
+   private static ByteBuffer[] allocate(int bufferSize, int recordsPerSlab, int recordSize)
+   {
+      int numberOfSlabs = Math.max(1, (int) (((long) bufferSize + recordsPerSlab - 1) / recordsPerSlab));
+      ByteBuffer[] slabs = new ByteBuffer[numberOfSlabs];
+      for (int i = 0; i < numberOfSlabs; i++)
+      {
+         int records = Math.min(recordsPerSlab, bufferSize - i * recordsPerSlab);
+         slabs[i] = ByteBuffer.allocateDirect(Math.max(0, records) * recordSize).order(ByteOrder.nativeOrder());
+      }
+      return slabs;
+   }
+
+   /**
+    * Immutable description of where the data is. Only the contents of the slabs change.
+    */
+   private static final class Layout
+   {
+      private final Encoding[] encodings;
+      private final int[] columnOffsets;
+      private final int numberOfColumns;
+      private final int recordSize;
+      private final int recordsPerSlab;
+      private final ByteBuffer[] slabs;
+      private final int bufferSize;
+
+      private Layout(Encoding[] encodings, int[] columnOffsets, int recordSize, int recordsPerSlab, ByteBuffer[] slabs, int bufferSize)
+      {
+         this.encodings = encodings;
+         this.columnOffsets = columnOffsets;
+         this.numberOfColumns = encodings.length;
+         this.recordSize = recordSize;
+         this.recordsPerSlab = recordsPerSlab;
+         this.slabs = slabs;
+         this.bufferSize = bufferSize;
+      }
+
+      private Layout withSlabs(ByteBuffer[] slabs, int bufferSize)
+      {
+         return new Layout(encodings, columnOffsets, recordSize, recordsPerSlab, slabs, bufferSize);
+      }
+   }
+}
@@ -171,7 +171,7 @@ public class DataExporterExcelWorkbookCreator
          addNumberToSheet(dataSheet, column++, row, maxUnsignedSpeed);
 
          addHeaderEntry(dataSheet, column, "Average of unsigned speed [rad / s]");
-         double averageOfUnsignedSpeed = computeAverage(speed.getData(), true);
+         double averageOfUnsignedSpeed = computeAverage(speed, true);
          addNumberToSheet(dataSheet, column++, row, averageOfUnsignedSpeed);
 
          addHeaderEntry(dataSheet, column, "Max unsigned torque [Nm]");
@@ -179,10 +179,10 @@ public class DataExporterExcelWorkbookCreator
          addNumberToSheet(dataSheet, column++, row, maxUnsignedTorque);
 
          addHeaderEntry(dataSheet, column, "Average of unsigned torque [Nm]");
-         double averageOfUnsignedTorque = computeAverage(torque.getData(), true);
+         double averageOfUnsignedTorque = computeAverage(torque, true);
          addNumberToSheet(dataSheet, column++, row, averageOfUnsignedTorque);
 
-         double[] mechanicalPower = computeMechanicalPower(speed.getData(), torque.getData());
+         double[] mechanicalPower = computeMechanicalPower(speed, torque);
 
          addHeaderEntry(dataSheet, column, "Max unsigned mechanical power [W]");
          double maxUnsignedMechanicalPower = computeMax(mechanicalPower, true);
@@ -204,28 +204,22 @@ public class DataExporterExcelWorkbookCreator
       robot.getGravity(gravity);
       // Get the distance traveled through a random GroundContactPoint assuming it is attached to the robot
       // TODO: it would be way nicer to get access to the actual robot position
-      double[] xPosition;
-      double[] yPosition;
-      double[] zPosition;
-      try
-      {
-         xPosition = dataBuffer.getEntry("q_x").getData();
-         yPosition = dataBuffer.getEntry("q_y").getData();
-         zPosition = dataBuffer.getEntry("q_z").getData();
-      }
-      catch (NullPointerException e)
+      DataBufferEntry xPosition = dataBuffer.getEntry("q_x");
+      DataBufferEntry yPosition = dataBuffer.getEntry("q_y");
+      DataBufferEntry zPosition = dataBuffer.getEntry("q_z");
+      if (xPosition == null || yPosition == null || zPosition == null)
       {
          GroundContactPoint groundContactPoint = robot.getAllGroundContactPoints().get(0);
          YoFramePoint yoPosition = groundContactPoint.getYoPosition();
-         xPosition = dataBuffer.getEntry(yoPosition.getYoX()).getData();
-         yPosition = dataBuffer.getEntry(yoPosition.getYoY()).getData();
-         zPosition = dataBuffer.getEntry(yoPosition.getYoZ()).getData();
+         xPosition = dataBuffer.getEntry(yoPosition.getYoX());
+         yPosition = dataBuffer.getEntry(yoPosition.getYoY());
+         zPosition = dataBuffer.getEntry(yoPosition.getYoZ());
       }
-      int dataLength = xPosition.length;
+      int dataLength = xPosition.getDataLength();
       Vector3d totalDistance = new Vector3d();
-      totalDistance.setX(xPosition[dataLength-1]-xPosition[0]);
-      totalDistance.setY(yPosition[dataLength-1]-yPosition[0]);
-      totalDistance.setZ(zPosition[dataLength-1]-zPosition[0]);
+      totalDistance.setX(xPosition.getDataPoint(dataLength-1)-xPosition.getDataPoint(0));
+      totalDistance.setY(yPosition.getDataPoint(dataLength-1)-yPosition.getDataPoint(0));
+      totalDistance.setZ(zPosition.getDataPoint(dataLength-1)-zPosition.getDataPoint(0));
 
       cot = cot / (robotMass * gravity.length() * totalDistance.length());
       
@@ -249,35 +243,33 @@ public class DataExporterExcelWorkbookCreator
 
    private double[] computeTotalUnsignedMechanicalPower()
    {
-      int dataLength = dataBuffer.getEntry(robot.getYoTime()).getData().length;
+      int dataLength = dataBuffer.getEntry(robot.getYoTime()).getDataLength();
       double[] ret = new double[dataLength];
       for (int i = 0; i < dataLength; i++)
          ret[i] = 0.0;
 
       for (PinJoint joint : pinJoints)
       {
-         double[] speed = dataBuffer.getEntry(joint.getQD()).getData();
-         double[] torque = dataBuffer.getEntry(joint.getTau()).getData();
-         
-         double[] jointMechincalPower = computeMechanicalPower(speed, torque);
+         DataBufferEntry speed = dataBuffer.getEntry(joint.getQD());
+         DataBufferEntry torque = dataBuffer.getEntry(joint.getTau());
          
          for (int i = 0; i < dataLength; i++)
          {
-            ret[i] += Math.abs(jointMechincalPower[i]);
+            ret[i] += Math.abs(speed.getDataPoint(i) * torque.getDataPoint(i));
          }
       }
 
       return ret;
    }
    
-   private double[] computeMechanicalPower(double[] speed, double[] torque)
+   private double[] computeMechanicalPower(DataBufferEntry speed, DataBufferEntry torque)
    {
-      if (speed.length != torque.length)
-         throw new RuntimeException("speed.length != torque.length");
-      double[] ret = new double[speed.length];
+      if (speed.getDataLength() != torque.getDataLength())
+         throw new RuntimeException("speed.getDataLength() != torque.getDataLength()");
+      double[] ret = new double[speed.getDataLength()];
       for (int i = 0; i < ret.length; i++)
       {
-         ret[i] = speed[i] * torque[i];
+         ret[i] = speed.getDataPoint(i) * torque.getDataPoint(i);
       }
 
       return ret;
@@ -297,6 +289,21 @@ public class DataExporterExcelWorkbookCreator
       return ret;
    }
 
+   private double computeAverage(DataBufferEntry entry, boolean unsigned)
+   {
+      double ret = 0.0;
+      int dataLength = entry.getDataLength();
+      for (int i = 0; i < dataLength; i++)
+      {
+         double value = entry.getDataPoint(i);
+         if (unsigned)
+            value = Math.abs(value);
+         ret += value / dataLength;
+      }
+
+      return ret;
+   }
+
    private double computeMax(double[] data, boolean unsigned)
    {
       double max = Double.NEGATIVE_INFINITY;
@@ -401,10 +408,10 @@ public class DataExporterExcelWorkbookCreator
       if (unsigned)
          name = name + " unsigned";
       addStringToSheet(dataSheet, column, row++, name);
-      double[] data = dataBufferEntry.getData();
-      for (int i = 0; i < data.length; i++)
+      int dataLength = dataBufferEntry.getDataLength();
+      for (int i = 0; i < dataLength; i++)
       {
-         double value = data[i];
+         double value = dataBufferEntry.getDataPoint(i);
          if (unsigned)
             value = Math.abs(value);
          addNumberToSheet(dataSheet, column, row++, value);
@@ -416,15 +423,14 @@ public class DataExporterExcelWorkbookCreator
       int row = 0;
       String name = jointName + " unsigned mechanical power";
       addStringToSheet(dataSheet, column, row++, name);
-      double[] speedData = speed.getData();
-      double[] torqueData = torque.getData();
+      int dataLength = speed.getDataLength();
 
-      if (speedData.length != torqueData.length)
-         throw new RuntimeException("speedData.length != torqueData.length");
+      if (dataLength != torque.getDataLength())
+         throw new RuntimeException("speed.getDataLength() != torque.getDataLength()");
 
-      for (int i = 0; i < speedData.length; i++)
+      for (int i = 0; i < dataLength; i++)
       {
-         double value = Math.abs(speedData[i] * torqueData[i]);
+         double value = Math.abs(speed.getDataPoint(i) * torque.getDataPoint(i));
          addNumberToSheet(dataSheet, column, row++, value);
       }
    }
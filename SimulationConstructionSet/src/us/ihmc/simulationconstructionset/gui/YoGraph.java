@@ -458,8 +458,6 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
    private void calcXYData(DataEntry entry, int nPoints, int[] xData, int[] yData, double min, double max, int width, int height, int offsetFromLeft,
                            int offsetFromTop, int leftPlotIndex, int rightPlotIndex)
    {
-      double[] data = entry.getData();
-
       boolean inverted = entry.getInverted();
       
       if (leftPlotIndex == rightPlotIndex)
@@ -475,7 +473,7 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
       {
          for (int i = 0; i < nPoints; i++)
          {
-            double dataAtTick = data[i];
+            double dataAtTick = entry.getDataPoint(i);
             
             if (inverted) dataAtTick = -dataAtTick;
             xData[i] = ((i - leftPlotIndex) * width) / (rightPlotIndex - leftPlotIndex) + offsetFromLeft;
@@ -487,14 +485,11 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
    private void calcScatterData(DataEntry entryX, DataEntry entryY, int nPoints, int[] xData, int[] yData, double minX, double maxX, double minY, double maxY,
                                 int width, int height, int offsetFromLeft, int offsetFromTop)
    {
-      double[] dataX = entryX.getData();
-      double[] dataY = entryY.getData();
-
       for (int i = 0; i < nPoints; i++)
       {
          // xData[i] = width - (int) ((dataX[i] - minX)/(maxX-minX) * width) + offsetFromLeft;
-         xData[i] = (int) ((dataX[i] - minX) / (maxX - minX) * width) + offsetFromLeft;
-         yData[i] = height - (int) ((dataY[i] - minY) / (maxY - minY) * height) + offsetFromTop;
+         xData[i] = (int) ((entryX.getDataPoint(i) - minX) / (maxX - minX) * width) + offsetFromLeft;
+         yData[i] = height - (int) ((entryY.getDataPoint(i) - minY) / (maxY - minY) * height) + offsetFromTop;
       }
    }
 
@@ -519,7 +514,6 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
          cumOffset = i * ((int) (VAR_NAME_SPACING_FOR_PRINT * 0.6)) + 3;
 
          DataEntry entry = entriesOnThisGraph.get(i);
-         double[] data = entry.getData();
 
          double minVal = 0.0, maxVal = 1.0;
          if (graphConfiguration.getScalingMethod() == INDIVIDUAL_SCALING)
@@ -548,7 +542,7 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
             maxVal = graphConfiguration.getManualScalingMax();
          }
 
-         int nPoints = data.length;
+         int nPoints = entry.getDataLength();
 
          int length = ((outPoint - inPoint + 1 + nPoints) % nPoints);
          if (length == 0)
@@ -564,7 +558,7 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
             int index = (inPoint + j) % nPoints;
             xDataPrint[j] = (j * printWidth) / length;
             yDataPrint[j] = (printHeight - DONT_PLOT_BOTTOM_PIXELS)
-                            - (int) ((data[index] - minVal) / (maxVal - minVal) * (printHeight - DONT_PLOT_BOTTOM_PIXELS));
+                            - (int) ((entry.getDataPoint(index) - minVal) / (maxVal - minVal) * (printHeight - DONT_PLOT_BOTTOM_PIXELS));
          }
 
          g.setColor(colors[i % YoGraph.MAX_NUM_GRAPHS]);
@@ -809,7 +803,6 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
       for (int i = 0; i < entriesOnThisGraph.size() / 2; i++)
       {
          DataEntry entryX = entriesOnThisGraph.get(i);
-         double[] dataX = entryX.getData();
 
          DataEntry entryY = entriesOnThisGraph.get(i + 1);
 
@@ -861,7 +854,7 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
             maxValX = maxValY = graphConfiguration.getManualScalingMax();
          }
 
-         int nPoints = dataX.length;
+         int nPoints = entryX.getDataLength();
          if ((xData.length != nPoints) || (yData.length != nPoints))
          {
             xData = new int[nPoints];
@@ -935,7 +928,6 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
       for (int i = 0; i < numVars; i++)
       {
          DataEntry entry = entriesOnThisGraph.get(i);
-         double[] data = entry.getData();
 
          double minVal = 0.0, maxVal = 1.0;
          if (graphConfiguration.getScalingMethod() == INDIVIDUAL_SCALING)
@@ -964,7 +956,7 @@ public class YoGraph extends JPanel implements MouseListener, MouseMotionListene
             maxVal = graphConfiguration.getManualScalingMax();
          }
 
-         int nPoints = data.length;
+         int nPoints = entry.getDataLength();
          if ((xData.length != nPoints) || (yData.length != nPoints))
          {
             // System.out.println("Making new xData, yData!!!");
@@ -2,5 +2,8 @@ package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
 public interface DispatchDoneListener
 {
+   /**
+    * @param finalState the final state of the simulation, or null if it failed, see {@link SimulationToDispatch#isSimulationFailed()}.
+    */
    public void dispatchDone(SimulationToDispatch dispatchSim, double[] finalState);
 }
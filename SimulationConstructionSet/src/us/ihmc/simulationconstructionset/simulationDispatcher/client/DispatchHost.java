@@ -1,18 +1,42 @@
 package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
-import java.rmi.Naming;
-
-import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationRunnerInterface;
-
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.SimulationJobProtocol;
+
+/**
+ * Connection to one SimulationJobServer worker process. The job bookkeeping is guarded by the SimulationDispatcher,
+ * which sends the jobs and receives the callbacks from the reading thread of this host.
+ */
 public class DispatchHost
 {
+   private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+
    private final String hostName;
-   private final String hostProcess;
+   private final int port;
+   private final String password;
+   private final SimulationDispatcher simulationDispatcher;
 
-   private final String remoteSimulationRunnerName;
+   private Socket socket;
+   private DataOutputStream outputStream;
+   private volatile boolean isAlive = false;
+   private int numberOfSlots = 0;
+
+   private final LinkedHashMap<Long, SimulationToDispatch> jobsSent = new LinkedHashMap<Long, SimulationToDispatch>();
+   private final HashMap<Long, Long> jobStartTimes = new HashMap<Long, Long>();
+   private final HashSet<Long> jobsToCancel = new HashSet<Long>();
+   private final HashSet<Integer> registeredDescriptions = new HashSet<Integer>();
 
-   private RemoteSimulationRunnerInterface remoteSim;
-   private boolean isBroken = false;
    private SimulationToDispatch dispatchSim;
 
    private int NumberOfSimulationsRun = 0;
@@ -21,31 +45,27 @@ public class DispatchHost
 
    private long inTime = System.currentTimeMillis();
 
-   private boolean isRunningSim = false;
-   private String password;
-
-   public DispatchHost(String hostName, String password)
+   /**
+    * @param hostName host name of the worker, optionally followed by ":port" when it does not use the default port.
+    */
+   public DispatchHost(String hostName, String password, SimulationDispatcher simulationDispatcher)
    {
       this.password = password;
+      this.simulationDispatcher = simulationDispatcher;
 
       int separatorIndex = hostName.indexOf(":");
 
       if (separatorIndex < 0)
       {
          this.hostName = hostName;
-         this.hostProcess = "0";
+         this.port = SimulationJobProtocol.DEFAULT_PORT;
       }
 
       else
       {
          this.hostName = hostName.substring(0, separatorIndex);
-         this.hostProcess = hostName.substring(separatorIndex + 1, hostName.length());
+         this.port = Integer.parseInt(hostName.substring(separatorIndex + 1, hostName.length()));
       }
-
-      System.out.println("hostName = " + hostName + ", this.hostName = " + this.hostName + ", hostProcess = " + hostProcess);
-      this.remoteSimulationRunnerName = "RemoteSimulationRunner" + hostProcess;
-      lookUpRemoteSimulationRunner();
-
    }
 
    public String getHostName()
@@ -55,170 +75,298 @@ public class DispatchHost
 
    public String getHostProcess()
    {
-      return hostProcess;
+      return String.valueOf(port);
    }
 
-   public void reportBroken()
+   public int getPort()
    {
-      remoteSim = null;
-      isRunningSim = false;
-      isBroken = true;
+      return port;
    }
 
-
-   public int getNumberOfSimulationsRun()
+   public int getNumberOfSlots()
    {
-      return this.NumberOfSimulationsRun;
+      return numberOfSlots;
    }
 
-   public int getApporxTimePerSimulation()
+   /**
+    * Opens the connection and starts reading the messages of the worker.
+    * @return whether the worker answered the handshake.
+    */
+   public synchronized boolean connect()
    {
-      return (int) this.approxTimePerSimulation;
-   }
+      if (isAlive)
+         return true;
 
-   public int getlastSimulationTime()
-   {
-      return (int) this.lastSimulationTime;
-   }
+      Socket socket = new Socket();
 
-   public double getTimeSinceLastSimulationStarted()
-   {
-      long diffTimeMillis = System.currentTimeMillis() - inTime;
+      try
+      {
+         socket.connect(new InetSocketAddress(hostName, port), CONNECT_TIMEOUT_MILLIS);
+         socket.setTcpNoDelay(true);
 
-      return ((double) diffTimeMillis) / 1000.0;
-   }
+         DataOutputStream outputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+         final DataInputStream inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
 
+         outputStream.writeInt(SimulationJobProtocol.MAGIC);
+         outputStream.writeInt(SimulationJobProtocol.VERSION);
+         outputStream.writeUTF(password);
+         outputStream.flush();
 
-   public void reportSimulationStarted(SimulationToDispatch dispatchSim)
-   {
-      this.dispatchSim = dispatchSim;
-      inTime = System.currentTimeMillis();
-      isRunningSim = true;
-   }
+         if (inputStream.readByte() != SimulationJobProtocol.HELLO)
+            throw new IOException("Unexpected handshake answer");
 
-   private static final double alpha = 0.9;
+         this.numberOfSlots = inputStream.readInt();
+         this.socket = socket;
+         this.outputStream = outputStream;
+         this.registeredDescriptions.clear();
+         this.isAlive = true;
 
-   public void reportSimulationFinished()
-   {
-      NumberOfSimulationsRun++;
-      isRunningSim = false;
+         Thread readerThread = new Thread("DispatchHost " + hostName + ":" + port)
+         {
+            public void run()
+            {
+               readMessages(inputStream);
+            }
+         };
+         readerThread.setDaemon(true);
+         readerThread.start();
 
-      lastSimulationTime = getTimeSinceLastSimulationStarted();
-      approxTimePerSimulation = alpha * approxTimePerSimulation + (1.0 - alpha) * lastSimulationTime;
+         System.out.println("Connected to " + hostName + ":" + port + " with " + numberOfSlots + " slots");
 
-      // System.out.println(lastSimulationTime + " seconds. " + hostName + " has run " + NumberOfSimulationsRun + " simulations at an approximate time of " + approxTimePerSimulation + " seconds per simulation");
-      inTime = System.currentTimeMillis();
-   }
+         return true;
+      }
+      catch (IOException e)
+      {
+         try
+         {
+            socket.close();
+         }
+         catch (IOException e1)
+         {
+         }
 
+         return false;
+      }
+   }
 
-   private Thread lookupThread = new Thread("Dispatch Host Lookup")
+   private void readMessages(DataInputStream inputStream)
    {
-      public void run()
+      try
       {
          while (true)
          {
-            if (!isBroken)
-            {
-               try
-               {
-                  // System.out.println("Looking up RemoteSimulationRunner for host: " + hostName); System.out.flush();
-//                remoteSim = (RemoteSimulationRunnerInterface) Naming.lookup("//" + hostName + "/RemoteSimulationRunnerGoob");
-                  remoteSim = (RemoteSimulationRunnerInterface) Naming.lookup("//" + hostName + "/" + remoteSimulationRunnerName);
-                  System.out.println("Found RemoteSimulationRunner on Host: " + hostName);
-                  System.out.flush();
-                  pingRemoteSimulationRunner();
-
-                  if (!remoteSim.isSimulationDone(password))
-                  {
-                     System.err.println(hostName + " already seems to be running a simulation");
-                  }
-               }
-               catch (Exception e)
-               {
-                  remoteSim = null;
-               }
-            }
+            byte messageType = inputStream.readByte();
+            long jobId = inputStream.readLong();
 
-            try
-            {
-               Thread.sleep(600000);
-            }    // Sleep 10 minutes until interrupted
-            catch (InterruptedException e)
+            switch (messageType)
             {
+            case SimulationJobProtocol.STARTED:
+               simulationDispatcher.jobStarted(this, jobId);
+               break;
+
+            case SimulationJobProtocol.RESULT:
+               simulationDispatcher.jobFinished(this, jobId, SimulationJobProtocol.readDoubleArray(inputStream));
+               break;
+
+            case SimulationJobProtocol.FAILED:
+               simulationDispatcher.jobFailed(this, jobId, inputStream.readUTF());
+               break;
+
+            case SimulationJobProtocol.CANCELLED:
+               simulationDispatcher.jobCancelled(this, jobId);
+               break;
+
+            default:
+               throw new IOException("Unknown message type " + messageType);
             }
          }
       }
-   };
+      catch (IOException e)
+      {
+         if (isAlive)
+            System.out.println("Host " + hostName + ":" + port + " is broken!!! " + e.getMessage());
+      }
+
+      reportBroken();
+      simulationDispatcher.hostDisconnected(this);
+   }
 
-   private synchronized void lookUpRemoteSimulationRunner()
+   public synchronized void reportBroken()
    {
-      if (!lookupThread.isAlive())
-         lookupThread.start();
-      else
-         lookupThread.interrupt();
+      isAlive = false;
 
-      /*
-       * try
-       * {
-       * System.out.println("Looking up RemoteSimulationRunner for host: " + hostName); System.out.flush();
-       * remoteSim = (RemoteSimulationRunnerInterface) Naming.lookup("//" + hostName + "/RemoteSimulationRunner");
-       * System.out.println("Found RemoteSimulationRunner on Host: " + hostName); System.out.flush();
-       * pingRemoteSimulationRunner();
-       * }
-       * catch(Exception e) {remoteSim = null;}
-       */
+      if (socket != null)
+      {
+         try
+         {
+            socket.close();
+         }
+         catch (IOException e)
+         {
+         }
+      }
    }
 
-   private synchronized void pingRemoteSimulationRunner()
+   /**
+    * Writes the job without flushing, so that several jobs go out in one packet. The description is only sent
+    * the first time it is used on this connection.
+    */
+   void sendJob(long jobId, int descriptionId, byte[] serializedDescription, SimulationToDispatch simulationToDispatch) throws IOException
    {
-      try
-      {
-         remoteSim.ping(password);
+      // Registered first, so that the job is given back to the dispatcher if the connection breaks while writing it
+      jobsSent.put(jobId, simulationToDispatch);
 
-         // System.out.println(hostName + " pinged successfully!");
+      if (!registeredDescriptions.contains(descriptionId))
+      {
+         outputStream.writeByte(SimulationJobProtocol.DESCRIPTION);
+         outputStream.writeInt(descriptionId);
+         SimulationJobProtocol.writeByteArray(outputStream, serializedDescription);
+         registeredDescriptions.add(descriptionId);
       }
-      catch (Exception e)
+
+      outputStream.writeByte(SimulationJobProtocol.JOB);
+      outputStream.writeLong(jobId);
+      outputStream.writeInt(descriptionId);
+      SimulationJobProtocol.writeStringArray(outputStream, simulationToDispatch.getStructuralParameterNames());
+      SimulationJobProtocol.writeDoubleArray(outputStream, simulationToDispatch.getStructuralParameterValues());
+      SimulationJobProtocol.writeDoubleArray(outputStream, simulationToDispatch.getInputState());
+   }
+
+   /**
+    * Tells the worker to drop the descriptions registered on this connection. The jobs it already has keep theirs.
+    */
+   void releaseDescriptions() throws IOException
+   {
+      outputStream.writeByte(SimulationJobProtocol.RELEASE_DESCRIPTIONS);
+      registeredDescriptions.clear();
+   }
+
+   /**
+    * Asks the worker to give back the last job sent that did not start yet.
+    * @return whether there was such a job.
+    */
+   boolean cancelLastJobNotStarted() throws IOException
+   {
+      long jobToCancel = -1;
+      for (Long jobId : jobsSent.keySet())
       {
-         System.out.println("Remote Simulation Runner on host " + hostName + "couldn't be pinged!!");
-         remoteSim = null;
-         isRunningSim = false;
+         if (!jobStartTimes.containsKey(jobId) && !jobsToCancel.contains(jobId))
+            jobToCancel = jobId;
       }
+
+      if (jobToCancel < 0)
+         return false;
+
+      outputStream.writeByte(SimulationJobProtocol.CANCEL);
+      outputStream.writeLong(jobToCancel);
+      jobsToCancel.add(jobToCancel);
+
+      return true;
    }
 
-   public RemoteSimulationRunnerInterface getRemoteSim()
+   void flush() throws IOException
    {
-      return remoteSim;
+      outputStream.flush();
    }
 
-   public SimulationToDispatch getDispatchedSim()
+   int getNumberOfJobsSent()
    {
-      return dispatchSim;
+      return jobsSent.size();
    }
 
-   public boolean isAlive()
+   int getNumberOfJobsToCancel()
    {
-      return (remoteSim != null);
+      return jobsToCancel.size();
    }
 
-   public boolean isRunningSim()
+   int getNumberOfJobsNotStarted()
    {
-      return this.isRunningSim;
+      return jobsSent.size() - jobStartTimes.size() - jobsToCancel.size();
    }
 
-   protected void setIsRunningSim(boolean isRunningSim)
+   void reportJobStarted(long jobId)
    {
-      this.isRunningSim = isRunningSim;
+      SimulationToDispatch simulationToDispatch = jobsSent.get(jobId);
+      if (simulationToDispatch == null)
+         return;
+
+      jobStartTimes.put(jobId, System.currentTimeMillis());
+      jobsToCancel.remove(jobId);
+      reportSimulationStarted(simulationToDispatch);
    }
 
-   public void pingAndOrFind()
+   SimulationToDispatch removeJob(long jobId)
    {
-      if (remoteSim != null)
-      {
-         pingRemoteSimulationRunner();
-      }
-      else
-      {
-         lookUpRemoteSimulationRunner();
-      }
+      Long startTime = jobStartTimes.remove(jobId);
+      jobsToCancel.remove(jobId);
+      SimulationToDispatch simulationToDispatch = jobsSent.remove(jobId);
+
+      if ((simulationToDispatch != null) && (startTime != null))
+         reportSimulationFinished(startTime);
+
+      return simulationToDispatch;
+   }
+
+   ArrayList<SimulationToDispatch> removeAllJobs()
+   {
+      ArrayList<SimulationToDispatch> simulationsToDispatch = new ArrayList<SimulationToDispatch>(jobsSent.values());
+      jobsSent.clear();
+      jobStartTimes.clear();
+      jobsToCancel.clear();
+
+      return simulationsToDispatch;
+   }
+
+   public int getNumberOfSimulationsRun()
+   {
+      return this.NumberOfSimulationsRun;
+   }
+
+   public int getApporxTimePerSimulation()
+   {
+      return (int) this.approxTimePerSimulation;
+   }
+
+   public int getlastSimulationTime()
+   {
+      return (int) this.lastSimulationTime;
+   }
+
+   public double getTimeSinceLastSimulationStarted()
+   {
+      long diffTimeMillis = System.currentTimeMillis() - inTime;
+
+      return ((double) diffTimeMillis) / 1000.0;
+   }
+
+   private void reportSimulationStarted(SimulationToDispatch dispatchSim)
+   {
+      this.dispatchSim = dispatchSim;
+      inTime = System.currentTimeMillis();
+   }
+
+   private static final double alpha = 0.9;
+
+   private void reportSimulationFinished(long startTime)
+   {
+      NumberOfSimulationsRun++;
+
+      lastSimulationTime = (System.currentTimeMillis() - startTime) / 1000.0;
+      approxTimePerSimulation = alpha * approxTimePerSimulation + (1.0 - alpha) * lastSimulationTime;
+   }
+
+   public SimulationToDispatch getDispatchedSim()
+   {
+      return dispatchSim;
+   }
+
+   public boolean isAlive()
+   {
+      return isAlive;
+   }
+
+   public boolean isRunningSim()
+   {
+      return !jobStartTimes.isEmpty();
    }
 }
@@ -4,18 +4,23 @@ import java.util.ArrayList;
 
 public class DispatchHostList extends Thread
 {
-   private final ArrayList<DispatchHost> dispatchHostsIn = new ArrayList<DispatchHost>();
+   private final ArrayList<DispatchHost> dispatchHostsAlive = new ArrayList<DispatchHost>();
    private final ArrayList<DispatchHost> dispatchHostsDead = new ArrayList<DispatchHost>();
-   private final ArrayList<DispatchHost> dispatchHostsOut = new ArrayList<DispatchHost>();
 
-   private String password;
-   private ArrayList<String> hostNames = new ArrayList<String>();
+   private final String password;
+   private final SimulationDispatcher simulationDispatcher;
 
    private ArrayList<HostsChangedListener> hostsChangedListeners = new ArrayList<HostsChangedListener>();
 
-   public DispatchHostList(String password)
+   private volatile boolean isRunning = true;
+
+   public DispatchHostList(SimulationDispatcher simulationDispatcher, String password)
    {
+      super("DispatchHostList");
+
+      this.simulationDispatcher = simulationDispatcher;
       this.password = password;
+      this.setDaemon(true);
       this.start();
    }
 
@@ -27,8 +32,7 @@ public class DispatchHostList extends Thread
    public synchronized Object[] getAllHosts()
    {
       ArrayList<DispatchHost> allDispatchHosts = new ArrayList<DispatchHost>();
-      allDispatchHosts.addAll(dispatchHostsIn);
-      allDispatchHosts.addAll(dispatchHostsOut);
+      allDispatchHosts.addAll(dispatchHostsAlive);
       allDispatchHosts.addAll(dispatchHostsDead);
 
       return allDispatchHosts.toArray();
@@ -36,13 +40,9 @@ public class DispatchHostList extends Thread
 
    public synchronized DispatchHost[] getAllAliveHosts()
    {
-      ArrayList<DispatchHost> allAliveDispatchHosts = new ArrayList<DispatchHost>();
-      allAliveDispatchHosts.addAll(dispatchHostsIn);
-      allAliveDispatchHosts.addAll(dispatchHostsOut);
-
-      DispatchHost[] ret = new DispatchHost[allAliveDispatchHosts.size()];
+      DispatchHost[] ret = new DispatchHost[dispatchHostsAlive.size()];
 
-      allAliveDispatchHosts.toArray(ret);
+      dispatchHostsAlive.toArray(ret);
 
       return ret;
    }
@@ -58,233 +58,78 @@ public class DispatchHostList extends Thread
 
    public synchronized int getNumberOfHosts()
    {
-      return (dispatchHostsIn.size() + dispatchHostsOut.size() + dispatchHostsDead.size());
+      return (dispatchHostsAlive.size() + dispatchHostsDead.size());
    }
 
-   public synchronized void registerMe(String hostName)
+   /**
+    * @param hostName host name of a SimulationJobServer, optionally followed by ":port".
+    */
+   public void addHost(String hostName)
    {
-      System.out.println(hostName + " just registered!!!");
-
-      int slashLocation = hostName.indexOf("/");
-
-      // System.out.println(slashLocation);
+      DispatchHost host = new DispatchHost(hostName, password, simulationDispatcher);
 
-      if (slashLocation > 0)
-         hostName = hostName.substring(0, slashLocation);    // +++JEP!! Need a more robust way to do this!!
+      // Connect outside of the lock, an unreachable host takes a while to time out.
+      boolean connected = host.connect();
 
-      System.out.println("Extracting to " + hostName);
-
-      if (!hostNames.contains(hostName))
+      synchronized (this)
       {
-         addHost(hostName);
+         if (connected)
+            dispatchHostsAlive.add(host);
+         else
+            dispatchHostsDead.add(host);
       }
 
-      // printAllHostNames();
+      notifyListeners();
    }
 
-   private synchronized void printAllHostNames()
+   public void reportHostDead(DispatchHost host)
    {
-      for (int i = 0; i < hostNames.size(); i++)
+      synchronized (this)
       {
-         String hostName = (String) hostNames.get(i);
-         System.out.println(hostName);
+         if (!dispatchHostsAlive.remove(host))
+            return;
+
+         dispatchHostsDead.add(host);
       }
 
+      notifyListeners();
    }
 
-   public synchronized String[] getAllRegistered()
+   private void notifyListeners()
    {
-      int size = hostNames.size();
-
-      String[] ret = new String[size];
-
-      for (int i = 0; i < size; i++)
+      HostsChangedListener[] listeners;
+      synchronized (this)
       {
-         ret[i] = (String) hostNames.get(i);
+         listeners = hostsChangedListeners.toArray(new HostsChangedListener[hostsChangedListeners.size()]);
       }
 
-      return ret;
-   }
-
-   public synchronized void addHost(String hostName)
-   {
-      hostNames.add(hostName);
-      addHost(new DispatchHost(hostName, password));
-   }
-
-   private synchronized void notifyListeners()
-   {
-      for (int i = 0; i < hostsChangedListeners.size(); i++)
+      for (int i = 0; i < listeners.length; i++)
       {
-         ((HostsChangedListener) hostsChangedListeners.get(i)).hostsChanged();
+         listeners[i].hostsChanged();
       }
    }
 
-   private synchronized void addHost(DispatchHost host)
-   {
-      dispatchHostsIn.add(host);
-      notifyListeners();
-   }
-
-   public boolean isHostReady()
-   {
-      return (dispatchHostsIn.size() > 0);
-   }
-
-/*   public DispatchHost getNextAvailableDispatchHostAndBlock()
+   public void close()
    {
-     int index = 0;
-     int size;
+      isRunning = false;
+      this.interrupt();
 
-     while(true)
-     {
-       synchronized(this)
-       {
-         size = dispatchHostsIn.size();
-         //System.out.println("Size: " + size);
-
-         if (index >= size) index = 0;
-
-         if (size > 0)
-         {
-           DispatchHost host = (DispatchHost) dispatchHostsIn.get(index);
-           if (host.getRemoteSim() != null)
-           {
-             //System.out.println("Making sure the previous Simulation is Done."); System.out.flush();
-             try
-             {
-               if (host.getRemoteSim().isSimulationDone(pwd))
-               {
-                 dispatchHostsIn.remove(host);
-                 dispatchHostsOut.add(host);
-                 return host;
-               }
-               else
-               {
-                 System.out.println("That's strange!  There's a simulation running on " + host.getHostName()); System.out.flush();
-                 // Return it anyway...
-                 dispatchHostsIn.remove(host);
-                 dispatchHostsOut.add(host);
-                 return host;
-               }
-             }
-             catch(Exception e)
-             {
-               System.out.println(host.getHostName() + " just crashed.");
-               dispatchHostsIn.remove(host);
-               dispatchHostsDead.add(host);
-               notifyListeners();
-               //allAliveDispatchHosts.remove(host);
-             }
-           }
-           else
-           {
-             System.out.println(host.getHostName() + " has null remote object.");
-             dispatchHostsIn.remove(host);
-             dispatchHostsDead.add(host);
-             notifyListeners();
-             //allAliveDispatchHosts.remove(host);
-           }
-         }
-       }
-
-       index++;
-       if (index >= size)
-       {
-         try
-         {
-           //System.out.println("No Hosts Currently Available.  Blocking for 3 seconds");
-           Thread.sleep(3000);
-         }
-         catch(InterruptedException e){}
-       }
-     }
-   }
-*/
-
-
-   public DispatchHost getNextAvailableDispatchHost()
-   {
-      int index = 0;
-      int size;
-
-      while (true)
+      DispatchHost[] aliveHosts = getAllAliveHosts();
+      for (int i = 0; i < aliveHosts.length; i++)
       {
-         synchronized (this)
-         {
-            size = dispatchHostsIn.size();
-
-            // System.out.println("Size: " + size);
-
-            if (index >= size)
-               return null;
-            if (size < 1)
-               return null;
-
-            DispatchHost host = (DispatchHost) dispatchHostsIn.get(index);
-            if (host.getRemoteSim() != null)
-            {
-               // System.out.println("Making sure the previous Simulation is Done."); System.out.flush();
-               try
-               {
-                  if (host.getRemoteSim().isSimulationDone(password))
-                  {
-                     dispatchHostsIn.remove(host);
-                     dispatchHostsOut.add(host);
-
-                     return host;
-                  }
-                  else
-                  {
-                     System.out.println("That's strange!  There's a simulation running on " + host.getHostName());
-                     System.out.flush();
-
-                     // Return it anyway...
-                     dispatchHostsIn.remove(host);
-                     dispatchHostsOut.add(host);
-
-                     return host;
-                  }
-               }
-               catch (Exception e)
-               {
-                  System.out.println(host.getHostName() + " just crashed.");
-                  dispatchHostsIn.remove(host);
-                  dispatchHostsDead.add(host);
-                  notifyListeners();
-               }
-            }
-            else
-            {
-               System.out.println(host.getHostName() + " has null remote object.");
-               dispatchHostsIn.remove(host);
-               dispatchHostsDead.add(host);
-               notifyListeners();
-            }
-         }
-
-         index++;
+         aliveHosts[i].reportBroken();
       }
    }
 
-
-   public synchronized void checkInDispatchHost(DispatchHost host)
-   {
-      // System.out.println("Checking in host: " + host.getHostName());
-
-      dispatchHostsOut.remove(host);
-      dispatchHostsIn.add(host);
-      host.pingAndOrFind();
-   }
-
-
    public void run()
    {
       int index = 0;
-      while (true)
+      while (isRunning)
       {
+         // Check on the dead hosts to see if we can revive them.
+         DispatchHost host = null;
          int size;
-         synchronized (this)    // Check on the dead hosts to see if we can revive them.  //checked in hosts to make sure they're good to go...
+         synchronized (this)
          {
             size = dispatchHostsDead.size();
 
@@ -292,20 +137,22 @@ public class DispatchHostList extends Thread
             {
                if (index >= size)
                   index = 0;
-               DispatchHost host = (DispatchHost) dispatchHostsDead.get(index);
-
-               host.pingAndOrFind();
+               host = dispatchHostsDead.get(index);
+               index++;
+            }
+         }
 
-               if (host.getRemoteSim() != null)
-               {
-                  System.out.println(host.getHostName() + " just came alive!");
-                  dispatchHostsDead.remove(host);
-                  dispatchHostsIn.add(host);
-                  notifyListeners();
-               }
+         if ((host != null) && host.connect())
+         {
+            System.out.println(host.getHostName() + ":" + host.getPort() + " just came alive!");
 
-               index++;
+            synchronized (this)
+            {
+               dispatchHostsDead.remove(host);
+               dispatchHostsAlive.add(host);
             }
+
+            notifyListeners();
          }
 
          try
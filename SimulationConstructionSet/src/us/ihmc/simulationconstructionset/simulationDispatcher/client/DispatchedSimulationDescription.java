@@ -1,14 +1,16 @@
 package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
+import java.util.Arrays;
+
 import us.ihmc.robotics.dataStructures.variable.DoubleYoVariable;
 import us.ihmc.robotics.dataStructures.variable.YoVariable;
 import us.ihmc.simulationconstructionset.Simulation;
 import us.ihmc.simulationconstructionset.SimulationConstructor;
 import us.ihmc.simulationconstructionset.SimulationDoneListener;
 import us.ihmc.simulationconstructionset.UnreasonableAccelerationException;
-import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationDescription;
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.SynchronousSimulationDescription;
 
-public class DispatchedSimulationDescription implements RemoteSimulationDescription, SimulationDoneListener
+public class DispatchedSimulationDescription implements SynchronousSimulationDescription, SimulationDoneListener
 {
    private static final long serialVersionUID = 5987329050837257865L;
    private DoubleYoVariable time;
@@ -67,16 +69,19 @@ public class DispatchedSimulationDescription implements RemoteSimulationDescript
       }
    }
 
+   /**
+    * Releases the simulation. The constructor and the state variable names are kept, so the next job can create a new one.
+    */
    public void destroySimulation()
    {
       System.out.println("Destroying Simulation!");
-      this.constructor = null;
       this.simulation = null;
       this.time = null;
-      this.outputStateVariableNames = null;
-      this.outputStateVariables = null;
-      this.inputStateVariableNames = null;
-      this.inputStateVariables = null;
+
+      if (inputStateVariables != null)
+         Arrays.fill(inputStateVariables, null);
+      if (outputStateVariables != null)
+         Arrays.fill(outputStateVariables, null);
    }
 
 /*   private void waitForSimulationToFinish()
@@ -145,25 +150,7 @@ public class DispatchedSimulationDescription implements RemoteSimulationDescript
       {
          public void run()    // throws Exception
          {
-            try
-            {
-               simulation.simulate(1000.0);    // At most simulate for 1000.0 seconds, even if it doesn't finish...
-               isSimulationDone = true;
-            }
-
-            catch (UnreasonableAccelerationException e)
-            {
-               System.out.println("Simulation Crashed with Unreasonable Acceleration");    // + e.getMessage());
-               isSimulationDone = true;
-
-               // e.printStackTrace();
-               // throw e;
-            }
-            catch (Exception e)
-            {
-               System.out.println("Simulation went wrong!!!\n" + e.getMessage());
-               isSimulationDone = true;
-            }
+            simulate();
          }
       };
 
@@ -172,6 +159,38 @@ public class DispatchedSimulationDescription implements RemoteSimulationDescript
       System.out.println("That Sim is now running on a new thread.");
    }
 
+   public void runSimulation()
+   {
+      this.isSimulationDone = false;
+      System.out.println("Before Running t = " + time.getDoubleValue());
+
+      printState();
+      simulate();
+   }
+
+   private void simulate()
+   {
+      try
+      {
+         simulation.simulate(1000.0);    // At most simulate for 1000.0 seconds, even if it doesn't finish...
+         isSimulationDone = true;
+      }
+
+      catch (UnreasonableAccelerationException e)
+      {
+         System.out.println("Simulation Crashed with Unreasonable Acceleration");    // + e.getMessage());
+         isSimulationDone = true;
+
+         // e.printStackTrace();
+         // throw e;
+      }
+      catch (Exception e)
+      {
+         System.out.println("Simulation went wrong!!!\n" + e.getMessage());
+         isSimulationDone = true;
+      }
+   }
+
    public boolean isSimulationDone()
    {
       return isSimulationDone;
@@ -7,7 +7,7 @@ import us.ihmc.utilities.parameterOptimization.ListOfParametersToOptimize;
 
 public abstract class DispatchedSimulationIndividualToEvaluate extends IndividualToEvaluate
 {
-   private boolean evalDone = false;
+   private volatile boolean evalDone = false;
    private double fitness;
 
    private final String[] outputStateVariableNames;
@@ -41,12 +41,20 @@ public abstract class DispatchedSimulationIndividualToEvaluate extends Individua
       {
          public void dispatchDone(SimulationToDispatch dispatchSim, double[] finalState)
          {
-            fitness = computeFitnessAfterDispatch(finalState);
-
-            System.out.println("Simulation Done.  Fitness = " + fitness);
+            if (dispatchSim.isSimulationFailed())
+            {
+               fitness = computeFitnessAfterFailedDispatch(dispatchSim.getFailureMessage());
+               System.out.println("Simulation Failed: " + dispatchSim.getFailureMessage() + ".  Fitness = " + fitness);
+            }
+            else
+            {
+               fitness = computeFitnessAfterDispatch(finalState);
+               System.out.println("Simulation Done.  Fitness = " + fitness);
+            }
 
             dispatchSim.setResultsString("fitness: " + fitness);
             evalDone = true;
+            notifyEvaluationDone();
          }
       };
 
@@ -79,4 +87,12 @@ public abstract class DispatchedSimulationIndividualToEvaluate extends Individua
 
    public abstract double computeFitnessAfterDispatch(double[] finalState);
 
+   /**
+    * Fitness of an individual whose simulation failed on every attempt. The lowest fitness by default, which suits a maximization.
+    */
+   public double computeFitnessAfterFailedDispatch(String failureMessage)
+   {
+      return Double.NEGATIVE_INFINITY;
+   }
+
 }
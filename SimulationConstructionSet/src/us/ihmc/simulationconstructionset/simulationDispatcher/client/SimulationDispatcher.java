@@ -1,28 +1,49 @@
 package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
-import java.net.MalformedURLException;
-import java.rmi.Naming;
-import java.rmi.NotBoundException;
-import java.rmi.RMISecurityManager;
-import java.rmi.RemoteException;
-import java.rmi.registry.LocateRegistry;
-import java.security.Permission;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import us.ihmc.simulationconstructionset.simulationDispatcher.client.gui.SimulationDispatcherGUI;
-import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationRunnerInterface;
-
-public class SimulationDispatcher implements Runnable
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationDescription;
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.SimulationJobProtocol;
+
+/**
+ * Dispatches simulations to SimulationJobServer worker processes over plain sockets.
+ *
+ * <p>Each host gets up to its number of slots plus {@link #setNumberOfQueuedJobsPerHost(int)} jobs at once, so a worker
+ * starts its next simulation without waiting for a round trip. When the queue runs empty and a host has idle slots,
+ * jobs that are still waiting on a busier host are cancelled there and dispatched again to the idle one.</p>
+ *
+ * <p>A simulation that fails on a host is dispatched again, up to {@link #setMaximumNumberOfAttemptsPerSimulation(int)} times,
+ * after which it is finished as failed. Only connection errors mark a host as broken.</p>
+ */
+public class SimulationDispatcher implements Runnable, HostsChangedListener
 {
+   private static final boolean DEBUG = false;
+
    private final String password = "***REMOVED***";
    private final DispatchHostList dispatchHostList;
 
    private final ArrayList<SimulationToDispatch> simulationsToDispatch = new ArrayList<SimulationToDispatch>();
-   private final ArrayList<RemoteSimulationPair> remoteSimulationPairs = new ArrayList<RemoteSimulationPair>();
    private final ArrayList<SimulationToDispatch> doneSimulations = new ArrayList<SimulationToDispatch>();
+   private int numberOfSimulationsCurrentlyDispatched = 0;
 
    private final ArrayList<SimulationsChangedListener> simulationsChangedListeners = new ArrayList<SimulationsChangedListener>();
 
+   private final HashMap<DescriptionKey, SerializedDescription> serializedDescriptions = new HashMap<DescriptionKey, SerializedDescription>();
+   private int nextDescriptionId = 0;
+
+   private long nextJobId = 0;
+   private int numberOfQueuedJobsPerHost = 4;
+   private int maximumNumberOfAttemptsPerSimulation = 3;
+   private boolean keepDoneSimulations = true;
+
+   private final Object wakeUpMonitor = new Object();
+   private boolean wakeUpRequested = false;
+   private volatile boolean isRunning = true;
+
    public synchronized int getNumberSimulationsToDispatch()
    {
       return simulationsToDispatch.size();
@@ -48,86 +69,66 @@ public class SimulationDispatcher implements Runnable
 
    public synchronized int getNumberSimulationsCurrentlyDispatched()
    {
-      return remoteSimulationPairs.size();
+      return numberOfSimulationsCurrentlyDispatched;
    }
 
-
-   public SimulationDispatcher(String[] hostNames, String myCodeBase)
+   /**
+    * @param hostNames host names of the SimulationJobServers, each optionally followed by ":port". Several workers on the same
+    * machine, localhost included, listen on different ports.
+    */
+   public SimulationDispatcher(String[] hostNames)
    {
-      RMISecurityManager laxManager = new RMISecurityManager()
-      {
-         public void checkPermission(Permission p)
-         {
-            // System.out.println(p);
-            // try
-            // {super.checkPermission(p);}
-            // catch(Exception e)
-            {
-               // System.out.println(p);
-            }
-         }
-      };
-
+      this(hostNames, true);
+   }
 
-      System.setSecurityManager(laxManager);    // new RMISecurityManager());
-      dispatchHostList = new DispatchHostList(this.password);
+   public SimulationDispatcher(String[] hostNames, boolean showGUI)
+   {
+      dispatchHostList = new DispatchHostList(this, this.password);
+      dispatchHostList.addHostsChangedListener(this);
 
       for (int i = 0; i < hostNames.length; i++)
       {
-         String hostName = hostNames[i];
-         int indexOfColon = hostName.indexOf(':');
-
-         String justTheName = hostName.substring(0, indexOfColon);
-
-         int numberOfThreads = Integer.valueOf(hostName.substring(indexOfColon + 1));
-
-         for (int j = 0; j < numberOfThreads; j++)
-         {
-            dispatchHostList.addHost(justTheName + ":" + j);
-
-         }
+         dispatchHostList.addHost(hostNames[i]);
       }
 
-      System.out.println("Creating an RMI Registry");
+      if (showGUI)
+         new SimulationDispatcherGUI(this, dispatchHostList);
 
-      try
-      {
-         LocateRegistry.createRegistry(1099);
-      }
-      catch (RemoteException e)
-      {
-         System.out.println("Registry already running");
-      }
-
-
-      String codebase = System.getProperty("java.rmi.server.codebase");
-      if (codebase == "null")
-         ;
-      codebase = "";
-
-      if (myCodeBase != null)
-         codebase = codebase + myCodeBase;
+      Thread anim = new Thread(this, "SimulationDispatcher");
+      anim.start();
+   }
 
-      System.out.println("Setting the RMI codebase to " + codebase);
-      System.setProperty("java.rmi.server.codebase", codebase);
+   /**
+    * Number of jobs sent to a host on top of the ones filling its slots, so that its slots do not idle between two simulations.
+    */
+   public synchronized void setNumberOfQueuedJobsPerHost(int numberOfQueuedJobsPerHost)
+   {
+      this.numberOfQueuedJobsPerHost = numberOfQueuedJobsPerHost;
+      wakeUp();
+   }
 
-      System.out.println("Registering the RemoteIPRegistryServer to my local RMI Registry...");
+   /**
+    * Number of times a simulation is run before it is finished as failed, when it fails on the host running it.
+    */
+   public synchronized void setMaximumNumberOfAttemptsPerSimulation(int maximumNumberOfAttemptsPerSimulation)
+   {
+      if (maximumNumberOfAttemptsPerSimulation < 1)
+         throw new RuntimeException("maximumNumberOfAttemptsPerSimulation must be at least 1, was " + maximumNumberOfAttemptsPerSimulation);
 
-      try
-      {
-         RemoteIPRegistryServer server = new RemoteIPRegistryServer(dispatchHostList, this.password);
-         Naming.rebind("RemoteIPRegistry", server);
-      }
-      catch (Exception e)
-      {
-         System.out.println("Couldn't register the DispatchHostList on my local RMI Registry. Make sure that it is started..." + e.getMessage());
-         e.printStackTrace();
-      }
+      this.maximumNumberOfAttemptsPerSimulation = maximumNumberOfAttemptsPerSimulation;
+   }
 
-      new SimulationDispatcherGUI(this, dispatchHostList, this.password);
+   /**
+    * Large parameter sweeps can disable keeping the finished simulations around for the GUI.
+    */
+   public synchronized void setKeepDoneSimulations(boolean keepDoneSimulations)
+   {
+      this.keepDoneSimulations = keepDoneSimulations;
+   }
 
-      Thread anim = new Thread(this);
-      anim.start();
+   public DispatchHostList getDispatchHostList()
+   {
+      return dispatchHostList;
    }
 
    public synchronized void addSimulationsChangedListener(SimulationsChangedListener listener)
@@ -143,168 +144,413 @@ public class SimulationDispatcher implements Runnable
       }
    }
 
-   private Throwable getRootCause(Throwable throwable)
+   public void hostsChanged()
    {
-      while (throwable.getCause() != null)
+      wakeUp();
+   }
+
+   private void wakeUp()
+   {
+      synchronized (wakeUpMonitor)
       {
-         throwable = throwable.getCause();
+         wakeUpRequested = true;
+         wakeUpMonitor.notifyAll();
       }
-
-      return throwable;
    }
 
    public void run()
    {
-      int doneIndex = 0;
-
-      while (true)
+      while (isRunning)
       {
-         synchronized (this)
+         synchronized (wakeUpMonitor)
          {
-            // Check on the simulations that need to be dispatched and dispatch them:
-            if (this.simulationsToDispatch.size() > 0)
+            // The timeout only matters for hosts that got slots back without a message, e.g. right after connecting.
+            if (!wakeUpRequested)
             {
-               if (dispatchHostList.isHostReady())
+               try
+               {
+                  wakeUpMonitor.wait(500);
+               }
+               catch (InterruptedException e)
                {
-                  DispatchHost dispatchHost = dispatchHostList.getNextAvailableDispatchHost();    // This returns null if there is none
-                  SimulationToDispatch dispatchSim = simulationsToDispatch.get(0);
-
-                  if (dispatchHost != null)
-                  {
-                     try
-                     {
-                        dispatchOneSimulation(dispatchSim, dispatchHost.getRemoteSim());
-
-                        synchronized (this)
-                        {
-                           remoteSimulationPairs.add(new RemoteSimulationPair(dispatchSim, dispatchHost));
-                        }
-
-                        simulationsToDispatch.remove(dispatchSim);
-                        dispatchHost.reportSimulationStarted(dispatchSim);
-                        this.notifyListeners();
-                     }
-                     catch (Exception exception)
-                     {
-                        Throwable rootCause = getRootCause(exception);
-
-                        System.out.println("Host " + dispatchHost.getHostName() + ": " + dispatchHost.getHostProcess() + " is broken!!! \n Root cause = "
-                                           + rootCause);
-
-                        dispatchHost.reportBroken();
-
-//                      rootCause.printStackTrace();
-
-                        dispatchHostList.checkInDispatchHost(dispatchHost);
-                        simulationsToDispatch.add(dispatchSim);
-                        this.notifyListeners();
-                     }
-                  }
                }
             }
 
+            wakeUpRequested = false;
+         }
+
+         DispatchHost[] aliveHosts = dispatchHostList.getAllAliveHosts();
+         ArrayList<SimulationToDispatch> failedSimulations = new ArrayList<SimulationToDispatch>();
+
+         synchronized (this)
+         {
+            dispatchSimulations(aliveHosts, failedSimulations);
 
-            // Check on the simulations that are running remotely and see if they are done or dead.
-            if (remoteSimulationPairs.size() > 0)
+            if (simulationsToDispatch.isEmpty())
             {
-               if (doneIndex >= remoteSimulationPairs.size())
-                  doneIndex = 0;
-               RemoteSimulationPair remotePair = (RemoteSimulationPair) remoteSimulationPairs.get(doneIndex);
-               SimulationToDispatch dispatchSim = remotePair.simulationToDispatch;
-               DispatchHost dispatchHost = remotePair.dispatchHost;
+               stealJobsForIdleHosts(aliveHosts);
 
-               try
-               {
-                  if (dispatchHost.getRemoteSim().isSimulationDone(this.password))
-                  {
-                     DispatchDoneListener listener = dispatchSim.getDispatchDoneListener();
-                     double[] finalState = (double[]) dispatchHost.getRemoteSim().getSimulationState(this.password);
-                     dispatchSim.setFinalState(finalState);
+               if (numberOfSimulationsCurrentlyDispatched == 0)
+                  releaseSerializedDescriptions(aliveHosts);
+            }
+         }
 
-                     if (listener != null)
-                     {
-//                      System.out.println("Dispatch Done. Notifying Listener!");
-                        listener.dispatchDone(dispatchSim, finalState);
-                     }
+         for (int i = 0; i < failedSimulations.size(); i++)
+         {
+            notifyDispatchDone(failedSimulations.get(i), null);
+         }
+      }
+   }
 
-                     dispatchHost.reportSimulationFinished();
+   private void dispatchSimulations(DispatchHost[] aliveHosts, ArrayList<SimulationToDispatch> failedSimulationsToPack)
+   {
+      boolean[] hasNewJobs = new boolean[aliveHosts.length];
+      boolean dispatchedAny = false;
+
+      while (!simulationsToDispatch.isEmpty())
+      {
+         // Least loaded host first, so that the queue is spread over all the hosts and idle slots are filled first.
+         int hostIndex = -1;
+         int lowestLoad = Integer.MAX_VALUE;
+         for (int i = 0; i < aliveHosts.length; i++)
+         {
+            DispatchHost dispatchHost = aliveHosts[i];
+            int load = dispatchHost.getNumberOfJobsSent() - dispatchHost.getNumberOfSlots();
+            if (dispatchHost.isAlive() && (load < numberOfQueuedJobsPerHost) && (load < lowestLoad))
+            {
+               hostIndex = i;
+               lowestLoad = load;
+            }
+         }
 
-                     remoteSimulationPairs.remove(remotePair);
+         if (hostIndex < 0)
+            break;
 
-                     // System.out.println("Remote Simulation Completed Successfully and is being removed from the list of running simulations!!!");
+         DispatchHost dispatchHost = aliveHosts[hostIndex];
+         SimulationToDispatch dispatchSim = simulationsToDispatch.remove(0);
+         dispatchedAny = true;
 
-                     dispatchSim.setSimulationFinished();
-                     doneSimulations.add(dispatchSim);
+         SerializedDescription serializedDescription;
+         try
+         {
+            serializedDescription = getSerializedDescription(dispatchSim);
+         }
+         catch (IOException exception)
+         {
+            System.err.println("Could not serialize the description of " + dispatchSim.getDescription() + ", it will not be dispatched: " + exception);
+            finishFailedSimulation(dispatchSim, "Could not serialize the description: " + exception);
+            failedSimulationsToPack.add(dispatchSim);
+            continue;
+         }
 
-                     dispatchHostList.checkInDispatchHost(dispatchHost);
-                     this.notifyListeners();
-                  }
+         numberOfSimulationsCurrentlyDispatched++;
 
-                  // else{System.out.println("Sim not done yet...");}
-               }
-               catch (Exception e)
-               {
-                  System.out.println(
-                      "Oops!! Simulation Died after being put on a server successfully.  Need to put it back in the list of sims to run and return the host");
-                  remoteSimulationPairs.remove(remotePair);
-                  simulationsToDispatch.add(remotePair.simulationToDispatch);
-                  dispatchHostList.checkInDispatchHost(dispatchHost);
-                  this.notifyListeners();
-               }
-            }
+         try
+         {
+            dispatchHost.sendJob(nextJobId++, serializedDescription.id, serializedDescription.bytes, dispatchSim);
+            hasNewJobs[hostIndex] = true;
+         }
+         catch (IOException exception)
+         {
+            // The job is given back with the other jobs of this host once its connection is closed.
+            System.out.println("Host " + dispatchHost.getHostName() + ":" + dispatchHost.getHostProcess() + " is broken!!! \n Root cause = " + exception);
+            dispatchHost.reportBroken();
          }
+      }
 
-         doneIndex++;
+      for (int i = 0; i < aliveHosts.length; i++)
+      {
+         if (hasNewJobs[i])
+            flush(aliveHosts[i]);
+      }
+
+      if (dispatchedAny)
+         this.notifyListeners();
+   }
+
+   private void stealJobsForIdleHosts(DispatchHost[] aliveHosts)
+   {
+      int numberOfIdleSlots = 0;
+      for (int i = 0; i < aliveHosts.length; i++)
+      {
+         if (!aliveHosts[i].isAlive())
+            continue;
+
+         numberOfIdleSlots += Math.max(0, aliveHosts[i].getNumberOfSlots() - aliveHosts[i].getNumberOfJobsSent());
+         numberOfIdleSlots -= aliveHosts[i].getNumberOfJobsToCancel();
+      }
+
+      while (numberOfIdleSlots > 0)
+      {
+         DispatchHost busiestHost = null;
+         for (int i = 0; i < aliveHosts.length; i++)
+         {
+            DispatchHost dispatchHost = aliveHosts[i];
+            if (dispatchHost.isAlive() && (dispatchHost.getNumberOfJobsNotStarted() > 0)
+                  && ((busiestHost == null) || (dispatchHost.getNumberOfJobsNotStarted() > busiestHost.getNumberOfJobsNotStarted())))
+               busiestHost = dispatchHost;
+         }
+
+         if (busiestHost == null)
+            return;
 
          try
          {
-            Thread.sleep(500);
+            if (!busiestHost.cancelLastJobNotStarted())
+               return;
+
+            flush(busiestHost);
          }
-         catch (InterruptedException e)
+         catch (IOException e)
          {
+            busiestHost.reportBroken();
+            return;
          }
 
+         numberOfIdleSlots--;
       }
+   }
+
+   /**
+    * Called once the sweep is done, so the serialized descriptions do not pile up over the sweeps, here and on the workers.
+    */
+   private void releaseSerializedDescriptions(DispatchHost[] aliveHosts)
+   {
+      if (serializedDescriptions.isEmpty())
+         return;
+
+      serializedDescriptions.clear();
 
+      for (int i = 0; i < aliveHosts.length; i++)
+      {
+         if (!aliveHosts[i].isAlive())
+            continue;
+
+         try
+         {
+            aliveHosts[i].releaseDescriptions();
+            aliveHosts[i].flush();
+         }
+         catch (IOException e)
+         {
+            aliveHosts[i].reportBroken();
+         }
+      }
+   }
+
+   private void flush(DispatchHost dispatchHost)
+   {
+      try
+      {
+         dispatchHost.flush();
+      }
+      catch (IOException e)
+      {
+         dispatchHost.reportBroken();
+      }
    }
 
    public synchronized void addSimulation(SimulationToDispatch sim)
    {
-      System.out.println("Dispatching Simulation: " + sim.getDescription());
+      if (DEBUG)
+         System.out.println("Dispatching Simulation: " + sim.getDescription());
       simulationsToDispatch.add(sim);
       this.notifyListeners();
+      wakeUp();
+   }
+
+   public void close()
+   {
+      isRunning = false;
+      wakeUp();
+      dispatchHostList.close();
+   }
+
+   void jobStarted(DispatchHost dispatchHost, long jobId)
+   {
+      synchronized (this)
+      {
+         dispatchHost.reportJobStarted(jobId);
+      }
+
+      this.notifyListeners();
+   }
+
+   void jobFinished(DispatchHost dispatchHost, long jobId, double[] finalState)
+   {
+      SimulationToDispatch dispatchSim;
+
+      synchronized (this)
+      {
+         dispatchSim = dispatchHost.removeJob(jobId);
+         if (dispatchSim == null)
+            return;
+
+         numberOfSimulationsCurrentlyDispatched--;
+         dispatchSim.setFinalState(finalState);
+         dispatchSim.setSimulationFinished();
+
+         if (keepDoneSimulations)
+            doneSimulations.add(dispatchSim);
+      }
+
+      wakeUp();
+      notifyDispatchDone(dispatchSim, finalState);
+      this.notifyListeners();
    }
 
+   void jobFailed(DispatchHost dispatchHost, long jobId, String message)
+   {
+      SimulationToDispatch dispatchSim;
+      boolean isLastAttempt;
+
+      synchronized (this)
+      {
+         dispatchSim = dispatchHost.removeJob(jobId);
+         if (dispatchSim == null)
+            return;
+
+         numberOfSimulationsCurrentlyDispatched--;
+         isLastAttempt = dispatchSim.reportFailedAttempt() >= maximumNumberOfAttemptsPerSimulation;
 
-   private void dispatchOneSimulation(SimulationToDispatch dispatchSim, RemoteSimulationRunnerInterface remoteSim)
-           throws RemoteException, MalformedURLException, NotBoundException
+         if (isLastAttempt)
+            finishFailedSimulation(dispatchSim, message);
+         else
+            simulationsToDispatch.add(dispatchSim);
+      }
+
+      System.out.println("Oops!! Simulation " + dispatchSim.getDescription() + " failed on host " + dispatchHost.getHostName() + ":"
+            + dispatchHost.getHostProcess() + " (attempt " + dispatchSim.getNumberOfFailedAttempts() + " of " + maximumNumberOfAttemptsPerSimulation + "): "
+            + message + (isLastAttempt ? "\n Giving up on it" : "\n Putting it back in the list of sims to run"));
+
+      // The host stays in use, only connection errors mark it as broken.
+      wakeUp();
+
+      if (isLastAttempt)
+         notifyDispatchDone(dispatchSim, null);
+
+      this.notifyListeners();
+   }
+
+   void jobCancelled(DispatchHost dispatchHost, long jobId)
    {
-      DispatchedSimulationDescription description = new DispatchedSimulationDescription(dispatchSim.getConstructor(), dispatchSim.getInputStateVariableNames(),
-                                                       dispatchSim.getOutputStateVariableNames());
+      synchronized (this)
+      {
+         SimulationToDispatch dispatchSim = dispatchHost.removeJob(jobId);
+         if (dispatchSim == null)
+            return;
+
+         numberOfSimulationsCurrentlyDispatched--;
+         simulationsToDispatch.add(0, dispatchSim);
+      }
+
+      wakeUp();
+   }
+
+   private void finishFailedSimulation(SimulationToDispatch dispatchSim, String message)
+   {
+      dispatchSim.setSimulationFailed(message);
+
+      if (keepDoneSimulations)
+         doneSimulations.add(dispatchSim);
+   }
 
-      // System.out.println("Creating the Simulation."); System.out.flush();
-      remoteSim.createSimulation(description, dispatchSim.getStructuralParameterNames(), dispatchSim.getStructuralParameterValues(), this.password);
+   private static void notifyDispatchDone(SimulationToDispatch dispatchSim, double[] finalState)
+   {
+      DispatchDoneListener listener = dispatchSim.getDispatchDoneListener();
+      if (listener != null)
+         listener.dispatchDone(dispatchSim, finalState);
+   }
 
-      // System.out.println("Setting the Simulation State."); System.out.flush();
-      remoteSim.setSimulationState(dispatchSim.getInputState(), this.password);
+   void hostDisconnected(DispatchHost dispatchHost)
+   {
+      synchronized (this)
+      {
+         ArrayList<SimulationToDispatch> jobsToRedispatch = dispatchHost.removeAllJobs();
+         numberOfSimulationsCurrentlyDispatched -= jobsToRedispatch.size();
+         simulationsToDispatch.addAll(0, jobsToRedispatch);
+      }
 
-      // System.out.println("Running the Simulation."); System.out.flush();
-      remoteSim.startSimulation(this.password);
+      dispatchHostList.reportHostDead(dispatchHost);
+      this.notifyListeners();
+      wakeUp();
    }
 
+   /**
+    * Serializing the description is the expensive part of a job, so it is done once per sweep and the simulations
+    * with the same description and description version share it.
+    */
+   private SerializedDescription getSerializedDescription(SimulationToDispatch dispatchSim) throws IOException
+   {
+      DescriptionKey descriptionKey = new DescriptionKey(dispatchSim);
+      SerializedDescription serializedDescription = serializedDescriptions.get(descriptionKey);
+
+      if (serializedDescription == null)
+      {
+         RemoteSimulationDescription description = dispatchSim.getRemoteSimulationDescription();
+         if (description == null)
+            description = new DispatchedSimulationDescription(dispatchSim.getConstructor(), dispatchSim.getInputStateVariableNames(),
+                  dispatchSim.getOutputStateVariableNames());
 
-   public class RemoteSimulationPair
+         serializedDescription = new SerializedDescription(nextDescriptionId++, SimulationJobProtocol.serializeDescription(description));
+         serializedDescriptions.put(descriptionKey, serializedDescription);
+      }
+
+      return serializedDescription;
+   }
+
+   private static class SerializedDescription
    {
-      private SimulationToDispatch simulationToDispatch;
-      private DispatchHost dispatchHost;
+      private final int id;
+      private final byte[] bytes;
 
-      public RemoteSimulationPair(SimulationToDispatch simulationToDispatch, DispatchHost dispatchHost)
+      public SerializedDescription(int id, byte[] bytes)
       {
-         this.simulationToDispatch = simulationToDispatch;
-         this.dispatchHost = dispatchHost;
+         this.id = id;
+         this.bytes = bytes;
       }
    }
 
+   /**
+    * The description object, or the constructor, is compared by identity, the state variable names and the version by value.
+    */
+   private static class DescriptionKey
+   {
+      private final Object description;
+      private final String[] inputStateVariableNames, outputStateVariableNames;
+      private final int version;
 
+      public DescriptionKey(SimulationToDispatch dispatchSim)
+      {
+         RemoteSimulationDescription remoteSimulationDescription = dispatchSim.getRemoteSimulationDescription();
+         if (remoteSimulationDescription != null)
+            this.description = remoteSimulationDescription;
+         else
+            this.description = dispatchSim.getConstructor();
+
+         this.inputStateVariableNames = dispatchSim.getInputStateVariableNames();
+         this.outputStateVariableNames = dispatchSim.getOutputStateVariableNames();
+         this.version = dispatchSim.getDescriptionVersion();
+      }
 
+      @Override
+      public int hashCode()
+      {
+         int hashCode = System.identityHashCode(description);
+         hashCode = 31 * hashCode + Arrays.hashCode(inputStateVariableNames);
+         hashCode = 31 * hashCode + Arrays.hashCode(outputStateVariableNames);
+         return 31 * hashCode + version;
+      }
+
+      @Override
+      public boolean equals(Object object)
+      {
+         if (!(object instanceof DescriptionKey))
+            return false;
+
+         DescriptionKey other = (DescriptionKey) object;
+         return (description == other.description) && (version == other.version) && Arrays.equals(inputStateVariableNames, other.inputStateVariableNames)
+               && Arrays.equals(outputStateVariableNames, other.outputStateVariableNames);
+      }
+   }
 }
@@ -2,6 +2,7 @@ package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
 import us.ihmc.simulationconstructionset.Simulation;
 import us.ihmc.simulationconstructionset.SimulationConstructor;
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationDescription;
 
 public class SimulationToDispatch
 {
@@ -10,6 +11,8 @@ public class SimulationToDispatch
    private String resultsString;
 
    private final SimulationConstructor constructor;
+   private final RemoteSimulationDescription remoteSimulationDescription;
+   private int descriptionVersion = 0;
 
    private final String[] structuralParameterNames;
    private final double[] structuralParameterValues;
@@ -18,6 +21,8 @@ public class SimulationToDispatch
 
    private double[] finalState;
    private boolean simulationFinished = false;
+   private int numberOfFailedAttempts = 0;
+   private String failureMessage = null;
 
    private final DispatchDoneListener dispatchDoneListener;
 
@@ -28,6 +33,7 @@ public class SimulationToDispatch
       this.simulation = simulation;
       this.description = description;
       this.constructor = constructor;
+      this.remoteSimulationDescription = null;
 
       this.structuralParameterNames = structuralParameterNames;
       this.structuralParameterValues = structuralParameterValues;
@@ -41,6 +47,28 @@ public class SimulationToDispatch
       this.dispatchDoneListener = dispatchDoneListener;
    }
 
+   /**
+    * Dispatches the given description as is, instead of a DispatchedSimulationDescription built from a SimulationConstructor.
+    * Simulations sharing the same description object are sent to each worker only once.
+    */
+   public SimulationToDispatch(String description, RemoteSimulationDescription remoteSimulationDescription, String[] structuralParameterNames,
+                               double[] structuralParameterValues, double[] inputState, DispatchDoneListener dispatchDoneListener)
+   {
+      this.simulation = null;
+      this.description = description;
+      this.constructor = null;
+      this.remoteSimulationDescription = remoteSimulationDescription;
+
+      this.structuralParameterNames = structuralParameterNames;
+      this.structuralParameterValues = structuralParameterValues;
+
+      this.inputStateVariableNames = null;
+      this.outputStateVariableNames = null;
+
+      setStateVals(inputState);
+      this.dispatchDoneListener = dispatchDoneListener;
+   }
+
    public DispatchDoneListener getDispatchDoneListener()
    {
       return dispatchDoneListener;
@@ -56,6 +84,25 @@ public class SimulationToDispatch
       return constructor;
    }
 
+   public RemoteSimulationDescription getRemoteSimulationDescription()
+   {
+      return remoteSimulationDescription;
+   }
+
+   /**
+    * Simulations with the same description, or the same constructor and state variable names, and the same version share one
+    * serialized description during a sweep. Use a new version after changing the description or the constructor in place.
+    */
+   public void setDescriptionVersion(int descriptionVersion)
+   {
+      this.descriptionVersion = descriptionVersion;
+   }
+
+   public int getDescriptionVersion()
+   {
+      return descriptionVersion;
+   }
+
    public String[] getStructuralParameterNames()
    {
       return structuralParameterNames;
@@ -126,4 +173,34 @@ public class SimulationToDispatch
       return simulationFinished;
    }
 
+   /**
+    * Finishes the simulation without a final state, e.g. after it failed on every attempt.
+    */
+   public void setSimulationFailed(String failureMessage)
+   {
+      this.failureMessage = failureMessage;
+      this.finalState = null;
+      this.simulationFinished = true;
+   }
+
+   public boolean isSimulationFailed()
+   {
+      return failureMessage != null;
+   }
+
+   public String getFailureMessage()
+   {
+      return failureMessage;
+   }
+
+   int reportFailedAttempt()
+   {
+      return ++numberOfFailedAttempts;
+   }
+
+   public int getNumberOfFailedAttempts()
+   {
+      return numberOfFailedAttempts;
+   }
+
 }
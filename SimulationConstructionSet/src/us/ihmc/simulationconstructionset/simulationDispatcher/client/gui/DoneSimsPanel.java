@@ -40,6 +40,8 @@ public class DoneSimsPanel extends SimulationToDispatchPanel
          {
             description = simulationToDispatch.getDescription();
             resultsString = simulationToDispatch.getResultsString();
+            if (simulationToDispatch.isSimulationFailed())
+               resultsString = "failed: " + simulationToDispatch.getFailureMessage();
          }
          else
          {
@@ -12,7 +12,6 @@ import us.ihmc.robotics.dataStructures.variable.YoVariable;
 import us.ihmc.simulationconstructionset.Simulation;
 import us.ihmc.simulationconstructionset.simulationDispatcher.client.DispatchHost;
 import us.ihmc.simulationconstructionset.simulationDispatcher.client.SimulationToDispatch;
-import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationRunnerInterface;
 
 
 public class ShowSelectedAction extends AbstractAction implements Runnable
@@ -21,17 +20,13 @@ public class ShowSelectedAction extends AbstractAction implements Runnable
    private URL iconURL = ShowSelectedAction.class.getClassLoader().getResource("icons/ShowSelected24.gif");
    private ImageIcon icon = new ImageIcon(iconURL);
 
-   private String pwd;
-
    private DispatchHostPanel dispatchHostPanel;
    private SimulationDispatcherGUI GUI;
 
-   public ShowSelectedAction(DispatchHostPanel dispatchHostPanel, SimulationDispatcherGUI GUI, String pwd)
+   public ShowSelectedAction(DispatchHostPanel dispatchHostPanel, SimulationDispatcherGUI GUI)
    {
       super("Show Selected");
 
-      this.pwd = pwd;
-
       // this.sim = sim;
       this.dispatchHostPanel = dispatchHostPanel;
       this.GUI = GUI;
@@ -93,26 +88,16 @@ public class ShowSelectedAction extends AbstractAction implements Runnable
          return;
       }
 
-      RemoteSimulationRunnerInterface remoteSim = selectedHost.getRemoteSim();
-      if (remoteSim == null)
-      {
-         // System.out.println("Remote Sim is null"); System.out.flush();
+      // The state of a running simulation stays on the worker, only the final state is streamed back.
+      if (!dispatchSim.isSimulationFinished() || dispatchSim.isSimulationFailed())
          return;
-      }
 
       if (GUI != null)
          GUI.setSimulation(dispatchSim); 
 
       try
       {
-         double[] data;
-
-         // System.out.println("Getting Remote State"); System.out.flush();
-
-         if (dispatchSim.isSimulationFinished())
-            data = dispatchSim.getFinalState();
-         else
-            data = (double[]) remoteSim.getSimulationState(this.pwd);
+         double[] data = dispatchSim.getFinalState();
 
          if (sim != dispatchSim.getSimulation())
             return;
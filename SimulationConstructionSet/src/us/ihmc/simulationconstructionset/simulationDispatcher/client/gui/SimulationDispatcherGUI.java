@@ -74,11 +74,8 @@ public class SimulationDispatcherGUI
 
    private final ArrayList<GraphicsRobot> graphicsRobotsToUpdate = new ArrayList<GraphicsRobot>();
 
-   private String password;
-
-   public SimulationDispatcherGUI(SimulationDispatcher dispatcher, DispatchHostList dispatchHostList, String password)
+   public SimulationDispatcherGUI(SimulationDispatcher dispatcher, DispatchHostList dispatchHostList)
    {
-      this.password = password;
       this.dispatchHostList = dispatchHostList;
       this.dispatcher = dispatcher;
 
@@ -244,7 +241,7 @@ public class SimulationDispatcherGUI
       guiButtons = new ArrayList<ShowSelectedAction>();
       guiActions = new ArrayList<ShowSelectedAction>();
 
-      ShowSelectedAction showSelectedAction = new ShowSelectedAction(dispatchHostPanel, this, this.password);
+      ShowSelectedAction showSelectedAction = new ShowSelectedAction(dispatchHostPanel, this);
       guiActions.add(showSelectedAction);
 
       JMenuItem exitMenuItem = new JMenuItem("Exit");
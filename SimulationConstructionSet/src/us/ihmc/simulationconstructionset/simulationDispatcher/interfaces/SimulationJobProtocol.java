@@ -0,0 +1,145 @@
+package us.ihmc.simulationconstructionset.simulationDispatcher.interfaces;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Binary protocol between the SimulationDispatcher and the SimulationJobServer worker processes, over a plain TCP socket.
+ *
+ * <p>The client opens the connection with {@link #MAGIC}, {@link #VERSION} and the password, and the worker answers with
+ * {@link #HELLO} and its number of simulation slots. After that both sides stream messages, each starting with its type byte:</p>
+ * <ul>
+ * <li>client to worker: {@link #DESCRIPTION} registers a serialized {@link RemoteSimulationDescription} once per connection,
+ * {@link #JOB} queues a simulation for a registered description, {@link #CANCEL} takes back a job that did not start yet,
+ * {@link #RELEASE_DESCRIPTIONS} drops the registered descriptions at the end of a sweep.</li>
+ * <li>worker to client: {@link #STARTED}, {@link #RESULT} with the final state as raw doubles, {@link #FAILED} and {@link #CANCELLED}.</li>
+ * </ul>
+ * The client does not wait for a job to finish before sending the next ones, so a worker always has jobs queued.
+ */
+public final class SimulationJobProtocol
+{
+   public static final int DEFAULT_PORT = 4100;
+
+   public static final int MAGIC = 0x53494d44;
+   public static final int VERSION = 2;
+
+   public static final byte HELLO = 1;
+   public static final byte DESCRIPTION = 2;
+   public static final byte JOB = 3;
+   public static final byte CANCEL = 4;
+   public static final byte STARTED = 5;
+   public static final byte RESULT = 6;
+   public static final byte FAILED = 7;
+   public static final byte CANCELLED = 8;
+   public static final byte RELEASE_DESCRIPTIONS = 9;
+
+   private SimulationJobProtocol()
+   {
+   }
+
+   public static void writeDoubleArray(DataOutputStream outputStream, double[] array) throws IOException
+   {
+      if (array == null)
+      {
+         outputStream.writeInt(-1);
+         return;
+      }
+
+      outputStream.writeInt(array.length);
+      for (int i = 0; i < array.length; i++)
+      {
+         outputStream.writeDouble(array[i]);
+      }
+   }
+
+   public static double[] readDoubleArray(DataInputStream inputStream) throws IOException
+   {
+      int length = inputStream.readInt();
+      if (length < 0)
+         return null;
+
+      double[] array = new double[length];
+      for (int i = 0; i < length; i++)
+      {
+         array[i] = inputStream.readDouble();
+      }
+
+      return array;
+   }
+
+   public static void writeStringArray(DataOutputStream outputStream, String[] array) throws IOException
+   {
+      if (array == null)
+      {
+         outputStream.writeInt(-1);
+         return;
+      }
+
+      outputStream.writeInt(array.length);
+      for (int i = 0; i < array.length; i++)
+      {
+         outputStream.writeUTF(array[i]);
+      }
+   }
+
+   public static String[] readStringArray(DataInputStream inputStream) throws IOException
+   {
+      int length = inputStream.readInt();
+      if (length < 0)
+         return null;
+
+      String[] array = new String[length];
+      for (int i = 0; i < length; i++)
+      {
+         array[i] = inputStream.readUTF();
+      }
+
+      return array;
+   }
+
+   public static void writeByteArray(DataOutputStream outputStream, byte[] array) throws IOException
+   {
+      outputStream.writeInt(array.length);
+      outputStream.write(array);
+   }
+
+   public static byte[] readByteArray(DataInputStream inputStream) throws IOException
+   {
+      byte[] array = new byte[inputStream.readInt()];
+      inputStream.readFully(array);
+
+      return array;
+   }
+
+   public static byte[] serializeDescription(RemoteSimulationDescription description) throws IOException
+   {
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      ObjectOutputStream objectOutputStream = new ObjectOutputStream(byteArrayOutputStream);
+      objectOutputStream.writeObject(description);
+      objectOutputStream.close();
+
+      return byteArrayOutputStream.toByteArray();
+   }
+
+   /**
+    * The classes of the description have to be on the classpath of the worker process.
+    */
+   public static RemoteSimulationDescription deserializeDescription(byte[] serializedDescription) throws IOException, ClassNotFoundException
+   {
+      ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(serializedDescription));
+
+      try
+      {
+         return (RemoteSimulationDescription) objectInputStream.readObject();
+      }
+      finally
+      {
+         objectInputStream.close();
+      }
+   }
+}
@@ -0,0 +1,13 @@
+package us.ihmc.simulationconstructionset.simulationDispatcher.interfaces;
+
+/**
+ * Description that can run its simulation on the calling thread. The SimulationJobServer then runs it directly,
+ * instead of calling {@link #startSimulation()} and waiting for {@link #isSimulationDone()}.
+ */
+public interface SynchronousSimulationDescription extends RemoteSimulationDescription
+{
+   /**
+    * Runs the simulation created by {@link #createSimulation(String[], double[])} and returns once it is done.
+    */
+   public abstract void runSimulation();
+}
@@ -0,0 +1,490 @@
+package us.ihmc.simulationconstructionset.simulationDispatcher.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationDescription;
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.SimulationJobProtocol;
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.SynchronousSimulationDescription;
+
+/**
+ * Worker process of the SimulationDispatcher. Accepts dispatcher connections on a TCP port and runs the jobs they stream in
+ * on a fixed number of simulation slots. Several workers can run on the same machine on different ports.
+ */
+public class SimulationJobServer
+{
+   private static final boolean DEBUG = false;
+
+   private static final String password = "***REMOVED***";
+
+   private final ServerSocket serverSocket;
+   private final int numberOfSlots;
+
+   private final LinkedBlockingDeque<QueuedJob> queuedJobs = new LinkedBlockingDeque<QueuedJob>();
+   private final ArrayList<Thread> slotThreads = new ArrayList<Thread>();
+   private final ArrayList<ClientConnection> clientConnections = new ArrayList<ClientConnection>();
+
+   private volatile boolean isRunning = true;
+
+   /**
+    * @param port TCP port to listen on, 0 to pick a free one.
+    * @param numberOfSlots number of simulations run at the same time.
+    */
+   public SimulationJobServer(int port, int numberOfSlots) throws IOException
+   {
+      this.serverSocket = new ServerSocket(port);
+      this.numberOfSlots = numberOfSlots;
+
+      for (int i = 0; i < numberOfSlots; i++)
+      {
+         Thread slotThread = new Thread(new SimulationSlot(), "SimulationJobServer" + getPort() + "Slot" + i);
+         slotThread.setDaemon(true);
+         slotThread.start();
+         slotThreads.add(slotThread);
+      }
+   }
+
+   public int getPort()
+   {
+      return serverSocket.getLocalPort();
+   }
+
+   public int getNumberOfSlots()
+   {
+      return numberOfSlots;
+   }
+
+   /**
+    * Accepts connections on a separate thread.
+    */
+   public void start()
+   {
+      Thread acceptThread = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            acceptConnections();
+         }
+      }, "SimulationJobServer" + getPort() + "Accept");
+      acceptThread.setDaemon(true);
+      acceptThread.start();
+   }
+
+   public void acceptConnections()
+   {
+      while (isRunning)
+      {
+         try
+         {
+            Socket socket = serverSocket.accept();
+            socket.setTcpNoDelay(true);
+
+            ClientConnection clientConnection = new ClientConnection(socket);
+            synchronized (clientConnections)
+            {
+               clientConnections.add(clientConnection);
+            }
+
+            Thread connectionThread = new Thread(clientConnection, "SimulationJobServer" + getPort() + "Connection");
+            connectionThread.setDaemon(true);
+            connectionThread.start();
+         }
+         catch (IOException e)
+         {
+            if (isRunning)
+               System.err.println("SimulationJobServer on port " + getPort() + " could not accept a connection: " + e.getMessage());
+         }
+      }
+   }
+
+   public void close()
+   {
+      isRunning = false;
+
+      try
+      {
+         serverSocket.close();
+      }
+      catch (IOException e)
+      {
+      }
+
+      synchronized (clientConnections)
+      {
+         for (int i = 0; i < clientConnections.size(); i++)
+         {
+            clientConnections.get(i).close();
+         }
+
+         clientConnections.clear();
+      }
+
+      for (int i = 0; i < slotThreads.size(); i++)
+      {
+         slotThreads.get(i).interrupt();
+      }
+   }
+
+   private class ClientConnection implements Runnable
+   {
+      private final Socket socket;
+      private final DataInputStream inputStream;
+      private final DataOutputStream outputStream;
+
+      private final Map<Integer, byte[]> serializedDescriptions = new ConcurrentHashMap<Integer, byte[]>();
+      private final Map<Long, QueuedJob> jobsNotStarted = new ConcurrentHashMap<Long, QueuedJob>();
+
+      private volatile boolean isClosed = false;
+
+      public ClientConnection(Socket socket) throws IOException
+      {
+         this.socket = socket;
+         this.inputStream = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+         this.outputStream = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+      }
+
+      public void run()
+      {
+         try
+         {
+            if (!handshake())
+            {
+               System.err.println("SimulationJobServer: rejected connection from " + socket.getInetAddress());
+               return;
+            }
+
+            while (!isClosed)
+            {
+               byte messageType = inputStream.readByte();
+
+               switch (messageType)
+               {
+               case SimulationJobProtocol.DESCRIPTION:
+               {
+                  int descriptionId = inputStream.readInt();
+                  serializedDescriptions.put(descriptionId, SimulationJobProtocol.readByteArray(inputStream));
+                  break;
+               }
+
+               case SimulationJobProtocol.JOB:
+               {
+                  long jobId = inputStream.readLong();
+                  int descriptionId = inputStream.readInt();
+                  String[] structuralParameterNames = SimulationJobProtocol.readStringArray(inputStream);
+                  double[] structuralParameterValues = SimulationJobProtocol.readDoubleArray(inputStream);
+                  double[] inputState = SimulationJobProtocol.readDoubleArray(inputStream);
+
+                  byte[] serializedDescription = serializedDescriptions.get(descriptionId);
+                  if (serializedDescription == null)
+                  {
+                     sendFailed(jobId, "Unknown description " + descriptionId);
+                     break;
+                  }
+
+                  QueuedJob job = new QueuedJob(this, jobId, serializedDescription, structuralParameterNames, structuralParameterValues, inputState);
+                  jobsNotStarted.put(jobId, job);
+                  queuedJobs.add(job);
+
+                  if (DEBUG)
+                     System.out.println("Queued job " + jobId);
+                  break;
+               }
+
+               case SimulationJobProtocol.RELEASE_DESCRIPTIONS:
+               {
+                  serializedDescriptions.clear();
+                  break;
+               }
+
+               case SimulationJobProtocol.CANCEL:
+               {
+                  long jobId = inputStream.readLong();
+                  QueuedJob job = jobsNotStarted.remove(jobId);
+
+                  // The job can still be picked up by a slot in the meantime, then its result is sent as usual.
+                  if (job != null && job.claim())
+                  {
+                     queuedJobs.remove(job);
+                     sendCancelled(jobId);
+                  }
+                  break;
+               }
+
+               default:
+                  throw new IOException("Unknown message type " + messageType);
+               }
+            }
+         }
+         catch (IOException e)
+         {
+            if (DEBUG)
+               System.out.println("Connection closed: " + e.getMessage());
+         }
+         finally
+         {
+            close();
+         }
+      }
+
+      private boolean handshake() throws IOException
+      {
+         int magic = inputStream.readInt();
+         int version = inputStream.readInt();
+         String clientPassword = inputStream.readUTF();
+
+         if ((magic != SimulationJobProtocol.MAGIC) || (version != SimulationJobProtocol.VERSION) || !password.equals(clientPassword))
+            return false;
+
+         synchronized (outputStream)
+         {
+            outputStream.writeByte(SimulationJobProtocol.HELLO);
+            outputStream.writeInt(numberOfSlots);
+            outputStream.flush();
+         }
+
+         return true;
+      }
+
+      public boolean isClosed()
+      {
+         return isClosed;
+      }
+
+      public void jobStarted(QueuedJob job)
+      {
+         jobsNotStarted.remove(job.jobId);
+         send(SimulationJobProtocol.STARTED, job.jobId, null, null);
+      }
+
+      public void sendResult(long jobId, double[] finalState)
+      {
+         send(SimulationJobProtocol.RESULT, jobId, finalState, null);
+      }
+
+      public void sendFailed(long jobId, String message)
+      {
+         send(SimulationJobProtocol.FAILED, jobId, null, message);
+      }
+
+      public void sendCancelled(long jobId)
+      {
+         send(SimulationJobProtocol.CANCELLED, jobId, null, null);
+      }
+
+      private void send(byte messageType, long jobId, double[] finalState, String message)
+      {
+         if (isClosed)
+            return;
+
+         try
+         {
+            synchronized (outputStream)
+            {
+               outputStream.writeByte(messageType);
+               outputStream.writeLong(jobId);
+
+               if (messageType == SimulationJobProtocol.RESULT)
+                  SimulationJobProtocol.writeDoubleArray(outputStream, finalState);
+               else if (messageType == SimulationJobProtocol.FAILED)
+                  outputStream.writeUTF(message == null ? "" : message);
+
+               outputStream.flush();
+            }
+         }
+         catch (IOException e)
+         {
+            close();
+         }
+      }
+
+      public void close()
+      {
+         if (isClosed)
+            return;
+
+         isClosed = true;
+
+         for (QueuedJob job : jobsNotStarted.values())
+         {
+            if (job.claim())
+               queuedJobs.remove(job);
+         }
+
+         jobsNotStarted.clear();
+
+         try
+         {
+            socket.close();
+         }
+         catch (IOException e)
+         {
+         }
+
+         synchronized (clientConnections)
+         {
+            clientConnections.remove(this);
+         }
+      }
+   }
+
+   private static class QueuedJob
+   {
+      private final ClientConnection clientConnection;
+      private final long jobId;
+      private final byte[] serializedDescription;
+      private final String[] structuralParameterNames;
+      private final double[] structuralParameterValues;
+      private final double[] inputState;
+
+      private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+      public QueuedJob(ClientConnection clientConnection, long jobId, byte[] serializedDescription, String[] structuralParameterNames,
+            double[] structuralParameterValues, double[] inputState)
+      {
+         this.clientConnection = clientConnection;
+         this.jobId = jobId;
+         this.serializedDescription = serializedDescription;
+         this.structuralParameterNames = structuralParameterNames;
+         this.structuralParameterValues = structuralParameterValues;
+         this.inputState = inputState;
+      }
+
+      /**
+       * Either a slot starts the job or a cancel takes it back, never both.
+       */
+      public boolean claim()
+      {
+         return claimed.compareAndSet(false, true);
+      }
+   }
+
+   private class SimulationSlot implements Runnable
+   {
+      // Arrays are compared by identity, so each description is deserialized once per slot and per registration.
+      private final Map<byte[], RemoteSimulationDescription> descriptions = new WeakHashMap<byte[], RemoteSimulationDescription>();
+
+      public void run()
+      {
+         while (isRunning)
+         {
+            QueuedJob job;
+            try
+            {
+               job = queuedJobs.take();
+            }
+            catch (InterruptedException e)
+            {
+               return;
+            }
+
+            if (!job.claim() || job.clientConnection.isClosed())
+               continue;
+
+            job.clientConnection.jobStarted(job);
+
+            try
+            {
+               double[] finalState = runJob(job);
+               job.clientConnection.sendResult(job.jobId, finalState);
+            }
+            catch (InterruptedException e)
+            {
+               return;
+            }
+            catch (Exception e)
+            {
+               System.err.println("SimulationJobServer: job " + job.jobId + " failed: " + e);
+               job.clientConnection.sendFailed(job.jobId, e.toString());
+            }
+         }
+      }
+
+      private double[] runJob(QueuedJob job) throws Exception
+      {
+         RemoteSimulationDescription description = descriptions.get(job.serializedDescription);
+         if (description == null)
+         {
+            description = SimulationJobProtocol.deserializeDescription(job.serializedDescription);
+            descriptions.put(job.serializedDescription, description);
+         }
+
+         description.createSimulation(job.structuralParameterNames, job.structuralParameterValues);
+
+         try
+         {
+            description.setSimulationState(job.inputState);
+
+            if (description instanceof SynchronousSimulationDescription)
+            {
+               ((SynchronousSimulationDescription) description).runSimulation();
+            }
+            else
+            {
+               description.startSimulation();
+               waitForSimulationDone(description);
+            }
+
+            Object finalState = description.getSimulationState();
+            if (!(finalState instanceof double[]))
+               throw new RuntimeException("The final state has to be a double[], was " + (finalState == null ? "null" : finalState.getClass().getName()));
+
+            return (double[]) finalState;
+         }
+         finally
+         {
+            // The description is kept for the next jobs, the simulation is not
+            description.destroySimulation();
+         }
+      }
+
+      /**
+       * Descriptions that are not a {@link SynchronousSimulationDescription} only tell that they are done through
+       * {@link RemoteSimulationDescription#isSimulationDone()}, so they are checked at a growing interval, up to 100 ms.
+       */
+      private void waitForSimulationDone(RemoteSimulationDescription description) throws InterruptedException
+      {
+         long sleepMillis = 1;
+         while (!description.isSimulationDone())
+         {
+            Thread.sleep(sleepMillis);
+            sleepMillis = Math.min(2 * sleepMillis, 100);
+         }
+      }
+   }
+
+   public static void main(String[] args) throws IOException
+   {
+      int numberOfSlots = 8;
+      int port = SimulationJobProtocol.DEFAULT_PORT;
+
+      if ((args != null) && (args.length > 0) && (args[0] != null))
+         numberOfSlots = Integer.parseInt(args[0]);
+      if ((args != null) && (args.length > 1) && (args[1] != null))
+         port = Integer.parseInt(args[1]);
+
+      SimulationJobServer server = new SimulationJobServer(port, numberOfSlots);
+
+      try
+      {
+         System.out.println("SimulationJobServer running " + numberOfSlots + " slots on " + InetAddress.getLocalHost() + ":" + server.getPort());
+      }
+      catch (java.net.UnknownHostException e)
+      {
+         System.out.println("SimulationJobServer running " + numberOfSlots + " slots on port " + server.getPort());
+      }
+
+      server.acceptConnections();
+   }
+}
@@ -0,0 +1,495 @@
+package us.ihmc.simulationconstructionset.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * KD tree stored in flat arrays, for the nearest neighbor, k nearest neighbors, and radius searches on large point clouds.
+ *
+ * The tree is implicit: the points are reordered so that the median of each range, along the dimension with the widest extent,
+ * is at the middle of the range, with the smaller points before it and the larger points after it. This gives a balanced tree
+ * without any node objects. The queries do not allocate anything and write their results in arrays given by the caller,
+ * and they can be done from several threads at once.
+ *
+ * The points are identified by their index in the array given to the constructor, so objects associated with the points
+ * can be kept by the caller in an array with the same order. Unlike {@link KDTree}, the given arrays are not modified.
+ */
+public class ImplicitKDTree
+{
+   private static final int DEFAULT_MAX_POINTS_IN_LEAVES = 8;
+
+   // Under this number of points, a range is built by the calling thread instead of being split in parallel tasks
+   private static final int MINIMUM_POINTS_FOR_PARALLEL_BUILD = 1 << 15;
+
+   private final int dimensions;
+   private final int numberOfPoints;
+   private final int maxPointsInLeaves;
+
+   // Coordinates of the points in tree order, and the index of each point in the original array
+   private final double[] coordinates;
+   private final int[] indices;
+
+   // Split dimension of the range whose median is at the given position
+   private final byte[] splitDimensions;
+
+   /**
+    * Creates a tree from an array of points. The points must all have the same dimension.
+    *
+    * @param points double[][]
+    * @param maxPointsInLeaves maximum number of points searched linearly. Use a small value (5-20).
+    */
+   public ImplicitKDTree(double[][] points, int maxPointsInLeaves)
+   {
+      this(flatten(points), points.length == 0 ? 1 : points[0].length, maxPointsInLeaves, 1);
+   }
+
+   /**
+    * Creates a tree from packed coordinates, building it with the default leaf size on a single thread.
+    *
+    * @param coordinates coordinates of the points, one point after the other.
+    * @param dimensions number of coordinates per point.
+    */
+   public ImplicitKDTree(double[] coordinates, int dimensions)
+   {
+      this(coordinates, dimensions, DEFAULT_MAX_POINTS_IN_LEAVES, 1);
+   }
+
+   /**
+    * Creates a tree from packed coordinates.
+    *
+    * @param coordinates coordinates of the points, one point after the other.
+    * @param dimensions number of coordinates per point, at most 127.
+    * @param maxPointsInLeaves maximum number of points searched linearly. Use a small value (5-20).
+    * @param numberOfThreads number of threads building the tree. The subtrees are built in parallel.
+    */
+   public ImplicitKDTree(double[] coordinates, int dimensions, int maxPointsInLeaves, int numberOfThreads)
+   {
+      if (dimensions <= 0 || dimensions > Byte.MAX_VALUE)
+         throw new IllegalArgumentException("Invalid number of dimensions: " + dimensions);
+      if (coordinates.length % dimensions != 0)
+         throw new IllegalArgumentException("The number of coordinates is not a multiple of the number of dimensions");
+
+      this.dimensions = dimensions;
+      this.numberOfPoints = coordinates.length / dimensions;
+      this.maxPointsInLeaves = Math.max(1, maxPointsInLeaves);
+      this.coordinates = coordinates.clone();
+      this.indices = new int[numberOfPoints];
+      this.splitDimensions = new byte[numberOfPoints];
+
+      for (int i = 0; i < numberOfPoints; i++)
+      {
+         indices[i] = i;
+      }
+
+      if (numberOfThreads > 1 && numberOfPoints >= MINIMUM_POINTS_FOR_PARALLEL_BUILD)
+      {
+         ForkJoinPool pool = new ForkJoinPool(numberOfThreads);
+         try
+         {
+            pool.invoke(new BuildTask(0, numberOfPoints));
+         }
+         finally
+         {
+            pool.shutdown();
+         }
+      }
+      else
+      {
+         build(0, numberOfPoints);
+      }
+   }
+
+   public int getNumberOfPoints()
+   {
+      return numberOfPoints;
+   }
+
+   public int getDimensions()
+   {
+      return dimensions;
+   }
+
+   /**
+    * Returns the index of the closest point to testPoint, or -1 if the tree is empty.
+    */
+   public int closestPointIndex(double[] testPoint)
+   {
+      return closestPointIndex(testPoint, Double.POSITIVE_INFINITY);
+   }
+
+   /**
+    * Returns the index of the closest point to testPoint that is at most maxDistance away, or -1 if there is none.
+    */
+   public int closestPointIndex(double[] testPoint, double maxDistance)
+   {
+      int closestPosition = searchClosest(0, numberOfPoints, testPoint, -1, maxDistance * maxDistance);
+      return closestPosition == -1 ? -1 : indices[closestPosition];
+   }
+
+   /**
+    * Finds the closest points to testPoint, up to the length of indicesToPack, that are at most maxDistance away.
+    *
+    * @param indicesToPack indices of the points found, from the closest to the farthest.
+    * @param distancesSquaredToPack squared distances of the points found, same length as indicesToPack.
+    * @return the number of points found.
+    */
+   public int closestPointIndices(double[] testPoint, double maxDistance, int[] indicesToPack, double[] distancesSquaredToPack)
+   {
+      if (distancesSquaredToPack.length < indicesToPack.length)
+         throw new IllegalArgumentException("The distances array is shorter than the indices array");
+
+      int numberFound = searchClosestPoints(0, numberOfPoints, testPoint, maxDistance * maxDistance, indicesToPack.length, indicesToPack,
+            distancesSquaredToPack, 0);
+
+      // The positions are converted to indices at the end, the search uses them to read the coordinates
+      for (int i = 0; i < numberFound; i++)
+      {
+         indicesToPack[i] = indices[indicesToPack[i]];
+      }
+
+      return numberFound;
+   }
+
+   /**
+    * Finds the points that are at most radius away from testPoint, in no particular order. When there are more points than
+    * the length of indicesToPack, only the number of points is counted past that length.
+    *
+    * @param indicesToPack indices of the points found.
+    * @param distancesSquaredToPack squared distances of the points found, same length as indicesToPack, or null.
+    * @return the number of points within the radius, which may be larger than the length of indicesToPack.
+    */
+   public int pointIndicesWithinRadius(double[] testPoint, double radius, int[] indicesToPack, double[] distancesSquaredToPack)
+   {
+      if (distancesSquaredToPack != null && distancesSquaredToPack.length < indicesToPack.length)
+         throw new IllegalArgumentException("The distances array is shorter than the indices array");
+
+      return searchWithinRadius(0, numberOfPoints, testPoint, radius * radius, indicesToPack, distancesSquaredToPack, 0);
+   }
+
+   private int searchClosest(int start, int end, double[] testPoint, int closestPosition, double bestDistanceSquared)
+   {
+      if (end - start <= maxPointsInLeaves)
+      {
+         for (int position = start; position < end; position++)
+         {
+            double distanceSquared = distanceSquared(testPoint, position);
+            if (distanceSquared < bestDistanceSquared || (closestPosition == -1 && distanceSquared == bestDistanceSquared))
+            {
+               bestDistanceSquared = distanceSquared;
+               closestPosition = position;
+            }
+         }
+
+         return closestPosition;
+      }
+
+      int median = (start + end) >>> 1;
+      int splitDimension = splitDimensions[median];
+      double distanceToSplit = testPoint[splitDimension] - coordinates[median * dimensions + splitDimension];
+
+      double distanceSquared = distanceSquared(testPoint, median);
+      if (distanceSquared < bestDistanceSquared || (closestPosition == -1 && distanceSquared == bestDistanceSquared))
+      {
+         bestDistanceSquared = distanceSquared;
+         closestPosition = median;
+      }
+
+      // Start with the side containing the point, then search the other side only if it can be closer
+      if (distanceToSplit < 0.0)
+         closestPosition = searchClosest(start, median, testPoint, closestPosition, bestDistanceSquared);
+      else
+         closestPosition = searchClosest(median + 1, end, testPoint, closestPosition, bestDistanceSquared);
+
+      if (closestPosition != -1)
+         bestDistanceSquared = distanceSquared(testPoint, closestPosition);
+
+      if (distanceToSplit * distanceToSplit < bestDistanceSquared || (closestPosition == -1 && distanceToSplit * distanceToSplit == bestDistanceSquared))
+      {
+         if (distanceToSplit < 0.0)
+            closestPosition = searchClosest(median + 1, end, testPoint, closestPosition, bestDistanceSquared);
+         else
+            closestPosition = searchClosest(start, median, testPoint, closestPosition, bestDistanceSquared);
+      }
+
+      return closestPosition;
+   }
+
+   private int searchClosestPoints(int start, int end, double[] testPoint, double maxDistanceSquared, int maxNumberOfPoints, int[] positions,
+         double[] distancesSquared, int numberFound)
+   {
+      if (maxNumberOfPoints == 0)
+         return 0;
+
+      if (end - start <= maxPointsInLeaves)
+      {
+         for (int position = start; position < end; position++)
+         {
+            numberFound = insertClosestPoint(position, distanceSquared(testPoint, position), maxDistanceSquared, maxNumberOfPoints, positions,
+                  distancesSquared, numberFound);
+         }
+
+         return numberFound;
+      }
+
+      int median = (start + end) >>> 1;
+      int splitDimension = splitDimensions[median];
+      double distanceToSplit = testPoint[splitDimension] - coordinates[median * dimensions + splitDimension];
+
+      numberFound = insertClosestPoint(median, distanceSquared(testPoint, median), maxDistanceSquared, maxNumberOfPoints, positions, distancesSquared,
+            numberFound);
+
+      if (distanceToSplit < 0.0)
+         numberFound = searchClosestPoints(start, median, testPoint, maxDistanceSquared, maxNumberOfPoints, positions, distancesSquared, numberFound);
+      else
+         numberFound = searchClosestPoints(median + 1, end, testPoint, maxDistanceSquared, maxNumberOfPoints, positions, distancesSquared, numberFound);
+
+      double worstDistanceSquared = numberFound == maxNumberOfPoints ? distancesSquared[numberFound - 1] : maxDistanceSquared;
+      if (distanceToSplit * distanceToSplit <= worstDistanceSquared)
+      {
+         if (distanceToSplit < 0.0)
+            numberFound = searchClosestPoints(median + 1, end, testPoint, maxDistanceSquared, maxNumberOfPoints, positions, distancesSquared, numberFound);
+         else
+            numberFound = searchClosestPoints(start, median, testPoint, maxDistanceSquared, maxNumberOfPoints, positions, distancesSquared, numberFound);
+      }
+
+      return numberFound;
+   }
+
+   /**
+    * Inserts the point in the list of closest points, sorted by distance, dropping the farthest one if the list is full.
+    */
+   private static int insertClosestPoint(int position, double distanceSquared, double maxDistanceSquared, int maxNumberOfPoints, int[] positions,
+         double[] distancesSquared, int numberFound)
+   {
+      if (distanceSquared > maxDistanceSquared)
+         return numberFound;
+      if (numberFound == maxNumberOfPoints && distanceSquared >= distancesSquared[numberFound - 1])
+         return numberFound;
+
+      int i = numberFound == maxNumberOfPoints ? numberFound - 1 : numberFound++;
+      while (i > 0 && distancesSquared[i - 1] > distanceSquared)
+      {
+         positions[i] = positions[i - 1];
+         distancesSquared[i] = distancesSquared[i - 1];
+         i--;
+      }
+
+      positions[i] = position;
+      distancesSquared[i] = distanceSquared;
+      return numberFound;
+   }
+
+   private int searchWithinRadius(int start, int end, double[] testPoint, double radiusSquared, int[] indicesToPack, double[] distancesSquaredToPack,
+         int numberFound)
+   {
+      if (end - start <= maxPointsInLeaves)
+      {
+         for (int position = start; position < end; position++)
+         {
+            numberFound = addPointWithinRadius(position, distanceSquared(testPoint, position), radiusSquared, indicesToPack, distancesSquaredToPack,
+                  numberFound);
+         }
+
+         return numberFound;
+      }
+
+      int median = (start + end) >>> 1;
+      int splitDimension = splitDimensions[median];
+      double distanceToSplit = testPoint[splitDimension] - coordinates[median * dimensions + splitDimension];
+
+      numberFound = addPointWithinRadius(median, distanceSquared(testPoint, median), radiusSquared, indicesToPack, distancesSquaredToPack, numberFound);
+
+      if (distanceToSplit < 0.0 || distanceToSplit * distanceToSplit <= radiusSquared)
+         numberFound = searchWithinRadius(start, median, testPoint, radiusSquared, indicesToPack, distancesSquaredToPack, numberFound);
+      if (distanceToSplit >= 0.0 || distanceToSplit * distanceToSplit <= radiusSquared)
+         numberFound = searchWithinRadius(median + 1, end, testPoint, radiusSquared, indicesToPack, distancesSquaredToPack, numberFound);
+
+      return numberFound;
+   }
+
+   private int addPointWithinRadius(int position, double distanceSquared, double radiusSquared, int[] indicesToPack, double[] distancesSquaredToPack,
+         int numberFound)
+   {
+      if (distanceSquared > radiusSquared)
+         return numberFound;
+
+      if (numberFound < indicesToPack.length)
+      {
+         indicesToPack[numberFound] = indices[position];
+         if (distancesSquaredToPack != null)
+            distancesSquaredToPack[numberFound] = distanceSquared;
+      }
+
+      return numberFound + 1;
+   }
+
+   private double distanceSquared(double[] testPoint, int position)
+   {
+      int offset = position * dimensions;
+      double distanceSquared = 0.0;
+      for (int i = 0; i < dimensions; i++)
+      {
+         double difference = testPoint[i] - coordinates[offset + i];
+         distanceSquared += difference * difference;
+      }
+
+      return distanceSquared;
+   }
+
+   /**
+    * Builds the subtree of the points between start (inclusive) and end (exclusive).
+    */
+   private void build(int start, int end)
+   {
+      while (end - start > maxPointsInLeaves)
+      {
+         int median = splitRange(start, end);
+         build(start, median);
+         start = median + 1;
+      }
+   }
+
+   /**
+    * Puts the median of the range, along the dimension with the widest extent, at the middle of the range,
+    * the smaller points before it and the larger points after it.
+    *
+    * @return the position of the median.
+    */
+   private int splitRange(int start, int end)
+   {
+      int splitDimension = 0;
+      double widestWidth = Double.NEGATIVE_INFINITY;
+      for (int dimension = 0; dimension < dimensions; dimension++)
+      {
+         double minValue = Double.POSITIVE_INFINITY;
+         double maxValue = Double.NEGATIVE_INFINITY;
+         for (int position = start; position < end; position++)
+         {
+            double value = coordinates[position * dimensions + dimension];
+            minValue = Math.min(minValue, value);
+            maxValue = Math.max(maxValue, value);
+         }
+
+         if (maxValue - minValue > widestWidth)
+         {
+            widestWidth = maxValue - minValue;
+            splitDimension = dimension;
+         }
+      }
+
+      int median = (start + end) >>> 1;
+      select(start, end - 1, median, splitDimension);
+      splitDimensions[median] = (byte) splitDimension;
+      return median;
+   }
+
+   /**
+    * Quickselect of the k-th point along the given dimension between left and right (both inclusive).
+    */
+   private void select(int left, int right, int k, int dimension)
+   {
+      while (right > left)
+      {
+         // Median of three pivot, to avoid the worst case on sorted inputs such as grids
+         int middle = (left + right) >>> 1;
+         if (coordinate(middle, dimension) < coordinate(left, dimension))
+            swap(middle, left);
+         if (coordinate(right, dimension) < coordinate(left, dimension))
+            swap(right, left);
+         if (coordinate(right, dimension) < coordinate(middle, dimension))
+            swap(right, middle);
+
+         double pivot = coordinate(middle, dimension);
+         int i = left;
+         int j = right;
+         while (i <= j)
+         {
+            while (coordinate(i, dimension) < pivot)
+               i++;
+            while (coordinate(j, dimension) > pivot)
+               j--;
+            if (i <= j)
+            {
+               swap(i, j);
+               i++;
+               j--;
+            }
+         }
+
+         if (k <= j)
+            right = j;
+         else if (k >= i)
+            left = i;
+         else
+            return;
+      }
+   }
+
+   private double coordinate(int position, int dimension)
+   {
+      return coordinates[position * dimensions + dimension];
+   }
+
+   private void swap(int position1, int position2)
+   {
+      int offset1 = position1 * dimensions;
+      int offset2 = position2 * dimensions;
+      for (int i = 0; i < dimensions; i++)
+      {
+         double temp = coordinates[offset1 + i];
+         coordinates[offset1 + i] = coordinates[offset2 + i];
+         coordinates[offset2 + i] = temp;
+      }
+
+      int tempIndex = indices[position1];
+      indices[position1] = indices[position2];
+      indices[position2] = tempIndex;
+   }
+
+   private static double[] flatten(double[][] points)
+   {
+      if (points.length == 0)
+         return new double[0];
+
+      int dimensions = points[0].length;
+      double[] coordinates = new double[points.length * dimensions];
+      for (int i = 0; i < points.length; i++)
+      {
+         if (points[i].length != dimensions)
+            throw new IllegalArgumentException("Point " + i + " has " + points[i].length + " coordinates instead of " + dimensions);
+         System.arraycopy(points[i], 0, coordinates, i * dimensions, dimensions);
+      }
+
+      return coordinates;
+   }
+
+   /**
+    * Splits the range and builds the two sides in parallel until the ranges are small enough to be built directly.
+    */
+   private class BuildTask extends RecursiveAction
+   {
+      private static final long serialVersionUID = -2440316203813263522L;
+
+      private final int start;
+      private final int end;
+
+      private BuildTask(int start, int end)
+      {
+         this.start = start;
+         this.end = end;
+      }
+
+      @Override
+      protected void compute()
+      {
+         if (end - start < MINIMUM_POINTS_FOR_PARALLEL_BUILD)
+         {
+            build(start, end);
+            return;
+         }
+
+         int median = splitRange(start, end);
+         invokeAll(new BuildTask(start, median), new BuildTask(median + 1, end));
+      }
+   }
+}
@@ -26,7 +26,7 @@ public class JFreePlot extends XYSeries
    
    public JFreePlot(DataBufferEntry xPlot, DataBufferEntry yPlot)
    {
-      this(xPlot.getData(), yPlot.getData());
+      this("plot", xPlot, yPlot);
    }
 
    public JFreePlot(double[] xPlot, double[] yPlot)
@@ -38,7 +38,7 @@ public class JFreePlot extends XYSeries
 
    public JFreePlot(DataBufferEntry xPlot, DataBufferEntry yPlot, boolean autoSort, boolean allowDuplicateXValues)
    {
-      this(xPlot.getData(), yPlot.getData(), autoSort, allowDuplicateXValues);
+      this("plot", xPlot, yPlot, autoSort, allowDuplicateXValues);
    }
 
    public JFreePlot(double[] xPlot, double[] yPlot, boolean autoSort, boolean allowDuplicateXValues)
@@ -48,7 +48,7 @@ public class JFreePlot extends XYSeries
 
    public JFreePlot(String name, DataBufferEntry xPlot, DataBufferEntry yPlot)
    {
-      this(name, xPlot.getData(), yPlot.getData());
+      this(name, xPlot, yPlot, true, false);
    }
 
    public JFreePlot(String name, double[] xPlot, double[] yPlot)
@@ -57,9 +57,14 @@ public class JFreePlot extends XYSeries
 
    }
 
+   /**
+    * Reads the data of the entries in place, without copying it.
+    */
    public JFreePlot(String name, DataBufferEntry xPlot, DataBufferEntry yPlot, boolean autoSort, boolean allowDuplicateXValues)
    {
-      this(name, xPlot.getData(), yPlot.getData(), autoSort, allowDuplicateXValues);
+      super(name, autoSort, allowDuplicateXValues);
+
+      createXYSeries(xPlot, yPlot);
    }
 
    public JFreePlot(String name, double[] xPlot, double[] yPlot, boolean autoSort, boolean allowDuplicateXValues)
@@ -101,6 +106,28 @@ public class JFreePlot extends XYSeries
 
    }
 
+   protected void createXYSeries(DataBufferEntry xData, DataBufferEntry yData)
+   {
+      if (xData.getDataLength() != yData.getDataLength())
+      {
+         throw new RuntimeException("xData.getDataLength() != yData.getDataLength()");
+      }
+
+      int numberDataPoints = xData.getDataLength();
+
+      try
+      {
+         for (int i = 1; i < numberDataPoints; i++)
+         {
+            add(xData.getDataPoint(i), yData.getDataPoint(i));
+         }
+      }
+      catch (Exception e)
+      {
+         System.err.println("Duplicate x value found, Trimming Graph at this location");
+      }
+   }
+
    public void setType(PlotTypes type)
    {
       this.type = type;
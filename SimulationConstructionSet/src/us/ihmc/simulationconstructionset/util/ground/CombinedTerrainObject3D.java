@@ -20,6 +20,8 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
    private ArrayList<TerrainObject3D> terrainObjects = new ArrayList<TerrainObject3D>();
    private Graphics3DObject linkGraphics;
 
+   private volatile TerrainObject3DGridIndex gridIndex = null;
+
    private final String name;
 
    private final Point3d tempPointToCheck = new Point3d();
@@ -126,7 +128,7 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
       addTerrainObject(box);
    }
 
-   public void addTerrainObject(TerrainObject3D object)
+   public synchronized void addTerrainObject(TerrainObject3D object)
    {
       terrainObjects.add(object);
       linkGraphics.combine(object.getLinkGraphics());
@@ -139,6 +141,8 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
       {
          boundingBox = BoundingBox3d.union(boundingBox, object.getBoundingBox());
       }
+
+      gridIndex = null;
    }
 
    public void addStaticLinkGraphics(Graphics3DObject linkGraphics)
@@ -156,6 +160,34 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
       return this.linkGraphics;
    }
 
+   /**
+    * Returns the indices of the terrain objects that can be close to (x, y), in the order they have been added. The grid
+    * index is rebuilt here after objects have been added, so adding objects between queries is supported but slow.
+    */
+   private int[] getCandidateTerrainObjects(double x, double y)
+   {
+      TerrainObject3DGridIndex gridIndex = this.gridIndex;
+      if (gridIndex == null || gridIndex.getNumberOfIndexedObjects() != terrainObjects.size())
+      {
+         gridIndex = rebuildGridIndex();
+      }
+
+      return gridIndex.getCandidates(x, y);
+   }
+
+   /**
+    * Queries can come from several simulation threads, only one of them builds the index and the others use it once published.
+    */
+   private synchronized TerrainObject3DGridIndex rebuildGridIndex()
+   {
+      if (gridIndex == null || gridIndex.getNumberOfIndexedObjects() != terrainObjects.size())
+      {
+         gridIndex = new TerrainObject3DGridIndex(terrainObjects);
+      }
+
+      return gridIndex;
+   }
+
    private final Point3d localIntersection = new Point3d();
    private final Vector3d localNormal = new Vector3d();
 
@@ -170,9 +202,10 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
       intersectionToPack.set(x, y, 0.0);
       normalToPack.set(0.0, 0.0, 1.0);
 
-      for (int i = 0; i < terrainObjects.size(); i++)
+      int[] candidates = getCandidateTerrainObjects(x, y);
+      for (int i = 0; i < candidates.length; i++)
       {
-         TerrainObject3D terrainObject = terrainObjects.get(i);
+         TerrainObject3D terrainObject = terrainObjects.get(candidates[i]);
          if (terrainObject.isClose(x, y, z))
          {
             boolean localIsInside = terrainObject.checkIfInside(x, y, z, localIntersection, localNormal);
@@ -273,9 +306,10 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
    {
       double heightAt = Double.NEGATIVE_INFINITY;
 
-      for (int i = 0; i < terrainObjects.size(); i++)
+      int[] candidates = getCandidateTerrainObjects(x, y);
+      for (int i = 0; i < candidates.length; i++)
       {
-         TerrainObject3D terrainObject = terrainObjects.get(i);
+         TerrainObject3D terrainObject = terrainObjects.get(candidates[i]);
 
          if (terrainObject.isClose(x, y, z))
          {
@@ -298,9 +332,10 @@ public class CombinedTerrainObject3D implements TerrainObject3D, HeightMapWithNo
    {
       double heightAt = Double.NEGATIVE_INFINITY;
 
-      for (int i = 0; i < terrainObjects.size(); i++)
+      int[] candidates = getCandidateTerrainObjects(x, y);
+      for (int i = 0; i < candidates.length; i++)
       {
-         TerrainObject3D terrainObject = terrainObjects.get(i);
+         TerrainObject3D terrainObject = terrainObjects.get(candidates[i]);
 
          if (terrainObject.isClose(x, y, z))
          {
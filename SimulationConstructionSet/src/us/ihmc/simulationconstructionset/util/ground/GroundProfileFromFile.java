@@ -15,7 +15,7 @@ import us.ihmc.graphics3DAdapter.graphics.appearances.YoAppearance;
 import us.ihmc.simulationconstructionset.Link;
 import us.ihmc.simulationconstructionset.Robot;
 import us.ihmc.simulationconstructionset.SimulationConstructionSet;
-import us.ihmc.simulationconstructionset.util.KDTree;
+import us.ihmc.simulationconstructionset.util.ImplicitKDTree;
 import us.ihmc.robotics.geometry.BoundingBox3d;
 import us.ihmc.robotics.geometry.RigidBodyTransform;
 
@@ -23,7 +23,8 @@ import us.ihmc.robotics.geometry.RigidBodyTransform;
 //Ground file must be a point cloud with 1 cm resolution
 public class GroundProfileFromFile extends GroundProfileFromHeightMap
 {
-   private KDTree kdTree;
+   private final ImplicitKDTree kdTree;
+   private final double[][] rawPoints;
    private final BoundingBox3d boundingBox;
 
    public static enum VariableType {X, Y, Z};
@@ -39,7 +40,7 @@ public class GroundProfileFromFile extends GroundProfileFromHeightMap
    }
 
    /**
-    * Creates a KDTree from an array of (X, Y) terrain points and an equally sized array of
+    * Creates an ImplicitKDTree from an array of (X, Y) terrain points and an equally sized array of
     * (Z) terrain heights.  The value MaxPointsInLeaves specifies the maximum number of
     * points in a leaf Node.   Use a small value (5-20) unless building the
     * tree takes too long.
@@ -49,20 +50,20 @@ public class GroundProfileFromFile extends GroundProfileFromHeightMap
     */
    public GroundProfileFromFile(String BDITerrainFilePath, int maxPointsInLeaves, RigidBodyTransform transform3D, VariableType[] variableOrder)
    {
-      double[][] rawPoints = loadPoints3D(BDITerrainFilePath, transform3D, variableOrder);
+      rawPoints = loadPoints3D(BDITerrainFilePath, transform3D, variableOrder);
 
       // for(int i=0; i<rawPoints.length; i++)
       // {
       // System.out.println("(" + rawPoints[i][0] + ", " + rawPoints[i][1] + ", " + rawPoints[i][2] + ")");
       // }
 
-      double[][] XYpoints = new double[rawPoints.length][2];
+      double[] XYpoints = new double[2 * rawPoints.length];
 
       // Copy X,Y data components to allow for (X,Y) queries.
       for (int i = 0; i < rawPoints.length; i++)
       {
-         XYpoints[i][0] = rawPoints[i][0];
-         XYpoints[i][1] = rawPoints[i][1];
+         XYpoints[2 * i] = rawPoints[i][0];
+         XYpoints[2 * i + 1] = rawPoints[i][1];
       }
 
       double xMin, yMin, zMin;
@@ -72,16 +73,16 @@ public class GroundProfileFromFile extends GroundProfileFromHeightMap
       xMin = yMin = zMin = Double.POSITIVE_INFINITY;
       xMax = yMax = zMax = Double.NEGATIVE_INFINITY;
 
-      for (int i = 0; i < XYpoints.length; i++)
+      for (int i = 0; i < rawPoints.length; i++)
       {
-         if (XYpoints[i][0] < xMin)
-            xMin = XYpoints[i][0];
-         if (XYpoints[i][0] > xMax)
-            xMax = XYpoints[i][0];
-         if (XYpoints[i][1] < yMin)
-            yMin = XYpoints[i][1];
-         if (XYpoints[i][1] > yMax)
-            yMax = XYpoints[i][1];
+         if (rawPoints[i][0] < xMin)
+            xMin = rawPoints[i][0];
+         if (rawPoints[i][0] > xMax)
+            xMax = rawPoints[i][0];
+         if (rawPoints[i][1] < yMin)
+            yMin = rawPoints[i][1];
+         if (rawPoints[i][1] > yMax)
+            yMax = rawPoints[i][1];
          if (rawPoints[i][2] < zMin)
             zMin = rawPoints[i][2];
          if (rawPoints[i][2] > zMax)
@@ -92,7 +93,7 @@ public class GroundProfileFromFile extends GroundProfileFromHeightMap
       
       System.out.println(BDITerrainFilePath + ": " + "(" + xMin + ", " + yMin + ", " + zMin + ") (" + xMax + ", " + yMax + ", " + zMax + ")");
 
-      kdTree = new KDTree(XYpoints, rawPoints, maxPointsInLeaves);
+      kdTree = new ImplicitKDTree(XYpoints, 2, maxPointsInLeaves, 1);
    }
 
 
@@ -240,13 +241,12 @@ public class GroundProfileFromFile extends GroundProfileFromHeightMap
       // double[] query = new double[]{x, y};
       query[0] = x;
       query[1] = y;
-      double[] closest = (double[]) kdTree.closestObject(query, 0.02);    // At most can be 2 cm away. Otherwise return 0.0;
+      int closestIndex = kdTree.closestPointIndex(query, 0.01);    // At most can be 1 cm away. Otherwise return 0.0;
 
-      // if (closest == null) System.out.println(x + ", " + y);
-      if ((closest == null) || (KDTree.distanceSquared(query, new double[] {closest[0], closest[1]}) > 0.01 * 0.01))
+      if (closestIndex == -1)
          return 0.0;
 
-      return closest[2];
+      return rawPoints[closestIndex][2];
    }
 
    /*
@@ -0,0 +1,238 @@
+package us.ihmc.simulationconstructionset.util.ground;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import us.ihmc.robotics.geometry.BoundingBox3d;
+
+/**
+ * Uniform XY grid over the bounding boxes of a list of terrain objects, used by {@link CombinedTerrainObject3D} to only
+ * check the objects that can be close to a query point.
+ *
+ * Every cell holds the indices of the objects whose bounding box overlaps the cell, in increasing order, so going through
+ * the candidates of a cell gives the same result as going through the whole list. This relies on
+ * {@link TerrainObject3D#isClose(double, double, double)} being false outside the XY extent of the bounding box of the object,
+ * so only the classes known to do so are put in the grid. Their bounding box also has to stay the same after the object has
+ * been added, which rules out nested {@link CombinedTerrainObject3D}s.
+ *
+ * The other objects, objects without a finite bounding box, and objects spanning more than half of the grid, are added to
+ * every cell and are also returned for query points outside of the grid.
+ *
+ * The index does not change once built, so it can be queried from several threads.
+ */
+public class TerrainObject3DGridIndex
+{
+   private static final int MAXIMUM_NUMBER_OF_CELLS_PER_AXIS = 1024;
+
+   /**
+    * Classes whose isClose is false outside the XY extent of their bounding box, and whose bounding box is set at construction.
+    * Subclasses are not in here since they can override isClose.
+    */
+   private static final HashSet<Class<?>> boundingBoxConsistentClasses = new HashSet<Class<?>>(Arrays.<Class<?>> asList(BoxTerrainObject.class,
+         RotatableBoxTerrainObject.class, RotatableTableTerrainObject.class, SphereTerrainObject.class, CylinderTerrainObject.class,
+         ConeTerrainObject.class, RampTerrainObject.class, RotatableRampTerrainObject.class, SimpleTableTerrainObject.class,
+         RotatableConvexPolygonTerrainObject.class, BalanceBeamTerrainObject.class));
+
+   private final int numberOfIndexedObjects;
+
+   private double xMin, yMin, xMax, yMax;
+   private double cellSizeX, cellSizeY;
+   private int numberOfCellsX = 0, numberOfCellsY = 0;
+
+   private int[][] cells;
+   private int[] globalObjects;
+
+   public TerrainObject3DGridIndex(List<? extends TerrainObject3D> terrainObjects)
+   {
+      numberOfIndexedObjects = terrainObjects.size();
+      build(terrainObjects);
+   }
+
+   /**
+    * @return the number of objects the index has been built with
+    */
+   public int getNumberOfIndexedObjects()
+   {
+      return numberOfIndexedObjects;
+   }
+
+   private void build(List<? extends TerrainObject3D> terrainObjects)
+   {
+      int numberOfObjects = numberOfIndexedObjects;
+      boolean[] isGlobal = new boolean[numberOfObjects];
+      for (int i = 0; i < numberOfObjects; i++)
+      {
+         isGlobal[i] = !boundingBoxConsistentClasses.contains(terrainObjects.get(i).getClass());
+      }
+
+      // First pass: bounds of all finite boxes, to find the objects that cover most of the area, like ground planes
+      computeBounds(terrainObjects, isGlobal);
+      double fullWidth = xMax - xMin;
+      double fullHeight = yMax - yMin;
+      for (int i = 0; i < numberOfObjects; i++)
+      {
+         BoundingBox3d boundingBox = terrainObjects.get(i).getBoundingBox();
+         if (!isGlobal[i] && numberOfObjects > 1)
+         {
+            double width = boundingBox.getXMax() - boundingBox.getXMin();
+            double height = boundingBox.getYMax() - boundingBox.getYMin();
+            isGlobal[i] = (width > 0.5 * fullWidth && fullWidth > 0.0) || (height > 0.5 * fullHeight && fullHeight > 0.0);
+         }
+      }
+
+      // Second pass: grid over the remaining objects
+      int numberOfGridObjects = computeBounds(terrainObjects, isGlobal);
+
+      int numberOfGlobalObjects = 0;
+      for (int i = 0; i < numberOfObjects; i++)
+      {
+         if (isGlobal[i])
+            numberOfGlobalObjects++;
+      }
+      globalObjects = new int[numberOfGlobalObjects];
+      for (int i = 0, j = 0; i < numberOfObjects; i++)
+      {
+         if (isGlobal[i])
+            globalObjects[j++] = i;
+      }
+
+      if (numberOfGridObjects == 0)
+      {
+         numberOfCellsX = 0;
+         numberOfCellsY = 0;
+         cells = new int[0][];
+         return;
+      }
+
+      // Aim for about one object per cell
+      double width = xMax - xMin;
+      double height = yMax - yMin;
+      double cellSize = Math.sqrt(width * height / numberOfGridObjects);
+      numberOfCellsX = computeNumberOfCells(width, cellSize);
+      numberOfCellsY = computeNumberOfCells(height, cellSize);
+      cellSizeX = numberOfCellsX > 1 ? width / numberOfCellsX : Double.POSITIVE_INFINITY;
+      cellSizeY = numberOfCellsY > 1 ? height / numberOfCellsY : Double.POSITIVE_INFINITY;
+
+      int[] cellSizes = new int[numberOfCellsX * numberOfCellsY];
+      cells = new int[cellSizes.length][];
+
+      for (int pass = 0; pass < 2; pass++)
+      {
+         if (pass == 1)
+         {
+            for (int cell = 0; cell < cells.length; cell++)
+            {
+               cells[cell] = new int[cellSizes[cell]];
+               cellSizes[cell] = 0;
+            }
+         }
+
+         for (int i = 0; i < numberOfObjects; i++)
+         {
+            int xStart, xEnd, yStart, yEnd;
+            if (isGlobal[i])
+            {
+               xStart = 0;
+               yStart = 0;
+               xEnd = numberOfCellsX - 1;
+               yEnd = numberOfCellsY - 1;
+            }
+            else
+            {
+               BoundingBox3d boundingBox = terrainObjects.get(i).getBoundingBox();
+               xStart = getCellX(boundingBox.getXMin());
+               xEnd = getCellX(boundingBox.getXMax());
+               yStart = getCellY(boundingBox.getYMin());
+               yEnd = getCellY(boundingBox.getYMax());
+            }
+
+            for (int cellX = xStart; cellX <= xEnd; cellX++)
+            {
+               for (int cellY = yStart; cellY <= yEnd; cellY++)
+               {
+                  int cell = cellX * numberOfCellsY + cellY;
+                  if (pass == 1)
+                     cells[cell][cellSizes[cell]] = i;
+                  cellSizes[cell]++;
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Sets the grid bounds to the union of the XY extents of the finite, non global boxes, and marks the objects without
+    * a finite box as global.
+    *
+    * @return the number of objects in the bounds
+    */
+   private int computeBounds(List<? extends TerrainObject3D> terrainObjects, boolean[] isGlobal)
+   {
+      xMin = Double.POSITIVE_INFINITY;
+      yMin = Double.POSITIVE_INFINITY;
+      xMax = Double.NEGATIVE_INFINITY;
+      yMax = Double.NEGATIVE_INFINITY;
+
+      int numberOfObjectsInBounds = 0;
+      for (int i = 0; i < terrainObjects.size(); i++)
+      {
+         if (isGlobal[i])
+            continue;
+
+         BoundingBox3d boundingBox = terrainObjects.get(i).getBoundingBox();
+         if (boundingBox == null || !isFinite(boundingBox.getXMin()) || !isFinite(boundingBox.getXMax()) || !isFinite(boundingBox.getYMin())
+               || !isFinite(boundingBox.getYMax()))
+         {
+            isGlobal[i] = true;
+            continue;
+         }
+
+         xMin = Math.min(xMin, boundingBox.getXMin());
+         yMin = Math.min(yMin, boundingBox.getYMin());
+         xMax = Math.max(xMax, boundingBox.getXMax());
+         yMax = Math.max(yMax, boundingBox.getYMax());
+         numberOfObjectsInBounds++;
+      }
+
+      return numberOfObjectsInBounds;
+   }
+
+   private static boolean isFinite(double value)
+   {
+      return !Double.isNaN(value) && !Double.isInfinite(value);
+   }
+
+   private static int computeNumberOfCells(double length, double cellSize)
+   {
+      if (!(cellSize > 0.0) || !(length > 0.0))
+         return 1;
+
+      double numberOfCells = Math.ceil(length / cellSize);
+      return (int) Math.max(1.0, Math.min(MAXIMUM_NUMBER_OF_CELLS_PER_AXIS, numberOfCells));
+   }
+
+   private int getCellX(double x)
+   {
+      int cell = (int) ((x - xMin) / cellSizeX);
+      return Math.max(0, Math.min(numberOfCellsX - 1, cell));
+   }
+
+   private int getCellY(double y)
+   {
+      int cell = (int) ((y - yMin) / cellSizeY);
+      return Math.max(0, Math.min(numberOfCellsY - 1, cell));
+   }
+
+   /**
+    * Returns the indices of the objects that can be close to the given point, in increasing order. Do not modify the
+    * returned array.
+    */
+   public int[] getCandidates(double x, double y)
+   {
+      if (numberOfCellsX == 0 || x < xMin || x > xMax || y < yMin || y > yMax)
+         return globalObjects;
+
+      return cells[getCellX(x) * numberOfCellsY + getCellY(y)];
+   }
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
@@ -698,4 +699,95 @@ public class DataBufferTest
     }
 
 
+
+	@DeployableTestMethod(estimatedDuration = 0.1)
+	@Test(timeout=300000)
+   public void testPackedStorageMatchesHeapStorage() throws RepeatDataBufferEntryException
+   {
+      Random random = new Random(1776L);
+      ArrayList<YoVariable<?>> variables = new ArrayList<YoVariable<?>>();
+      variables.add(doubleYoVariable);
+      variables.add(booleanYoVariable);
+      variables.add(integerYoVariable);
+      variables.add(enumYoVariable);
+      variables.add(a);
+
+      DataBuffer heapDataBuffer = new DataBuffer(testBufferSize);
+      DataBuffer packedDataBuffer = new DataBuffer(testBufferSize);
+      heapDataBuffer.setMaxBufferSize(1000);
+      packedDataBuffer.setMaxBufferSize(1000);
+
+      // Add some variables before and some after enabling the packed storage
+      heapDataBuffer.addVariables(variables);
+      packedDataBuffer.addVariable(doubleYoVariable);
+      packedDataBuffer.addVariable(booleanYoVariable);
+      packedDataBuffer.enablePackedStorage(false);
+      packedDataBuffer.addVariable(integerYoVariable);
+      packedDataBuffer.addVariable(enumYoVariable);
+      packedDataBuffer.addVariable(a);
+      assertTrue(packedDataBuffer.isPackedStorageEnabled());
+      assertEquals(testBufferSize * (8 + 1 + 4 + 4 + 8), packedDataBuffer.getPackedStorageSizeInBytes());
+
+      for (int i = 0; i < 250; i++)
+      {
+         doubleYoVariable.set(random.nextGaussian());
+         booleanYoVariable.set(random.nextBoolean());
+         integerYoVariable.set(random.nextInt());
+         enumYoVariable.set(random.nextBoolean() ? EnumYoVariableTestEnums.ONE : EnumYoVariableTestEnums.TWO);
+         a.set(random.nextDouble());
+
+         heapDataBuffer.tickAndUpdate();
+         packedDataBuffer.tickAndUpdate();
+      }
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+
+      heapDataBuffer.cropData(30, 20);
+      packedDataBuffer.cropData(30, 20);
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+
+      heapDataBuffer.packData(17);
+      packedDataBuffer.packData(17);
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+
+      heapDataBuffer.cutData(40, 60);
+      packedDataBuffer.cutData(40, 60);
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+
+      heapDataBuffer.thinData(3);
+      packedDataBuffer.thinData(3);
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+
+      heapDataBuffer.changeBufferSize(heapDataBuffer.getBufferSize() * 2);
+      packedDataBuffer.changeBufferSize(packedDataBuffer.getBufferSize() * 2);
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+
+      heapDataBuffer.copyValuesThrough();
+      packedDataBuffer.copyValuesThrough();
+      assertDataBuffersEqual(heapDataBuffer, packedDataBuffer);
+   }
+
+   private void assertDataBuffersEqual(DataBuffer expected, DataBuffer actual)
+   {
+      assertEquals(expected.getBufferSize(), actual.getBufferSize());
+      assertEquals(expected.getInPoint(), actual.getInPoint());
+      assertEquals(expected.getOutPoint(), actual.getOutPoint());
+      assertEquals(expected.getIndex(), actual.getIndex());
+
+      for (YoVariable<?> variable : expected.getVariables())
+      {
+         DataBufferEntry expectedEntry = expected.getEntry(variable);
+         DataBufferEntry actualEntry = actual.getEntry(variable);
+         assertTrue(actualEntry.isPacked());
+
+         double[] expectedData = expectedEntry.getData();
+         double[] actualData = actualEntry.getData();
+         assertEquals(expectedData.length, actualData.length);
+         assertEquals(expectedData.length, actualEntry.getDataLength());
+         for (int i = 0; i < expectedData.length; i++)
+         {
+            assertEquals(expectedData[i], actualData[i], 0.0);
+            assertEquals(expectedData[i], actualEntry.getDataPoint(i), 0.0);
+         }
+      }
+   }
 }
@@ -0,0 +1,68 @@
+package us.ihmc.simulationconstructionset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import us.ihmc.simulationconstructionset.synchronization.SimulationSynchronizer;
+import us.ihmc.simulationconstructionset.testSimulations.PendulumChain;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class SimulatorParallelSteppingTest
+{
+   private static final int NUMBER_OF_ROBOTS = 6;
+   private static final int NUMBER_OF_JOINTS = 5;
+   private static final double DT = 0.0001;
+
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testParallelSteppingMatchesSerialStepping() throws UnreasonableAccelerationException
+   {
+      ArrayList<PinJoint> serialJoints = new ArrayList<PinJoint>();
+      ArrayList<PinJoint> parallelJoints = new ArrayList<PinJoint>();
+      Robot[] serialRobots = createRobots(new Random(1776L), serialJoints);
+      Robot[] parallelRobots = createRobots(new Random(1776L), parallelJoints);
+
+      Simulator serialSimulator = new Simulator(new SimulationSynchronizer(), serialRobots, DT);
+      Simulator parallelSimulator = new Simulator(new SimulationSynchronizer(), parallelRobots, DT);
+      parallelSimulator.setParallelStepping(4);
+      assertTrue(parallelSimulator.isParallelSteppingEnabled());
+
+      for (int tick = 0; tick < 2000; tick++)
+      {
+         serialSimulator.simulate();
+         parallelSimulator.simulate();
+      }
+      parallelSimulator.setParallelStepping(1);
+
+      for (int i = 0; i < serialJoints.size(); i++)
+      {
+         assertEquals(serialJoints.get(i).getQ().getDoubleValue(), parallelJoints.get(i).getQ().getDoubleValue(), 0.0);
+         assertEquals(serialJoints.get(i).getQD().getDoubleValue(), parallelJoints.get(i).getQD().getDoubleValue(), 0.0);
+      }
+
+      for (int i = 0; i < serialRobots.length; i++)
+      {
+         assertEquals(serialRobots[i].getTime(), parallelRobots[i].getTime(), 0.0);
+      }
+   }
+
+   private static Robot[] createRobots(Random random, ArrayList<PinJoint> allJoints)
+   {
+      Robot[] robots = new Robot[NUMBER_OF_ROBOTS];
+      for (int i = 0; i < NUMBER_OF_ROBOTS; i++)
+      {
+         PendulumChain chain = new PendulumChain("chain" + i, NUMBER_OF_JOINTS, 0.5, 1.0, 0.0, 0.5, 0.5, random);
+         allJoints.addAll(chain.getJoints());
+         robots[i] = chain;
+      }
+      return robots;
+   }
+}
@@ -0,0 +1,186 @@
+package us.ihmc.simulationconstructionset.dataBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import us.ihmc.simulationconstructionset.dataBuffer.PackedDataBufferStorage.Encoding;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class PackedDataBufferStorageTest
+{
+   // Small slabs, so the records of the tests span many slabs
+   private static final int SLAB_SIZE = 64;
+
+   @DeployableTestMethod(estimatedDuration = 0.0)
+   @Test(timeout = 30000)
+   public void testEncodings()
+   {
+      PackedDataBufferStorage storage = new PackedDataBufferStorage(10, SLAB_SIZE);
+      int doubleColumn = storage.addColumn(Encoding.DOUBLE);
+      int floatColumn = storage.addColumn(Encoding.FLOAT);
+      int longColumn = storage.addColumn(Encoding.LONG);
+      int intColumn = storage.addColumn(Encoding.INT);
+      int byteColumn = storage.addColumn(Encoding.BYTE);
+      assertEquals(10 * (8 + 4 + 8 + 4 + 1), storage.getSizeInBytes());
+
+      for (int i = 0; i < 10; i++)
+      {
+         storage.set(doubleColumn, i, Math.PI * i);
+         storage.set(floatColumn, i, Math.PI * i);
+         storage.set(longColumn, i, 1L << (40 + i));
+         storage.set(intColumn, i, -i);
+         storage.set(byteColumn, i, i % 2);
+      }
+
+      for (int i = 0; i < 10; i++)
+      {
+         assertEquals(Math.PI * i, storage.get(doubleColumn, i), 0.0);
+         assertEquals((float) (Math.PI * i), storage.get(floatColumn, i), 0.0);
+         assertEquals(1L << (40 + i), storage.get(longColumn, i), 0.0);
+         assertEquals(-i, storage.get(intColumn, i), 0.0);
+         assertEquals(i % 2, storage.get(byteColumn, i), 0.0);
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.0)
+   @Test(timeout = 30000)
+   public void testAddColumnKeepsData()
+   {
+      PackedDataBufferStorage storage = new PackedDataBufferStorage(20, SLAB_SIZE);
+      int first = storage.addColumn(Encoding.DOUBLE);
+      fillWithIndices(storage, first, 0.0);
+
+      int second = storage.addColumn(Encoding.INT);
+      for (int i = 0; i < 20; i++)
+      {
+         assertEquals(i, storage.get(first, i), 0.0);
+         assertEquals(0.0, storage.get(second, i), 0.0);
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.0)
+   @Test(timeout = 30000)
+   public void testBulkOperations()
+   {
+      PackedDataBufferStorage storage = createStorage(20);
+      storage.enlarge(47);
+      assertEquals(47, storage.getBufferSize());
+      for (int i = 0; i < 47; i++)
+      {
+         assertColumnsEqual(storage, i, Math.min(i, 19));
+      }
+
+      storage = createStorage(20);
+      assertEquals(10, storage.crop(15, 4));
+      for (int i = 0; i < 10; i++)
+      {
+         assertColumnsEqual(storage, i, (15 + i) % 20);
+      }
+
+      storage = createStorage(20);
+      storage.pack(7);
+      for (int i = 0; i < 20; i++)
+      {
+         assertColumnsEqual(storage, i, (7 + i) % 20);
+      }
+
+      storage = createStorage(20);
+      assertEquals(14, storage.cut(5, 10));
+      for (int i = 0; i < 14; i++)
+      {
+         assertColumnsEqual(storage, i, i < 5 ? i : i + 6);
+      }
+
+      storage = createStorage(20);
+      assertEquals(6, storage.thin(3));
+      for (int i = 0; i < 6; i++)
+      {
+         assertColumnsEqual(storage, i, 3 * i);
+      }
+
+      storage.clear(30);
+      assertEquals(30, storage.getBufferSize());
+      for (int i = 0; i < 30; i++)
+      {
+         assertEquals(0.0, storage.get(0, i), 0.0);
+         assertEquals(0.0, storage.get(1, i), 0.0);
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testReadWhileAddingColumns() throws InterruptedException
+   {
+      final PackedDataBufferStorage storage = new PackedDataBufferStorage(50, SLAB_SIZE);
+      final int column = storage.addColumn(Encoding.DOUBLE);
+      storage.fillColumn(column, 42.0);
+
+      final AtomicBoolean done = new AtomicBoolean(false);
+      final AtomicReference<Throwable> failure = new AtomicReference<>();
+      Thread reader = new Thread(new Runnable()
+      {
+         @Override
+         public void run()
+         {
+            try
+            {
+               while (!done.get())
+               {
+                  for (int i = 0; i < 50; i++)
+                  {
+                     double value = storage.get(column, i);
+                     if (value != 42.0)
+                        throw new AssertionError("Read " + value + " at " + i);
+                  }
+               }
+            }
+            catch (Throwable t)
+            {
+               failure.set(t);
+            }
+         }
+      });
+      reader.start();
+
+      // Every new column changes the record size and the slabs
+      for (int i = 0; i < 2000; i++)
+      {
+         storage.addColumn(i % 2 == 0 ? Encoding.BYTE : Encoding.FLOAT);
+         storage.get(i + 1, 0);
+      }
+
+      done.set(true);
+      reader.join();
+      assertNull(failure.get());
+   }
+
+   private static PackedDataBufferStorage createStorage(int bufferSize)
+   {
+      PackedDataBufferStorage storage = new PackedDataBufferStorage(bufferSize, SLAB_SIZE);
+      fillWithIndices(storage, storage.addColumn(Encoding.DOUBLE), 0.0);
+      fillWithIndices(storage, storage.addColumn(Encoding.BYTE), 100.0);
+      return storage;
+   }
+
+   private static void fillWithIndices(PackedDataBufferStorage storage, int column, double offset)
+   {
+      for (int i = 0; i < storage.getBufferSize(); i++)
+      {
+         storage.set(column, i, i - offset);
+      }
+   }
+
+   private static void assertColumnsEqual(PackedDataBufferStorage storage, int index, int originalIndex)
+   {
+      assertEquals(originalIndex, storage.get(0, index), 0.0);
+      assertEquals(originalIndex - 100.0, storage.get(1, index), 0.0);
+   }
+}
@@ -0,0 +1,112 @@
+package us.ihmc.simulationconstructionset.microbenchmarks;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import us.ihmc.simulationconstructionset.util.ImplicitKDTree;
+import us.ihmc.simulationconstructionset.util.KDTree;
+
+/**
+ * Compares {@link KDTree} and {@link ImplicitKDTree} on a cloud of one million 3D points:
+ * build time, closest point queries, and 8 closest points queries.
+ */
+public class BenchmarkKDTree
+{
+   private static final int NUMBER_OF_POINTS = 1000000;
+   private static final int NUMBER_OF_QUERIES = 1000000;
+   private static final int NUMBER_OF_CLOSEST_POINTS_QUERIES = 100000;
+   private static final int NUMBER_OF_CLOSEST_POINTS = 8;
+   private static final int MAX_POINTS_IN_LEAVES = 10;
+   private static final int NUMBER_OF_RUNS = 5;
+
+   private static double checksum = 0.0;
+
+   public static void main(String[] args)
+   {
+      Random random = new Random(1776L);
+      double[][] points = new double[NUMBER_OF_POINTS][3];
+      double[] coordinates = new double[3 * NUMBER_OF_POINTS];
+      for (int i = 0; i < NUMBER_OF_POINTS; i++)
+      {
+         // Terrain like cloud, spread in x and y
+         points[i][0] = 20.0 * random.nextDouble();
+         points[i][1] = 20.0 * random.nextDouble();
+         points[i][2] = 0.1 * Math.sin(points[i][0]) * Math.cos(points[i][1]);
+         System.arraycopy(points[i], 0, coordinates, 3 * i, 3);
+      }
+
+      double[][] queries = new double[NUMBER_OF_QUERIES][];
+      for (int i = 0; i < NUMBER_OF_QUERIES; i++)
+      {
+         queries[i] = new double[] {20.0 * random.nextDouble(), 20.0 * random.nextDouble(), 0.0};
+      }
+
+      int numberOfThreads = Runtime.getRuntime().availableProcessors();
+      System.out.println(NUMBER_OF_POINTS + " points, " + numberOfThreads + " threads for the parallel build");
+      System.out.println("run\tKDTree build [ms]\tImplicit build [ms]\tparallel build [ms]\tKDTree closest [ns]\tImplicit closest [ns]\tKDTree 8 closest [ns]\tImplicit 8 closest [ns]");
+
+      for (int run = 0; run < NUMBER_OF_RUNS; run++)
+      {
+         long startTime = System.nanoTime();
+         KDTree kdTree = new KDTree(copy(points), MAX_POINTS_IN_LEAVES);
+         double kdTreeBuildTime = (System.nanoTime() - startTime) / 1e6;
+
+         startTime = System.nanoTime();
+         ImplicitKDTree implicitKDTree = new ImplicitKDTree(coordinates, 3, MAX_POINTS_IN_LEAVES, 1);
+         double implicitBuildTime = (System.nanoTime() - startTime) / 1e6;
+
+         startTime = System.nanoTime();
+         implicitKDTree = new ImplicitKDTree(coordinates, 3, MAX_POINTS_IN_LEAVES, numberOfThreads);
+         double parallelBuildTime = (System.nanoTime() - startTime) / 1e6;
+
+         startTime = System.nanoTime();
+         for (double[] query : queries)
+         {
+            checksum += kdTree.closestPoint(query)[2];
+         }
+         double kdTreeQueryTime = (System.nanoTime() - startTime) / (double) NUMBER_OF_QUERIES;
+
+         startTime = System.nanoTime();
+         for (double[] query : queries)
+         {
+            checksum += coordinates[3 * implicitKDTree.closestPointIndex(query) + 2];
+         }
+         double implicitQueryTime = (System.nanoTime() - startTime) / (double) NUMBER_OF_QUERIES;
+
+         startTime = System.nanoTime();
+         for (int i = 0; i < NUMBER_OF_CLOSEST_POINTS_QUERIES; i++)
+         {
+            ArrayList<double[]> closestPoints = kdTree.closestPoints(queries[i], NUMBER_OF_CLOSEST_POINTS, Double.POSITIVE_INFINITY);
+            checksum += closestPoints.get(closestPoints.size() - 1)[2];
+         }
+         double kdTreeClosestPointsTime = (System.nanoTime() - startTime) / (double) NUMBER_OF_CLOSEST_POINTS_QUERIES;
+
+         int[] indices = new int[NUMBER_OF_CLOSEST_POINTS];
+         double[] distancesSquared = new double[NUMBER_OF_CLOSEST_POINTS];
+         startTime = System.nanoTime();
+         for (int i = 0; i < NUMBER_OF_CLOSEST_POINTS_QUERIES; i++)
+         {
+            int numberFound = implicitKDTree.closestPointIndices(queries[i], Double.POSITIVE_INFINITY, indices, distancesSquared);
+            checksum += coordinates[3 * indices[numberFound - 1] + 2];
+         }
+         double implicitClosestPointsTime = (System.nanoTime() - startTime) / (double) NUMBER_OF_CLOSEST_POINTS_QUERIES;
+
+         System.out.println(run + "\t" + kdTreeBuildTime + "\t" + implicitBuildTime + "\t" + parallelBuildTime + "\t" + kdTreeQueryTime + "\t"
+               + implicitQueryTime + "\t" + kdTreeClosestPointsTime + "\t" + implicitClosestPointsTime);
+      }
+
+      System.out.println("checksum: " + checksum);
+   }
+
+   // KDTree reorders the array it is given
+   private static double[][] copy(double[][] points)
+   {
+      double[][] copy = new double[points.length][];
+      for (int i = 0; i < points.length; i++)
+      {
+         copy[i] = points[i].clone();
+      }
+
+      return copy;
+   }
+}
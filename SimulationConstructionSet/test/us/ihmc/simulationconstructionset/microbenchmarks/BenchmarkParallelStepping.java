@@ -0,0 +1,55 @@
+package us.ihmc.simulationconstructionset.microbenchmarks;
+
+import java.util.Random;
+
+import us.ihmc.simulationconstructionset.Robot;
+import us.ihmc.simulationconstructionset.Simulation;
+import us.ihmc.simulationconstructionset.UnreasonableAccelerationException;
+import us.ihmc.simulationconstructionset.testSimulations.PendulumChain;
+
+/**
+ * Compares serial and parallel stepping of independent pendulum chains for an increasing number of robots.
+ */
+public class BenchmarkParallelStepping
+{
+   private static final int NUMBER_OF_JOINTS = 30;
+   private static final int WARMUP_TICKS = 2000;
+   private static final int TICKS = 10000;
+   private static final int[] NUMBER_OF_ROBOTS = {1, 2, 4, 8, 16, 32};
+
+   public static void main(String[] args) throws UnreasonableAccelerationException
+   {
+      int numberOfThreads = Runtime.getRuntime().availableProcessors();
+      System.out.println("Parallel stepping on " + numberOfThreads + " threads, " + NUMBER_OF_JOINTS + " joints per robot");
+      System.out.println("robots\tserial [ms]\tparallel [ms]\tspeedup");
+
+      for (int numberOfRobots : NUMBER_OF_ROBOTS)
+      {
+         double serialTime = timeSimulation(numberOfRobots, 1);
+         double parallelTime = timeSimulation(numberOfRobots, numberOfThreads);
+         System.out.println(numberOfRobots + "\t" + serialTime + "\t" + parallelTime + "\t" + serialTime / parallelTime);
+      }
+   }
+
+   private static double timeSimulation(int numberOfRobots, int numberOfThreads) throws UnreasonableAccelerationException
+   {
+      Random random = new Random(1776L);
+      Robot[] robots = new Robot[numberOfRobots];
+      for (int i = 0; i < numberOfRobots; i++)
+      {
+         robots[i] = new PendulumChain("chain" + i, NUMBER_OF_JOINTS, 0.1, 0.1, 0.1, 0.1, 0.0, random);
+      }
+
+      Simulation simulation = new Simulation(robots, 16);
+      simulation.setDT(0.0001, 10);
+      simulation.setParallelStepping(numberOfThreads);
+
+      simulation.simulate(WARMUP_TICKS);
+      long startTime = System.nanoTime();
+      simulation.simulate(TICKS);
+      double time = (System.nanoTime() - startTime) / 1e6;
+
+      simulation.closeAndDispose();
+      return time;
+   }
+}
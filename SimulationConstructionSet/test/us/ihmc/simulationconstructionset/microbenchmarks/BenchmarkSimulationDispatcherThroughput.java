@@ -0,0 +1,113 @@
+package us.ihmc.simulationconstructionset.microbenchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+
+import us.ihmc.simulationconstructionset.simulationDispatcher.client.DispatchDoneListener;
+import us.ihmc.simulationconstructionset.simulationDispatcher.client.SimulationDispatcher;
+import us.ihmc.simulationconstructionset.simulationDispatcher.client.SimulationToDispatch;
+import us.ihmc.simulationconstructionset.simulationDispatcher.client.TestDescription;
+import us.ihmc.simulationconstructionset.simulationDispatcher.server.SimulationJobServer;
+
+/**
+ * Dispatcher throughput in jobs per second with empty jobs, to several SimulationJobServer processes on localhost,
+ * for an increasing number of jobs queued on each worker. No queued jobs means one round trip per job.
+ */
+public class BenchmarkSimulationDispatcherThroughput
+{
+   private static final int NUMBER_OF_WORKER_PROCESSES = 4;
+   private static final int NUMBER_OF_SLOTS_PER_WORKER = 2;
+   private static final int NUMBER_OF_JOBS = 20000;
+   private static final int[] NUMBER_OF_QUEUED_JOBS_PER_HOST = {0, 1, 4, 16, 64};
+
+   public static void main(String[] args) throws Exception
+   {
+      Process[] workers = new Process[NUMBER_OF_WORKER_PROCESSES];
+      String[] hostNames = new String[NUMBER_OF_WORKER_PROCESSES];
+
+      for (int i = 0; i < NUMBER_OF_WORKER_PROCESSES; i++)
+      {
+         int port = findFreePort();
+         workers[i] = startWorkerProcess(port);
+         hostNames[i] = "localhost:" + port;
+      }
+
+      try
+      {
+         System.out.println(NUMBER_OF_WORKER_PROCESSES + " worker processes with " + NUMBER_OF_SLOTS_PER_WORKER + " slots, " + NUMBER_OF_JOBS + " jobs per run");
+         System.out.println("queued jobs per host\tjobs per second");
+
+         for (int numberOfQueuedJobsPerHost : NUMBER_OF_QUEUED_JOBS_PER_HOST)
+         {
+            SimulationDispatcher dispatcher = new SimulationDispatcher(hostNames, false);
+            dispatcher.setNumberOfQueuedJobsPerHost(numberOfQueuedJobsPerHost);
+            dispatcher.setKeepDoneSimulations(false);
+
+            // Warm up the connections and the description caches of the workers
+            runJobs(dispatcher, NUMBER_OF_JOBS / 10);
+
+            long startTime = System.nanoTime();
+            runJobs(dispatcher, NUMBER_OF_JOBS);
+            double elapsedSeconds = (System.nanoTime() - startTime) / 1e9;
+
+            System.out.println(numberOfQueuedJobsPerHost + "\t" + NUMBER_OF_JOBS / elapsedSeconds);
+            dispatcher.close();
+         }
+      }
+      finally
+      {
+         for (Process worker : workers)
+         {
+            worker.destroy();
+         }
+      }
+   }
+
+   private static void runJobs(SimulationDispatcher dispatcher, int numberOfJobs) throws InterruptedException
+   {
+      final CountDownLatch jobsDone = new CountDownLatch(numberOfJobs);
+      DispatchDoneListener listener = new DispatchDoneListener()
+      {
+         public void dispatchDone(SimulationToDispatch dispatchSim, double[] finalState)
+         {
+            jobsDone.countDown();
+         }
+      };
+
+      TestDescription description = new TestDescription();
+      for (int i = 0; i < numberOfJobs; i++)
+      {
+         dispatcher.addSimulation(new SimulationToDispatch("job" + i, description, null, null, new double[] {i}, listener));
+      }
+
+      jobsDone.await();
+   }
+
+   private static int findFreePort() throws IOException
+   {
+      ServerSocket serverSocket = new ServerSocket(0);
+      int port = serverSocket.getLocalPort();
+      serverSocket.close();
+
+      return port;
+   }
+
+   private static Process startWorkerProcess(int port) throws IOException
+   {
+      String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+      ProcessBuilder processBuilder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), SimulationJobServer.class.getName(),
+            String.valueOf(NUMBER_OF_SLOTS_PER_WORKER), String.valueOf(port));
+      processBuilder.redirectErrorStream(true);
+      Process process = processBuilder.start();
+
+      // The worker prints one line once it listens
+      BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+      System.out.println(reader.readLine());
+
+      return process;
+   }
+}
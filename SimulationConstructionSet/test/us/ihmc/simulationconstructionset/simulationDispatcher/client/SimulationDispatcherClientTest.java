@@ -1,127 +1,243 @@
 package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
-import java.rmi.registry.LocateRegistry;
-import java.rmi.registry.Registry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Test;
 
-import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationRunnerInterface;
+import us.ihmc.simulationconstructionset.simulationDispatcher.server.SimulationJobServer;
 import us.ihmc.tools.testing.TestPlanTarget;
 import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
 import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
 
-@DeployableTestClass(targets = TestPlanTarget.Manual)
+@DeployableTestClass(targets = TestPlanTarget.Fast)
 public class SimulationDispatcherClientTest
 {
-   private static final String pwd = "***REMOVED***";
-
-   // private static final String serverURL =
-   // "//10.100.0.48/RemoteSimulationRunner";
-//   private static final String serverURL = "RemoteSimulationRunner0";
-   
-   private static final String serverURL = "cheetah:0";
-
-   
-// private static final String serverURL = "//10.100.0.74/RemoteSimulationRunner0";
-
-	@DeployableTestMethod(estimatedDuration = 0.1)
-	@Test(timeout=300000)
-   public void test()
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testDispatchToLocalWorkers() throws Exception
    {
-//    YoVariable foo = new YoVariable("foo", null);
-//    foo.val = 7.3;
+      SimulationJobServer firstServer = new SimulationJobServer(0, 2);
+      SimulationJobServer secondServer = new SimulationJobServer(0, 3);
+      firstServer.start();
+      secondServer.start();
+
+      SimulationDispatcher dispatcher = new SimulationDispatcher(new String[] {"localhost:" + firstServer.getPort(), "localhost:" + secondServer.getPort()},
+            false);
+      assertEquals(2, dispatcher.getDispatchHostList().getAllAliveHosts().length);
+
+      int numberOfSimulations = 500;
+      DispatchDoneRecorder recorder = new DispatchDoneRecorder(numberOfSimulations);
+      addSimulations(dispatcher, recorder, "sim", numberOfSimulations, new String[] {"duration"}, new double[] {0.0});
+      recorder.waitForAllSimulations();
+
+      assertEquals(numberOfSimulations, recorder.finalStates.size());
+      for (int i = 0; i < numberOfSimulations; i++)
+      {
+         double[] finalState = recorder.finalStates.get("sim" + i);
+         assertEquals(2, finalState.length);
+         assertEquals(2.0 * i, finalState[0], 0.0);
+         assertEquals(-2.0 * i, finalState[1], 0.0);
+      }
 
-      String codebase = System.getProperty("java.rmi.server.codebase");
-      if (codebase == "null")
-         ;
-      codebase = "";
+      assertEquals(0, dispatcher.getNumberSimulationsToDispatch());
+      assertEquals(0, dispatcher.getNumberSimulationsCurrentlyDispatched());
+      assertEquals(numberOfSimulations, dispatcher.getDoneSimulations().length);
 
-//      String myCodeBase = "file://halo/Public/Projects/SimulationDispatcher/SimulationDispatcherTestClient.jar";
-      String myCodeBase = "https://bengal.ihmc.us/svn/SimulationDispatcher/SimulationDispatcherTestClient/SimulationDispatcherTestClient.jar";
+      dispatcher.close();
+      firstServer.close();
+      secondServer.close();
+   }
 
-      if (myCodeBase != null)
-         codebase = codebase + myCodeBase;
+   @DeployableTestMethod(estimatedDuration = 2.0)
+   @Test(timeout = 30000)
+   public void testJobsOfClosedWorkerAreDispatchedAgain() throws Exception
+   {
+      SimulationJobServer firstServer = new SimulationJobServer(0, 2);
+      final SimulationJobServer secondServer = new SimulationJobServer(0, 2);
+      firstServer.start();
+      secondServer.start();
 
-      // http://www.coginst.uwf.edu/~jpratt/SimulationDispatcher/codebase/flamingodispatcher78.jar
-//    codebase = codebase + " http://www.ihmc.us/~jpratt/SimulationDispatcher/codebase/simulationconstructionset.jar http://www.ihmc.us/~jpratt/SimulationDispatcher/codebase/simulationdispatcherclient.jar";
+      SimulationDispatcher dispatcher = new SimulationDispatcher(new String[] {"localhost:" + firstServer.getPort(), "localhost:" + secondServer.getPort()},
+            false);
 
-      System.out.println("Setting the RMI codebase to " + codebase);
-      System.setProperty("java.rmi.server.codebase", codebase);
+      // Close the second worker while it still has jobs running and queued
+      new Thread()
+      {
+         public void run()
+         {
+            try
+            {
+               Thread.sleep(200);
+            }
+            catch (InterruptedException e)
+            {
+            }
+
+            secondServer.close();
+         }
+      }.start();
+
+      int numberOfSimulations = 100;
+      DispatchDoneRecorder recorder = new DispatchDoneRecorder(numberOfSimulations);
+      addSimulations(dispatcher, recorder, "sim", numberOfSimulations, new String[] {"duration"}, new double[] {20.0});
+      recorder.waitForAllSimulations();
+
+      assertEquals(numberOfSimulations, recorder.finalStates.size());
+      for (int i = 0; i < numberOfSimulations; i++)
+      {
+         assertEquals(2.0 * i, recorder.finalStates.get("sim" + i)[0], 0.0);
+      }
 
+      assertEquals(1, dispatcher.getDispatchHostList().getAllDeadHosts().length);
 
-      TestDescription description = new TestDescription();    // foo);
+      dispatcher.close();
+      firstServer.close();
+   }
 
-      System.out.println("Dispatching Simulation. ");
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testIdleWorkerTakesJobsQueuedOnBusyWorker() throws Exception
+   {
+      SimulationJobServer busyServer = new SimulationJobServer(0, 1);
+      SimulationJobServer idleServer = new SimulationJobServer(0, 1);
+      busyServer.start();
+      idleServer.start();
 
-      RemoteSimulationRunnerInterface remoteSim = null;
+      SimulationDispatcher dispatcher = new SimulationDispatcher(new String[] {"localhost:" + busyServer.getPort()}, false);
+      dispatcher.setNumberOfQueuedJobsPerHost(20);
 
-//    System.setSecurityManager(new RMISecurityManager());  
+      int numberOfSimulations = 10;
+      DispatchDoneRecorder recorder = new DispatchDoneRecorder(numberOfSimulations);
+      addSimulations(dispatcher, recorder, "sim", numberOfSimulations, new String[] {"duration"}, new double[] {100.0});
 
-      try
+      // All the jobs are queued on the only worker, the second one joins once there is nothing left to dispatch
+      while (dispatcher.getNumberSimulationsToDispatch() > 0)
       {
-         Registry registry = LocateRegistry.getRegistry("localhost");
-         remoteSim = (RemoteSimulationRunnerInterface) registry.lookup(serverURL);
+         Thread.sleep(5);
+      }
+      dispatcher.getDispatchHostList().addHost("localhost:" + idleServer.getPort());
 
-         int onePlusTwo = remoteSim.add(1, 2);
-         System.out.println("onePlusTwo = " + onePlusTwo);
+      recorder.waitForAllSimulations();
 
-      }
-      catch (Exception e)
+      for (int i = 0; i < numberOfSimulations; i++)
       {
-         System.out.println("Exception in TestClient1:  " + e.getMessage());
-         e.printStackTrace();
-         System.exit(-1);
+         assertEquals(2.0 * i, recorder.finalStates.get("sim" + i)[0], 0.0);
       }
 
-      try
+      DispatchHost busyHost = null;
+      DispatchHost idleHost = null;
+      for (DispatchHost dispatchHost : dispatcher.getDispatchHostList().getAllAliveHosts())
       {
-         remoteSim.createSimulation(description, null, null, pwd);
-         System.out.println("Created Simulation");
-
+         if (dispatchHost.getPort() == busyServer.getPort())
+            busyHost = dispatchHost;
+         else if (dispatchHost.getPort() == idleServer.getPort())
+            idleHost = dispatchHost;
       }
-      catch (Exception e)
+
+      assertTrue(idleHost.getNumberOfSimulationsRun() > 0);
+      assertEquals(numberOfSimulations, busyHost.getNumberOfSimulationsRun() + idleHost.getNumberOfSimulationsRun());
+
+      dispatcher.close();
+      busyServer.close();
+      idleServer.close();
+   }
+
+   @DeployableTestMethod(estimatedDuration = 1.0)
+   @Test(timeout = 30000)
+   public void testFailingJobsAreRetriedThenFinishedAsFailed() throws Exception
+   {
+      SimulationJobServer server = new SimulationJobServer(0, 2);
+      server.start();
+
+      SimulationDispatcher dispatcher = new SimulationDispatcher(new String[] {"localhost:" + server.getPort()}, false);
+      int maximumNumberOfAttempts = 3;
+      dispatcher.setMaximumNumberOfAttemptsPerSimulation(maximumNumberOfAttempts);
+
+      int numberOfSimulationsOfEachKind = 5;
+      DispatchDoneRecorder recorder = new DispatchDoneRecorder(3 * numberOfSimulationsOfEachKind);
+      addSimulations(dispatcher, recorder, "failing", numberOfSimulationsOfEachKind, new String[] {"fail"}, new double[] {1.0});
+      addSimulations(dispatcher, recorder, "invalidState", numberOfSimulationsOfEachKind, new String[] {"invalidState"}, new double[] {1.0});
+      addSimulations(dispatcher, recorder, "sim", numberOfSimulationsOfEachKind, new String[] {"duration"}, new double[] {0.0});
+      recorder.waitForAllSimulations();
+
+      assertEquals(2 * numberOfSimulationsOfEachKind, recorder.failedSimulations.size());
+      assertEquals(numberOfSimulationsOfEachKind, recorder.finalStates.size());
+      for (int i = 0; i < numberOfSimulationsOfEachKind; i++)
       {
-         System.out.println("Exception in TestClient2");
+         SimulationToDispatch failingSimulation = recorder.failedSimulations.get("failing" + i);
+         assertTrue(failingSimulation.isSimulationFinished());
+         assertNull(failingSimulation.getFinalState());
+         assertEquals(maximumNumberOfAttempts, failingSimulation.getNumberOfFailedAttempts());
+         assertTrue(failingSimulation.getFailureMessage(), failingSimulation.getFailureMessage().contains("Failing on purpose"));
 
-//       e.printStackTrace();
+         SimulationToDispatch invalidStateSimulation = recorder.failedSimulations.get("invalidState" + i);
+         assertEquals(maximumNumberOfAttempts, invalidStateSimulation.getNumberOfFailedAttempts());
+         assertTrue(invalidStateSimulation.getFailureMessage(), invalidStateSimulation.getFailureMessage().contains("double[]"));
 
-         System.out.println("Root Cause = " + getRootCause(e));
-         System.exit(-1);
+         assertEquals(2.0 * i, recorder.finalStates.get("sim" + i)[0], 0.0);
       }
 
+      // Failing jobs do not take the worker out
+      assertEquals(1, dispatcher.getDispatchHostList().getAllAliveHosts().length);
+      assertEquals(0, dispatcher.getDispatchHostList().getAllDeadHosts().length);
+      assertEquals(3 * numberOfSimulationsOfEachKind, dispatcher.getDoneSimulations().length);
 
-      try
-      {
-         remoteSim.startSimulation(pwd);
-         System.out.println("Started Simulation");
+      // Every simulation created by the worker has been destroyed, the failed ones included
+      assertEquals(0, TestDescription.getNumberOfLiveSimulations());
 
-         // remoteSim.setSimulation(new PinJoint("test", new Vector3d(), rob,
-         // Axis.X));
-         // remoteSim.setSimulation(new Link("test"));
-         // remoteSim.setSimulation(YoAppearance.Red());
-         // remoteSim.setSimulation(controller);
+      dispatcher.close();
+      server.close();
+   }
 
-      }
-      catch (Exception e)
+   private static void addSimulations(SimulationDispatcher dispatcher, DispatchDoneRecorder recorder, String namePrefix, int numberOfSimulations,
+         String[] structuralParameterNames, double[] structuralParameterValues)
+   {
+      TestDescription description = new TestDescription();
+      for (int i = 0; i < numberOfSimulations; i++)
       {
-         System.out.println("Exception in TestClient3:  " + e.getMessage());
-         e.printStackTrace();
-         System.exit(-1);
+         double[] inputState = new double[] {i, -i};
+         dispatcher.addSimulation(new SimulationToDispatch(namePrefix + i, description, structuralParameterNames, structuralParameterValues, inputState,
+               recorder));
       }
-
-      System.out.println("Test Completed!!");
-
    }
 
-   private Throwable getRootCause(Throwable throwable)
+   private static class DispatchDoneRecorder implements DispatchDoneListener
    {
-      Throwable cause = throwable;
+      private final ConcurrentHashMap<String, double[]> finalStates = new ConcurrentHashMap<String, double[]>();
+      private final ConcurrentHashMap<String, SimulationToDispatch> failedSimulations = new ConcurrentHashMap<String, SimulationToDispatch>();
+      private final CountDownLatch simulationsDone;
+      private final AtomicInteger numberOfSimulationsReportedTwice = new AtomicInteger();
+
+      public DispatchDoneRecorder(int numberOfSimulations)
+      {
+         simulationsDone = new CountDownLatch(numberOfSimulations);
+      }
 
-      while (cause.getCause() != null)
+      public void dispatchDone(SimulationToDispatch dispatchSim, double[] finalState)
       {
-         cause = cause.getCause();
+         // A simulation dispatched again after its host broke must not be reported twice
+         boolean reportedTwice;
+         if (dispatchSim.isSimulationFailed())
+            reportedTwice = (finalState != null) || (failedSimulations.put(dispatchSim.getDescription(), dispatchSim) != null);
+         else
+            reportedTwice = finalStates.put(dispatchSim.getDescription(), finalState) != null;
+
+         if (reportedTwice)
+            numberOfSimulationsReportedTwice.incrementAndGet();
+         simulationsDone.countDown();
       }
 
-      return cause;
+      public void waitForAllSimulations() throws InterruptedException
+      {
+         assertTrue(simulationsDone.await(20, TimeUnit.SECONDS));
+         assertEquals(0, numberOfSimulationsReportedTwice.get());
+      }
    }
 }
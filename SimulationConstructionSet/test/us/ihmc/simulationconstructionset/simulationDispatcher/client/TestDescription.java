@@ -1,55 +1,103 @@
 package us.ihmc.simulationconstructionset.simulationDispatcher.client;
 
-import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.RemoteSimulationDescription;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import us.ihmc.simulationconstructionset.simulationDispatcher.interfaces.SynchronousSimulationDescription;
+
+/**
+ * Stand-in for a simulation: the final state is twice the input state. The structural parameters are
+ * "duration", the number of milliseconds to sleep for, "fail", to throw when creating the simulation if
+ * not zero, and "invalidState", to give a final state that is not a double[] if not zero.
+ */
 @SuppressWarnings("serial")
-public class TestDescription implements RemoteSimulationDescription
+public class TestDescription implements SynchronousSimulationDescription
 {
-// YoVariable var;
+   private static final AtomicInteger numberOfLiveSimulations = new AtomicInteger();
 
-   public TestDescription()    // YoVariable var)
-   {
-      System.out.println("Creating Test Description");
+   private transient long durationMillis;
+   private transient boolean invalidState;
+   private transient double[] state;
+   private transient boolean isSimulationDone;
 
-//    this.var = var;
-//    System.out.println("Added YoVariable: " + var.getName());
+   public TestDescription()
+   {
    }
 
-   public void executeSimulation()
+   /**
+    * @return the number of simulations created and not destroyed yet, over all the descriptions in this process.
+    */
+   public static int getNumberOfLiveSimulations()
    {
-      System.out.println("TestDescription: executeSimulation");
-
-//    System.out.println("YoVariable " + var.getName() + "has value: " + var.val);
-
+      return numberOfLiveSimulations.get();
    }
 
    public void createSimulation(String[] structuralParameterNames, double[] structuralParameterValues)
    {
-      System.out.println("TestDescription: createSimulation");
+      durationMillis = 0;
+      invalidState = false;
+
+      for (int i = 0; (structuralParameterNames != null) && (i < structuralParameterNames.length); i++)
+      {
+         if (structuralParameterNames[i].equals("duration"))
+            durationMillis = (long) structuralParameterValues[i];
+         else if (structuralParameterNames[i].equals("fail") && (structuralParameterValues[i] != 0.0))
+            throw new RuntimeException("Failing on purpose");
+         else if (structuralParameterNames[i].equals("invalidState"))
+            invalidState = structuralParameterValues[i] != 0.0;
+      }
+
+      isSimulationDone = false;
+      numberOfLiveSimulations.incrementAndGet();
    }
 
    public void destroySimulation()
    {
-      System.out.println("TestDescription: destroySimulation");
+      state = null;
+      numberOfLiveSimulations.decrementAndGet();
    }
 
    public void setSimulationState(Object object)
    {
+      state = ((double[]) object).clone();
    }
 
    public void startSimulation()
    {
-      System.out.println("TestDescription: startSimulation");
+      runSimulation();
+   }
+
+   public void runSimulation()
+   {
+      if (durationMillis > 0)
+      {
+         try
+         {
+            Thread.sleep(durationMillis);
+         }
+         catch (InterruptedException e)
+         {
+         }
+      }
+
+      for (int i = 0; i < state.length; i++)
+      {
+         state[i] = 2.0 * state[i];
+      }
+
+      isSimulationDone = true;
    }
 
    public boolean isSimulationDone()
    {
-      return false;
+      return isSimulationDone;
    }
 
    public Object getSimulationState()
    {
-      return null;
+      if (invalidState)
+         return "not a double[]";
+
+      return state;
    }
 
    public Object getSimulationData()
@@ -0,0 +1,61 @@
+package us.ihmc.simulationconstructionset.testSimulations;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import javax.vecmath.Vector3d;
+
+import us.ihmc.robotics.Axis;
+import us.ihmc.simulationconstructionset.Link;
+import us.ihmc.simulationconstructionset.PinJoint;
+import us.ihmc.simulationconstructionset.Robot;
+
+/**
+ * Chain of pin joints hanging from 2m high, alternating around the x and y axes, starting from a random state.
+ */
+public class PendulumChain extends Robot
+{
+   private final ArrayList<PinJoint> joints = new ArrayList<PinJoint>();
+
+   /**
+    * @param linkLength distance between two joints, the center of mass is halfway
+    * @param maximumInitialAngle the initial angle of every joint is uniform in [-maximumInitialAngle, maximumInitialAngle]
+    * @param maximumInitialVelocity the initial velocity of every joint is uniform in [-maximumInitialVelocity, maximumInitialVelocity]
+    */
+   public PendulumChain(String name, int numberOfJoints, double linkLength, double linkMass, double damping, double maximumInitialAngle,
+         double maximumInitialVelocity, Random random)
+   {
+      super(name);
+
+      PinJoint parentJoint = null;
+      for (int i = 0; i < numberOfJoints; i++)
+      {
+         Vector3d offset = parentJoint == null ? new Vector3d(0.0, 0.0, 2.0) : new Vector3d(0.0, 0.0, -linkLength);
+         PinJoint joint = new PinJoint(name + "Joint" + i, offset, this, i % 2 == 0 ? Axis.X : Axis.Y);
+         joint.setInitialState(maximumInitialAngle * (2.0 * random.nextDouble() - 1.0), maximumInitialVelocity * (2.0 * random.nextDouble() - 1.0));
+         if (damping > 0.0)
+            joint.setDamping(damping);
+
+         Link link = new Link(name + "Link" + i);
+         link.setComOffset(0.0, 0.0, -0.5 * linkLength);
+         link.setMassAndRadiiOfGyration(linkMass, 0.1 * linkLength, 0.1 * linkLength, 0.4 * linkLength);
+         joint.setLink(link);
+
+         if (parentJoint == null)
+            addRootJoint(joint);
+         else
+            parentJoint.addJoint(joint);
+
+         joints.add(joint);
+         parentJoint = joint;
+      }
+   }
+
+   /**
+    * @return the joints from the root to the tip
+    */
+   public ArrayList<PinJoint> getJoints()
+   {
+      return joints;
+   }
+}
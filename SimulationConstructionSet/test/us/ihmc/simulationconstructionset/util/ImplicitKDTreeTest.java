@@ -0,0 +1,199 @@
+package us.ihmc.simulationconstructionset.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestClass;
+import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
+import us.ihmc.tools.testing.TestPlanTarget;
+
+@DeployableTestClass(targets = {TestPlanTarget.Fast})
+public class ImplicitKDTreeTest
+{
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testClosestPointAgainstBruteForce()
+   {
+      Random random = new Random(1776L);
+
+      for (int dimensions = 1; dimensions <= 4; dimensions++)
+      {
+         double[] coordinates = generateRandomCoordinates(random, 5000, dimensions);
+         ImplicitKDTree tree = new ImplicitKDTree(coordinates, dimensions);
+         assertEquals(5000, tree.getNumberOfPoints());
+         assertEquals(dimensions, tree.getDimensions());
+
+         for (int i = 0; i < 1000; i++)
+         {
+            double[] testPoint = generateRandomCoordinates(random, 1, dimensions);
+            int expectedIndex = closestPointIndexBruteForce(coordinates, dimensions, testPoint, Double.POSITIVE_INFINITY);
+            int index = tree.closestPointIndex(testPoint);
+            assertEquals(distanceSquared(coordinates, dimensions, expectedIndex, testPoint), distanceSquared(coordinates, dimensions, index, testPoint), 0.0);
+
+            expectedIndex = closestPointIndexBruteForce(coordinates, dimensions, testPoint, 0.1);
+            index = tree.closestPointIndex(testPoint, 0.1);
+            if (expectedIndex == -1)
+               assertEquals(-1, index);
+            else
+               assertEquals(distanceSquared(coordinates, dimensions, expectedIndex, testPoint), distanceSquared(coordinates, dimensions, index, testPoint), 0.0);
+         }
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testClosestPointsAgainstBruteForce()
+   {
+      Random random = new Random(1777L);
+      int dimensions = 3;
+      double[] coordinates = generateRandomCoordinates(random, 5000, dimensions);
+      ImplicitKDTree tree = new ImplicitKDTree(coordinates, dimensions, 4, 1);
+
+      int[] indices = new int[10];
+      double[] distancesSquared = new double[10];
+
+      for (int i = 0; i < 1000; i++)
+      {
+         double[] testPoint = generateRandomCoordinates(random, 1, dimensions);
+         double maxDistance = i % 2 == 0 ? Double.POSITIVE_INFINITY : 0.15;
+         double[] expectedDistancesSquared = sortedDistancesSquaredBruteForce(coordinates, dimensions, testPoint, maxDistance);
+
+         int numberFound = tree.closestPointIndices(testPoint, maxDistance, indices, distancesSquared);
+         assertEquals(Math.min(indices.length, expectedDistancesSquared.length), numberFound);
+
+         for (int j = 0; j < numberFound; j++)
+         {
+            assertEquals(expectedDistancesSquared[j], distancesSquared[j], 0.0);
+            assertEquals(distancesSquared[j], distanceSquared(coordinates, dimensions, indices[j], testPoint), 0.0);
+         }
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testPointsWithinRadiusAgainstBruteForce()
+   {
+      Random random = new Random(1778L);
+      int dimensions = 2;
+      double[] coordinates = generateRandomCoordinates(random, 5000, dimensions);
+      ImplicitKDTree tree = new ImplicitKDTree(coordinates, dimensions);
+
+      int[] indices = new int[5000];
+      double[] distancesSquared = new double[5000];
+
+      for (int i = 0; i < 500; i++)
+      {
+         double[] testPoint = generateRandomCoordinates(random, 1, dimensions);
+         double radius = 0.2 * random.nextDouble();
+         double[] expectedDistancesSquared = sortedDistancesSquaredBruteForce(coordinates, dimensions, testPoint, radius);
+
+         int numberFound = tree.pointIndicesWithinRadius(testPoint, radius, indices, distancesSquared);
+         assertEquals(expectedDistancesSquared.length, numberFound);
+
+         boolean[] found = new boolean[coordinates.length / dimensions];
+         for (int j = 0; j < numberFound; j++)
+         {
+            assertTrue(!found[indices[j]]);
+            found[indices[j]] = true;
+            assertEquals(distanceSquared(coordinates, dimensions, indices[j], testPoint), distancesSquared[j], 0.0);
+         }
+
+         // With a smaller buffer, the points are still all counted
+         int[] smallIndices = new int[2];
+         assertEquals(numberFound, tree.pointIndicesWithinRadius(testPoint, radius, smallIndices, null));
+      }
+   }
+
+   @DeployableTestMethod(estimatedDuration = 0.5)
+   @Test(timeout = 30000)
+   public void testParallelBuildOnGrid()
+   {
+      // A grid has many equal coordinates and is sorted, which are the hard cases for the median selection
+      int gridSize = 300;
+      double[] coordinates = new double[2 * gridSize * gridSize];
+      for (int i = 0; i < gridSize; i++)
+      {
+         for (int j = 0; j < gridSize; j++)
+         {
+            coordinates[2 * (i * gridSize + j)] = 0.01 * i;
+            coordinates[2 * (i * gridSize + j) + 1] = 0.01 * j;
+         }
+      }
+
+      ImplicitKDTree serialTree = new ImplicitKDTree(coordinates, 2, 10, 1);
+      ImplicitKDTree parallelTree = new ImplicitKDTree(coordinates, 2, 10, 4);
+
+      Random random = new Random(1779L);
+      double[] testPoint = new double[2];
+      for (int i = 0; i < 1000; i++)
+      {
+         int index = random.nextInt(gridSize * gridSize);
+         testPoint[0] = coordinates[2 * index] + 0.004 * (random.nextDouble() - 0.5);
+         testPoint[1] = coordinates[2 * index + 1] + 0.004 * (random.nextDouble() - 0.5);
+
+         assertEquals(index, serialTree.closestPointIndex(testPoint, 0.01));
+         assertEquals(index, parallelTree.closestPointIndex(testPoint, 0.01));
+      }
+   }
+
+   private static double[] generateRandomCoordinates(Random random, int numberOfPoints, int dimensions)
+   {
+      double[] coordinates = new double[numberOfPoints * dimensions];
+      for (int i = 0; i < coordinates.length; i++)
+      {
+         coordinates[i] = random.nextDouble();
+      }
+
+      return coordinates;
+   }
+
+   private static int closestPointIndexBruteForce(double[] coordinates, int dimensions, double[] testPoint, double maxDistance)
+   {
+      int closestIndex = -1;
+      double bestDistanceSquared = maxDistance * maxDistance;
+      for (int i = 0; i < coordinates.length / dimensions; i++)
+      {
+         double distanceSquared = distanceSquared(coordinates, dimensions, i, testPoint);
+         if (distanceSquared <= bestDistanceSquared)
+         {
+            bestDistanceSquared = distanceSquared;
+            closestIndex = i;
+         }
+      }
+
+      return closestIndex;
+   }
+
+   private static double[] sortedDistancesSquaredBruteForce(double[] coordinates, int dimensions, double[] testPoint, double maxDistance)
+   {
+      double[] distancesSquared = new double[coordinates.length / dimensions];
+      int numberOfPoints = 0;
+      for (int i = 0; i < coordinates.length / dimensions; i++)
+      {
+         double distanceSquared = distanceSquared(coordinates, dimensions, i, testPoint);
+         if (distanceSquared <= maxDistance * maxDistance)
+            distancesSquared[numberOfPoints++] = distanceSquared;
+      }
+
+      distancesSquared = Arrays.copyOf(distancesSquared, numberOfPoints);
+      Arrays.sort(distancesSquared);
+      return distancesSquared;
+   }
+
+   private static double distanceSquared(double[] coordinates, int dimensions, int index, double[] testPoint)
+   {
+      double distanceSquared = 0.0;
+      for (int i = 0; i < dimensions; i++)
+      {
+         double difference = testPoint[i] - coordinates[index * dimensions + i];
+         distanceSquared += difference * difference;
+      }
+
+      return distanceSquared;
+   }
+}
@@ -1,10 +1,20 @@
 package us.ihmc.simulationconstructionset.util.ground;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
 import org.junit.Test;
 
+import us.ihmc.graphics3DAdapter.HeightMapWithNormals;
+import us.ihmc.graphics3DAdapter.graphics.Graphics3DObject;
+import us.ihmc.robotics.geometry.BoundingBox3d;
 import us.ihmc.robotics.geometry.ConvexPolygon2d;
 import us.ihmc.tools.testing.JUnitTools;
 import us.ihmc.tools.testing.TestPlanAnnotations.DeployableTestMethod;
@@ -37,6 +47,260 @@ public class CombinedTerrainObjectTest
       JUnitTools.assertTuple3dEquals(expectedNormal, resultNormal, 1e-4);
    }
 
+	@DeployableTestMethod(estimatedDuration = 0.5)
+	@Test(timeout=300000)
+   public void testGridIndexMatchesLinearSearch()
+   {
+      Random random = new Random(1234L);
+      CombinedTerrainObject3D combinedTerrainObject = new CombinedTerrainObject3D("Many boxes");
+
+      // Large ground box, like the ground planes used in the environments, plus many small boxes and ramps
+      combinedTerrainObject.addBox(-500.0, -500.0, 500.0, 500.0, -0.1, 0.0);
+      addRandomObjects(random, combinedTerrainObject, 500);
+      assertIndexedQueriesMatchLinearSearch(random, combinedTerrainObject, 2000);
+
+      // Objects added after the first queries must be found as well
+      addRandomObjects(random, combinedTerrainObject, 100);
+      assertIndexedQueriesMatchLinearSearch(random, combinedTerrainObject, 2000);
+   }
+
+	@DeployableTestMethod(estimatedDuration = 0.5)
+	@Test(timeout=300000)
+   public void testObjectsOutsideOfTheirBoundingBoxAndGrowingChildren()
+   {
+      Random random = new Random(4321L);
+      CombinedTerrainObject3D combinedTerrainObject = new CombinedTerrainObject3D("Inconsistent objects");
+      addRandomObjects(random, combinedTerrainObject, 300);
+
+      // Close everywhere, but with a tiny bounding box in a corner
+      PlaneWithSmallBoundingBox plane = new PlaneWithSmallBoundingBox(0.25);
+      combinedTerrainObject.addTerrainObject(plane);
+
+      CombinedTerrainObject3D child = new CombinedTerrainObject3D("Child");
+      child.addBox(-1.0, -1.0, 1.0, 1.0, 0.3);
+      combinedTerrainObject.addTerrainObject(child);
+      addRandomObjects(random, combinedTerrainObject, 300);
+
+      assertEquals(0.25, combinedTerrainObject.heightAt(15.0, 15.0, 0.0), 1e-12);
+      assertIndexedQueriesMatchLinearSearch(random, combinedTerrainObject, 2000);
+
+      // The child grows after the index of the parent has been built
+      child.addBox(8.0, 8.0, 11.0, 11.0, 1.5);
+      assertEquals(1.5, combinedTerrainObject.heightAt(10.5, 10.5, 0.0), 1e-12);
+      assertIndexedQueriesMatchLinearSearch(random, combinedTerrainObject, 2000);
+   }
+
+	@DeployableTestMethod(estimatedDuration = 1.0)
+	@Test(timeout=300000)
+   public void testConcurrentQueriesAfterAddingObjects() throws InterruptedException
+   {
+      Random random = new Random(5678L);
+      final CombinedTerrainObject3D combinedTerrainObject = new CombinedTerrainObject3D("Concurrent");
+      int numberOfThreads = 8;
+      final int numberOfQueries = 2000;
+
+      for (int round = 0; round < 10; round++)
+      {
+         addRandomObjects(random, combinedTerrainObject, 200);
+
+         final double[] xs = new double[numberOfQueries];
+         final double[] ys = new double[numberOfQueries];
+         final double[] expectedHeights = new double[numberOfQueries];
+         Vector3d normal = new Vector3d();
+         for (int i = 0; i < numberOfQueries; i++)
+         {
+            xs[i] = -12.0 + 24.0 * random.nextDouble();
+            ys[i] = -12.0 + 24.0 * random.nextDouble();
+            expectedHeights[i] = heightAndNormalAtLinear(combinedTerrainObject.getTerrainObjects(), xs[i], ys[i], 0.0, normal);
+         }
+
+         // All threads query right after the objects have been added, so they all find the index outdated
+         final CountDownLatch start = new CountDownLatch(1);
+         final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+         ArrayList<Thread> threads = new ArrayList<Thread>();
+         for (int t = 0; t < numberOfThreads; t++)
+         {
+            Thread thread = new Thread(new Runnable()
+            {
+               @Override
+               public void run()
+               {
+                  try
+                  {
+                     start.await();
+                     for (int i = 0; i < numberOfQueries; i++)
+                     {
+                        assertEquals(expectedHeights[i], combinedTerrainObject.heightAt(xs[i], ys[i], 0.0), 1e-12);
+                     }
+                  }
+                  catch (Throwable e)
+                  {
+                     failure.compareAndSet(null, e);
+                  }
+               }
+            });
+            threads.add(thread);
+            thread.start();
+         }
+
+         start.countDown();
+         for (Thread thread : threads)
+         {
+            thread.join();
+         }
+
+         if (failure.get() != null)
+            throw new AssertionError(failure.get());
+      }
+   }
+
+   private static class PlaneWithSmallBoundingBox implements TerrainObject3D, HeightMapWithNormals
+   {
+      private final double height;
+      private final BoundingBox3d boundingBox;
+
+      public PlaneWithSmallBoundingBox(double height)
+      {
+         this.height = height;
+         boundingBox = new BoundingBox3d(-10.0, -10.0, height - 0.1, -9.9, -9.9, height);
+      }
+
+      @Override
+      public BoundingBox3d getBoundingBox()
+      {
+         return boundingBox;
+      }
+
+      @Override
+      public boolean isClose(double x, double y, double z)
+      {
+         return true;
+      }
+
+      @Override
+      public boolean checkIfInside(double x, double y, double z, Point3d intersectionToPack, Vector3d normalToPack)
+      {
+         intersectionToPack.set(x, y, height);
+         normalToPack.set(0.0, 0.0, 1.0);
+         return z < height;
+      }
+
+      @Override
+      public HeightMapWithNormals getHeightMapIfAvailable()
+      {
+         return this;
+      }
+
+      @Override
+      public double heightAt(double x, double y, double z)
+      {
+         return height;
+      }
+
+      @Override
+      public double heightAndNormalAt(double x, double y, double z, Vector3d normalToPack)
+      {
+         normalToPack.set(0.0, 0.0, 1.0);
+         return height;
+      }
+
+      @Override
+      public Graphics3DObject getLinkGraphics()
+      {
+         return new Graphics3DObject();
+      }
+   }
+
+   private void addRandomObjects(Random random, CombinedTerrainObject3D combinedTerrainObject, int numberOfObjects)
+   {
+      for (int i = 0; i < numberOfObjects; i++)
+      {
+         double xStart = -10.0 + 20.0 * random.nextDouble();
+         double yStart = -10.0 + 20.0 * random.nextDouble();
+         double xEnd = xStart + 0.05 + 1.0 * random.nextDouble();
+         double yEnd = yStart + 0.05 + 1.0 * random.nextDouble();
+         double height = 0.5 * random.nextDouble();
+
+         if (random.nextBoolean())
+            combinedTerrainObject.addBox(xStart, yStart, xEnd, yEnd, height);
+         else
+            combinedTerrainObject.addRamp(xStart, yStart, xEnd, yEnd, height);
+      }
+   }
+
+   private void assertIndexedQueriesMatchLinearSearch(Random random, CombinedTerrainObject3D combinedTerrainObject, int numberOfQueries)
+   {
+      Point3d expectedIntersection = new Point3d();
+      Vector3d expectedNormal = new Vector3d();
+      Point3d resultIntersection = new Point3d();
+      Vector3d resultNormal = new Vector3d();
+
+      for (int i = 0; i < numberOfQueries; i++)
+      {
+         // Also query outside of the small objects, and exactly on some of their edges
+         double x = -12.0 + 24.0 * random.nextDouble();
+         double y = -12.0 + 24.0 * random.nextDouble();
+         if (i % 10 == 0)
+         {
+            TerrainObject3D terrainObject = combinedTerrainObject.getTerrainObjects().get(random.nextInt(combinedTerrainObject.getTerrainObjects().size()));
+            x = terrainObject.getBoundingBox().getXMax();
+         }
+         double z = -0.2 + 0.8 * random.nextDouble();
+
+         boolean expectedIsInside = checkIfInsideLinear(combinedTerrainObject.getTerrainObjects(), x, y, z, expectedIntersection, expectedNormal);
+         boolean resultIsInside = combinedTerrainObject.checkIfInside(x, y, z, resultIntersection, resultNormal);
+         assertEquals(expectedIsInside, resultIsInside);
+         JUnitTools.assertTuple3dEquals(expectedIntersection, resultIntersection, 1e-12);
+         JUnitTools.assertTuple3dEquals(expectedNormal, resultNormal, 1e-12);
+
+         assertEquals(heightAndNormalAtLinear(combinedTerrainObject.getTerrainObjects(), x, y, z, expectedNormal), combinedTerrainObject.heightAndNormalAt(x, y, z, resultNormal), 1e-12);
+         JUnitTools.assertTuple3dEquals(expectedNormal, resultNormal, 1e-12);
+         assertEquals(heightAndNormalAtLinear(combinedTerrainObject.getTerrainObjects(), x, y, z, expectedNormal), combinedTerrainObject.heightAt(x, y, z), 1e-12);
+      }
+   }
+
+   private static boolean checkIfInsideLinear(ArrayList<TerrainObject3D> terrainObjects, double x, double y, double z, Point3d intersectionToPack, Vector3d normalToPack)
+   {
+      Point3d pointToCheck = new Point3d(x, y, z);
+      Point3d localIntersection = new Point3d();
+      Vector3d localNormal = new Vector3d();
+      double smallestDistance = Double.MAX_VALUE;
+      boolean isInside = false;
+
+      intersectionToPack.set(x, y, 0.0);
+      normalToPack.set(0.0, 0.0, 1.0);
+
+      for (TerrainObject3D terrainObject : terrainObjects)
+      {
+         if (terrainObject.isClose(x, y, z) && terrainObject.checkIfInside(x, y, z, localIntersection, localNormal)
+               && pointToCheck.distance(localIntersection) < smallestDistance)
+         {
+            smallestDistance = pointToCheck.distance(localIntersection);
+            intersectionToPack.set(localIntersection);
+            normalToPack.set(localNormal);
+            isInside = true;
+         }
+      }
+
+      return isInside;
+   }
+
+   private static double heightAndNormalAtLinear(ArrayList<TerrainObject3D> terrainObjects, double x, double y, double z, Vector3d normalToPack)
+   {
+      double heightAt = Double.NEGATIVE_INFINITY;
+
+      for (TerrainObject3D terrainObject : terrainObjects)
+      {
+         HeightMapWithNormals heightMap = terrainObject.getHeightMapIfAvailable();
+         if (terrainObject.isClose(x, y, z) && heightMap != null && heightMap.heightAt(x, y, z) > heightAt)
+         {
+            heightAt = heightMap.heightAndNormalAt(x, y, z, normalToPack);
+         }
+      }
+
+      return heightAt;
+   }
+
    private void setupTwoIntersectingBoxesMadeFromPolygons(CombinedTerrainObject3D combinedTerrainObject)
    {
       Vector3d normalVector = new Vector3d(0.0, 0.0, 1.0);
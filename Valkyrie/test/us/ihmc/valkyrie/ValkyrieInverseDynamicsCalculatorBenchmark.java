@@ -0,0 +1,18 @@
+package us.ihmc.valkyrie;
+
+import us.ihmc.darpaRoboticsChallenge.drcRobot.DRCRobotModel;
+import us.ihmc.darpaRoboticsChallenge.obstacleCourseTests.DRCInverseDynamicsCalculatorBenchmark;
+
+public class ValkyrieInverseDynamicsCalculatorBenchmark extends DRCInverseDynamicsCalculatorBenchmark
+{
+   @Override
+   public DRCRobotModel getRobotModel()
+   {
+      return new ValkyrieRobotModel(DRCRobotModel.RobotTarget.SCS, false);
+   }
+
+   public static void main(String[] args)
+   {
+      new ValkyrieInverseDynamicsCalculatorBenchmark().run();
+   }
+}